@@ -514,6 +514,24 @@ public class DataInfo extends Keyed {
       return res;
     }
 
+    /**
+     * Inner product of a dense row with one block of vec, e.g. the coefficients of one class of a multinomial model.
+     * @param vec coefficients of all blocks, each block has fullN() coefficients followed by the intercept
+     * @param off start of the block
+     */
+    public final double innerProduct(double [] vec, int off) {
+      assert numIds == null : "only dense rows";
+      double res = 0;
+      int numStart = off + numStart();
+      for(int i = 0; i < nBins; ++i)
+        res += vec[off + binIds[i]];
+      for (int i = 0; i < numVals.length; ++i)
+        res += numVals[i] * vec[numStart + i];
+      if(_intercept)
+        res += vec[off + fullN()];
+      return res;
+    }
+
     public String toString() {
       return this.rid + Arrays.toString(Arrays.copyOf(binIds,nBins)) + ", " + Arrays.toString(numVals);
     }
@@ -116,6 +116,12 @@ public class DeepLearning extends SupervisedModelBuilder<DeepLearningModel,DeepL
             "_single_node_mode",
             "_sparse",
             "_col_major",
+            "_mini_batch_size",
+            "_sync_compression",
+            "_sync_top_k_fraction",
+            "_async_training",
+            "_async_rounds",
+            "_max_staleness",
             // Allow modification of the regularization parameters after a checkpoint restart
             "_l1",
             "_l2",
@@ -307,7 +313,7 @@ public class DeepLearning extends SupervisedModelBuilder<DeepLearningModel,DeepL
           final String etl = model.run_time == 0 ? "" : " Estimated time left: " + PrettyPrint.msecs((long)(model.run_time*(1.-progress())/progress()), true);
           new ProgressUpdate("Training" + speed + etl).fork(_progressKey);
 //          if (!_parms._quiet_mode) Log.info("Training (MapReduce step)...");
-          model.set_model_info(mp._epochs == 0 ? model.model_info() : H2O.CLOUD.size() > 1 && mp._replicate_training_data ? (mp._single_node_mode ?
+          model.set_model_info(mp._epochs == 0 ? model.model_info() : mp._async_training ? trainAsync(train, mp, model) : H2O.CLOUD.size() > 1 && mp._replicate_training_data ? (mp._single_node_mode ?
                   new DeepLearningTask2(self(), train, model.model_info(), rowFraction(train, mp, model)).doAll(Key.make()).model_info() : //replicated data + single node mode
                   new DeepLearningTask2(self(), train, model.model_info(), rowFraction(train, mp, model)).doAllNodes().model_info()) : //replicated data + multi-node mode
                   new DeepLearningTask(self(), model.model_info(), rowFraction(train, mp, model)).doAll(train).model_info()); //distributed data (always in multi-node mode)
@@ -350,11 +356,29 @@ public class DeepLearning extends SupervisedModelBuilder<DeepLearningModel,DeepL
           }
         }
         for (Frame f : _delete_me) f.delete(); //delete internally rebalanced frames
+        if (_parms._sync_compression != DeepLearningModel.DeepLearningParameters.SyncCompression.None && H2O.CLOUD.size() > 1)
+          DeepLearningModelDelta.clearFeedback(self()); //drop the compression errors held on all nodes
       }
       return model;
     }
     transient HashSet<Frame> _delete_me = new HashSet<>();
 
+    /**
+     * One iteration of asynchronous training: all nodes train against a sharded copy of the model in the DKV
+     * @param train training frame (replicated on all nodes)
+     * @param mp model parameters
+     * @param model model to train
+     * @return the updated model_info
+     */
+    private DeepLearningModel.DeepLearningModelInfo trainAsync(Frame train, DeepLearningModel.DeepLearningParameters mp, DeepLearningModel model) {
+      DeepLearningAsyncTask task = new DeepLearningAsyncTask(self(), train, model.model_info(), rowFraction(train, mp, model));
+      try {
+        return task.doAllNodes().model_info();
+      } finally {
+        task.removeShards();
+      }
+    }
+
     /**
      * Rebalance a frame for load balancing
      * @param fr Input frame
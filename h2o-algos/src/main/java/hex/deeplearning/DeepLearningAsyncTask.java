@@ -0,0 +1,230 @@
+package hex.deeplearning;
+
+import water.*;
+import water.fvec.Frame;
+import water.util.Log;
+
+/**
+ * Asynchronous Deep Learning with a parameter server in the DKV.
+ * The model is sharded by layer, with the shards homed on different nodes. Every node repeatedly
+ * pulls the current weights, trains on a fraction of its (replicated) training data, and pushes its
+ * update to the shards, without waiting for the other nodes. An update computed from weights that
+ * have become too stale in the meantime is discarded (bounded staleness).
+ */
+public class DeepLearningAsyncTask extends MRTask<DeepLearningAsyncTask> {
+  /**
+   * Construct a DeepLearningAsyncTask where every node trains on the entire training dataset
+   * @param train Frame containing training data
+   * @param model_info Initial DeepLearningModelInfo (weights + biases), published to the shards
+   * @param sync_fraction Fraction of the training data to use per node for this iteration (over all rounds)
+   */
+  public DeepLearningAsyncTask(Key jobKey, Frame train, DeepLearningModel.DeepLearningModelInfo model_info, float sync_fraction) {
+    assert(sync_fraction > 0);
+    _jobKey = jobKey;
+    _fr = train;
+    _model_info = model_info;
+    _sync_fraction = sync_fraction;
+    _processed_start = model_info.get_processed_global();
+    _home = true;
+    _shards = new Key[model_info.get_params()._hidden.length + 1];
+    Futures fs = new Futures();
+    for (int l = 0; l < _shards.length; ++l) {
+      _shards[l] = Key.make((byte) 1, Key.HIDDEN_USER_KEY, false, H2O.CLOUD._memary[l % H2O.CLOUD.size()]);
+      DKV.put(_shards[l], new Shard(copy(model_info.layerArrays(l))), fs); //the DKV keeps the POJO: don't share the model's arrays
+    }
+    fs.blockForPending();
+  }
+
+  /**
+   * Returns the model with the weights of the shards after all nodes are done
+   * @return model_info object
+   */
+  public DeepLearningModel.DeepLearningModelInfo model_info() {
+    return _model_info;
+  }
+
+  final private Key _jobKey;
+  final private Frame _fr;
+  private DeepLearningModel.DeepLearningModelInfo _model_info;
+  final private float _sync_fraction;
+  final private long _processed_start;
+  final private Key[] _shards;
+  private transient boolean _home; //task on the node that started it (not serialized)
+
+  // results, summed over all nodes
+  private long _processed;
+  private int _pushed;
+  private int _dropped;
+  private boolean _unstable;
+
+  /**
+   * One layer of the model (weights, biases and their momenta or ADADELTA state), with the number
+   * of updates applied so far
+   */
+  static class Shard extends Iced {
+    long _version;
+    float[][] _arrays;
+    Shard(float[][] arrays) { _arrays = arrays; }
+  }
+
+  private static float[][] copy(float[][] arrays) {
+    float[][] res = new float[arrays.length][];
+    for (int i = 0; i < arrays.length; ++i) res[i] = arrays[i].clone();
+    return res;
+  }
+
+  /**
+   * Atomic update of a shard with the (scaled) change of one node, unless the shard has received
+   * more than _max_lag other updates since the node pulled it
+   */
+  static class Push extends TAtomic<Shard> {
+    float[][] _delta;
+    final long _pulled;
+    final long _max_lag;
+    final float _scale;
+    final int _ada; //index of the two ADADELTA arrays (non-negative), or -1
+    boolean _dropped;
+    Push(float[][] delta, long pulled, long max_lag, float scale, int ada) { _delta = delta; _pulled = pulled; _max_lag = max_lag; _scale = scale; _ada = ada; }
+    @Override protected Shard atomic(Shard old) {
+      _dropped = old._version - _pulled > _max_lag;
+      if (_dropped) {
+        _delta = null; //don't send it back
+        return null;
+      }
+      // new arrays: the old value is only a shallow copy of the installed one
+      float[][] arrays = new float[_delta.length][];
+      for (int i = 0; i < _delta.length; ++i) {
+        arrays[i] = new float[_delta[i].length];
+        for (int j = 0; j < _delta[i].length; ++j)
+          arrays[i][j] = old._arrays[i][j] + _scale * _delta[i][j];
+        // a stale update can overshoot the ADADELTA running averages
+        if (_ada >= 0 && (i == _ada || i == _ada + 1))
+          for (int j = 0; j < arrays[i].length; ++j) arrays[i][j] = Math.max(0, arrays[i][j]);
+      }
+      Shard nnn = new Shard(arrays);
+      nnn._version = old._version + 1;
+      return nnn;
+    }
+    @Override protected void onSuccess(Value old) { _delta = null; }
+  }
+
+  /**
+   * Start the training loop of this node, which pulls, trains and pushes for async_rounds rounds.
+   * The task completes once the loop is done.
+   */
+  @Override
+  protected void setupLocal() {
+    super.setupLocal();
+    addToPendingCount(1);
+    H2O.submitTask(new H2O.H2OCountedCompleter(this) {
+      @Override protected void compute2() {
+        train();
+        tryComplete();
+      }
+    });
+  }
+
+  private void train() {
+    final DeepLearningModel.DeepLearningModelInfo mi = _model_info; //local working copy
+    final DeepLearningModel.DeepLearningParameters p = mi.get_params();
+    final int rounds = p._async_rounds;
+    final int nodes = H2O.CLOUD.size();
+    final long max_lag = (long) p._max_staleness * nodes;
+    final Shard[] pulled = new Shard[_shards.length];
+    for (int r = 0; r < rounds && !mi.unstable(); ++r) {
+      // pull the current weights
+      for (int l = 0; l < _shards.length; ++l) pulled[l] = pull(mi, l);
+      // train on a fraction of the local data
+      final long before = mi.get_processed_total();
+      new DeepLearningTask(_jobKey, mi, _sync_fraction / rounds).doAll(_fr, true /*run_local*/);
+      _processed += mi.get_processed_total() - before;
+      // push the change of every layer to its shard
+      RPC[] rpcs = new RPC[_shards.length];
+      Push[] pushes = new Push[_shards.length];
+      for (int l = 0; l < _shards.length; ++l) {
+        pushes[l] = push(mi, l, pulled[l], max_lag, nodes);
+        rpcs[l] = pushes[l].fork(_shards[l]);
+      }
+      for (int l = 0; l < _shards.length; ++l) {
+        Push res = rpcs[l] == null ? pushes[l] : (Push) rpcs[l].get();
+        if (res._dropped) _dropped++;
+        else _pushed++;
+      }
+    }
+    _unstable = mi.unstable();
+  }
+
+  /**
+   * Copy the current weights of a shard into the model
+   * @param mi local working copy of the model
+   * @param l index of the layer
+   * @return the pulled shard, whose arrays are not shared with the model
+   */
+  Shard pull(DeepLearningModel.DeepLearningModelInfo mi, int l) {
+    Shard s = DKV.getGet(_shards[l]);
+    float[][] arrays = mi.layerArrays(l);
+    for (int i = 0; i < arrays.length; ++i) System.arraycopy(s._arrays[i], 0, arrays[i], 0, arrays[i].length);
+    return s;
+  }
+
+  /**
+   * The update of a layer: its change in the model since the pull, as its share of the average over all nodes
+   * @param mi local working copy of the model, trained since the pull
+   * @param l index of the layer
+   * @param pulled the shard pulled before training
+   * @param max_lag number of other updates of the shard after which the update is discarded
+   * @param nodes number of nodes training asynchronously
+   */
+  Push push(DeepLearningModel.DeepLearningModelInfo mi, int l, Shard pulled, long max_lag, int nodes) {
+    float[][] arrays = mi.layerArrays(l);
+    float[][] delta = new float[arrays.length][];
+    for (int i = 0; i < arrays.length; ++i) {
+      delta[i] = new float[arrays[i].length];
+      for (int j = 0; j < delta[i].length; ++j) delta[i][j] = arrays[i][j] - pulled._arrays[i][j];
+    }
+    return new Push(delta, pulled._version, max_lag, 1f / nodes, mi.layerAdaIndex());
+  }
+
+  @Override
+  public void reduce(DeepLearningAsyncTask other) {
+    _processed += other._processed;
+    _pushed += other._pushed;
+    _dropped += other._dropped;
+    _unstable |= other._unstable;
+  }
+
+  /**
+   * The input model is not sent back - the weights are in the shards
+   */
+  @Override
+  protected void closeLocal() {
+    if (!_home) _model_info = null;
+  }
+
+  /**
+   * Pull the final weights of all shards into the model, and add to the global training sample counter
+   */
+  @Override
+  protected void postGlobal() {
+    super.postGlobal();
+    for (int l = 0; l < _shards.length; ++l) {
+      Shard s = DKV.getGet(_shards[l]);
+      float[][] arrays = _model_info.layerArrays(l);
+      for (int i = 0; i < arrays.length; ++i) System.arraycopy(s._arrays[i], 0, arrays[i], 0, arrays[i].length);
+    }
+    _model_info.set_processed_global(_processed_start + _processed);
+    _model_info.set_processed_local(0l);
+    if (_unstable) _model_info.set_unstable();
+    if (_dropped > 0)
+      Log.info("Asynchronous training: discarded " + _dropped + " of " + (_pushed + _dropped) + " layer updates for exceeding max_staleness.");
+  }
+
+  /**
+   * Delete the shards from the DKV (to be called by the caller after the task is done or failed)
+   */
+  void removeShards() {
+    Futures fs = new Futures();
+    for (Key k : _shards) DKV.remove(k, fs);
+    fs.blockForPending();
+  }
+}
@@ -408,10 +408,50 @@ public class DeepLearningModel extends SupervisedModel<DeepLearningModel,DeepLea
 
     public boolean _export_weights_and_biases = false;
 
+    /**
+     * Number of training rows propagated together, with one weight update per mini-batch
+     * (using the average gradient). 1 means online learning with an update after every row.
+     */
+    public int _mini_batch_size = 1;
+
+    /**
+     * Compression of the model updates sent between nodes for model averaging: None sends full models,
+     * Int16/Int8 send the change of every value quantized to 16/8 bits, TopK sends only the largest changes.
+     * The compression error stays on the node and is added to its next update.
+     */
+    public SyncCompression _sync_compression = SyncCompression.None;
+
+    /**
+     * Fraction of the values of each weight/bias array sent per synchronization with TopK sync compression
+     */
+    public double _sync_top_k_fraction = 0.01;
+
+    /**
+     * Asynchronous training: the model lives in the DKV, sharded by layer, and every node pulls weights,
+     * trains and pushes its updates on its own schedule instead of waiting for all nodes to finish
+     * before averaging. Requires replicated training data.
+     */
+    public boolean _async_training = false;
+
+    /**
+     * Number of pull/train/push rounds of every node per iteration for asynchronous training
+     */
+    public int _async_rounds = 10;
+
+    /**
+     * Bounded staleness for asynchronous training: an update is discarded if, since its node pulled the
+     * weights, the layer has received more than this many updates per node (i.e., rounds of other nodes)
+     */
+    public int _max_staleness = 2;
+
     public enum MissingValuesHandling {
       Skip, MeanImputation
     }
 
+    public enum SyncCompression {
+      None, Int16, Int8, TopK
+    }
+
     public enum ClassSamplingMethod {
       Uniform, Stratified
     }
@@ -609,6 +649,27 @@ public class DeepLearningModel extends SupervisedModel<DeepLearningModel,DeepLea
       if (!_sparse && _col_major) {
         dl.error("_col_major", "Cannot use column major storage for non-sparse data handling.");
       }
+      if (_mini_batch_size < 1) dl.error("_mini_batch_size", "Mini-batch size must be >= 1.");
+      if (_mini_batch_size > 1) {
+        if (_autoencoder) dl.error("_mini_batch_size", "Mini-batch training is not supported for auto-encoder.");
+        if (_sparse) dl.error("_mini_batch_size", "Mini-batch training is not supported with sparse data handling.");
+        if (_activation == Activation.TanhWithDropout || _activation == Activation.RectifierWithDropout || _activation == Activation.MaxoutWithDropout)
+          dl.error("_mini_batch_size", "Mini-batch training is not supported with hidden dropout.");
+      }
+      if (_sync_compression == SyncCompression.TopK && !(_sync_top_k_fraction > 0 && _sync_top_k_fraction <= 1))
+        dl.error("_sync_top_k_fraction", "sync_top_k_fraction must be in (0,1].");
+      if (_sync_compression != SyncCompression.TopK) dl.hide("_sync_top_k_fraction", "sync_top_k_fraction requires TopK sync compression.");
+      if (_async_training) {
+        if (H2O.CLOUD.size() > 1 && !_replicate_training_data) dl.error("_async_training", "Asynchronous training requires replicated training data.");
+        if (H2O.CLOUD.size() > 1 && _reproducible) dl.error("_async_training", "Asynchronous training on multiple nodes is not reproducible.");
+        if (_single_node_mode) dl.error("_async_training", "Asynchronous training cannot be combined with single node mode.");
+        if (_async_rounds < 1) dl.error("_async_rounds", "async_rounds must be at least 1.");
+        if (_max_staleness < 0) dl.error("_max_staleness", "max_staleness must be non-negative.");
+        if (_sync_compression != SyncCompression.None) dl.info("_sync_compression", "sync_compression is not used for asynchronous training.");
+      } else {
+        dl.hide("_async_rounds", "async_rounds requires asynchronous training.");
+        dl.hide("_max_staleness", "max_staleness requires asynchronous training.");
+      }
       if (expensive) {
         if (!classification && _balance_classes) {
           dl.error("_balance_classes", "balance_classes requires classification.");
@@ -1279,6 +1340,56 @@ public class DeepLearningModel extends SupervisedModel<DeepLearningModel,DeepLea
       }
       Arrays.fill(biases[biases.length-1].raw(), 0f); //output layer
     }
+    /**
+     * The arrays that are averaged between nodes, in the same order on every node
+     * @return raw weights, biases, average activations and momenta or ADADELTA state
+     */
+    float[][] syncArrays() {
+      ArrayList<float[]> arrays = new ArrayList<>();
+      for (int i=0;i<dense_row_weights.length;++i) arrays.add(get_weights(i).raw());
+      for (Neurons.DenseVector bias : biases) arrays.add(bias.raw());
+      if (avg_activations != null)
+        for (Neurons.DenseVector avgac : avg_activations) arrays.add(avgac.raw());
+      if (has_momenta()) {
+        for (int i=0;i<dense_row_weights_momenta.length;++i) arrays.add(get_weights_momenta(i).raw());
+        for (Neurons.DenseVector bias_momenta : biases_momenta) arrays.add(bias_momenta.raw());
+      }
+      if (adaDelta())
+        for (int i=0;i<dense_row_ada_dx_g.length;++i) arrays.add(get_ada_dx_g(i).raw());
+      return arrays.toArray(new float[arrays.size()][]);
+    }
+    /**
+     * @return index of the first ADADELTA array in {@link #syncArrays()} (they come last), or -1 without ADADELTA
+     */
+    int syncAdaStart() {
+      return adaDelta() ? syncArrays().length - dense_row_ada_dx_g.length : -1;
+    }
+    /**
+     * The arrays of one layer, as sharded for asynchronous training
+     * @param i index of the layer (0 for the weights/biases connecting the input and the first hidden layer)
+     * @return raw weights and biases, and their momenta or ADADELTA state, and average activations
+     */
+    float[][] layerArrays(int i) {
+      ArrayList<float[]> arrays = new ArrayList<>();
+      arrays.add(get_weights(i).raw());
+      arrays.add(biases[i].raw());
+      if (has_momenta()) {
+        arrays.add(get_weights_momenta(i).raw());
+        arrays.add(biases_momenta[i].raw());
+      }
+      if (adaDelta()) {
+        arrays.add(get_ada_dx_g(i).raw());
+        arrays.add(biases_ada_dx_g[i].raw());
+      }
+      if (avg_activations != null && i < avg_activations.length) arrays.add(avg_activations[i].raw());
+      return arrays.toArray(new float[arrays.size()][]);
+    }
+    /**
+     * @return index of the ADADELTA weights in {@link #layerArrays(int)} (the biases follow), or -1 without ADADELTA
+     */
+    int layerAdaIndex() {
+      return adaDelta() ? (has_momenta() ? 4 : 2) : -1;
+    }
     public void add(DeepLearningModelInfo other) {
       for (int i=0;i<dense_row_weights.length;++i)
         ArrayUtils.add(get_weights(i).raw(), other.get_weights(i).raw());
@@ -0,0 +1,269 @@
+package hex.deeplearning;
+
+import static hex.deeplearning.DeepLearningModel.DeepLearningParameters.SyncCompression;
+
+import water.AutoBuffer;
+import water.H2O;
+import water.Iced;
+import water.Key;
+import water.MRTask;
+import water.nbhm.NonBlockingHashMap;
+
+/**
+ * Difference between the models trained by one or more nodes and the model they all started the
+ * iteration from, summed over the nodes during the reduce.
+ *
+ * Before a node sends it to its parent, the delta is compressed (quantized to 16 or 8 bits per value
+ * with one scale per array, or sparsified to the largest entries per array). The compression error is
+ * held on the node that made it, and added to that node's delta of the next iteration (error feedback),
+ * so no part of the update is lost - it is only delayed.
+ */
+public class DeepLearningModelDelta extends Iced<DeepLearningModelDelta> {
+
+  // Compression error of the last iteration on this node, per job
+  private static final NonBlockingHashMap<Key,float[][]> FEEDBACK = new NonBlockingHashMap<>();
+
+  private SyncCompression _mode;
+  private float _top_k_fraction;
+  int _nodes;          // number of node models summed up
+  long _processed;     // number of training samples processed by them
+  boolean _unstable;
+  float[][] _d; // summed delta, dense (null after compress())
+
+  // compressed form, written by write_impl
+  private transient int[] _len;
+  private transient float[] _scale;
+  private transient byte[][] _q8;
+  private transient short[][] _q16;
+  private transient int[][] _idx;
+  private transient float[][] _val;
+
+  public DeepLearningModelDelta() {}
+
+  /**
+   * Delta of a node's local model
+   * @param mi model trained on this node
+   * @param base copy of the synchronized arrays of the model the node started from, see {@link #snapshot}
+   */
+  DeepLearningModelDelta(DeepLearningModel.DeepLearningModelInfo mi, float[][] base) {
+    DeepLearningModel.DeepLearningParameters p = mi.get_params();
+    _mode = p._sync_compression;
+    _top_k_fraction = (float)p._sync_top_k_fraction;
+    _processed = mi.get_processed_local();
+    _nodes = _processed > 0 ? 1 : 0;
+    _unstable = mi.unstable();
+    float[][] cur = mi.syncArrays();
+    _d = new float[cur.length][];
+    for (int i = 0; i < cur.length; ++i) {
+      _d[i] = new float[cur[i].length];
+      if (_nodes > 0)
+        for (int j = 0; j < cur[i].length; ++j)
+          _d[i][j] = cur[i][j] - base[i][j];
+    }
+  }
+
+  /**
+   * Copy of the arrays that are averaged between nodes
+   * @param mi model at the start of the iteration
+   * @return deep copy of {@link DeepLearningModel.DeepLearningModelInfo#syncArrays()}
+   */
+  static float[][] snapshot(DeepLearningModel.DeepLearningModelInfo mi) {
+    float[][] arrays = mi.syncArrays();
+    float[][] copy = new float[arrays.length][];
+    for (int i = 0; i < arrays.length; ++i) copy[i] = arrays[i].clone();
+    return copy;
+  }
+
+  /**
+   * Sum up the deltas of two sets of nodes (both must be uncompressed)
+   * @param other delta received from another node
+   * @return this
+   */
+  DeepLearningModelDelta add(DeepLearningModelDelta other) {
+    assert _d != null && other._d != null;
+    for (int i = 0; i < _d.length; ++i)
+      for (int j = 0; j < _d[i].length; ++j)
+        _d[i][j] += other._d[i][j];
+    _nodes += other._nodes;
+    _processed += other._processed;
+    _unstable |= other._unstable;
+    return this;
+  }
+
+  /**
+   * Turn the summed delta into the sum of the node models (as DeepLearningModelInfo.add() would have
+   * produced it) by adding the base model once per node, and add it to the local model.
+   * @param mi local model, which is overwritten by the base model if it didn't train on any data
+   * @param base copy of the synchronized arrays of the model at the start of the iteration
+   * @return total number of node models summed up in mi
+   */
+  int addTo(DeepLearningModel.DeepLearningModelInfo mi, float[][] base) {
+    assert _d != null;
+    final boolean local = mi.get_processed_local() > 0;
+    float[][] cur = mi.syncArrays();
+    for (int i = 0; i < cur.length; ++i)
+      for (int j = 0; j < cur[i].length; ++j)
+        cur[i][j] = (local ? cur[i][j] : 0) + _nodes * base[i][j] + _d[i][j];
+    // the ADADELTA running averages are non-negative, but a quantized delta can overshoot
+    final int ada = mi.syncAdaStart();
+    if (ada >= 0)
+      for (int i = ada; i < cur.length; ++i)
+        for (int j = 0; j < cur[i].length; ++j)
+          if (cur[i][j] < 0) cur[i][j] = 0;
+    mi.add_processed_local(_processed);
+    if (_unstable) mi.set_unstable();
+    return _nodes + (local ? 1 : 0);
+  }
+
+  /**
+   * Compress the delta for sending it to another node. The compression error of the previous
+   * iteration on this node is added first, and the new compression error is kept for the next one.
+   * @param jobKey key of the training job (for the compression error held on this node)
+   */
+  void compress(Key jobKey) {
+    assert _d != null;
+    float[][] err = FEEDBACK.get(jobKey);
+    if (err != null)
+      for (int i = 0; i < _d.length; ++i)
+        for (int j = 0; j < _d[i].length; ++j)
+          _d[i][j] += err[i][j];
+    else
+      err = new float[_d.length][];
+    _len = new int[_d.length];
+    _scale = new float[_d.length];
+    switch (_mode) {
+      case Int16: _q16 = new short[_d.length][]; break;
+      case Int8:  _q8  = new byte [_d.length][]; break;
+      case TopK:  _idx = new int  [_d.length][]; _val = new float[_d.length][]; break;
+      default: throw H2O.unimpl("Sync compression " + _mode);
+    }
+    for (int i = 0; i < _d.length; ++i) {
+      final float[] d = _d[i];
+      _len[i] = d.length;
+      if (_mode == SyncCompression.TopK) {
+        topK(i);
+        for (int k = 0; k < _idx[i].length; ++k) d[_idx[i][k]] -= _val[i][k];
+      } else {
+        final int levels = _mode == SyncCompression.Int16 ? Short.MAX_VALUE : Byte.MAX_VALUE;
+        float max = 0;
+        for (float v : d) max = Math.max(max, Math.abs(v));
+        final float scale = _scale[i] = max / levels;
+        if (_mode == SyncCompression.Int16) _q16[i] = new short[d.length];
+        else _q8[i] = new byte[d.length];
+        if (scale > 0) {
+          for (int j = 0; j < d.length; ++j) {
+            final int q = Math.round(d[j] / scale);
+            if (_mode == SyncCompression.Int16) _q16[i][j] = (short)q;
+            else _q8[i][j] = (byte)q;
+            d[j] -= q * scale;
+          }
+        }
+      }
+      err[i] = d; //what's left over is the compression error
+    }
+    FEEDBACK.put(jobKey, err);
+    _d = null;
+  }
+
+  // Keep the largest entries (by magnitude) of array i, at least one
+  private void topK(int i) {
+    final float[] d = _d[i];
+    final int k = Math.max(1, Math.min(d.length, (int)Math.ceil(_top_k_fraction * d.length)));
+    // threshold: k-th largest magnitude, found by selection on a copy
+    float[] mag = new float[d.length];
+    for (int j = 0; j < d.length; ++j) mag[j] = Math.abs(d[j]);
+    final float threshold = select(mag, mag.length - k);
+    int[] idx = new int[k];
+    float[] val = new float[k];
+    int n = 0;
+    for (int j = 0; j < d.length && n < k; ++j)
+      if (Math.abs(d[j]) > threshold) { idx[n] = j; val[n++] = d[j]; }
+    for (int j = 0; j < d.length && n < k; ++j) // ties at the threshold
+      if (Math.abs(d[j]) == threshold) { idx[n] = j; val[n++] = d[j]; }
+    _idx[i] = idx;
+    _val[i] = val;
+  }
+
+  // k-th smallest value (0-based) of a, reorders a
+  private static float select(float[] a, int k) {
+    int lo = 0, hi = a.length - 1;
+    while (lo < hi) {
+      final float pivot = a[(lo + hi) >>> 1];
+      int i = lo, j = hi;
+      while (i <= j) {
+        while (a[i] < pivot) i++;
+        while (a[j] > pivot) j--;
+        if (i <= j) { float t = a[i]; a[i] = a[j]; a[j] = t; i++; j--; }
+      }
+      if (k <= j) hi = j;
+      else if (k >= i) lo = i;
+      else break;
+    }
+    return a[k];
+  }
+
+  /**
+   * Drop the compression error held for a job on all nodes
+   * @param jobKey key of the training job
+   */
+  static void clearFeedback(final Key jobKey) {
+    new MRTask() {
+      @Override protected void setupLocal() { FEEDBACK.remove(jobKey); }
+    }.doAllNodes();
+  }
+
+  @Override public AutoBuffer write_impl(AutoBuffer ab) {
+    ab.putEnum(_mode).put4f(_top_k_fraction).put4(_nodes).put8(_processed).putZ(_unstable);
+    if (_d != null) return ab.put1(0).putAA4f(_d);
+    ab.put1(1).put4(_len.length);
+    for (int i = 0; i < _len.length; ++i) {
+      switch (_mode) {
+        case Int16: ab.put4f(_scale[i]).putA2(_q16[i]); break;
+        case Int8:  ab.put4f(_scale[i]).putA1(_q8[i]); break;
+        case TopK:  ab.put4(_len[i]).putA4(_idx[i]).putA4f(_val[i]); break;
+        default: throw H2O.unimpl();
+      }
+    }
+    return ab;
+  }
+
+  @Override public DeepLearningModelDelta read_impl(AutoBuffer ab) {
+    _mode = (SyncCompression)ab.getEnum(SyncCompression.values());
+    _top_k_fraction = ab.get4f();
+    _nodes = ab.get4();
+    _processed = ab.get8();
+    _unstable = ab.getZ();
+    if (ab.get1() == 0) {
+      _d = ab.getAA4f();
+      return this;
+    }
+    _d = new float[ab.get4()][];
+    for (int i = 0; i < _d.length; ++i) {
+      switch (_mode) {
+        case Int16: {
+          final float scale = ab.get4f();
+          final short[] q = ab.getA2();
+          _d[i] = new float[q.length];
+          for (int j = 0; j < q.length; ++j) _d[i][j] = q[j] * scale;
+          break;
+        }
+        case Int8: {
+          final float scale = ab.get4f();
+          final byte[] q = ab.getA1();
+          _d[i] = new float[q.length];
+          for (int j = 0; j < q.length; ++j) _d[i][j] = q[j] * scale;
+          break;
+        }
+        case TopK: {
+          _d[i] = new float[ab.get4()];
+          final int[] idx = ab.getA4();
+          final float[] val = ab.getA4f();
+          for (int k = 0; k < idx.length; ++k) _d[i][idx[k]] = val[k];
+          break;
+        }
+        default: throw H2O.unimpl();
+      }
+    }
+    return this;
+  }
+}
@@ -9,6 +9,7 @@ import water.util.Log;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class DeepLearningTask extends FrameTask<DeepLearningTask> {
   final private boolean _training;
@@ -18,8 +19,19 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
 
   transient Neurons[] _neurons;
 
+  // Mini-batch training: rows buffered in the neurons' batch state, and their responses
+  transient int _batch;
+  transient double[] _batch_responses;
+  transient ConcurrentLinkedQueue<float[][]> _batchBuffers; //buffers of finished chunks, shared by the local tasks of this node
+
   int _chunk_node_count = 1;
 
+  // Compressed model averaging between nodes (sync_compression), see DeepLearningModelDelta
+  transient float[][] _base; //model at the start of the iteration
+  transient boolean _home;   //task on the node that started it (not serialized)
+  transient hex.deeplearning.DeepLearningModel.DeepLearningModelInfo _localInfo; //this node's model, even if copyOver replaced _output
+  DeepLearningModelDelta _delta; //update of the remote nodes reduced so far
+
   public DeepLearningTask(Key jobKey, hex.deeplearning.DeepLearningModel.DeepLearningModelInfo input, float fraction){this(jobKey, input,fraction,null);}
   private DeepLearningTask(Key jobKey, hex.deeplearning.DeepLearningModel.DeepLearningModelInfo input, float fraction, H2OCountedCompleter cmp){
     super(jobKey,input.data_info(),cmp);
@@ -27,6 +39,7 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
     _input=input;
     _useFraction=fraction;
     _shuffle = _input.get_params()._shuffle_training_data;
+    _home = true;
     assert(_output == null);
   }
 
@@ -36,12 +49,22 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
     _output = _input; //faster, good enough in this case (since the input was freshly deserialized by the Weaver)
     _input = null;
     _output.set_processed_local(0l);
+    DeepLearningModel.DeepLearningParameters p = _output.get_params();
+    if (p._mini_batch_size > 1) _batchBuffers = new ConcurrentLinkedQueue<>();
+    if (p._sync_compression != DeepLearningModel.DeepLearningParameters.SyncCompression.None && !p._replicate_training_data && H2O.CLOUD.size() > 1) {
+      _base = DeepLearningModelDelta.snapshot(_output);
+      _localInfo = _output;
+    }
   }
 
   // create local workspace (neurons)
   // and link them to shared weights
   @Override protected void chunkInit(){
-    _neurons = makeNeuronsForTraining(_output);
+    _neurons = makeNeurons(_output, true, _batchBuffers == null ? null : _batchBuffers.poll());
+    if (_output.get_params()._mini_batch_size > 1) {
+      _batch = 0;
+      _batch_responses = new double[_output.get_params()._mini_batch_size];
+    }
   }
 
   @Override public final void processRow(long seed, DataInfo.Row r){
@@ -52,14 +75,33 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
       seed = new Random().nextLong();
     }
     ((Neurons.Input)_neurons[0]).setInput(seed, r.numVals, r.nBins, r.binIds);
+    if (_batch_responses != null) {
+      if (Double.isNaN(r.response[0])) return; //no correction of weights/biases for missing response
+      ((Neurons.Input)_neurons[0]).setBatchInput(_batch);
+      _batch_responses[_batch++] = r.response[0];
+      if (_batch == _batch_responses.length) {
+        stepBatch(_neurons, _output, _batch, _batch_responses);
+        _batch = 0;
+      }
+      return;
+    }
     step(seed, _neurons, _output, _training, r.response);
   }
 
   @Override protected void chunkDone(long n) {
+    if (_batch > 0) {
+      stepBatch(_neurons, _output, _batch, _batch_responses);
+      _batch = 0;
+    }
+    if (_batchBuffers != null) _batchBuffers.add(Neurons.takeBatchBuffers(_neurons));
     if (_training) _output.add_processed_local(n);
   }
 
   @Override public void reduce(DeepLearningTask other){
+    if (other._delta != null) { //compressed update of other node(s)
+      _delta = _delta == null ? other._delta : _delta.add(other._delta);
+      return;
+    }
     if (other._output.get_processed_local() > 0 //other NNTask was active (its model_info should be used for averaging)
             && other._output != _output) //other NNTask worked on a different model_info
     {
@@ -76,6 +118,25 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
     if (other._output.unstable()) _output.set_unstable();
   }
 
+  // with sync compression: send the compressed update instead of the model, or add the updates of
+  // all other nodes on the node that started the task
+  @Override protected void closeLocal() {
+    _batchBuffers = null;
+    if (_base == null) return;
+    // without local chunks, copyOver() took the fields of a remote result, whose model was sent as _delta
+    if (_output == null) _output = _localInfo;
+    _localInfo = null;
+    if (_home) {
+      if (_delta != null) _chunk_node_count = Math.max(1, _delta.addTo(_output, _base));
+    } else {
+      DeepLearningModelDelta local = new DeepLearningModelDelta(_output, _base);
+      _delta = _delta == null ? local : local.add(_delta);
+      _delta.compress(_jobKey);
+      _output = null;
+    }
+    _base = null;
+  }
+
   static long _lastWarn;
   static long _warnCount;
   @Override protected void postGlobal(){
@@ -98,14 +159,14 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
   }
 
   public static Neurons[] makeNeuronsForTraining(final DeepLearningModel.DeepLearningModelInfo minfo) {
-    return makeNeurons(minfo, true);
+    return makeNeurons(minfo, true, null);
   }
   public static Neurons[] makeNeuronsForTesting(final DeepLearningModel.DeepLearningModelInfo minfo) {
-    return makeNeurons(minfo, false);
+    return makeNeurons(minfo, false, null);
   }
 
-  // Helper
-  private static Neurons[] makeNeurons(final DeepLearningModel.DeepLearningModelInfo minfo, boolean training) {
+  // Helper, reusing the mini-batch buffers of a finished chunk if given
+  private static Neurons[] makeNeurons(final DeepLearningModel.DeepLearningModelInfo minfo, boolean training, float[][] batchBuffers) {
     DataInfo dinfo = minfo.data_info();
     final DeepLearningModel.DeepLearningParameters params = minfo.get_params();
     final int[] h = params._hidden;
@@ -143,6 +204,7 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
         neurons[neurons.length - 1] = new Neurons.Linear(1);
     }
 
+    if (batchBuffers != null) Neurons.reuseBatchBuffers(neurons, batchBuffers);
     //copy parameters from NN, and set previous/input layer links
     for( int i = 0; i < neurons.length; i++ ) {
       neurons[i].init(neurons, i, params, minfo, training);
@@ -211,4 +273,25 @@ public class DeepLearningTask extends FrameTask<DeepLearningTask> {
     }
   }
 
+  /**
+   * Forward/backward propagation of a mini-batch of n rows, with one weight update per layer
+   * assumption: layer 0 has _ab filled with the n input rows
+   */
+  static void stepBatch(Neurons[] neurons, DeepLearningModel.DeepLearningModelInfo minfo, int n, double[] responses) {
+    try {
+      for (int i=1; i<neurons.length; ++i)
+        neurons[i].fpropBatch(n);
+      for (int i=1; i<neurons.length-1; ++i)
+        Arrays.fill(neurons[i]._eb, 0, n * neurons[i].units, 0);
+      ((Neurons.Output) neurons[neurons.length - 1]).bpropBatch(n, responses);
+      for (int i = neurons.length - 2; i > 0; --i)
+        neurons[i].bpropBatch(n);
+    }
+    catch(RuntimeException ex) {
+      Log.warn(ex.getMessage());
+      minfo.set_unstable();
+      throw new RuntimeException("Canceling job due to numerical instability.");
+    }
+  }
+
 }
@@ -21,6 +21,7 @@ public class DeepLearningTask2 extends MRTask<DeepLearningTask2> {
     _fr = train;
     _model_info = model_info;
     _sync_fraction = sync_fraction;
+    _home = true;
   }
 
   /**
@@ -33,10 +34,15 @@ public class DeepLearningTask2 extends MRTask<DeepLearningTask2> {
 
   final private Key _jobKey;
   final private Frame _fr;
-  final private DeepLearningModel.DeepLearningModelInfo _model_info;
+  private DeepLearningModel.DeepLearningModelInfo _model_info;
   final private float _sync_fraction;
   private DeepLearningTask _res;
 
+  // Compressed model averaging between nodes (sync_compression), see DeepLearningModelDelta
+  private transient float[][] _base; //model at the start of the iteration
+  private transient boolean _home;   //task on the node that started it (not serialized)
+  private DeepLearningModelDelta _delta; //update of the remote nodes reduced so far
+
   /**
    * Do the local computation: Perform one DeepLearningTask (with run_local=true) iteration.
    * Pass over all the data (will be replicated in dfork() here), and use _sync_fraction random rows.
@@ -46,6 +52,9 @@ public class DeepLearningTask2 extends MRTask<DeepLearningTask2> {
   @Override
   public void setupLocal() {
     super.setupLocal();
+    DeepLearningModel.DeepLearningParameters p = _model_info.get_params();
+    if (p._sync_compression != DeepLearningModel.DeepLearningParameters.SyncCompression.None && !p._single_node_mode)
+      _base = DeepLearningModelDelta.snapshot(_model_info);
     _res = new DeepLearningTask(_jobKey, _model_info, _sync_fraction);
     addToPendingCount(1);
     _res.setCompleter(this);
@@ -59,6 +68,10 @@ public class DeepLearningTask2 extends MRTask<DeepLearningTask2> {
    */
   @Override
   public void reduce(DeepLearningTask2 drt) {
+    if (drt._delta != null) { //compressed update of other node(s)
+      _delta = _delta == null ? drt._delta : _delta.add(drt._delta);
+      return;
+    }
     if (_res == null) _res = drt._res;
     else {
       _res._chunk_node_count += drt._res._chunk_node_count;
@@ -67,6 +80,28 @@ public class DeepLearningTask2 extends MRTask<DeepLearningTask2> {
     assert(_res.model_info().get_params()._replicate_training_data);
   }
 
+  /**
+   * Before the results of this node (and the nodes reduced into it) are sent back: the input model
+   * is no longer needed, and with sync compression, only the compressed update is sent instead of the model.
+   * On the node that started the task, the updates of all other nodes are added to the local model instead.
+   */
+  @Override
+  protected void closeLocal() {
+    if (!_home) _model_info = null;
+    if (_base == null) return;
+    if (_home) {
+      if (_delta != null) _res._chunk_node_count = Math.max(1, _delta.addTo(_res.model_info(), _base));
+    } else {
+      if (_res != null) {
+        DeepLearningModelDelta local = new DeepLearningModelDelta(_res.model_info(), _base);
+        _delta = _delta == null ? local : local.add(_delta);
+        _res = null;
+      }
+      if (_delta != null) _delta.compress(_jobKey);
+    }
+    _base = null;
+  }
+
   /**
    * Finish up the work after all nodes have reduced their models via the above reduce() method.
    * All we do is average the models and add to the global training sample counter.
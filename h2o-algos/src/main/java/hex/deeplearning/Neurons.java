@@ -89,6 +89,46 @@ public abstract class Neurons {
 
   public DenseVector _avg_a;
 
+  /**
+   * Mini-batch state (only for training with mini_batch_size > 1):
+   * activations and errors of all rows of the mini-batch, one row of units per sample
+   */
+  transient float[] _ab;
+  transient float[] _eb;
+  private transient float[] _gw; //weight gradient summed over the mini-batch
+
+  /**
+   * Hand the mini-batch buffers over to the neurons of another chunk
+   * @param neurons all neuron layers of a finished chunk
+   * @return _ab, _eb and _gw of layer i at 3*i, 3*i+1 and 3*i+2
+   */
+  static float[][] takeBatchBuffers(Neurons[] neurons) {
+    float[][] bufs = new float[3 * neurons.length][];
+    for (int i = 0; i < neurons.length; ++i) {
+      Neurons n = neurons[i];
+      bufs[3 * i] = n._ab;
+      bufs[3 * i + 1] = n._eb;
+      bufs[3 * i + 2] = n._gw;
+      n._ab = n._eb = n._gw = null;
+    }
+    return bufs;
+  }
+
+  /**
+   * Reuse the mini-batch buffers of a finished chunk instead of allocating them in init()
+   * (they are fully rewritten for every mini-batch)
+   * @param neurons all neuron layers, before init()
+   * @param bufs buffers from takeBatchBuffers()
+   */
+  static void reuseBatchBuffers(Neurons[] neurons, float[][] bufs) {
+    for (int i = 0; i < neurons.length; ++i) {
+      Neurons n = neurons[i];
+      n._ab = bufs[3 * i];
+      n._eb = bufs[3 * i + 1];
+      n._gw = bufs[3 * i + 2];
+    }
+  }
+
   public static final int missing_int_value = Integer.MAX_VALUE; //encode missing label
   public static final Float missing_real_value = Float.NaN; //encode missing regression target
 
@@ -161,6 +201,13 @@ public abstract class Neurons {
               // not doing fast mode, but also don't have anything else to update (neither momentum nor ADADELTA history), and no L1/L2
               !params._adaptive_rate && !_minfo.has_momenta() && params._l1 == 0.0 && params._l2 == 0.0));
     }
+    if (training && params._mini_batch_size > 1) {
+      if (_ab == null || _ab.length != params._mini_batch_size * units) _ab = new float[params._mini_batch_size * units];
+      if (!(this instanceof Input)) {
+        if (_eb == null || _eb.length != params._mini_batch_size * units) _eb = new float[params._mini_batch_size * units];
+        if (_gw == null || _gw.length != _w.rows() * _w.cols()) _gw = new float[_w.rows() * _w.cols()];
+      }
+    }
     sanityCheck(training);
   }
 
@@ -176,6 +223,97 @@ public abstract class Neurons {
    */
   protected abstract void bprop();
 
+  /**
+   * Forward propagation of the first n rows of the mini-batch (training only)
+   * @param n number of rows in the mini-batch
+   */
+  abstract void fpropBatch(int n);
+
+  /**
+   * Back propagation of the first n rows of the mini-batch, with _eb holding dE/dy
+   * @param n number of rows in the mini-batch
+   */
+  abstract void bpropBatch(int n);
+
+  /**
+   * Backpropagation for a mini-batch: propagate the errors to the previous
+   * layer, then apply the learning rule of bprop_dense_row_dense once per
+   * weight, with the gradient averaged over the n rows.
+   * @param g partial derivatives dE/dnet, n x units (row-major)
+   * @param n number of rows in the mini-batch
+   * @param rate learning rate
+   * @param momentum momentum factor (needed only if ADADELTA isn't used)
+   */
+  final void bprop_batch(final float[] g, final int n, final float rate, final float momentum) {
+    final float[] w = _w.raw();
+    final float[] wm = _wm != null ? _wm.raw() : null;
+    final float rho = (float)params._rho;
+    final float eps = (float)params._epsilon;
+    final float l1 = (float)params._l1;
+    final float l2 = (float)params._l2;
+    final float max_w2 = params._max_w2;
+    final boolean have_momenta = _minfo.has_momenta();
+    final boolean have_ada = _minfo.adaDelta();
+    final boolean nesterov = params._nesterov_accelerated_gradient;
+    final boolean fast_mode = params._fast_mode;
+    final int rows = units;
+    final int cols = _previous.units;
+    final float inv = 1f / n;
+
+    // propagate the error dE/dnet to the previous layer, via the (not yet updated) connecting weights
+    if (_previous._eb != null) gemm_add(_previous._eb, w, g, n, rows, cols);
+    // dE/dw summed over the mini-batch
+    gemm_grad(_gw, g, _previous._ab, n, rows, cols);
+
+    for (int row = 0; row < rows; row++) {
+      float partial_grad = 0;
+      boolean active = false;
+      for (int s = 0; s < n; s++) {
+        final float gs = g[s * rows + row];
+        partial_grad += gs;
+        active |= gs != 0f;
+      }
+      // only correct weights if the gradient is large enough
+      if (_shortcut && !active) continue;
+      partial_grad *= inv;
+
+      final int idx = row * cols;
+      float avg_grad2 = 0;
+      for (int col = 0; col < cols; col++) {
+        final int i = idx + col;
+        if (fast_mode && _gw[i] == 0) continue;
+        final float weight = w[i];
+        final float grad = _gw[i] * inv - Math.signum(weight) * l1 - weight * l2;
+        if (have_ada) {
+          avg_grad2 += grad * grad;
+          float brate = computeAdaDeltaRateForWeight(grad, i, (DenseRowMatrix)_ada_dx_g, rho, eps);
+          w[i] += brate * grad;
+        } else {
+          if (!nesterov) {
+            final float delta = rate * grad;
+            w[i] += delta;
+            if (have_momenta) {
+              w[i] += momentum * wm[i];
+              wm[i] = delta;
+            }
+          } else {
+            float tmp = grad;
+            if (have_momenta) {
+              wm[i] *= momentum;
+              wm[i] += tmp;
+              tmp = wm[i];
+            }
+            w[i] += rate * tmp;
+          }
+        }
+      }
+      if (max_w2 != Float.POSITIVE_INFINITY)
+        rescale_weights((DenseRowMatrix)_w, row, max_w2);
+      if (have_ada) avg_grad2 /= cols;
+      update_bias(_b, _bm, row, partial_grad, avg_grad2, rate, momentum);
+    }
+  }
+
   void bprop_sparse(float r, float m) {
     SparseVector prev_a = (SparseVector) _previous._a;
     int start = prev_a.begin()._idx;
@@ -670,6 +808,8 @@ public abstract class Neurons {
 
     @Override protected void bprop() { throw new UnsupportedOperationException(); }
     @Override protected void fprop(long seed, boolean training) { throw new UnsupportedOperationException(); }
+    @Override void fpropBatch(int n) { throw new UnsupportedOperationException(); }
+    @Override void bpropBatch(int n) { throw new UnsupportedOperationException(); }
 
     /**
      * One of two methods to set layer input values. This one is for raw double data, e.g. for scoring
@@ -788,6 +928,14 @@ public abstract class Neurons {
       }
     }
 
+    /**
+     * Copy the current input (as set by setInput) into row s of the mini-batch
+     * @param s row index in the mini-batch
+     */
+    void setBatchInput(int s) {
+      System.arraycopy(_dvec.raw(), 0, _ab, s * units, units);
+    }
+
   }
 
   /**
@@ -820,6 +968,18 @@ public abstract class Neurons {
         bprop_sparse(r, m);
       }
     }
+    @Override void fpropBatch(int n) {
+      gemm(_ab, _w.raw(), _previous._ab, _b.raw(), n);
+      for( int i = 0; i < n * units; i++ )
+        _ab[i] = 1f - 2f / (1f + (float)Math.exp(2*_ab[i]));
+    }
+    @Override void bpropBatch(int n) {
+      float m = momentum();
+      float r = _minfo.adaDelta() ? 0 : rate(_minfo.get_processed_total()) * (1f - m);
+      for( int i = 0; i < n * units; i++ )
+        _eb[i] *= 1f - _ab[i] * _ab[i];
+      bprop_batch(_eb, n, r, m);
+    }
   }
 
   /**
@@ -905,6 +1065,38 @@ public abstract class Neurons {
         bprop_sparse(r, m);
       }
     }
+    @Override void fpropBatch(int n) {
+      final float[] w = _w.raw();
+      final float[] x = _previous._ab;
+      final float[] b = _b.raw();
+      final int cols = _previous.units;
+      final int block = gemm_block(cols);
+      for( int r0 = 0; r0 < units; r0 += block ) {
+        final int r1 = Math.min(units, r0 + block);
+        for( int s = 0; s < n; s++ ) {
+          final int xo = s * cols;
+          for( int row = r0; row < r1; row++ ) {
+            final int wo = row * cols;
+            float mymax = Float.NEGATIVE_INFINITY;
+            for( int k = 0; k < cols; k++ )
+              mymax = Math.max(mymax, w[wo + k] * x[xo + k]);
+            if (Float.isInfinite(-mymax)) mymax = 0;
+            _ab[s * units + row] = mymax + b[row];
+          }
+        }
+      }
+      for( int s = 0; s < n; s++ ) {
+        float max = 0;
+        for( int row = 0; row < units; row++ ) max = Math.max(max, _ab[s * units + row]);
+        if( max > 1 )
+          for( int row = 0; row < units; row++ ) _ab[s * units + row] /= max;
+      }
+    }
+    @Override void bpropBatch(int n) {
+      float m = momentum();
+      float r = _minfo.adaDelta() ? 0 : rate(_minfo.get_processed_total()) * (1f - m);
+      bprop_batch(_eb, n, r, m);
+    }
   }
 
   /**
@@ -956,6 +1148,18 @@ public abstract class Neurons {
         bprop_sparse(r, m);
       }
     }
+    @Override void fpropBatch(int n) {
+      gemm(_ab, _w.raw(), _previous._ab, _b.raw(), n);
+      for( int i = 0; i < n * units; i++ )
+        _ab[i] = Math.max(_ab[i], 0f);
+    }
+    @Override void bpropBatch(int n) {
+      float m = momentum();
+      float r = _minfo.adaDelta() ? 0 : rate(_minfo.get_processed_total()) * (1f - m);
+      for( int i = 0; i < n * units; i++ )
+        if( !(_ab[i] > 0f) ) _eb[i] = 0f;
+      bprop_batch(_eb, n, r, m);
+    }
   }
 
   /**
@@ -983,6 +1187,14 @@ public abstract class Neurons {
     Output(int units) { super(units); }
     protected void fprop(long seed, boolean training) { throw new UnsupportedOperationException(); }
     protected void bprop() { throw new UnsupportedOperationException(); }
+    void bpropBatch(int n) { throw new UnsupportedOperationException(); }
+
+    /**
+     * Back propagation of the first n rows of the mini-batch
+     * @param n number of rows in the mini-batch
+     * @param targets actual responses of the n rows
+     */
+    abstract void bpropBatch(int n, double[] targets);
   }
 
   /**
@@ -1018,41 +1230,82 @@ public abstract class Neurons {
       assert (target != missing_int_value); // no correction of weights/biases for missing label
       float m = momentum();
       float r = _minfo.adaDelta() ? 0 : rate(_minfo.get_processed_total()) * (1f - m);
-      float g; //partial derivative dE/dy * dy/dnet
       final float rows = _a.size();
       for( int row = 0; row < rows; row++ ) {
         final float t = (row == target ? 1f : 0f);
         final float y = _a.get(row);
-        //dy/dnet = derivative of softmax = (1-y)*y
-        if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.CrossEntropy) {
-          //nothing else needed, -dCE/dy * dy/dnet = target - y
-          //cf. http://www.stanford.edu/group/pdplab/pdphandbook/handbookch6.html
-          g = t - y;
-        } else if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.Absolute) {
-          g = (2*t-1) * (1f - y) * y; //-dL/dy = 2*t-1
-        } else if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.MeanSquare) {
-          //-dMSE/dy = target-y
-          g = (t - y) * (1f - y) * y;
-        } else if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.Huber) {
-          if (t==0) {
-            if (y<0.5) {
-              g = -4*y; //L=2*y^2 for y<0.5
-            } else {
-              g = -2;   //L=2*y-0.5 for y>=0.5
-            }
+        // this call expects dE/dnet
+        bprop(row, gradient(t, y), r, m);
+      }
+    }
+
+    /**
+     * Partial derivative dE/dy * dy/dnet of one output unit
+     * @param t target (1 for the actual class, 0 otherwise)
+     * @param y predicted probability
+     */
+    private float gradient(float t, float y) {
+      float g; //partial derivative dE/dy * dy/dnet
+      //dy/dnet = derivative of softmax = (1-y)*y
+      if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.CrossEntropy) {
+        //nothing else needed, -dCE/dy * dy/dnet = target - y
+        //cf. http://www.stanford.edu/group/pdplab/pdphandbook/handbookch6.html
+        g = t - y;
+      } else if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.Absolute) {
+        g = (2*t-1) * (1f - y) * y; //-dL/dy = 2*t-1
+      } else if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.MeanSquare) {
+        //-dMSE/dy = target-y
+        g = (t - y) * (1f - y) * y;
+      } else if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.Huber) {
+        if (t==0) {
+          if (y<0.5) {
+            g = -4*y; //L=2*y^2 for y<0.5
           } else {
-            if (y>0.5) {
-              g = 4*(1-y); //L=2*(1-y)^2 for y<0.5
-            } else {
-              g = 2;   //L=2*(1-y)-0.5 for y>=0.5
-            }
+            g = -2;   //L=2*y-0.5 for y>=0.5
           }
-          g *= (1f - y) * y;
-        } else throw H2O.unimpl("Loss " + params._loss + " not implemented for classification.");
-        // this call expects dE/dnet
-        bprop(row, g, r, m);
+        } else {
+          if (y>0.5) {
+            g = 4*(1-y); //L=2*(1-y)^2 for y<0.5
+          } else {
+            g = 2;   //L=2*(1-y)-0.5 for y>=0.5
+          }
+        }
+        g *= (1f - y) * y;
+      } else throw H2O.unimpl("Loss " + params._loss + " not implemented for classification.");
+      return g;
+    }
+
+    @Override void fpropBatch(int n) {
+      gemm(_ab, _w.raw(), _previous._ab, _b.raw(), n);
+      for( int s = 0; s < n; s++ ) {
+        final int off = s * units;
+        float max = _ab[off];
+        for( int row = 1; row < units; row++ ) max = Math.max(max, _ab[off + row]);
+        float scale = 0f;
+        for( int row = 0; row < units; row++ ) {
+          _ab[off + row] = (float)Math.exp(_ab[off + row] - max);
+          scale += _ab[off + row];
+        }
+        for( int row = 0; row < units; row++ ) {
+          _ab[off + row] /= scale;
+          if (Float.isNaN(_ab[off + row])) {
+            _minfo.set_unstable();
+            throw new RuntimeException("Numerical instability, predicted NaN.");
+          }
+        }
       }
     }
+
+    @Override void bpropBatch(int n, double[] targets) {
+      float m = momentum();
+      float r = _minfo.adaDelta() ? 0 : rate(_minfo.get_processed_total()) * (1f - m);
+      for( int s = 0; s < n; s++ ) {
+        final int target = (int)targets[s];
+        for( int row = 0; row < units; row++ )
+          _eb[s * units + row] = gradient(row == target ? 1f : 0f, _ab[s * units + row]);
+      }
+      bprop_batch(_eb, n, r, m);
+    }
   }
 
   /**
@@ -1071,8 +1324,17 @@ public abstract class Neurons {
     protected void bprop(float target) {
       assert (target != missing_real_value);
       final int row = 0;
-      final float t = target;
-      final float y = _a.get(row);
+      float m = momentum();
+      float r = _minfo.adaDelta() ? 0 : rate(_minfo.get_processed_total()) * (1f - m);
+      bprop(row, gradient(target, _a.get(row)), r, m);
+    }
+
+    /**
+     * Partial derivative dE/dnet of the output unit
+     * @param t floating-point target value
+     * @param y prediction
+     */
+    private float gradient(float t, float y) {
       float g;
       // Computing partial derivative: dE/dnet = dE/dy * dy/dnet = dE/dy * 1
       if (params._loss == DeepLearningModel.DeepLearningParameters.Loss.MeanSquare) {
@@ -1092,9 +1354,19 @@ public abstract class Neurons {
           g = y >= t + 1f ? -2f : 2f;
         }
       } else throw H2O.unimpl("Loss " + params._loss + " not implemented for regression.");
+      return g;
+    }
+
+    @Override void fpropBatch(int n) {
+      gemm(_ab, _w.raw(), _previous._ab, _b.raw(), n);
+    }
+
+    @Override void bpropBatch(int n, double[] targets) {
       float m = momentum();
       float r = _minfo.adaDelta() ? 0 : rate(_minfo.get_processed_total()) * (1f - m);
-      bprop(row, g, r, m);
+      for( int s = 0; s < n; s++ )
+        _eb[s] = gradient((float)targets[s], _ab[s]);
+      bprop_batch(_eb, n, r, m);
     }
   }
 
@@ -1287,6 +1559,110 @@ public abstract class Neurons {
     }
   }
 
+  /**
+   * Rows of a row-major weight matrix to keep cache-resident while a mini-batch streams past them
+   * @param cols length of a row
+   * @return block size (a multiple of 4)
+   */
+  static int gemm_block(final int cols) {
+    return Math.max(4, (4096 / Math.max(1, cols)) & ~3);
+  }
+
+  /**
+   * Blocked Mat-Mat Plus Add for a mini-batch: res = x * a^T + y, with y added to every row
+   * Blocks of rows of a stay in cache while all samples of x pass by, and each
+   * loaded input value is used for 4 rows of a at once.
+   * @param res n x rows result (row-major, will be overwritten)
+   * @param a matrix of size rows x cols (row-major)
+   * @param x n x cols inputs (row-major)
+   * @param y vector of length rows
+   * @param n number of samples
+   */
+  static void gemm(final float[] res, final float[] a, final float[] x, final float[] y, final int n) {
+    final int rows = y.length;
+    final int cols = a.length / rows;
+    final int block = gemm_block(cols);
+    for (int r0 = 0; r0 < rows; r0 += block) {
+      final int r1 = Math.min(rows, r0 + block);
+      for (int s = 0; s < n; s++) {
+        final int xo = s * cols;
+        final int ro = s * rows;
+        int row = r0;
+        for (; row + 3 < r1; row += 4) {
+          final int a0 = row * cols, a1 = a0 + cols, a2 = a1 + cols, a3 = a2 + cols;
+          float p0 = 0, p1 = 0, p2 = 0, p3 = 0;
+          for (int k = 0; k < cols; k++) {
+            final float v = x[xo + k];
+            p0 += a[a0 + k] * v;
+            p1 += a[a1 + k] * v;
+            p2 += a[a2 + k] * v;
+            p3 += a[a3 + k] * v;
+          }
+          res[ro + row    ] = p0 + y[row    ];
+          res[ro + row + 1] = p1 + y[row + 1];
+          res[ro + row + 2] = p2 + y[row + 2];
+          res[ro + row + 3] = p3 + y[row + 3];
+        }
+        for (; row < r1; row++) {
+          final int ao = row * cols;
+          float p = 0;
+          for (int k = 0; k < cols; k++)
+            p += a[ao + k] * x[xo + k];
+          res[ro + row] = p + y[row];
+        }
+      }
+    }
+  }
+
+  /**
+   * Blocked Mat-Mat Add for error propagation: res += g * a
+   * @param res n x cols result (row-major, accumulated into)
+   * @param a matrix of size rows x cols (row-major)
+   * @param g n x rows errors (row-major), zeros are skipped
+   * @param n number of samples
+   */
+  static void gemm_add(final float[] res, final float[] a, final float[] g, final int n, final int rows, final int cols) {
+    final int block = gemm_block(cols);
+    for (int r0 = 0; r0 < rows; r0 += block) {
+      final int r1 = Math.min(rows, r0 + block);
+      for (int s = 0; s < n; s++) {
+        final int ro = s * cols;
+        for (int row = r0; row < r1; row++) {
+          final float gv = g[s * rows + row];
+          if (gv == 0f) continue;
+          final int ao = row * cols;
+          for (int k = 0; k < cols; k++)
+            res[ro + k] += gv * a[ao + k];
+        }
+      }
+    }
+  }
+
+  /**
+   * Blocked Mat-Mat for the weight gradient: res = g^T * x
+   * @param res rows x cols result (row-major, will be overwritten)
+   * @param g n x rows errors (row-major), zeros are skipped
+   * @param x n x cols inputs (row-major)
+   * @param n number of samples
+   */
+  static void gemm_grad(final float[] res, final float[] g, final float[] x, final int n, final int rows, final int cols) {
+    Arrays.fill(res, 0, rows * cols, 0f);
+    final int block = gemm_block(cols);
+    for (int r0 = 0; r0 < rows; r0 += block) {
+      final int r1 = Math.min(rows, r0 + block);
+      for (int s = 0; s < n; s++) {
+        final int xo = s * cols;
+        for (int row = r0; row < r1; row++) {
+          final float gv = g[s * rows + row];
+          if (gv == 0f) continue;
+          final int ro = row * cols;
+          for (int k = 0; k < cols; k++)
+            res[ro + k] += gv * x[xo + k];
+        }
+      }
+    }
+  }
+
   /**
    * Abstract vector interface
    */
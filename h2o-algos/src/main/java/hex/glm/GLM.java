@@ -48,6 +48,7 @@ public class GLM extends SupervisedModelBuilder<GLMModel,GLMModel.GLMParameters,
     return new Model.ModelCategory[]{
             Model.ModelCategory.Regression,
             Model.ModelCategory.Binomial,
+            Model.ModelCategory.Multinomial,
     };
   }
 
@@ -66,6 +67,7 @@ public class GLM extends SupervisedModelBuilder<GLMModel,GLMModel.GLMParameters,
   private transient ArrayList<Double> _likelihoods = new ArrayList<>();
   private transient ArrayList<Double> _objectives = new ArrayList<>();
   private transient double _iceptAdjust = 0;
+  private transient double [] _priors; // class distribution of the training rows, family multinomial only
 
   @Override public void init(boolean expensive) {
     super.init(expensive);
@@ -83,6 +85,10 @@ public class GLM extends SupervisedModelBuilder<GLMModel,GLMModel.GLMParameters,
         _parms._link = _parms._family.defaultLink;
       _dinfo = new DataInfo(Key.make(), _train, _valid, 1, _parms._use_all_factor_levels || _parms._lambda_search, _parms._standardize ? DataInfo.TransformType.STANDARDIZE : DataInfo.TransformType.NONE, DataInfo.TransformType.NONE, true);
       DKV.put(_dinfo._key, _dinfo);
+      if(_parms._family == Family.multinomial) {
+        initMultinomial();
+        return;
+      }
       // handle BetaConstraints if I got them
       double[] betaStart = null;
       double[] betaGiven = null;
@@ -281,6 +287,58 @@ public class GLM extends SupervisedModelBuilder<GLMModel,GLMModel.GLMParameters,
   }
 
 
+  /**
+   * Multinomial models have one block of coefficients per class and are fit by L-BFGS with L2 penalty only,
+   * so there are no strong rules or beta constraints to set up. The null model (intercepts set to the log of the
+   * class priors) gives lambda_max and the starting point.
+   */
+  private void initMultinomial() {
+    if (error_count() > 0) return;
+    final int P = _dinfo.fullN() + 1;
+    final int K = _nclass;
+    _tInfos = new GLMTaskInfo[]{null};
+    // gradient of the intercepts at beta = 0 is the uniform distribution minus the class priors
+    GLMGradientTask gt0 = new GLMMultinomialGradientTask(_dinfo, _parms, 0, MemoryManager.malloc8d(K * P), 1, null).doAll(_dinfo._adaptedFrame);
+    final long nobs = gt0._nobs;
+    if (nobs == 0) {
+      error("training_frame", "Got no data to run on after filtering out the rows with missing values.");
+      return;
+    }
+    if (nobs < (_dinfo._adaptedFrame.numRows() >> 1))
+      warn("training_frame", "Dataset has less than 1/2 of the data after filtering out rows with NAs");
+    _priors = MemoryManager.malloc8d(K);
+    final double[] beta = MemoryManager.malloc8d(K * P);
+    for (int k = 0; k < K; ++k) {
+      _priors[k] = 1.0 / K - gt0._gradient[k * P + P - 1] / nobs;
+      beta[k * P + P - 1] = Math.log(Math.max(_priors[k], 1e-10));
+    }
+    GLMGradientTask gtNull = new GLMMultinomialGradientTask(_dinfo, _parms, 0, beta, 1.0 / nobs, null).setValidate(_priors, true).doAll(_dinfo._adaptedFrame);
+    if (_parms._alpha == null)
+      _parms._alpha = new double[]{0};
+    double gmax = 0;
+    for (int k = 0; k < K; ++k)
+      for (int i = k * P; i < k * P + P - 1; ++i)
+        gmax = Math.max(gmax, Math.abs(gtNull._gradient[i]));
+    final double lmax = gmax / Math.max(1e-3, _parms._alpha[0]);
+    if (_parms._lambda != null) {
+      ArrayUtils.mult(_parms._lambda, -1);
+      Arrays.sort(_parms._lambda);
+      ArrayUtils.mult(_parms._lambda, -1);
+    } else
+      _parms._lambda = new double[]{lmax * (_dinfo.fullN() < (nobs >> 4) ? 1e-3 : 1e-1)};
+    double objval = gtNull._likelihood / nobs + .5 * _parms._lambda[0] * multinomialL2norm2(beta, P);
+    _tInfos[0] = new GLMTaskInfo(_dest, 0, nobs, Double.NaN, lmax, beta, K * P, new GLMGradientInfo(gtNull._likelihood, objval, gtNull._gradient), objval);
+    GLMModel m = new GLMModel(_dest, _parms, new GLMOutput(GLM.this), _dinfo, Double.NaN, lmax, nobs);
+    m.delete_and_lock(GLM.this._key);
+    m.adaptTestForTrain(_valid, true);
+    if (_valid != null)
+      _validDinfo = new DataInfo(Key.make(), _valid, null, 1, _parms._use_all_factor_levels, _parms._standardize ? DataInfo.TransformType.STANDARDIZE : DataInfo.TransformType.NONE, DataInfo.TransformType.NONE, true);
+    setSubmodel(_dest, 0, beta, gtNull._val, null, null);
+    if (_parms._max_iterations == -1)
+      _parms._max_iterations = Math.max(20, beta.length >> 2);
+    _tInfos[0]._workPerIteration = (int) (WORK_TOTAL / _parms._max_iterations);
+  }
+
   private class InitTsk extends H2OCountedCompleter {
     final int _foldId;
     final boolean _intercept;
@@ -536,10 +594,49 @@ public class GLM extends SupervisedModelBuilder<GLMModel,GLMModel.GLMParameters,
         throw H2OModelBuilderIllegalArgumentException.makeFromBuilder(GLM.this);
       if(_parms._n_folds != 0)
         throw H2O.unimpl();
+      if(_parms._family == Family.multinomial) {
+        fitMultinomial();
+        tryComplete();
+        return;
+      }
       //todo: fill in initialization for n-folds
       new GLMSingleLambdaTsk(new LambdaSearchIteration(this),_tInfos[0]).fork();
     }
 
+    // L-BFGS for each lambda, warm-started from the solution at the previous one
+    private void fitMultinomial() {
+      final GLMTaskInfo ti = _tInfos[0];
+      for(; _lambdaId < _parms._lambda.length && ti._iter < _parms._max_iterations; ++_lambdaId) {
+        final double lambda = _parms._lambda[_lambdaId];
+        GLMGradientSolver solver = new GLMGradientSolver(_parms, _dinfo, lambda, Double.NaN, ti._nobs);
+        L_BFGS lbfgs = new L_BFGS().setMaxIter(_parms._max_iterations - ti._iter);
+        Result r = lbfgs.solve(solver, ti._beta, solver.getGradient(ti._beta), new ProgressMonitor() {
+          @Override
+          public boolean progress(double[] beta, GradientInfo ginfo) {
+            GLMGradientInfo gginfo = (GLMGradientInfo) ginfo;
+            _scoring_iters.add(ti._iter);
+            _likelihoods.add(gginfo._likelihood);
+            _objectives.add(gginfo._objVal);
+            if ((ti._iter & 7) == 0) {
+              ti._worked += ti._workPerIteration*8;
+              update(ti._workPerIteration*8, "iteration " + (ti._iter + 1) + ", objective value = " + ginfo._objVal + ", gradient norm = " + ArrayUtils.l2norm2(ginfo._gradient,false), GLM.this._key);
+              Log.info("GLM[dest=" + _dest + ", lambda = " + lambda + "] LBFGS: objval = " + ginfo._objVal);
+            }
+            ++ti._iter;
+            return isRunning(GLM.this._key);
+          }
+        });
+        ti._beta = r.coefs;
+        GLMGradientTask gt = new GLMMultinomialGradientTask(_dinfo, _parms, lambda, ti._beta, 1.0 / ti._nobs, null).setValidate(_priors, true).doAll(_dinfo._adaptedFrame);
+        GLMValidation holdOutVal = null;
+        if(_valid != null)
+          holdOutVal = new GLMMultinomialGradientTask(_validDinfo, _parms, lambda, ti._beta, 1.0 / ti._nobs, null).setValidate(_priors, true).doAll(_validDinfo._adaptedFrame)._val;
+        setSubmodel(_dest, ti._iter, ti._beta, gt._val, holdOutVal, null);
+        ti._objVal = gt._likelihood / gt._nobs + .5 * lambda * multinomialL2norm2(ti._beta, _dinfo.fullN() + 1);
+        Log.info("GLM[dest=" + _dest + "]: multinomial solution at lambda = " + lambda + ", objective value = " + ti._objVal + ", L-BFGS iterations = " + r.iter);
+      }
+    }
+
     private class LambdaSearchIteration extends H2O.H2OCallback {
       public LambdaSearchIteration(H2OCountedCompleter cmp){super(cmp); }
       @Override
@@ -593,21 +690,37 @@ public class GLM extends SupervisedModelBuilder<GLMModel,GLMModel.GLMParameters,
     fb[fb.length-1] += _iceptAdjust;
     if (_dinfo._predictor_transform == DataInfo.TransformType.STANDARDIZE) {
       newBetaDeNorm = fb.clone();
-      double norm = 0.0;        // Reverse any normalization on the intercept
-      // denormalize only the numeric coefs (categoricals are not normalized)
-      final int numoff = _dinfo.numStart();
-      for (int i = numoff; i < fb.length - 1; i++) {
-        double b = newBetaDeNorm[i] * _dinfo._normMul[i - numoff];
-        norm += b * _dinfo._normSub[i - numoff]; // Also accumulate the intercept adjustment
-        newBetaDeNorm[i] = b;
+      // multinomial beta has one block (with its own intercept) per class
+      final int P = _parms._family == Family.multinomial ? _dinfo.fullN() + 1 : fb.length;
+      for (int off = 0; off < fb.length; off += P) {
+        double norm = 0.0;        // Reverse any normalization on the intercept
+        // denormalize only the numeric coefs (categoricals are not normalized)
+        final int numoff = _dinfo.numStart();
+        for (int i = numoff; i < P - 1; i++) {
+          double b = newBetaDeNorm[off + i] * _dinfo._normMul[i - numoff];
+          norm += b * _dinfo._normSub[i - numoff]; // Also accumulate the intercept adjustment
+          newBetaDeNorm[off + i] = b;
+        }
+        newBetaDeNorm[off + P - 1] -= norm;
       }
-      newBetaDeNorm[newBetaDeNorm.length - 1] -= norm;
     } else {
       newBetaDeNorm = null;
     }
     GLMModel.setSubmodel(cmp, dstKey, _parms._lambda[_lambdaId], newBetaDeNorm == null ? fb : newBetaDeNorm, newBetaDeNorm == null ? null : fb,iter, System.currentTimeMillis() - _start_time, _dinfo.fullN() >= sparseCoefThreshold, trainVal, holdOutVal, _train, _valid);
   }
 
+  /**
+   * @param P number of coefficients per class, the last one of each class is the (not penalized) intercept
+   * @return squared L2 norm of the multinomial coefficients
+   */
+  static double multinomialL2norm2(double [] beta, int P) {
+    double res = 0;
+    for (int off = 0; off < beta.length; off += P)
+      for (int i = off; i < off + P - 1; ++i)
+        res += beta[i] * beta[i];
+    return res;
+  }
+
   double objVal(double likelihood, double[] beta, double lambda, long nobs, boolean intercept) {
     double alpha = _parms._alpha[0];
     double proximalPen = 0;
@@ -1382,22 +1495,32 @@ public class GLM extends SupervisedModelBuilder<GLMModel,GLMModel.GLMParameters,
     public GLMGradientInfo getGradient(double[] beta) {
       GLMGradientTask gt = _glmp._family == Family.binomial
         ? new LBFGS_LogisticGradientTask(_dinfo, _glmp, _lambda, beta, 1.0 / _nobs, _rowFilter ).doAll(_dinfo._adaptedFrame)
+        : _glmp._family == Family.multinomial
+        ? new GLMMultinomialGradientTask(_dinfo, _glmp, _lambda, beta, 1.0 / _nobs, _rowFilter).doAll(_dinfo._adaptedFrame)
         :
       /*GLMGradientTask gt = */new GLMGradientTask(_dinfo, _glmp, _lambda, beta, 1.0 / _nobs, _rowFilter).doAll(_dinfo._adaptedFrame);
-      return new GLMGradientInfo(gt._likelihood, gt._likelihood/gt._nobs + .5 * _lambda * ArrayUtils.l2norm2(beta,_dinfo._intercept), gt._gradient);
+      return new GLMGradientInfo(gt._likelihood, gt._likelihood/gt._nobs + .5 * _lambda * l2norm2(beta), gt._gradient);
+    }
+
+    private double l2norm2(double [] beta) {
+      return _glmp._family == Family.multinomial
+        ? multinomialL2norm2(beta, _dinfo.fullN() + 1)
+        : ArrayUtils.l2norm2(beta, _dinfo._intercept);
     }
 
     @Override
     public double[] getObjVals(double[] beta, double[] direction, int nSteps, double stepDec) {
       double reg = 1.0 / _nobs;
-      double[] objs = new GLMLineSearchTask(_dinfo, _glmp, 1.0 / _nobs, beta, direction, stepDec, nSteps, _rowFilter).setFasterMetrics(true).doAll(_dinfo._adaptedFrame)._likelihoods;
+      double[] objs = _glmp._family == Family.multinomial
+        ? new GLMMultinomialLineSearchTask(_dinfo, beta, direction, stepDec, nSteps, _rowFilter).doAll(_dinfo._adaptedFrame)._likelihoods
+        : new GLMLineSearchTask(_dinfo, _glmp, 1.0 / _nobs, beta, direction, stepDec, nSteps, _rowFilter).setFasterMetrics(true).doAll(_dinfo._adaptedFrame)._likelihoods;
       double step = 1;
       for (int i = 0; i < objs.length; ++i, step *= stepDec) {
         objs[i] *= reg;
         if (_lambda > 0 ) { // have some l2 pen
           double[] b = ArrayUtils.wadd(beta.clone(), direction, step);
           if (_lambda > 0)
-            objs[i] += .5 * _lambda * ArrayUtils.l2norm2(b, _dinfo._intercept);
+            objs[i] += .5 * _lambda * l2norm2(b);
         }
       }
       return objs;
@@ -58,6 +58,8 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
   }
 
   @Override public ModelMetrics.MetricBuilder makeMetricBuilder(String[] domain) {
+    if(_parms._family == Family.multinomial)
+      return new GLMValidation(domain,_output._priorClassDist, _parms, rank(beta()), _output._threshold);
     return new GLMValidation(domain,_ymu, _parms, rank(beta()), _output._threshold);
   }
 
@@ -70,6 +72,11 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
 
   @Override
   public double[] score0(Chunk[] chks, int row_in_chunk, double[] tmp, double[] preds) {
+    if(_parms._family == Family.multinomial) {
+      for(int i = 0; i < tmp.length; ++i)
+        tmp[i] = chks[i].atd(row_in_chunk);
+      return score0(tmp, preds);
+    }
     double eta = 0.0;
     final double [] b = beta();
     if(!_parms._use_all_factor_levels){ // good level 0 of all factors
@@ -83,6 +90,75 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
     for(int i = _dinfo._cats; i < b.length-1-noff; ++i)
       eta += b[noff+i]*chks[i].atd(row_in_chunk);
     eta += b[b.length-1]; // intercept
+    return linkPreds(eta, preds);
+  }
+
+  /** Batch scoring: eta for the whole block is accumulated one column at a
+   *  time, a dense axpy per numeric column with its coefficient held in a
+   *  register, instead of gathering every row into a temp array first. */
+  @Override
+  public void score0(Chunk[] chks, int from, int to, double[][] preds) {
+    final double [] b = beta();
+    final int n = to - from;
+    if(_parms._family == Family.multinomial) {
+      final int K = _output.nclasses();
+      final int P = b.length / K;
+      final double [][] eta = new double[K][n];
+      for(int k = 0; k < K; ++k)
+        addEta(chks, from, b, k*P, P, eta[k]);
+      final double [] e = new double[K];
+      for(int r = 0; r < n; ++r) {
+        for(int k = 0; k < K; ++k)
+          e[k] = eta[k][r];
+        multinomialPreds(e, preds[r]);
+      }
+      return;
+    }
+    final double [] eta = new double[n];
+    addEta(chks, from, b, 0, b.length, eta);
+    for(int r = 0; r < n; ++r)
+      linkPreds(eta[r], preds[r]);
+  }
+
+  // add the linear predictor of the coefficient block b[off .. off+P) (intercept last) for rows from .. from+eta.length
+  private void addEta(Chunk[] chks, int from, double [] b, int off, int P, double [] eta) {
+    final int n = eta.length;
+    final int skip = _parms._use_all_factor_levels ? 0 : 1; // good level 0 of all factors
+    for(int i = 0; i < _dinfo._catOffsets.length-1; ++i) {
+      final Chunk c = chks[i];
+      final int coff = off + _dinfo._catOffsets[i] - skip;
+      for(int r = 0; r < n; ++r) {
+        double d = c.atd(from + r);
+        if(skip == 0 || d != 0) eta[r] += b[coff + (int)d];
+      }
+    }
+    final int noff = _dinfo.numStart() - _dinfo._cats ;
+    for(int i = _dinfo._cats; i < P-1-noff; ++i) {
+      final Chunk c = chks[i];
+      final double bi = b[off+noff+i];
+      for(int r = 0; r < n; ++r)
+        eta[r] += bi*c.atd(from + r);
+    }
+    final double icpt = b[off+P-1];
+    for(int r = 0; r < n; ++r)
+      eta[r] += icpt;
+  }
+
+  // softmax of the per-class linear predictors, class probabilities go to preds[1..K], the predicted class to preds[0]
+  private static double[] multinomialPreds(double [] eta, double[] preds) {
+    double max = eta[0];
+    for(int k = 1; k < eta.length; ++k)
+      if(eta[k] > max) max = eta[k];
+    double sum = 0;
+    for(int k = 0; k < eta.length; ++k)
+      sum += (preds[k+1] = Math.exp(eta[k] - max));
+    for(int k = 0; k < eta.length; ++k)
+      preds[k+1] /= sum;
+    preds[0] = hex.genmodel.GenModel.getPrediction(preds, null);
+    return preds;
+  }
+
+  private double[] linkPreds(double eta, double[] preds) {
     double mu = _parms.linkInv(eta);
     preds[0] = mu;
     if( _parms._family == Family.binomial ) { // threshold for prediction
@@ -157,6 +233,24 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
           }
         }
       }
+      if(_family == Family.multinomial) {
+        Frame frame = DKV.getGet(_train);
+        if (frame != null) {
+          Vec response = frame.vec(_response_column);
+          if (response != null && !response.isEnum())
+            glm.error("_response_column", "Illegal response for family multinomial, must be categorical");
+        }
+        if(_solver == Solver.COORDINATE_DESCENT)
+          glm.error("_solver", "Only L_BFGS solver is supported for family multinomial");
+        else
+          _solver = Solver.L_BFGS;
+        if(_alpha != null)
+          for(double a:_alpha)
+            if(a != 0) glm.error("_alpha", "L1 penalty is not supported for family multinomial, alpha must be 0");
+        if(_lambda_search) glm.error("_lambda_search", "Lambda search is not supported for family multinomial");
+        if(_beta_constraints != null) glm.error("_beta_constraints", "Beta constraints are not supported for family multinomial");
+        if(_prior > 0) glm.error("_prior", "Prior is not supported for family multinomial");
+      }
       if(!_lambda_search) {
         glm.hide("_lambda_min_ratio", "only applies if lambda search is on.");
         glm.hide("_nlambdas", "only applies if lambda search is on.");
@@ -179,6 +273,10 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
             if (_link != Link.inverse && _link != Link.log && _link != Link.identity)
               throw new IllegalArgumentException("Incompatible link function for selected family. Only inverse, log and identity links are allowed for family=gamma.");
             break;
+          case multinomial:
+            if (_link != Link.multinomial)
+              throw new IllegalArgumentException("Incompatible link function for selected family. Only multinomial link is allowed for family=multinomial.");
+            break;
 //          case tweedie:
 //            if (_link != Link.tweedie)
 //              throw new IllegalArgumentException("Incompatible link function for selected family. Only tweedie link allowed for family=tweedie.");
@@ -239,6 +337,8 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
           return _link == Link.log;
         case gamma:
           return _link == Link.inverse;
+        case multinomial:
+          return _link == Link.multinomial;
 //        case tweedie:
 //          return false;
         default:
@@ -410,11 +510,11 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
     // supported families
     public enum Family {
       gaussian(Link.identity), binomial(Link.logit), poisson(Link.log),
-      gamma(Link.inverse)/*, tweedie(Link.tweedie)*/;
+      gamma(Link.inverse), multinomial(Link.multinomial)/*, tweedie(Link.tweedie)*/;
       public final Link defaultLink;
       Family(Link link){defaultLink = link;}
     }
-    public static enum Link {family_default, identity, logit, log,inverse,/* tweedie*/}
+    public static enum Link {family_default, identity, logit, log,inverse, multinomial/* tweedie*/}
 
     public static enum Solver {AUTO, IRLSM, L_BFGS, COORDINATE_DESCENT}
 
@@ -529,6 +629,7 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
     double _threshold;
     double[] _global_beta;
     public boolean _binomial;
+    public boolean _multinomial;
 
 
     public int rank() {
@@ -562,17 +663,27 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
       _coefficient_names = Arrays.copyOf(cnames, cnames.length + 1);
       _coefficient_names[cnames.length] = "Intercept";
       _binomial = glm._parms._family == Family.binomial;
+      _multinomial = glm._parms._family == Family.multinomial;
+      if(_multinomial) { // one block of coefficients per class
+        String [] classes = _domains[_domains.length-1];
+        String [] names = _coefficient_names;
+        _coefficient_names = new String[classes.length*names.length];
+        for(int k = 0; k < classes.length; ++k)
+          for(int i = 0; i < names.length; ++i)
+            _coefficient_names[k*names.length + i] = names[i] + "_" + classes[k];
+      }
     }
 
     @Override
     public int nclasses() {
-      return _binomial ? 2 : 1;
+      return _multinomial ? _domains[_domains.length-1].length : _binomial ? 2 : 1;
     }
 
     private static String[] binomialClassNames = new String[]{"0", "1"};
 
     @Override
     public String[] classNames() {
+      if(_multinomial) return _domains[_domains.length-1];
       return _binomial ? binomialClassNames : null;
     }
 
@@ -736,33 +847,33 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
   }
 
   @Override protected double[] score0(double[] data, double[] preds) {
-    double eta = 0.0;
     final double [] b = beta();
+    if(_parms._family == Family.multinomial) {
+      final int K = _output.nclasses();
+      final int P = b.length / K;
+      final double [] eta = new double[K];
+      for(int k = 0; k < K; ++k)
+        eta[k] = eta(data, b, k*P, P);
+      return multinomialPreds(eta, preds);
+    }
+    return linkPreds(eta(data, b, 0, b.length), preds);
+  }
+
+  // linear predictor of the coefficient block b[off .. off+P) (intercept last)
+  private double eta(double[] data, double [] b, int off, int P) {
+    double eta = 0.0;
     if(!_parms._use_all_factor_levels){ // good level 0 of all factors
       for(int i = 0; i < _dinfo._catOffsets.length-1; ++i) if(data[i] != 0)
-        eta += b[_dinfo._catOffsets[i] + (int)(data[i]-1)];
+        eta += b[off + _dinfo._catOffsets[i] + (int)(data[i]-1)];
     } else { // do not good any levels!
       for(int i = 0; i < _dinfo._catOffsets.length-1; ++i)
-        eta += b[_dinfo._catOffsets[i] + (int)data[i]];
+        eta += b[off + _dinfo._catOffsets[i] + (int)data[i]];
     }
     final int noff = _dinfo.numStart() - _dinfo._cats;
     for(int i = _dinfo._cats; i < data.length; ++i)
-      eta += b[noff+i]*data[i];
-    eta += b[b.length-1]; // reduce intercept
-    double mu = _parms.linkInv(eta);
-    preds[0] = mu;
-    if( _parms._family == Family.binomial ) { // threshold for prediction
-      if(Double.isNaN(mu)){
-        preds[0] = Double.NaN;
-        preds[1] = Double.NaN;
-        preds[2] = Double.NaN;
-      } else {
-        preds[0] = (mu >= _output._threshold ? 1 : 0);
-        preds[1] = 1.0 - mu; // class 0
-        preds[2] =       mu; // class 1
-      }
-    }
-    return preds;
+      eta += b[off+noff+i]*data[i];
+    eta += b[off+P-1]; // reduce intercept
+    return eta;
   }
 
   @Override protected void toJavaPredictBody(SB body, SB classCtx, SB file) {
@@ -770,6 +881,10 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
     String mname = JCodeGen.toJavaId(_key.toString());
     JCodeGen.toStaticVar(classCtx,"BETA",beta(),"The Coefficients");
     JCodeGen.toStaticVar(classCtx,"CATOFFS",_dinfo._catOffsets,"Categorical Offsets");
+    if(_parms._family == Family.multinomial) {
+      toJavaMultinomialPredictBody(body);
+      return;
+    }
     body.ip("double eta = 0.0;").nl();
     body.ip("final double [] b = BETA;").nl();
     if(!_parms._use_all_factor_levels){ // good level 0 of all factors
@@ -794,6 +909,36 @@ public class GLMModel extends SupervisedModel<GLMModel,GLMModel.GLMParameters,GL
     }
   }
 
+  private void toJavaMultinomialPredictBody(SB body) {
+    final int K = _output.nclasses();
+    final int P = beta().length / K;
+    final int noff = _dinfo.numStart() - _dinfo._cats;
+    body.ip("final double [] b = BETA;").nl();
+    body.ip("double max = Double.NEGATIVE_INFINITY;").nl();
+    body.ip("for(int k = 0; k < ").p(K).p("; ++k) {").nl();
+    body.ip("  final int off = k*").p(P).p(";").nl();
+    body.ip("  double eta = 0.0;").nl();
+    if(!_parms._use_all_factor_levels){ // good level 0 of all factors
+      body.ip("  for(int i = 0; i < CATOFFS.length-1; ++i) if(data[i] != 0)").nl();
+      body.ip("    eta += b[off + CATOFFS[i] + (int)(data[i]-1)];").nl();
+    } else { // do not good any levels!
+      body.ip("  for(int i = 0; i < CATOFFS.length-1; ++i)").nl();
+      body.ip("    eta += b[off + CATOFFS[i] + (int)(data[i])];").nl();
+    }
+    body.ip("  for(int i = ").p(_dinfo._cats).p("; i < data.length; ++i)").nl();
+    body.ip("    eta += b[off + ").p(noff).p(" + i]*data[i];").nl();
+    body.ip("  eta += b[off + ").p(P - 1).p("]; // reduce intercept").nl();
+    body.ip("  preds[k+1] = eta;").nl();
+    body.ip("  if(eta > max) max = eta;").nl();
+    body.ip("}").nl();
+    body.ip("double sum = 0;").nl();
+    body.ip("for(int k = 1; k <= ").p(K).p("; ++k)").nl();
+    body.ip("  sum += (preds[k] = Math.exp(preds[k] - max));").nl();
+    body.ip("for(int k = 1; k <= ").p(K).p("; ++k)").nl();
+    body.ip("  preds[k] /= sum;").nl();
+    body.ip("preds[0] = hex.genmodel.GenModel.getPrediction(preds, null);").nl();
+  }
+
   @Override protected SB toJavaInit(SB sb, SB fileContext) {
     sb.nl();
     sb.ip("public boolean isSupervised() { return true; }").nl();
@@ -22,6 +22,8 @@ import java.util.Arrays;
  * YMUTask           - computes response means on actual datasets (if some rows are ignored - e.g ignoring rows with NA and/or doing cross-validation)
  * GLMGradientTask   - computes gradient at given Beta, used by L-BFGS, for KKT condition check
  * GLMLineSearchTask - computes residual deviance(s) at given beta(s), used by line search (both L-BFGS and IRLSM)
+ * GLMMultinomialGradientTask   - gradient of the multinomial family for all classes at once, used by L-BFGS
+ * GLMMultinomialLineSearchTask - line search for the multinomial family
  * GLMIterationTask  - used by IRLSM to compute Gram matrix and response t(X) W X, t(X)Wz
  *
  * @author tomasnykodym
@@ -419,13 +421,17 @@ public abstract class GLMTask  {
 
     private String [] _domain = new String[]{"0","1"};
 
+    protected GLMValidation newValidation(int rank) {
+      return new GLMValidation(_domain, _ymu,_params,rank, .5);
+    }
+
     public void map(Chunk [] chks){
       int rank = 0;
       for(int i = 0; i < _beta.length; ++i)
         if(_beta[i] != 0)
           ++rank;
       if(_validate)
-        _val = new GLMValidation(_domain, _ymu,_params,rank, .5);
+        _val = newValidation(rank);
       _gradient = MemoryManager.malloc8d(_beta.length);
 
       boolean [] skp = MemoryManager.mallocZ(chks[0]._len);
@@ -450,6 +456,272 @@ public abstract class GLMTask  {
   }
 
 
+  /**
+   * Linear predictors of all classes of a multinomial model for the rows of a chunk.
+   * Computed by columns, numeric columns only visit their non-zeros (zeros of centered columns are folded into a per-class offset).
+   * Rows with missing values are marked in skip.
+   * @param beta K blocks of fullN() coefficients followed by the intercept
+   */
+  static double [][] multinomialEta(DataInfo dinfo, Chunk [] chks, double [] beta, int K, boolean [] skip) {
+    final int P = dinfo.fullN() + 1;
+    final int numStart = dinfo.numStart();
+    final double [][] eta = new double[K][chks[0]._len];
+    for(int k = 0; k < K; ++k) {
+      final int off = k*P;
+      double e = dinfo._intercept ? beta[off + P - 1] : 0;
+      if(dinfo._normMul != null && dinfo._normSub != null)
+        for (int i = 0; i < dinfo._nums; ++i)
+          e -= beta[off + numStart + i] * dinfo._normSub[i] * dinfo._normMul[i];
+      Arrays.fill(eta[k], e);
+    }
+    for(int i = 0; i < dinfo._cats; ++i) {
+      Chunk c = chks[i];
+      for(int r = 0; r < c._len; ++r) { // categoricals can not be sparse
+        if(skip[r] || c.isNA(r)) {
+          skip[r] = true;
+          continue;
+        }
+        int id = dinfo.getCategoricalId(i,(int)c.at8(r));
+        if(id != -1)
+          for(int k = 0; k < K; ++k)
+            eta[k][r] += beta[k*P + id];
+      }
+    }
+    for (int i = 0; i < dinfo._nums; ++i) {
+      Chunk c = chks[i + dinfo._cats];
+      for (int r = c.nextNZ(-1); r < c._len; r = c.nextNZ(r)) {
+        if(skip[r] || c.isNA(r)) {
+          skip[r] = true;
+          continue;
+        }
+        double d = c.atd(r);
+        if (dinfo._normMul != null)
+          d *= dinfo._normMul[i];
+        for(int k = 0; k < K; ++k)
+          eta[k][r] += beta[k*P + numStart + i] * d;
+      }
+    }
+    return eta;
+  }
+
+  /**
+   * Softmax of the linear predictors eta.
+   * @param ds gets the predicted class followed by the class probabilities
+   * @return negative log-likelihood of class y
+   */
+  static double softmax(double [] eta, int y, double [] ds) {
+    double max = eta[0];
+    for(int k = 1; k < eta.length; ++k)
+      if(eta[k] > max) max = eta[k];
+    double sum = 0;
+    for(int k = 0; k < eta.length; ++k)
+      sum += (ds[k+1] = Math.exp(eta[k] - max));
+    for(int k = 0; k < eta.length; ++k)
+      ds[k+1] /= sum;
+    ds[0] = hex.genmodel.GenModel.getPrediction(ds, null);
+    return Math.log(sum) + max - eta[y];
+  }
+
+  /**
+   * Gradient of the multinomial (softmax) likelihood, for all K classes in one pass over the data.
+   * Coefficients of class k are beta[k*(fullN()+1) .. (k+1)*(fullN()+1)), the intercept is the last one of each block.
+   * Sparse chunks go by columns and touch only the non-zeros, dense chunks go by rows.
+   */
+  public static class GLMMultinomialGradientTask extends GLMGradientTask {
+    final int _K;
+    final int _P;
+    final String [] _classes;
+    double [] _priors;
+
+    public GLMMultinomialGradientTask(DataInfo dinfo, GLMParameters params, double lambda, double[] beta, double reg, Vec rowFilter) {
+      super(dinfo, params, lambda, beta, reg, rowFilter);
+      _P = dinfo.fullN() + 1;
+      _K = beta.length / _P;
+      assert _K * _P == beta.length;
+      _classes = dinfo._adaptedFrame.lastVec().domain();
+    }
+
+    /**
+     * @param priors class distribution of the training data, for the null deviance
+     */
+    public GLMMultinomialGradientTask setValidate(double [] priors, boolean validate) {
+      _priors = priors;
+      _validate = validate;
+      return this;
+    }
+
+    @Override protected GLMValidation newValidation(int rank) {
+      return new GLMValidation(_classes, _priors, _params, rank, .5);
+    }
+
+    @Override protected void goByRows(Chunk [] chks, boolean [] skp) {
+      Row row = _dinfo.newDenseRow();
+      final double [] g = _gradient;
+      final double [] eta = new double[_K];
+      final double [] ds = new double[_K + 1];
+      final int numStart = _dinfo.numStart();
+      for(int rid = 0; rid < chks[0]._len; ++rid) {
+        if(skp[rid]) continue;
+        row = _dinfo.extractDenseRow(chks, rid, row);
+        if(row.bad) continue;
+        ++_nobs;
+        final int y = (int)row.response(0);
+        for(int k = 0; k < _K; ++k)
+          eta[k] = row.innerProduct(_beta, k*_P);
+        _likelihood += softmax(eta, y, ds);
+        if(_validate)
+          _val.addMultinomial(y, ds);
+        for(int k = 0; k < _K; ++k) {
+          final int off = k*_P;
+          final double gval = y == k ? ds[k+1] - 1 : ds[k+1];
+          // categoricals
+          for(int i = 0; i < row.nBins; ++i)
+            g[off + row.binIds[i]] += gval;
+          // numbers
+          for(int j = 0; j < _dinfo._nums; ++j)
+            g[off + numStart + j] += row.numVals[j] * gval;
+          // intercept
+          if(_dinfo._intercept)
+            g[off + _P - 1] += gval;
+        }
+      }
+    }
+
+    @Override protected void goByCols(Chunk [] chks, boolean [] skp) {
+      final int numStart = _dinfo.numStart();
+      final double [][] eta = multinomialEta(_dinfo, chks, _beta, _K, skp);
+      final double [] g = _gradient;
+      final double [] e = new double[_K];
+      final double [] ds = new double[_K + 1];
+      final double [] eta_sum = new double[_K];
+      Chunk responseChunk = chks[chks.length-1];
+      // compute the class probabilities for each row, eta is replaced by the derivative of the likelihood wrt. eta
+      for(int r = 0; r < chks[0]._len; ++r){
+        if(skp[r] || responseChunk.isNA(r)) {
+          skp[r] = true;
+          continue;
+        }
+        ++_nobs;
+        final int y = (int)responseChunk.at8(r);
+        for(int k = 0; k < _K; ++k)
+          e[k] = eta[k][r];
+        _likelihood += softmax(e, y, ds);
+        if(_validate)
+          _val.addMultinomial(y, ds);
+        for(int k = 0; k < _K; ++k) {
+          final double gval = y == k ? ds[k+1] - 1 : ds[k+1];
+          eta[k][r] = gval;
+          eta_sum[k] += gval;
+        }
+      }
+      // go over the columns again and compute gradient for each column
+      // first handle eta offset and intercept
+      for(int k = 0; k < _K; ++k) {
+        final int off = k*_P;
+        if (_dinfo._intercept)
+          g[off + _P - 1] = eta_sum[k];
+        if (_dinfo._normMul != null && _dinfo._normSub != null)
+          for (int i = 0; i < _dinfo._nums; ++i)
+            g[off + numStart + i] = -_dinfo._normSub[i] * _dinfo._normMul[i] * eta_sum[k];
+      }
+      // categoricals
+      for(int i = 0; i < _dinfo._cats; ++i) {
+        Chunk c = chks[i];
+        for(int r = 0; r < c._len; ++r) { // categoricals can not be sparse
+          if(skp[r]) continue;
+          int id = _dinfo.getCategoricalId(i,(int)c.at8(r));
+          if(id != -1)
+            for(int k = 0; k < _K; ++k)
+              g[k*_P + id] += eta[k][r];
+        }
+      }
+      // numerics
+      for (int i = 0; i < _dinfo._nums; ++i) {
+        Chunk c = chks[i + _dinfo._cats];
+        for (int r = c.nextNZ(-1); r < c._len; r = c.nextNZ(r)) {
+          if(skp[r]) continue;
+          double d = c.atd(r);
+          if (_dinfo._normMul != null)
+            d = d*_dinfo._normMul[i];
+          for(int k = 0; k < _K; ++k)
+            g[k*_P + numStart + i] += eta[k][r] * d;
+        }
+      }
+      _skip = skp;
+    }
+
+    @Override
+    public void postGlobal(){
+      if(_validate)
+        _val.computeAIC();
+      for(int k = 0; k < _K; ++k) {
+        final int off = k*_P;
+        for (int j = off; j < off + _P - 1; ++j)
+          _gradient[j] = _gradient[j] * _reg + _currentLambda * _beta[j];
+        _gradient[off + _P - 1] *= _reg;
+      }
+    }
+  }
+
+  /**
+   * Negative log-likelihoods of the multinomial family at beta + step^i * direction, i = 0 .. nSteps-1.
+   * The linear predictors are linear in the coefficients, so the ones of beta and direction are computed once per row
+   * (by columns, see multinomialEta) and combined for each step.
+   */
+  static class GLMMultinomialLineSearchTask extends MRTask<GLMMultinomialLineSearchTask> {
+    final DataInfo _dinfo;
+    final double [] _beta;
+    final double [] _direction;
+    final double _step;
+    final int _nSteps;
+    final int _K;
+    Vec _rowFilter;
+
+    public GLMMultinomialLineSearchTask(DataInfo dinfo, double [] beta, double [] direction, double step, int nsteps, Vec rowFilter) {
+      _dinfo = dinfo;
+      _beta = beta;
+      _direction = direction;
+      _step = step;
+      _nSteps = nsteps;
+      _rowFilter = rowFilter;
+      _K = beta.length / (dinfo.fullN() + 1);
+    }
+    long _nobs;
+    double [] _likelihoods; // result
+
+    @Override
+    public void map(Chunk [] chks) {
+      boolean [] skip = MemoryManager.mallocZ(chks[0]._len);
+      if(_rowFilter != null) {
+        Chunk c = _rowFilter.chunkForChunkIdx(chks[0].cidx());
+        for(int r = 0; r < skip.length; ++r)
+          skip[r] = c.at8(r) == 1;
+      }
+      final double [][] etaB = multinomialEta(_dinfo, chks, _beta, _K, skip);
+      final double [][] etaD = multinomialEta(_dinfo, chks, _direction, _K, skip);
+      final double [] e = new double[_K];
+      final double [] ds = new double[_K + 1];
+      Chunk responseChunk = chks[chks.length-1];
+      _likelihoods = MemoryManager.malloc8d(_nSteps);
+      for(int r = 0; r < chks[0]._len; ++r) {
+        if(skip[r] || responseChunk.isNA(r))
+          continue;
+        _nobs++;
+        final int y = (int)responseChunk.at8(r);
+        double t = 1;
+        for(int i = 0; i < _nSteps; ++i, t *= _step) {
+          for(int k = 0; k < _K; ++k)
+            e[k] = etaB[k][r] + t * etaD[k][r];
+          _likelihoods[i] += softmax(e, y, ds);
+        }
+      }
+    }
+    @Override public void reduce(GLMMultinomialLineSearchTask glt){
+      ArrayUtils.add(_likelihoods,glt._likelihoods);
+      _nobs += glt._nobs;
+    }
+  }
+
   static class GLMWeightsTask extends MRTask<GLMWeightsTask> {
     final GLMParameters _params;
     GLMWeightsTask(GLMParameters params){_params = params;}
@@ -649,6 +921,7 @@ public abstract class GLMTask  {
     final GLMParameters _glm;
     final double [] _beta;
     protected Gram  _gram;
+    private transient Gram.Partials _partials; // per-thread partial Grams of this node
     double [] _xy;
     double    _yy;
     GLMValidation _val; // validation of previous model
@@ -681,12 +954,16 @@ public abstract class GLMTask  {
 
     private String [] _domain = new String[]{"0","1"}; // todo pass correct domain
     @Override
+    protected void setupLocal() {
+      _partials = new Gram.Partials(_dinfo.fullN(), _dinfo.largestCat(), _dinfo._nums, _dinfo._cats,true);
+    }
+    @Override
     public void map(Chunk [] chks) {
       if(_jobKey != null && !Job.isRunning(_jobKey))
         throw new Job.JobCancelledException();
       Chunk rowFilter = _rowFilter == null?null:_rowFilter.chunkForChunkIdx(chks[0].cidx());
       // initialize
-      _gram = new Gram(_dinfo.fullN(), _dinfo.largestCat(), _dinfo._nums, _dinfo._cats,true);
+      _gram = _partials.borrow();
       // public GLMValidation(Key dataKey, double ymu, GLMParameters glm, int rank, float [] thresholds){
       if(_validate) {
         int rank = 0;
@@ -715,6 +992,8 @@ public abstract class GLMTask  {
       if(_validate && _glm._family == Family.binomial) {
         assert _val != null;
       }
+      _partials.giveBack(_gram); // summed up in closeLocal
+      _gram = null;
     }
 
     protected final void processRow(Row r) {
@@ -764,7 +1043,8 @@ public abstract class GLMTask  {
     public void reduce(GLMIterationTask git){
       if(_jobKey == null || Job.isRunning(_jobKey)) {
         ArrayUtils.add(_xy, git._xy);
-        _gram.add(git._gram);
+        if(_gram == null) _gram = git._gram;
+        else if(git._gram != null) _gram.add(git._gram);
         _yy += git._yy;
         _nobs += git._nobs;
         if (_validate) _val.reduce(git._val);
@@ -773,6 +1053,13 @@ public abstract class GLMTask  {
       }
     }
 
+    @Override protected void closeLocal(){
+      Gram local = _partials.sum();
+      if(_gram == null) _gram = local;
+      else if(local != null) _gram.add(local);
+      _partials = null;
+    }
+
     @Override protected void postGlobal(){
       if(_sparse && _dinfo._normSub != null) { // need to adjust gram for missing centering!
         int ns = _dinfo.numStart();
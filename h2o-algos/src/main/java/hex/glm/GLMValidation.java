@@ -3,6 +3,7 @@ package hex.glm;
 import hex.*;
 import hex.ModelMetrics.MetricBuilder;
 import hex.ModelMetricsBinomial.MetricBuilderBinomial;
+import hex.ModelMetricsMultinomial.MetricBuilderMultinomial;
 import hex.ModelMetricsRegression.MetricBuilderRegression;
 import hex.glm.GLMModel.GLMParameters;
 import hex.glm.GLMModel.GLMParameters.Family;
@@ -31,19 +32,33 @@ public class GLMValidation extends MetricBuilderBinomial<GLMValidation> {
   MetricBuilder _metricBuilder;
 
   public GLMValidation(String[] domain, double ymu, GLMParameters glm, int rank, double threshold){
+    this(domain, new double[]{ymu}, glm, rank, threshold);
+  }
+
+  /**
+   * @param ymu mean of the response, or the prior class distribution for family multinomial
+   */
+  public GLMValidation(String[] domain, double [] ymu, GLMParameters glm, int rank, double threshold){
     super(domain);
     _rank = rank;
-    _ymu = new double[]{ymu};
+    _ymu = ymu;
     _glm = glm;
     _threshold = threshold;
-    _metricBuilder = _glm._family == Family.binomial
-      ?new MetricBuilderBinomial(domain)
-      :new MetricBuilderRegression();
+    if(_glm._family == Family.multinomial) {
+      _metricBuilder = new MetricBuilderMultinomial(ymu.length, domain);
+      _work = new double[domain.length + 1];
+    } else
+      _metricBuilder = _glm._family == Family.binomial
+        ?new MetricBuilderBinomial(domain)
+        :new MetricBuilderRegression();
   }
 
   @Override public double[] perRow(double ds[], float[] yact, Model m) {
     _metricBuilder.perRow(ds,yact,m);
-    if(_glm._family == Family.binomial)
+    if(_glm._family == Family.multinomial) {
+      if(!Float.isNaN(yact[0]))
+        addMultinomial2((int) yact[0], ds);
+    } else if(_glm._family == Family.binomial)
       add2(yact[0],ds[2]);
     else
       add2(yact[0],ds[0]);
@@ -79,6 +94,20 @@ public class GLMValidation extends MetricBuilderBinomial<GLMValidation> {
     _metricBuilder.perRow(_ds, _yact, null);
     add2(yreal, ymodel);
   }
+  /**
+   * @param y actual class
+   * @param ds predicted class followed by the class probabilities
+   */
+  public void addMultinomial(int y, double [] ds) {
+    _yact[0] = y;
+    _metricBuilder.perRow(ds, _yact, null);
+    addMultinomial2(y, ds);
+  }
+  private void addMultinomial2(int y, double [] ds) {
+    null_deviance -= 2 * Math.log(Math.max(y < _ymu.length ? _ymu[y] : 0, Double.MIN_NORMAL));
+    residual_deviance -= 2 * Math.log(Math.max(ds[y + 1], Double.MIN_NORMAL));
+    ++nobs;
+  }
   private void add2(double yreal, double ymodel) {
     null_deviance += _glm.deviance(yreal, _ymu[0]);
     residual_deviance  += _glm.deviance(yreal, ymodel);
@@ -119,6 +148,7 @@ public class GLMValidation extends MetricBuilderBinomial<GLMValidation> {
         aic =  nobs * (Math.log(residual_deviance / nobs * 2 * Math.PI) + 1) + 2;
         break;
       case binomial:
+      case multinomial:
         aic = residual_deviance;
         break;
       case poisson:
@@ -147,7 +177,9 @@ public class GLMValidation extends MetricBuilderBinomial<GLMValidation> {
     GLMModel gm = (GLMModel)m;
     computeAIC();
     ModelMetrics metrics = _metrics == null?_metricBuilder.makeModelMetrics(m, f, sigma):_metrics;
-    if (_glm._family == Family.binomial) {
+    if (_glm._family == Family.multinomial) {
+      // no GLM specific multinomial metrics, deviances are kept in the submodels' validations
+    } else if (_glm._family == Family.binomial) {
       ModelMetricsBinomial metricsBinommial = (ModelMetricsBinomial) metrics;
       metrics = new ModelMetricsBinomialGLM(m, f, metrics._MSE, _domain, metricsBinommial._sigma, metricsBinommial._auc, metricsBinommial._logloss, residualDeviance(), nullDeviance(), aic, nullDOF(), resDOF());
     } else {
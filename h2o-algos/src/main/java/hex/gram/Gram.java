@@ -12,6 +12,7 @@ import water.nbhm.UtilUnsafe;
 import water.util.ArrayUtils;
 
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public final class Gram extends Iced<Gram> {
   final boolean _hasIntercept;
@@ -21,6 +22,7 @@ public final class Gram extends Iced<Gram> {
   final int _denseN;
   final int _fullN;
   final static int MIN_TSKSZ=10000;
+  private transient int[] _nzs; // scratch space of addRowDense: ids of the non-zero numbers of a row
 
   public Gram() {_diagN = _denseN = _fullN = 0; _hasIntercept = false; }
 
@@ -136,7 +138,28 @@ public final class Gram extends Iced<Gram> {
         _i0 = ifr; _i1 = ito; _j0 = jfr; _j1 = jto;
       }
       @Override public void compute() {
-        for (int i=_i0; i < _i1; i++) {
+        int i = _i0;
+        // 4 rows at a time, so that each row k is read once per 4 dot products
+        for (; i + 4 <= _i1; i += 4) {
+          final double row0[] = _xx[i], row1[] = _xx[i+1], row2[] = _xx[i+2], row3[] = _xx[i+3];
+          for (int k=_j0; k < _j1; k++) {
+            final double rowk[] = _xx[k];
+            double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+            for (int jj = 0; jj < k; jj++) {
+              final double x = rowk[jj];
+              s0 += x*row0[jj];
+              s1 += x*row1[jj];
+              s2 += x*row2[jj];
+              s3 += x*row3[jj];
+            }
+            final double d = rowk[k];
+            row0[k] = (row0[k] - s0) / d;
+            row1[k] = (row1[k] - s1) / d;
+            row2[k] = (row2[k] - s2) / d;
+            row3[k] = (row3[k] - s3) / d;
+          }
+        }
+        for (; i < _i1; i++) {
           double rowi[] = _xx[i];
           for (int k=_j0; k < _j1; k++) {
             double rowk[] = _xx[k];
@@ -175,7 +198,8 @@ public final class Gram extends Iced<Gram> {
         Futures fs = new Futures();
         int rpb = 0;                // rows per block
         int p = P;                  // concurrency
-        while ( tjR*(rpb=(N - tjR)/p)<Gram.MIN_TSKSZ && p>1) --p;
+        // work of a block is rpb rows times (tjR-j) dot products of length up to tjR
+        while ((long)(rpb=(N - tjR)/p)*(tjR-j)*tjR < 100L*Gram.MIN_TSKSZ && p>1) --p;
         while (p-- > 1) {
           fs.add(new BlockTask(xx,i,i+rpb,j,tjR).fork());
           i += rpb;
@@ -276,7 +300,7 @@ public final class Gram extends Iced<Gram> {
     for( int i = 0; i < arr.length; ++i )
       arr[i] = Arrays.copyOfRange(fchol._xx[i], sparseN, sparseN + denseN);
     int p = Runtime.getRuntime().availableProcessors();
-    InPlaceCholesky d = InPlaceCholesky.decompose_2(arr, 10, p);
+    InPlaceCholesky d = InPlaceCholesky.decompose_2(arr, 32, p);
     fchol.setSPD(d.isSPD());
     arr = d.getL();
     for( int i = 0; i < arr.length; ++i )
@@ -763,12 +787,19 @@ public final class Gram extends Iced<Gram> {
 
     assert _denseN + denseRowStart == _xx.length-intercept;
     final double [] interceptRow = _hasIntercept?_xx[_denseN + denseRowStart]:null;
+    // only the non-zero numbers contribute, the outer product is O(nnz^2) rather than O(_denseN^2)
+    if(_nzs == null || _nzs.length < _denseN) _nzs = new int[_denseN];
+    final int [] nzs = _nzs;
+    int nnz = 0;
+    for(int i = 0; i < _denseN; ++i)
+      if(row.numVals[i] != 0) nzs[nnz++] = i;
     // nums
-    for(int i = 0; i < _denseN; ++i) if(row.numVals[i] != 0) {
+    for(int t = 0; t < nnz; ++t) {
+      final int i = nzs[t];
       final double [] mrow = _xx[i+denseRowStart];
       final double d = w* row.numVals[i];
-      for(int j = 0; j <= i; ++j)if(row.numVals[j] != 0)
-        mrow[j+denseColStart] += d* row.numVals[j];
+      for(int s = 0; s <= t; ++s)
+        mrow[nzs[s]+denseColStart] += d* row.numVals[nzs[s]];
       if(_hasIntercept)
         interceptRow[i+denseColStart] += d; // intercept*x[i]
       // nums * cats
@@ -822,6 +853,37 @@ public final class Gram extends Iced<Gram> {
       res[i] += _xx[ii][n]*x[n]; // diagonal element
     }
   }
+  /**
+   * Partial Grams of one task on one node.
+   * Allocating a Gram for every chunk and adding it up in the reduce costs O(p^2) per chunk, no matter how
+   * few (or how sparse) the rows of the chunk are. Instead, every map call borrows a partial Gram and gives
+   * it back when done, so there are only as many partial Grams as concurrently running map calls (one per
+   * worker thread at most), and they are summed up once per node.
+   */
+  public static final class Partials {
+    private final ConcurrentLinkedQueue<Gram> _free = new ConcurrentLinkedQueue<>();
+    private final int _N, _diag, _dense, _sparse;
+    private final boolean _hasIntercept;
+
+    public Partials(int N, int diag, int dense, int sparse, boolean hasIntercept) {
+      _N = N; _diag = diag; _dense = dense; _sparse = sparse; _hasIntercept = hasIntercept;
+    }
+    /** @return an unused partial Gram, new if there is none */
+    public Gram borrow() {
+      Gram g = _free.poll();
+      return g != null ? g : new Gram(_N, _diag, _dense, _sparse, _hasIntercept);
+    }
+    public void giveBack(Gram g) { _free.offer(g); }
+    /** @return the sum of all partial Grams (null if there are none), the partials are dropped */
+    public Gram sum() {
+      Gram res = _free.poll();
+      if(res != null)
+        for(Gram g = _free.poll(); g != null; g = _free.poll())
+          res.add(g);
+      return res;
+    }
+  }
+
   /**
    * Task to compute gram matrix normalized by the number of observations (not counting rows with NAs).
    * in R's notation g = t(X)%*%X/nobs, nobs = number of rows of X with no NA.
@@ -830,12 +892,17 @@ public final class Gram extends Iced<Gram> {
   public static class GramTask extends FrameTask<GramTask> {
     public Gram _gram;
     public long _nobs;
+    private transient Partials _partials;
 
     public GramTask(Key jobKey, DataInfo dinfo){
       super(jobKey,dinfo._key,dinfo._activeCols);
     }
+    @Override protected void setupLocal(){
+      super.setupLocal();
+      _partials = new Partials(_dinfo.fullN(), _dinfo.largestCat(), _dinfo._nums, _dinfo._cats,false);
+    }
     @Override protected void chunkInit(){
-      _gram = new Gram(_dinfo.fullN(), _dinfo.largestCat(), _dinfo._nums, _dinfo._cats,false);
+      _gram = _partials.borrow();
     }
     @Override protected void processRow(long gid, DataInfo.Row r) {
       double w = 1; // todo add weights to dinfo?
@@ -843,17 +910,24 @@ public final class Gram extends Iced<Gram> {
       ++_nobs;
     }
     @Override protected void chunkDone(long n){
-      double r = 1.0/_nobs;
-      _gram.mul(r);
+      _partials.giveBack(_gram);
+      _gram = null;
     }
     @Override public void reduce(GramTask gt){
-      double r1 = (double)_nobs/(_nobs+gt._nobs);
-      _gram.mul(r1);
-      double r2 = (double)gt._nobs/(_nobs+gt._nobs);
-      gt._gram.mul(r2);
-      _gram.add(gt._gram);
+      if(_gram == null) _gram = gt._gram;
+      else if(gt._gram != null) _gram.add(gt._gram);
       _nobs += gt._nobs;
     }
+    @Override protected void closeLocal(){
+      super.closeLocal();
+      Gram local = _partials.sum();
+      if(_gram == null) _gram = local;
+      else if(local != null) _gram.add(local);
+      _partials = null;
+    }
+    @Override protected void postGlobal(){
+      if(_gram != null && _nobs > 0) _gram.mul(1.0/_nobs);
+    }
   }
   public static class NonSPDMatrixException extends RuntimeException {}
 }
@@ -54,6 +54,8 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
   @Override public void init(boolean expensive) {
     super.init(expensive);
     if( _parms._max_iterations < 0 || _parms._max_iterations > 1e6) error("_max_iterations", " max_iterations must be between 0 and 1e6");
+    if( !(_parms._mini_batch_fraction > 0 && _parms._mini_batch_fraction <= 1) ) error("_mini_batch_fraction", " mini_batch_fraction must be in (0,1]");
+    if( _parms._bound_tracking && _parms._mini_batch_fraction < 1 ) error("_bound_tracking", " bound_tracking cannot be combined with mini-batch iterations");
     if( _train == null ) return;
     if( null != _parms._user_points ){ // Check dimensions of user-specified centers
       if( _parms._user_points.get().numCols() != _train.numCols() ) {
@@ -103,25 +105,39 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
           // Initialize first cluster center to random row
           randomRow(vecs, rand, centers[0], means, mults);
 
-          while (model._output._iterations < 5) {
-            // Sum squares distances to cluster center
-            SumSqr sqr = new SumSqr(centers, means, mults, _isCats).doAll(vecs);
-
-            // Sample with probability inverse to square distance
-            Sampler sampler = new Sampler(centers, means, mults, _isCats, sqr._sqr, _parms._k * 3, _parms._seed).doAll(vecs);
-            centers = ArrayUtils.append(centers, sampler._sampled);
-
-            // Fill in sample centers into the model
-            if (!isRunning()) return null; // Stopped/cancelled
-            model._output._centers_raw = destandardize(centers, _isCats, means, mults);
-            model._output._avg_within_ss = sqr._sqr / _train.numRows();
-
-            model._output._iterations++;     // One iteration done
-
-            model.update(_key); // Make early version of model visible, but don't update progress using update(1)
+          // Each row's nearest candidate and its square distance so far, so
+          // every pass only measures the candidates added since the last one
+          Vec[] nearest = new Vec[]{ vecs[0].makeCon(-1), vecs[0].makeZero() };
+          Frame fr = new Frame(_train.names(), vecs);
+          fr.add(new String[]{"__nearest","__sqr"}, nearest);
+          try {
+            int from = 0;
+            SumSqr sqr;
+            while (true) {
+              // Sum squares distances to cluster center
+              sqr = new SumSqr(centers, means, mults, _isCats, from).doAll(fr);
+              if (model._output._iterations == 5) break; // Final pass only weighs the candidates
+              from = centers.length;
+
+              // Sample with probability inverse to square distance
+              Sampler sampler = new Sampler(means, mults, sqr._sqr, _parms._k * 3, _parms._seed + model._output._iterations*_train.numRows()).doAll(fr);
+              centers = ArrayUtils.append(centers, sampler._sampled);
+
+              // Fill in sample centers into the model
+              if (!isRunning()) return null; // Stopped/cancelled
+              model._output._centers_raw = destandardize(centers, _isCats, means, mults);
+              model._output._avg_within_ss = sqr._sqr / _train.numRows();
+
+              model._output._iterations++;     // One iteration done
+
+              model.update(_key); // Make early version of model visible, but don't update progress using update(1)
+            }
+            // Recluster down to k cluster centers, weighing each candidate
+            // by the number of rows nearest to it
+            centers = recluster(centers, sqr._weights, rand, _parms._k, _parms._init, _isCats);
+          } finally {
+            for (Vec v : nearest) v.remove();
           }
-          // Recluster down to k cluster centers
-          centers = recluster(centers, rand, _parms._k, _parms._init, _isCats);
           model._output._iterations = -1; // Reset iteration count
         }
       }
@@ -162,9 +178,26 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
       }
     }
 
+    // Total sum-of-squares to the grand mean, per row; computed once
+    transient private double _avg_ss = Double.NaN;
+
     // Compute all interesting KMeans stats (errors & variances of clusters,
-    // etc).  Return new centers.
+    // etc), counting one iteration.  Return new centers.
     double[][] computeStatsFillModel( Lloyds task, KMeansModel model, final Vec[] vecs, final double[][] centers, final double[] means, final double[] mults ) {
+      fillStats(task, model, vecs, centers, means, mults);
+      model._output._iterations++;
+
+      // add to scoring history
+      model._output._history_avg_within_ss = ArrayUtils.copyAndFillOf(
+          model._output._history_avg_within_ss,
+          model._output._history_avg_within_ss.length+1, model._output._avg_within_ss);
+
+      fillTables(model);
+      return task._cMeans;      // New centers
+    }
+
+    // Fill the model with the cluster stats of a Lloyds pass over the given centers
+    private void fillStats( Lloyds task, KMeansModel model, final Vec[] vecs, final double[][] centers, final double[] means, final double[] mults ) {
       // Fill in the model based on original destandardized centers
       if (model._parms._standardize) {
         model._output._centers_std_raw = centers;
@@ -177,32 +210,30 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
         ssq += model._output._within_mse[i]; // sum squared error all clusters
         model._output._within_mse[i] /= task._size[i]; // MSE within-cluster
       }
-      model._output._avg_within_ss = ssq/_train.numRows(); // MSE total
+      model._output._avg_within_ss = ssq/task._nrows; // MSE total (over the rows visited)
 
       // Sum-of-square distance from grand mean
       if(_parms._k == 1)
         model._output._avg_ss = model._output._avg_within_ss;
       else {
-        // If data already standardized, grand mean is just the origin
-        TotSS totss = new TotSS(means,mults, _parms.train().domains()).doAll(vecs);
-        model._output._avg_ss = totss._tss/_train.numRows(); // MSE with respect to grand mean
+        // If data already standardized, grand mean is just the origin.  Does
+        // not depend on the centers, so one pass serves every iteration.
+        if( Double.isNaN(_avg_ss) ) {
+          TotSS totss = new TotSS(means,mults, _parms.train().domains()).doAll(vecs);
+          _avg_ss = totss._tss/_train.numRows(); // MSE with respect to grand mean
+        }
+        model._output._avg_ss = _avg_ss;
       }
       model._output._avg_between_ss = model._output._avg_ss - model._output._avg_within_ss;  // MSE between-cluster
-      model._output._iterations++;
-
-      // add to scoring history
-      model._output._history_avg_within_ss = ArrayUtils.copyAndFillOf(
-          model._output._history_avg_within_ss,
-          model._output._history_avg_within_ss.length+1, model._output._avg_within_ss);
+    }
 
+    private void fillTables( KMeansModel model ) {
       // Two small TwoDimTables - cheap
       model._output._model_summary = createModelSummaryTable(model._output);
       model._output._scoring_history = createScoringHistoryTable(model._output);
 
       // Take the cluster stats from the model, and assemble them into a model metrics object
       model._output._training_metrics = makeTrainingMetrics(model);
-
-      return task._cMeans;      // New centers
     }
 
     // Stopping criteria
@@ -223,6 +254,10 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
       return average_change < TOLERANCE;
     }
 
+    // Per-row bounds for bound tracking, and the training frame they extend
+    transient private Vec[] bounds;
+    transient private Frame bounded;
+
     // Main worker thread
     @Override protected void compute2() {
 
@@ -248,17 +283,58 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
         if( centers==null ) return; // Stopped/cancelled during center-finding
         double[][] oldCenters = null;
 
+        // Bound tracking: each row's assigned cluster and a lower bound on
+        // its distance to every other center, carried across iterations in
+        // two extra Vecs, relative to the centers of the previous pass.
+        final boolean mini = _parms._mini_batch_fraction < 1;
+        if( _parms._bound_tracking ) {
+          bounds = new Vec[]{ vecs[0].makeCon(-1), vecs[0].makeZero() };
+          bounded = new Frame(_train.names(), vecs);
+          bounded.add(new String[]{"__cluster","__lower"}, bounds);
+        }
+        double[][] boundCenters = null;
+        // Mini-batch: per-cluster row counts and categorical histograms over
+        // all batches seen so far, giving each center a 1/count learning rate
+        long[] seen = mini ? new long[_parms._k] : null;
+        long[][][] seenCats = null;
+        int batch = 0;
+
         // ---
         // Run the main KMeans Clustering loop
         // Stop after enough iterations or average_change < TOLERANCE
         while( !isDone(model,centers,oldCenters) ) {
-          Lloyds task = new Lloyds(centers,means,mults,_isCats, _parms._k).doAll(vecs);
-          // Pick the max categorical level for cluster center
-          max_cats(task._cMeans,task._cats,_isCats);
-
-          // Handle the case where some centers go dry.  Rescue only 1 cluster
-          // per iteration ('cause we only tracked the 1 worst row)
-          if( cleanupBadClusters(task,vecs,centers,means,mults) ) continue;
+          Lloyds task = new Lloyds(centers,means,mults,_isCats, _parms._k);
+          if( bounded != null ) {
+            task._bounds = true;
+            task._prev = boundCenters;
+            boundCenters = ArrayUtils.deepClone(centers);
+            task.doAll(bounded);
+          } else {
+            if( mini ) { task._fraction = _parms._mini_batch_fraction; task._seed = _parms._seed + (batch++)*_train.numRows(); }
+            task.doAll(vecs);
+          }
+          if( mini ) {
+            // Step each center toward its batch mean; the step shrinks as
+            // the center accumulates rows.  Clusters missed by this batch
+            // keep their center.
+            for( int clu=0; clu<_parms._k; clu++ ) {
+              long n = task._size[clu];
+              seen[clu] += n;
+              for( int col=0; col<centers[clu].length; col++ )
+                task._cMeans[clu][col] = n == 0 ? centers[clu][col]
+                  : centers[clu][col] + (task._cMeans[clu][col]-centers[clu][col])*n/seen[clu];
+            }
+            if( seenCats == null ) seenCats = task._cats;
+            else ArrayUtils.add(seenCats, task._cats);
+            max_cats(task._cMeans,seenCats,_isCats);
+          } else {
+            // Pick the max categorical level for cluster center
+            max_cats(task._cMeans,task._cats,_isCats);
+
+            // Handle the case where some centers go dry.  Rescue only 1 cluster
+            // per iteration ('cause we only tracked the 1 worst row)
+            if( cleanupBadClusters(task,vecs,centers,means,mults) ) continue;
+          }
 
           // Compute model stats; update standardized cluster centers
           oldCenters = centers;
@@ -270,6 +346,16 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
             Log.info(model._output._model_summary);
         }
 
+        if( mini && isRunning() ) {
+          // Batch statistics only cover sampled chunks; score every row
+          // against the final centers.  Not an iteration: the centers stay
+          // and the scoring history keeps the batch iterations.
+          Lloyds task = new Lloyds(centers,means,mults,_isCats, _parms._k).doAll(vecs);
+          fillStats(task, model, vecs, centers, means, mults);
+          fillTables(model);
+          model.update(_key);
+        }
+
         Log.info(model._output._model_summary);
 //        Log.info(model._output._scoring_history);
 //        Log.info(((ModelMetricsClustering)model._output._training_metrics).createCentroidStatsTable().toString());
@@ -312,6 +398,7 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
         }
       } finally {
         if( model != null ) model.unlock(_key);
+        if( bounds != null ) for( Vec v : bounds ) v.remove();
         _parms.read_unlock_frames(KMeans.this);
       }
       tryComplete();
@@ -428,45 +515,59 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
   }
 
   // -------------------------------------------------------------------------
-  // Initial sum-of-square-distance to nearest cluster center
+  // Initial sum-of-square-distance to nearest cluster center.  The last two
+  // columns carry each row's nearest center and its square distance from
+  // the previous pass; only the centers from index _from on are measured.
   private static class SumSqr extends MRTask<SumSqr> {
     // IN
     double[][] _centers;
     double[] _means, _mults; // Standardization
     final String[][] _isCats;
+    final int _from;
 
     // OUT
     double _sqr;
+    long[] _weights;         // Rows nearest to each center
 
-    SumSqr( double[][] centers, double[] means, double[] mults, String[][] isCats ) {
+    SumSqr( double[][] centers, double[] means, double[] mults, String[][] isCats, int from ) {
       _centers = centers;
       _means = means;
       _mults = mults;
       _isCats = isCats;
+      _from = from;
     }
 
     @Override public void map(Chunk[] cs) {
-      double[] values = new double[cs.length];
-      ClusterDist cd = new ClusterDist();
+      int N = cs.length-2;
+      Chunk near = cs[N], sqrs = cs[N+1];
+      double[] values = new double[N];
+      _weights = new long[_centers.length];
       for( int row = 0; row < cs[0]._len; row++ ) {
         data(values, cs, row, _means, _mults);
-        _sqr += minSqr(_centers, values, _isCats, cd);
+        int min = (int)near.at8(row);
+        double minSqr = min == -1 ? Double.MAX_VALUE : sqrs.atd(row);
+        boolean moved = false;
+        for( int cluster = _from; cluster < _centers.length; cluster++ ) {
+          double sqr = hex.genmodel.GenModel.KMeans_distance(_centers[cluster],values,_isCats,null,null);
+          if( sqr < minSqr ) { min = cluster; minSqr = sqr; moved = true; }
+        }
+        if( moved ) { near.set(row, min); sqrs.set(row, minSqr); }
+        _sqr += minSqr;
+        _weights[min]++;
       }
       _means = _mults = null;
       _centers = null;
     }
 
-    @Override public void reduce(SumSqr other) { _sqr += other._sqr; }
+    @Override public void reduce(SumSqr other) { _sqr += other._sqr; ArrayUtils.add(_weights, other._weights); }
   }
 
   // -------------------------------------------------------------------------
   // Sample rows with increasing probability the farther they are from any
-  // cluster center.
+  // cluster center, using the square distances left by SumSqr.
   private static class Sampler extends MRTask<Sampler> {
     // IN
-    double[][] _centers;
     double[] _means, _mults; // Standardization
-    final String[][] _isCats;
     final double _sqr;           // Min-square-error
     final double _probability;   // Odds to select this point
     final long _seed;
@@ -474,32 +575,30 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
     // OUT
     double[][] _sampled;   // New cluster centers
 
-    Sampler( double[][] centers, double[] means, double[] mults, String[][] isCats, double sqr, double prob, long seed ) {
-      _centers = centers;
+    Sampler( double[] means, double[] mults, double sqr, double prob, long seed ) {
       _means = means;
       _mults = mults;
-      _isCats = isCats;
       _sqr = sqr;
       _probability = prob;
       _seed = seed;
     }
 
     @Override public void map(Chunk[] cs) {
-      double[] values = new double[cs.length];
+      int N = cs.length-2;
+      Chunk sqrs = cs[N+1];
+      double[] values = new double[N];
       ArrayList<double[]> list = new ArrayList<>();
       Random rand = RandomUtils.getRNG(_seed + cs[0].start());
-      ClusterDist cd = new ClusterDist();
 
       for( int row = 0; row < cs[0]._len; row++ ) {
-        data(values, cs, row, _means, _mults);
-        double sqr = minSqr(_centers, values, _isCats, cd);
-        if( _probability * sqr > rand.nextDouble() * _sqr )
+        if( _probability * sqrs.atd(row) > rand.nextDouble() * _sqr ) {
+          data(values, cs, row, _means, _mults);
           list.add(values.clone());
+        }
       }
 
       _sampled = new double[list.size()][];
       list.toArray(_sampled);
-      _centers = null;
       _means = _mults = null;
     }
 
@@ -521,12 +620,23 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
     double[] _means, _mults;      // Standardization
     final int _k;
     final String[][] _isCats;
+    // Mini-batch: visit each chunk with this probability
+    double _fraction = 1;
+    long _seed;
+    // Bound tracking: the last two columns hold each row's assigned cluster
+    // (-1 if none yet) and a lower bound on the distance to all other
+    // centers, both relative to the previous pass's centers in _prev.
+    boolean _bounds;
+    double[][] _prev;
+    transient double[] _half;   // Half the distance from each center to its nearest other center
+    transient double _moved;    // Largest distance any center moved since _prev
 
     // OUT
     double[][] _cMeans;         // Means for each cluster
     long[/*k*/][/*features*/][/*nfactors*/] _cats; // Histogram of cat levels
     double[] _cSqr;             // Sum of squares for each cluster
     long[] _size;               // Number of rows in each cluster
+    long _nrows;                // Number of rows visited
     long _worst_row;            // Row with max err
     double _worst_err;          // Max-err-row's max-err
 
@@ -538,8 +648,22 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
       _k = k;
     }
 
+    // Distances between centers are computed once per node
+    @Override protected void setupLocal() {
+      if( !_bounds ) return;
+      _half = new double[_k];
+      for( int a=0; a<_k; a++ ) {
+        double min = Double.MAX_VALUE;
+        for( int b=0; b<_k; b++ )
+          if( a != b ) min = Math.min(min, hex.genmodel.GenModel.KMeans_distance(_centers[a],_centers[b],_isCats,null,null));
+        _half[a] = Math.sqrt(min)/2;
+        if( _prev != null )
+          _moved = Math.max(_moved, Math.sqrt(hex.genmodel.GenModel.KMeans_distance(_prev[a],_centers[a],_isCats,null,null)));
+      }
+    }
+
     @Override public void map(Chunk[] cs) {
-      int N = cs.length;
+      int N = _bounds ? cs.length-2 : cs.length;
       assert _centers[0].length==N;
       _cMeans = new double[_k][N];
       _cSqr = new double[_k];
@@ -551,12 +675,20 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
           _cats[clu][col] = _isCats[col]==null ? null : new long[cs[col].vec().cardinality()];
       _worst_err = 0;
 
+      // Mini-batch: skip chunks not in this iteration's sample
+      if( _fraction < 1 && RandomUtils.getRNG(_seed + cs[0].start()).nextDouble() >= _fraction ) {
+        _centers = null;
+        _means = _mults = null;
+        return;
+      }
+
       // Find closest cluster center for each row
       double[] values = new double[N]; // Temp data to hold row as doubles
       ClusterDist cd = new ClusterDist();
       for( int row = 0; row < cs[0]._len; row++ ) {
         data(values, cs, row, _means, _mults); // Load row as doubles
-        closest(_centers, values, _isCats, cd); // Find closest cluster center
+        if( _bounds ) closestBounded(values, hasNA(cs, N, row), cs[N], cs[N+1], row, cd);
+        else closest(_centers, values, _isCats, cd); // Find closest cluster center
         int clu = cd._cluster;
         assert clu != -1;       // No broken rows
         _cSqr[clu] += cd._dist;
@@ -568,6 +700,7 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
           else 
             _cMeans[clu][col] += values[col]; // Sum the column centers
         _size[clu]++;
+        _nrows++;
         // Track worst row
         if( cd._dist > _worst_err) { _worst_err = cd._dist; _worst_row = cs[0].start()+row; }
       }
@@ -578,6 +711,44 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
       _means = _mults = null;
     }
 
+    // Nearest center for a row, skipping the scan over all centers when the
+    // bounds prove the assigned center is still nearest: the row is closer
+    // to it than half its gap to any other center, or than the lower bound
+    // on every other center.  The assigned distance is always exact, so the
+    // cluster statistics match a full scan.  Rows with an NA always take the
+    // full scan and keep no bounds: KMeans_distance skips NA columns and
+    // rescales, so the triangle inequality behind the bounds does not hold.
+    private void closestBounded(double[] values, boolean na, Chunk clus, Chunk lower, int row, ClusterDist cd) {
+      int a = (int)clus.at8(row);
+      if( a >= 0 && !na ) {
+        double sqr = hex.genmodel.GenModel.KMeans_distance(_centers[a],values,_isCats,null,null);
+        double d = Math.sqrt(sqr), lb = lower.atd(row) - _moved;
+        if( d < Math.max(_half[a], lb) ) {
+          cd._cluster = a;
+          cd._dist = sqr;
+          lower.set(row, lb);
+          return;
+        }
+      }
+      // Full scan, keeping the runner-up as the new lower bound
+      int min = -1;
+      double minSqr = Double.MAX_VALUE, nextSqr = Double.MAX_VALUE;
+      for( int cluster = 0; cluster < _k; cluster++ ) {
+        double sqr = hex.genmodel.GenModel.KMeans_distance(_centers[cluster],values,_isCats,null,null);
+        if( sqr < minSqr ) { nextSqr = minSqr; min = cluster; minSqr = sqr; }
+        else if( sqr < nextSqr ) nextSqr = sqr;
+      }
+      cd._cluster = min;
+      cd._dist = minSqr;
+      clus.set(row, na ? -1 : min);
+      lower.set(row, na ? 0 : Math.sqrt(nextSqr));
+    }
+    private static boolean hasNA(Chunk[] cs, int N, int row) {
+      for( int col = 0; col < N; col++ )
+        if( cs[col].isNA(row) ) return true;
+      return false;
+    }
+
     @Override public void reduce(Lloyds mr) {
       for( int clu = 0; clu < _k; clu++ ) {
         long ra =    _size[clu];
@@ -590,6 +761,7 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
       ArrayUtils.add(_cats, mr._cats);
       ArrayUtils.add(_cSqr, mr._cSqr);
       ArrayUtils.add(_size, mr._size);
+      _nrows += mr._nrows;
       // track global worst-row
       if( _worst_err < mr._worst_err) { _worst_err = mr._worst_err; _worst_row = mr._worst_row; }
     }
@@ -598,14 +770,6 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
   // A pair result: nearest cluster center and the square distance
   private static final class ClusterDist { int _cluster; double _dist;  }
 
-  private static double minSqr(double[][] centers, double[] point, String[][] isCats, ClusterDist cd) {
-    return closest(centers, point, isCats, cd, centers.length)._dist;
-  }
-
-  private static double minSqr(double[][] centers, double[] point, String[][] isCats, ClusterDist cd, int count) {
-    return closest(centers,point,isCats,cd,count)._dist;
-  }
-
   private static ClusterDist closest(double[][] centers, double[] point, String[][] isCats, ClusterDist cd) {
     return closest(centers, point, isCats, cd, centers.length);
   }
@@ -626,26 +790,48 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
     return cd;                  // Return for flow-coding
   }
 
-  // KMeans++ re-clustering
-  private static double[][] recluster(double[][] points, Random rand, int N, Initialization init, String[][] isCats) {
+  // KMeans++ re-clustering of the weighted candidates.  Each candidate's
+  // square distance to the chosen centers is kept and only updated against
+  // the newest choice.
+  private static double[][] recluster(double[][] points, long[] weights, Random rand, int N, Initialization init, String[][] isCats) {
     double[][] res = new double[N][];
     res[0] = points[0];
     int count = 1;
-    ClusterDist cd = new ClusterDist();
+    double[] minSqr = new double[points.length];
+    for( int i = 0; i < points.length; i++ )
+      minSqr[i] = hex.genmodel.GenModel.KMeans_distance(res[0], points[i], isCats, null, null);
     switch( init ) {
     case Random:
       break;
-    case PlusPlus: { // k-means++
+    case PlusPlus: { // Greedy k-means++: of a few candidates sampled proportional
+                     // to weight * square distance, keep the one leaving the least cost
+      int trials = 2 + (int)Math.log(N);
+      double[] trialSqr = new double[points.length], bestSqr = new double[points.length];
       while( count < res.length ) {
         double sum = 0;
-        for (double[] point1 : points) sum += minSqr(res, point1, isCats, cd, count);
-
-        for (double[] point : points) {
-          if (minSqr(res, point, isCats, cd, count) >= rand.nextDouble() * sum) {
-            res[count++] = point;
-            break;
+        for( int i = 0; i < points.length; i++ ) sum += weights[i] * minSqr[i];
+        int best = 0;
+        double bestCost = Double.MAX_VALUE;
+        for( int t = 0; t < trials; t++ ) {
+          double pick = rand.nextDouble() * sum;
+          int index = 0;
+          double cum = weights[0] * minSqr[0];
+          while( cum < pick && index < points.length-1 ) {
+            index++;
+            cum += weights[index] * minSqr[index];
+          }
+          System.arraycopy(minSqr, 0, trialSqr, 0, points.length);
+          updateMinSqr(trialSqr, points, points[index], isCats);
+          double cost = 0;
+          for( int i = 0; i < points.length; i++ ) cost += weights[i] * trialSqr[i];
+          if( cost < bestCost ) {
+            bestCost = cost;
+            best = index;
+            double[] tmp = bestSqr; bestSqr = trialSqr; trialSqr = tmp;
           }
         }
+        res[count++] = points[best];
+        double[] tmp = minSqr; minSqr = bestSqr; bestSqr = tmp;
       }
       break;
     }
@@ -654,13 +840,13 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
         double max = 0;
         int index = 0;
         for( int i = 0; i < points.length; i++ ) {
-          double sqr = minSqr(res, points[i], isCats, cd, count);
-          if( sqr > max ) {
-            max = sqr;
+          if( minSqr[i] > max ) {
+            max = minSqr[i];
             index = i;
           }
         }
         res[count++] = points[index];
+        updateMinSqr(minSqr, points, points[index], isCats);
       }
       break;
     }
@@ -669,6 +855,11 @@ public class KMeans extends ClusteringModelBuilder<KMeansModel,KMeansModel.KMean
     return res;
   }
 
+  private static void updateMinSqr(double[] minSqr, double[][] points, double[] center, String[][] isCats) {
+    for( int i = 0; i < points.length; i++ )
+      minSqr[i] = Math.min(minSqr[i], hex.genmodel.GenModel.KMeans_distance(center, points[i], isCats, null, null));
+  }
+
   private void randomRow(Vec[] vecs, Random rand, double[] center, double[] means, double[] mults) {
     long row = Math.max(0, (long) (rand.nextDouble() * vecs[0].length()) - 1);
     data(center, vecs, row, means, mults);
@@ -4,11 +4,14 @@ import hex.ClusteringModel;
 import hex.ModelMetrics;
 import hex.ModelMetricsClustering;
 import water.Key;
+import water.fvec.Chunk;
 import water.fvec.Frame;
 import water.util.JCodeGen;
 import water.util.SB;
 import water.util.TwoDimTable;
 
+import java.util.Arrays;
+
 public class KMeansModel extends ClusteringModel<KMeansModel,KMeansModel.KMeansParameters,KMeansModel.KMeansOutput> {
 
   public static class KMeansParameters extends ClusteringModel.ClusteringParameters {
@@ -16,6 +19,8 @@ public class KMeansModel extends ClusteringModel<KMeansModel,KMeansModel.KMeansP
     public boolean _standardize = true;    // Standardize columns
     public long _seed = System.nanoTime(); // RNG seed
     public KMeans.Initialization _init = KMeans.Initialization.Furthest;
+    public boolean _bound_tracking = false;  // Skip distance computations via per-row triangle-inequality bounds
+    public double _mini_batch_fraction = 1;  // Fraction of chunks visited per iteration; 1 is full-batch Lloyds
     Key<Frame> _user_points;
   }
 
@@ -61,6 +66,59 @@ public class KMeansModel extends ClusteringModel<KMeansModel,KMeansModel.KMeansP
     return preds;
   }
 
+  /** Batch scoring: each column of the block is decompressed and
+   *  standardized once, then distances to every center are accumulated a
+   *  column at a time.  Same arithmetic, in the same order, as
+   *  {@link hex.genmodel.GenModel#KMeans_distance}. */
+  @Override public void score0(Chunk chks[], int from, int to, double[][] preds) {
+    final double[][] centers = _parms._standardize ? _output._centers_std_raw : _output._centers_raw;
+    final String[][] domains = _output._domains;
+    final double[] means = _output._normSub, mults = _output._normMul;
+    final int n = to-from, nf = _output.nfeatures();
+    double[][] cols = new double[nf][n];
+    int[] pts = new int[n];     // Count of valid points per row
+    Arrays.fill(pts, nf);
+    for( int c=0; c<nf; c++ ) {
+      Chunk chk = chks[c];
+      double[] col = cols[c];
+      boolean std = domains[c] == null && mults != null;
+      for( int r=0; r<n; r++ ) {
+        double d = chk.atd(from+r);
+        if( Double.isNaN(d) ) pts[r]--;
+        else if( std ) { d -= means[c]; d *= mults[c]; }
+        col[r] = d;
+      }
+    }
+    double[] sqr = new double[n], minSqr = new double[n];
+    int[] min = new int[n];
+    Arrays.fill(minSqr, Double.MAX_VALUE);
+    Arrays.fill(min, -1);
+    for( int k=0; k<centers.length; k++ ) {
+      Arrays.fill(sqr, 0);
+      for( int c=0; c<nf; c++ ) {
+        double[] col = cols[c];
+        double ctr = centers[k][c];
+        if( domains[c] != null ) { // Categorical: Manhattan distance
+          for( int r=0; r<n; r++ )
+            if( !Double.isNaN(col[r]) && col[r] != ctr ) sqr[r] += 1.0;
+        } else {                  // Euclidean distance
+          for( int r=0; r<n; r++ ) {
+            double d = col[r];
+            if( Double.isNaN(d) ) continue;
+            double delta = d - ctr;
+            sqr[r] += delta * delta;
+          }
+        }
+      }
+      for( int r=0; r<n; r++ ) {
+        double s = sqr[r];
+        if( 0 < pts[r] && pts[r] < nf ) s *= nf / pts[r];
+        if( s < minSqr[r] ) { minSqr[r] = s; min[r] = k; }
+      }
+    }
+    for( int r=0; r<n; r++ ) preds[r][0] = min[r];
+  }
+
   // Override in subclasses to provide some top-level model-specific goodness
   @Override protected void toJavaPredictBody(SB bodySb, SB classCtxSb, SB fileCtxSb) {
     // fileCtxSb.ip("").nl(); // at file level
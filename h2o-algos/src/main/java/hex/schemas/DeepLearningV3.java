@@ -65,7 +65,13 @@ public class DeepLearningV3 extends SupervisedModelBuilderSchema<DeepLearning,De
         "sparsity_beta",
         "max_categorical_features",
         "reproducible",
-        "export_weights_and_biases"
+        "export_weights_and_biases",
+        "mini_batch_size",
+        "sync_compression",
+        "sync_top_k_fraction",
+        "async_training",
+        "async_rounds",
+        "max_staleness"
     };
 
 
@@ -492,5 +498,23 @@ public class DeepLearningV3 extends SupervisedModelBuilderSchema<DeepLearning,De
 
     @API(help = "Whether to export Neural Network weights and biases to H2O Frames", level = API.Level.expert, direction=API.Direction.INOUT)
     public boolean export_weights_and_biases;
+
+    @API(help = "Number of training rows propagated together with one weight update (1 = online learning)", level = API.Level.expert, direction=API.Direction.INOUT)
+    public int mini_batch_size;
+
+    @API(help = "Compression of the model updates sent between nodes: None, Int16, Int8 (quantized changes) or TopK (largest changes only)", values = { "None", "Int16", "Int8", "TopK" }, level = API.Level.expert, direction=API.Direction.INOUT)
+    public DeepLearningParameters.SyncCompression sync_compression;
+
+    @API(help = "Fraction of the weights/biases of each layer sent per synchronization with TopK sync compression", level = API.Level.expert, direction=API.Direction.INOUT)
+    public double sync_top_k_fraction;
+
+    @API(help = "Asynchronous training: nodes pull weights from and push updates to a sharded model in the DKV without waiting for each other (requires replicated training data)", level = API.Level.expert, direction=API.Direction.INOUT)
+    public boolean async_training;
+
+    @API(help = "Number of pull/train/push rounds per node per iteration for asynchronous training", level = API.Level.expert, direction=API.Direction.INOUT)
+    public int async_rounds;
+
+    @API(help = "Bounded staleness for asynchronous training: discard an update if the layer received more than this many updates per node since it was pulled", level = API.Level.expert, direction=API.Direction.INOUT)
+    public int max_staleness;
   }
 }
@@ -11,6 +11,7 @@ public class GBMV3 extends SharedTreeV3<GBM,GBMV3,GBMV3.GBMParametersV3> {
     static public String[] own_fields = new String[] {
         "learn_rate",
         "distribution",
+        "max_leaves",
     };
 
     // Input fields
@@ -20,5 +21,8 @@ public class GBMV3 extends SharedTreeV3<GBM,GBMV3,GBMV3.GBMParametersV3> {
     @API(help = "Distribution function", values = { "AUTO", "bernoulli", "multinomial", "gaussian" })
     public GBMParameters.Family distribution;
 
+    @API(help="Grow each tree best-first up to this many leaves (still bounded by max_depth); 0 grows level by level")
+    public int max_leaves;
+
   }
 }
@@ -37,7 +37,7 @@ public class GLMV3 extends SupervisedModelBuilderSchema<GLM,GLMV3,GLMV3.GLMParam
     };
 
     // Input fields
-    @API(help = "Family. Use binomial for classification with logistic regression, others are for regression problems.", values = {"gaussian", "binomial", "poisson", "gamma" /* , "tweedie" */}, level = Level.critical)
+    @API(help = "Family. Use binomial for classification with logistic regression, multinomial for classification with more than two classes (softmax regression), others are for regression problems.", values = {"gaussian", "binomial", "poisson", "gamma", "multinomial" /* , "tweedie" */}, level = Level.critical)
     // took tweedie out since it's not reliable
     public GLMParameters.Family family;
 
@@ -65,7 +65,7 @@ public class GLMV3 extends SupervisedModelBuilderSchema<GLM,GLMV3,GLMV3.GLMParam
     @API(help = "beta esilon -> consider being converged if L1 norm of the current beta change is below this threshold", level = Level.secondary)
     public double beta_epsilon;
 
-    @API(help = "", level = Level.secondary, values = {"family_default", "identity", "logit", "log", "inverse", "tweedie"})
+    @API(help = "", level = Level.secondary, values = {"family_default", "identity", "logit", "log", "inverse", "multinomial", "tweedie"})
     public GLMParameters.Link link;
 
 //    @API(help = "Tweedie variance power", level = Level.secondary)
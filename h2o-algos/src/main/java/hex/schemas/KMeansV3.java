@@ -9,7 +9,7 @@ import water.api.KeyV3;
 public class KMeansV3 extends ClusteringModelBuilderSchema<KMeans,KMeansV3,KMeansV3.KMeansParametersV3> {
 
   public static final class KMeansParametersV3 extends ClusteringModelParametersSchema<KMeansParameters, KMeansParametersV3> {
-    static public String[] own_fields = new String[] { "user_points", "max_iterations", "standardize", "seed", "init" };
+    static public String[] own_fields = new String[] { "user_points", "max_iterations", "standardize", "seed", "init", "bound_tracking", "mini_batch_fraction" };
 
     // Input fields
     @API(help = "User-specified points", required = false)
@@ -26,5 +26,11 @@ public class KMeansV3 extends ClusteringModelBuilderSchema<KMeans,KMeansV3,KMean
 
     @API(help = "Initialization mode", values = { "Random", "PlusPlus", "Furthest", "User" }) // TODO: pull out of enum class. . .
     public KMeans.Initialization init;
+
+    @API(help = "Keep per-row distance bounds between iterations to skip most distance computations", level = API.Level.expert)
+    public boolean bound_tracking;
+
+    @API(help = "Fraction of chunks sampled per iteration for mini-batch KMeans (1 = full batch)", level = API.Level.expert)
+    public double mini_batch_fraction;
   }
 }
@@ -8,7 +8,7 @@ public class SharedTreeV3<B extends SharedTree, S extends SharedTreeV3<B,S,P>, P
 
   public static class SharedTreeParametersV3<P extends SharedTreeParameters, S extends SharedTreeParametersV3<P, S>> extends SupervisedModelParametersSchema<P, S> {
     static public String[] own_fields = new String[] {
-      "ntrees", "max_depth", "min_rows", "nbins", "seed"
+      "ntrees", "max_depth", "min_rows", "nbins", "seed", "stopping_rounds", "stopping_tolerance"
     };
 
     @API(help="Number of trees.")
@@ -25,5 +25,11 @@ public class SharedTreeV3<B extends SharedTree, S extends SharedTreeV3<B,S,P>, P
 
     @API(help = "Seed for pseudo random number generator (if applicable)", level = API.Level.expert)
     public long seed;
+
+    @API(help="Stop adding trees when the scored MSE has not improved for this many scoring rounds (0 to disable)")
+    public int stopping_rounds;
+
+    @API(help="Relative MSE improvement required to keep adding trees", level = API.Level.expert)
+    public double stopping_tolerance;
   }
 }
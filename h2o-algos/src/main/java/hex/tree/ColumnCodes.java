@@ -0,0 +1,168 @@
+package hex.tree;
+
+import water.*;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.NewChunk;
+import water.fvec.Vec;
+
+import java.util.Arrays;
+
+/** Predictor columns pre-coded as small ints for histogram building.
+ *
+ *  <p>Every {@link ScoreBuildHistogram} pass reads each predictor of every
+ *  row through {@link Chunk#atd} and interpolates its bin from the float,
+ *  for every tree and every level.  Instead, each column with few enough
+ *  distinct (float) values is coded once, before any tree is built: code 0
+ *  is NA, and code {@code c>0} stands for {@code _vals[col][c-1]}, from a
+ *  sorted dictionary of the column's values.  The codes live in Vecs of the
+ *  training frame's vector group, so they compress to 1- or 2-byte Chunks
+ *  aligned with the training Chunks, and each histogram maps codes straight
+ *  to bins (see {@link DHistogram#initCodes}).
+ *
+ *  <p>The dictionary is exact, so trees come out the same as when binning
+ *  the raw values.  Columns with more than {@link #MAX_CODES} distinct values
+ *  stay raw.
+ */
+public class ColumnCodes extends Keyed<ColumnCodes> {
+  /** Codes 1 to MAX_CODES, plus 0 for NA, always fit a 2-byte Chunk. */
+  static final int MAX_CODES = Short.MAX_VALUE-1;
+
+  /** Per predictor column, the sorted distinct values; null for raw columns */
+  final float[/*ncols*/][/*ncodes*/] _vals;
+  /** Code Vecs, aligned with the training Frame; null for raw columns */
+  final transient Vec[/*ncols*/] _vecs;
+
+  private ColumnCodes( float[][] vals, Vec[] vecs ) {
+    super(Key.<ColumnCodes>make());
+    _vals = vals;
+    _vecs = vecs;
+  }
+
+  /** Code the first {@code ncols} columns of {@code fr}.  The dictionary is
+   *  put in the DKV; it and the code Vecs are cleaned up by the caller's
+   *  {@link Scope}. */
+  static ColumnCodes make( Frame fr, int ncols ) {
+    Vec[] vecs = fr.vecs();
+    float[][] vals = new float[ncols][];
+    // Integral columns with a small range get a dense dictionary for free;
+    // the rest need a pass to find their distinct values.
+    int nreal = 0;
+    int[] reals = new int[ncols];
+    for( int c=0; c<ncols; c++ ) {
+      Vec v = vecs[c];
+      if( v.naCnt()==v.length() || v.min()==v.max() ) continue; // No histogram for this column
+      if( v.sparseRatio()*32 < 1 ) continue; // Sparse; GBM visits just its non-zeros
+      if( v.isInt() && v.max()-v.min() < MAX_CODES ) {
+        long min = (long)v.min();
+        vals[c] = new float[(int)((long)v.max()-min)+1];
+        for( int i=0; i<vals[c].length; i++ ) vals[c][i] = (float)(min+i);
+      } else reals[nreal++] = c;
+    }
+    if( nreal > 0 ) {
+      reals = Arrays.copyOf(reals,nreal);
+      Frame rfr = new Frame();
+      for( int c : reals ) rfr.add(fr._names[c],vecs[c]);
+      float[][] dvals = new Distinct().doAll(rfr)._vals;
+      for( int i=0; i<nreal; i++ ) vals[reals[i]] = dvals[i];
+    }
+
+    int ncoded = 0;
+    for( float[] vs : vals ) if( vs != null ) ncoded++;
+    Vec[] codes = new Vec[ncols];
+    if( ncoded > 0 ) {
+      int[] cols = new int[ncoded];
+      Frame cfr = new Frame();
+      for( int c=0, j=0; c<ncols; c++ )
+        if( vals[c] != null ) { cols[j++] = c; cfr.add(fr._names[c],vecs[c]); }
+      Vec[] cvecs = new Encode(vals,cols).doAll(ncoded,cfr).outputFrame(null,null).vecs();
+      for( int j=0; j<ncoded; j++ ) codes[cols[j]] = cvecs[j];
+    }
+    ColumnCodes cc = new ColumnCodes(vals,codes);
+    DKV.put(cc);
+    return cc;
+  }
+
+  @Override protected long checksum_impl() { throw H2O.fail("ColumnCodes checksum does not exist by definition"); }
+
+  /** Chunk index of each column's codes, when the coded Vecs are appended in
+   *  column order to a Frame starting at column {@code base}; -1 for raw
+   *  columns. */
+  int[] chunkIdx( int base ) {
+    int[] idx = new int[_vecs.length];
+    for( int c=0; c<_vecs.length; c++ )
+      idx[c] = _vecs[c] == null ? -1 : base++;
+    return idx;
+  }
+
+  /** Code for value {@code d}, which must be in the column's dictionary. */
+  static int code( float[] vals, double d ) {
+    if( Double.isNaN(d) ) return 0;
+    int i = Arrays.binarySearch(vals,(float)d);
+    assert i >= 0 : "Value "+d+" not in the dictionary";
+    return i+1;
+  }
+
+  // Sorted distinct float values per column, or null once a column has more
+  // than MAX_CODES of them.
+  private static class Distinct extends MRTask<Distinct> {
+    float[][] _vals;
+    @Override public void map( Chunk[] cs ) {
+      _vals = new float[cs.length][];
+      float[] tmp = new float[cs[0]._len];
+      for( int c=0; c<cs.length; c++ ) {
+        Chunk chk = cs[c];
+        int n = 0;
+        for( int row=0; row<chk._len; row++ ) {
+          double d = chk.atd(row);
+          if( !Double.isNaN(d) ) tmp[n++] = (float)d;
+        }
+        Arrays.sort(tmp,0,n);
+        _vals[c] = uniq(tmp,n);
+      }
+    }
+    @Override public void reduce( Distinct d ) {
+      if( d._vals == null ) return;
+      if( _vals == null ) { _vals = d._vals; return; }
+      for( int c=0; c<_vals.length; c++ )
+        _vals[c] = merge(_vals[c],d._vals[c]);
+    }
+    private static float[] uniq( float[] vs, int n ) {
+      int u = 0;
+      for( int i=0; i<n; i++ )
+        if( u==0 || Float.compare(vs[u-1],vs[i]) != 0 ) {
+          if( u == MAX_CODES ) return null;
+          vs[u++] = vs[i];
+        }
+      return Arrays.copyOf(vs,u);
+    }
+    private static float[] merge( float[] a, float[] b ) {
+      if( a == null || b == null ) return null;
+      float[] m = new float[a.length+b.length];
+      int i=0, j=0, n=0;
+      while( i < a.length || j < b.length ) {
+        int cmp = i==a.length ? 1 : (j==b.length ? -1 : Float.compare(a[i],b[j]));
+        if( n == MAX_CODES ) return null;
+        if( cmp <= 0 ) { m[n++] = a[i++]; if( cmp == 0 ) j++; }
+        else             m[n++] = b[j++];
+      }
+      return Arrays.copyOf(m,n);
+    }
+  }
+
+  // Replace each value by its dictionary code
+  private static class Encode extends MRTask<Encode> {
+    final float[][] _vals;
+    final int[] _cols;
+    Encode( float[][] vals, int[] cols ) { _vals = vals; _cols = cols; }
+    @Override public void map( Chunk[] cs, NewChunk[] ncs ) {
+      for( int j=0; j<cs.length; j++ ) {
+        float[] vals = _vals[_cols[j]];
+        Chunk chk = cs[j];
+        NewChunk nc = ncs[j];
+        for( int row=0; row<chk._len; row++ )
+          nc.addNum(code(vals,chk.atd(row)),0);
+      }
+    }
+  }
+}
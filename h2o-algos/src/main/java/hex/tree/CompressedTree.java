@@ -28,59 +28,124 @@ public class CompressedTree extends Keyed {
     _bits = bits; _nclass = nclass; _seed = seed; 
   }
 
+  // The tree flattened into arrays, so scoring does not decode the bytes of
+  // every node of every row.  Built lazily on each node on first use.
+  private transient volatile Flat _flat;
+
   /** Highly efficient (critical path) tree scoring */
   public double score( final double row[] ) {
-    AutoBuffer ab = new AutoBuffer(_bits);
-    IcedBitSet ibs = null;      // Lazily set on hitting first group test
-    while(true) {
+    Flat f = _flat;
+    if( f == null ) _flat = f = new Flat(this);
+    return f.score(row);
+  }
+
+  // Internal nodes in pre-order.  A child is a node index, or ~index into
+  // _leaf for a leaf; _root is ~0 for a single-leaf tree.
+  private static final class Flat {
+    final byte _bits[];           // Holds the bitsets of group splits
+    final int _root;
+    final int _col[];             // Split column
+    final byte _equal[];          // 0: <, 1: ==, 2: group (bitset) split
+    final float _splat[];         // Split value, for < and ==
+    final int _bsByte[], _bsOff[], _bsLen[]; // Group bitset: byte offset into _bits, first level, number of levels
+    final int _lt[], _rt[];       // Left and right children
+    final float _leaf[];          // Leaf predictions
+
+    Flat( CompressedTree ct ) {
+      Builder b = new Builder(ct._bits.length);
+      _bits = ct._bits;
+      _root = b.node(new AutoBuffer(ct._bits));
+      _col = Arrays.copyOf(b._col,b._n);  _equal = Arrays.copyOf(b._equal,b._n);  _splat = Arrays.copyOf(b._splat,b._n);
+      _bsByte = Arrays.copyOf(b._bsByte,b._n);  _bsOff = Arrays.copyOf(b._bsOff,b._n);  _bsLen = Arrays.copyOf(b._bsLen,b._n);
+      _lt = Arrays.copyOf(b._lt,b._n);  _rt = Arrays.copyOf(b._rt,b._n);
+      _leaf = Arrays.copyOf(b._leaf,b._nl);
+    }
+
+    // Same decisions as the byte encoding: NaN goes left for < and ==, and
+    // is level 0 for group splits
+    double score( final double row[] ) {
+      int n = _root;
+      while( n >= 0 ) {
+        double d = row[_col[n]];
+        boolean right;
+        switch( _equal[n] ) {
+        case 0:  right = d >= _splat[n];  break;
+        case 1:  right = d == _splat[n];  break;
+        default: right = contains(n,(int)d);
+        }
+        n = right ? _rt[n] : _lt[n];
+      }
+      return _leaf[~n];
+    }
+
+    private boolean contains( int n, int idx ) {
+      if( idx < 0 ) throw new IndexOutOfBoundsException("idx < 0: " + idx);
+      idx -= _bsOff[n];
+      return idx >= 0 && idx < _bsLen[n] && (_bits[_bsByte[n]+(idx >> 3)] & (1 << (idx & 7))) != 0;
+    }
+  }
+
+  // Decodes the byte encoding into growable arrays
+  private static final class Builder {
+    int _n, _nl;
+    int _col[], _bsByte[], _bsOff[], _bsLen[], _lt[], _rt[];
+    byte _equal[];
+    float _splat[], _leaf[];
+    Builder( int nbytes ) {
+      int sz = Math.max(4,nbytes>>4);
+      _col = new int[sz];  _bsByte = new int[sz];  _bsOff = new int[sz];  _bsLen = new int[sz];
+      _lt = new int[sz];  _rt = new int[sz];  _equal = new byte[sz];  _splat = new float[sz];
+      _leaf = new float[sz];
+    }
+
+    int leaf( float pred ) {
+      if( _nl == _leaf.length ) _leaf = Arrays.copyOf(_leaf,_nl<<1);
+      _leaf[_nl] = pred;
+      return ~_nl++;
+    }
+
+    int node( AutoBuffer ab ) {
       int nodeType = ab.get1U();
       int colId = ab.get2();
-      if( colId == 65535 ) return scoreLeaf(ab);
-
-      // boolean equal = ((nodeType&4)==4);
+      if( colId == 65535 ) return leaf(ab.get4f());
+      if( _n == _col.length ) grow();
+      int n = _n++;
       int equal = (nodeType&12) >> 2;
-      assert (equal >= 0 && equal <= 3): "illegal equal value " + equal+" at "+ab+" in bitpile "+Arrays.toString(_bits);
-
-      // Extract value or group to split on
-      float splitVal = -1;
-      if(equal == 0 || equal == 1) { // Standard float-compare test (either < or ==)
-        splitVal = ab.get4f();       // Get the float to compare
-      } else {                       // Bitset test
-        if( ibs == null ) ibs = new IcedBitSet(0);
-        if( equal == 2 ) ibs.fill2(_bits,ab);
-        else             ibs.fill3(_bits,ab);
+      _col[n] = colId;
+      _equal[n] = (byte)Math.min(equal,2);
+      if( equal == 0 || equal == 1 ) _splat[n] = ab.get4f();
+      else if( equal == 2 ) {   // Small group: 32 levels inline
+        _bsByte[n] = ab.position();  _bsLen[n] = 32;
+        ab.skip(4);
+      } else {                  // Big group: first level, byte count, bytes
+        _bsOff[n] = ab.get2();
+        int nbytes = ab.get2();
+        _bsByte[n] = ab.position();  _bsLen[n] = nbytes<<3;
+        ab.skip(nbytes);
       }
-
-      // Compute the amount to skip.
       int lmask =  nodeType & 0x33;
       int rmask = (nodeType & 0xC0) >> 2;
-      int skip = 0;
-      switch(lmask) {
-      case 0:  skip = ab.get1U();  break;
-      case 1:  skip = ab.get2 ();  break;
-      case 2:  skip = ab.get3 ();  break;
-      case 3:  skip = ab.get4 ();  break;
-      case 16: skip = _nclass < 256?1:2;  break; // Small leaf
-      case 48: skip = 4;          break; // skip the prediction
-      default: assert false:"illegal lmask value " + lmask+" at "+ab+" in bitpile "+Arrays.toString(_bits);
+      switch(lmask) {           // Skip the left-subtree size; walked in order here
+      case 0:  ab.get1U();  break;
+      case 1:  ab.get2 ();  break;
+      case 2:  ab.get3 ();  break;
+      case 3:  ab.get4 ();  break;
+      default: break;           // Leaf
       }
+      int lt = (lmask&16)==16 ? leaf(ab.get4f()) : node(ab);
+      int rt = (rmask&16)==16 ? leaf(ab.get4f()) : node(ab);
+      _lt[n] = lt;  _rt[n] = rt;
+      return n;
+    }
 
-      // WARNING: Generated code has to be consistent with this code:
-      //   - Double.NaN <  3.7f => return false => BUT left branch has to be selected (i.e., ab.position())
-      //   - Double.NaN != 3.7f => return true  => left branch has to be select selected (i.e., ab.position())
-      double d = row[colId];
-        if( ( equal==0 && d >= splitVal) ||
-            ( equal==1 && d == splitVal) ||
-            ( (equal==2 || equal==3) && ibs.contains((int)d) )) { //if Double.isNaN(d), then (int)d == 0, which means that NA is treated like enum level 0
-          ab.skip(skip);        // Skip to the right subtree
-          lmask = rmask;        // And set the leaf bits into common place
-      } /* else Double.isNaN() is true => use left branch */
-      if( (lmask&16)==16 ) return scoreLeaf(ab);
+    private void grow() {
+      int sz = _col.length<<1;
+      _col = Arrays.copyOf(_col,sz);  _bsByte = Arrays.copyOf(_bsByte,sz);  _bsOff = Arrays.copyOf(_bsOff,sz);
+      _bsLen = Arrays.copyOf(_bsLen,sz);  _lt = Arrays.copyOf(_lt,sz);  _rt = Arrays.copyOf(_rt,sz);
+      _equal = Arrays.copyOf(_equal,sz);  _splat = Arrays.copyOf(_splat,sz);
     }
   }
 
-  private float scoreLeaf( AutoBuffer ab ) { return ab.get4f(); }
-
   public Random rngForChunk( int cidx ) {
     Random rand = new Random(_seed);
     for( int i=0; i<cidx; i++ ) rand.nextLong();
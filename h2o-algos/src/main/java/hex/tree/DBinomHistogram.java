@@ -41,12 +41,19 @@ public class DBinomHistogram extends DHistogram<DBinomHistogram> {
     water.util.AtomicUtils.IntArray.incr(_sums,b);
   }
 
+  @Override void incrLocal0( int b, double y ) { _sums[b]++; }
+
   // Merge two equal histograms together.  Done in a F/J reduce, so no
   // synchronization needed.
   @Override void add0( DBinomHistogram dsh ) {
     water.util.ArrayUtils.add(_sums,dsh._sums);
   }
 
+  // Parent minus sibling; sb is -1 where the sibling has no bin
+  @Override void sub0( int b, DBinomHistogram p, int pb, DBinomHistogram s, int sb ) {
+    _sums[b] = p._sums[pb] - (sb == -1 ? 0 : s._sums[sb]);
+  }
+
   // Compute a "score" for a column; lower score "wins" (is a better split).
   // Score is the sum of the MSEs when the data is split at a single point.
   // mses[1] == MSE for splitting between bins  0  and 1.
@@ -43,6 +43,17 @@ public abstract class DHistogram<TDH extends DHistogram> extends Iced {
   public final float _min, _maxEx; // Conservative Min/Max over whole collection.  _maxEx is Exclusive.
   public       int   _bins[];   // Bins, shared, atomically incremented
 
+  // Code-to-bin table for a column pre-coded by ColumnCodes: code _code0+i
+  // falls in bin _codeBins[i].  Node-local, built by initCodes.
+  transient float _codeVals[];  // The column's dictionary; code c>0 is _codeVals[c-1]
+  transient int   _code0, _codeBins[];
+
+  // Histogram of the larger child of a split, filled after the pass as its
+  // parent's histogram minus its sibling's instead of by scanning its rows.
+  // The parent and sibling are only known on the node building the tree.
+  boolean _derived;
+  transient DHistogram _parent, _sibling;
+
   // Atomically updated float min/max
   protected    float  _min2, _maxIn; // Min/Max, shared, atomically updated.  _maxIn is Inclusive.
   private static final Unsafe _unsafe = UtilUnsafe.getUnsafe();
@@ -117,6 +128,42 @@ public abstract class DHistogram<TDH extends DHistogram> extends Iced {
   }
   float binAt( int b ) { return _min+b/_step; }
 
+  // Most code-to-bin entries one histogram will table; wider ranges of codes
+  // (only near the root, for columns with many distinct values) look up the
+  // code's value and interpolate.
+  private static final int MAX_CODE_TABLE = 4096;
+
+  // Table the bins of all codes whose values fall in [_min,_maxEx), i.e. of
+  // every non-NA row that can reach this histogram.
+  void initCodes( float[] vals ) {
+    _codeVals = vals;
+    int lo = firstNotBelow(vals,_min), hi = firstNotBelow(vals,_maxEx);
+    _code0 = lo+1;
+    if( hi-lo > MAX_CODE_TABLE ) return;
+    _codeBins = new int[hi-lo];
+    for( int i=0; i<_codeBins.length; i++ )
+      _codeBins[i] = bin(vals[lo+i]);
+  }
+
+  // Index of the first value >= x in sorted vals
+  private static int firstNotBelow( float[] vals, float x ) {
+    int lo = 0, hi = vals.length;
+    while( lo < hi ) {
+      int mid = (lo+hi)>>>1;
+      if( vals[mid] < x ) lo = mid+1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  // Bin of a pre-coded value; same as bin() of the value itself
+  final int binCode( int code ) {
+    if( code == 0 ) return 0;   // Always NAs to bin 0
+    int i = code-_code0;
+    if( _codeBins != null && 0 <= i && i < _codeBins.length ) return _codeBins[i];
+    return bin(_codeVals[code-1]);
+  }
+
   public int nbins() { return _nbin; }
   public int bins(int b) { return _bins[b]; }
   abstract public double mean(int b);
@@ -146,6 +193,57 @@ public abstract class DHistogram<TDH extends DHistogram> extends Iced {
     if( y != 0 ) incr0(b,y);
   }
 
+  // Same as incr, for a pre-coded value
+  final void incrCode( int code, double y ) {
+    int b = binCode(code);
+    water.util.AtomicUtils.IntArray.incr(_bins,b); // Bump count in bin
+    if( code != 0 ) {
+      float col_data = _codeVals[code-1];
+      if (!Float.isInfinite(col_data)) {
+        setMin(col_data);
+        setMax(col_data);
+      }
+    }
+    if( y != 0 ) incr0(b,y);
+  }
+
+  // Same as incr and incrCode, for a histogram filled by a single thread (see
+  // privateCopy): no atomic updates.
+  abstract void incrLocal0( int b, double y );
+  final void incrLocal( float col_data, double y ) {
+    int b = bin(col_data);
+    _bins[b]++;
+    if( !Float.isInfinite(col_data) ) {
+      if( col_data < _min2  ) _min2  = col_data;
+      if( col_data > _maxIn ) _maxIn = col_data;
+    }
+    if( y != 0 ) incrLocal0(b,y);
+  }
+  final void incrCodeLocal( int code, double y ) {
+    int b = binCode(code);
+    _bins[b]++;
+    if( code != 0 ) {
+      float col_data = _codeVals[code-1];
+      if( !Float.isInfinite(col_data) ) {
+        if( col_data < _min2  ) _min2  = col_data;
+        if( col_data > _maxIn ) _maxIn = col_data;
+      }
+    }
+    if( y != 0 ) incrLocal0(b,y);
+  }
+
+  // An empty histogram with the same bins (and code table), for one worker
+  // thread to fill without atomics; merged back with add()
+  final DHistogram privateCopy() {
+    assert _bins != null;
+    DHistogram h = (DHistogram)clone();
+    h._bins = null;
+    h._min2 =  Float.MAX_VALUE;
+    h._maxIn= -Float.MAX_VALUE;
+    h.init();
+    return h;
+  }
+
   // Merge two equal histograms together.  Done in a F/J reduce, so no
   // synchronization needed.
   abstract void add0( TDH dsh );
@@ -160,6 +258,45 @@ public abstract class DHistogram<TDH extends DHistogram> extends Iced {
     add0(dsh);
   }
 
+  // Can this histogram, of a child of parent {@code p}, be derived from p and
+  // its sibling {@code s}?  All three must have one bin per integer value, so
+  // bins line up by a constant offset.  NAs also land in bin 0, so the caller
+  // must know the column has none.
+  boolean canDerive( DHistogram p, DHistogram s ) {
+    return p._bins != null && exact(p) && exact(s) && exact(this);
+  }
+  private static boolean exact( DHistogram h ) {
+    return h._isInt > 0 && h._step == 1.0f && Math.abs(h._min) < (1<<24) && Math.abs(h._maxEx) < (1<<24);
+  }
+  void derive( DHistogram p, DHistogram s ) {
+    _derived = true;
+    _parent = p;
+    _sibling = s;
+  }
+
+  // Parent minus sibling, bin by bin, for a histogram marked by derive()
+  abstract void sub0( int b, TDH p, int pb, TDH s, int sb );
+  final void subtract() {
+    assert _derived && _parent._bins != null && _sibling._bins != null;
+    init();
+    int po = (int)(_min-_parent._min), so = (int)(_min-_sibling._min);
+    assert po >= 0 && po+_nbin <= _parent._nbin;
+    for( int b=0; b<_nbin; b++ ) {
+      int sb = b+so;
+      if( sb < 0 || sb >= _sibling._nbin ) sb = -1; // Sibling has no rows here
+      int n = _parent._bins[b+po] - (sb == -1 ? 0 : _sibling._bins[sb]);
+      assert n >= 0;
+      if( n == 0 ) continue;    // Leave sums at exactly zero
+      _bins[b] = n;
+      sub0(b,(TDH)_parent,b+po,(TDH)_sibling,sb);
+      // One value per bin, so the first and last non-empty bins are the
+      // observed min & max
+      if( _min2 == Float.MAX_VALUE ) _min2 = _min+b;
+      _maxIn = _min+b;
+    }
+    _parent = _sibling = null;
+  }
+
   // Inclusive min & max
   public float find_min  () { return _min2 ; }
   public float find_maxIn() { return _maxIn; }
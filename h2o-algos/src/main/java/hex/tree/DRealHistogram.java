@@ -13,7 +13,7 @@ import water.util.MathUtils;
  *  @author Cliff Click
  */
 public class DRealHistogram extends DHistogram<DRealHistogram> {
-  private double _sums[], _ssqs[]; // Sums & square-sums, shared, atomically incremented
+  double _sums[], _ssqs[]; // Sums & square-sums, shared, atomically incremented
 
   public DRealHistogram( String name, final int nbins, byte isInt, float min, float maxEx, long nelems ) {
     super(name,nbins,isInt,min,maxEx,nelems);
@@ -49,6 +49,29 @@ public class DRealHistogram extends DHistogram<DRealHistogram> {
     AtomicUtils.DoubleArray.add(_ssqs,b,yy);
   }
 
+  @Override void incrLocal0( int b, double y ) {
+    _sums[b] += y;
+    _ssqs[b] += y*y;
+  }
+
+  // Add n rows of value 0, with response sum s and square-sum q: the
+  // implicit zeros of a sparse Chunk.  Atomic unless local.
+  void addZeros( int n, double s, double q, boolean local ) {
+    int b = bin(0f);
+    if( local ) {
+      _bins[b] += n;
+      _sums[b] += s;
+      _ssqs[b] += q;
+      if( 0f < _min2  ) _min2  = 0f;
+      if( 0f > _maxIn ) _maxIn = 0f;
+    } else {
+      AtomicUtils.IntArray.add(_bins,b,n);
+      incr1(b,s,q);
+      setMin(0f);
+      setMax(0f);
+    }
+  }
+
   // Merge two equal histograms together.
   // Done in a F/J reduce, so no synchronization needed.
   @Override void add0( DRealHistogram dsh ) {
@@ -56,6 +79,12 @@ public class DRealHistogram extends DHistogram<DRealHistogram> {
     ArrayUtils.add(_ssqs,dsh._ssqs);
   }
 
+  // Parent minus sibling; sb is -1 where the sibling has no bin
+  @Override void sub0( int b, DRealHistogram p, int pb, DRealHistogram s, int sb ) {
+    _sums[b] = p._sums[pb] - (sb == -1 ? 0 : s._sums[sb]);
+    _ssqs[b] = p._ssqs[pb] - (sb == -1 ? 0 : s._ssqs[sb]);
+  }
+
   // Compute a "score" for a column; lower score "wins" (is a better split).
   // Score is the sum of the MSEs when the data is split at a single point.
   // mses[1] == MSE for splitting between bins  0  and 1.
@@ -374,6 +374,28 @@ public class DTree extends Iced {
       }
     }
 
+    // Rows of this node all go to one child or the other, so after the next
+    // pass the larger child's histograms can be had as this node's minus the
+    // smaller child's, for columns whose bins line up (and which have no
+    // NAs, per naFree).  Those columns of the larger child are not scanned.
+    public void deriveLargerChild( DHistogram hs[], boolean naFree[] ) {
+      if( _nids[0] < 0 || _nids[1] < 0 ) return;
+      int small = _split._n0 <= _split._n1 ? 0 : 1;
+      UndecidedNode s = _tree.undecided(_nids[small]);
+      UndecidedNode l = _tree.undecided(_nids[1-small]);
+      for( int j=0; j<_tree._ncols; j++ ) {
+        DHistogram lh = l._hs[j], sh = s._hs[j];
+        if( lh == null || sh == null || !naFree[j] ) continue;
+        if( !scores(l,j) || !scores(s,j) ) continue;
+        if( lh.canDerive(hs[j],sh) ) lh.derive(hs[j],sh);
+      }
+    }
+    private static boolean scores( UndecidedNode u, int col ) {
+      if( u._scoreCols == null ) return true;
+      for( int c : u._scoreCols ) if( c == col ) return true;
+      return false;
+    }
+
     public int ns( Chunk chks[], int row ) {
       float d = (float)chks[_split._col].atd(row);
       int bin;
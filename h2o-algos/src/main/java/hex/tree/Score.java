@@ -8,19 +8,23 @@ import water.fvec.Chunk;
 import water.fvec.Frame;
 import water.util.ModelUtils;
 
+import java.util.Arrays;
+
 /** Score the tree columns, and produce a confusion matrix and AUC
  */
 public class Score extends MRTask<Score> {
   final SharedTree _bldr;
   final boolean _oob;           // Computed on OOB
   final ModelCategory _mcat;    // Model category (Binomial, Regression, etc)
+  final boolean _vtrees;        // Last nclass columns are the running tree sums of a validation frame
   ModelMetrics.MetricBuilder _mb;
 
   /** Compute ModelMetrics on the testing dataset.
    *  It expect already adapted validation dataset which is adapted to a model
    *  and contains a response which is adapted to confusion matrix domain.
    */
-  public Score(SharedTree bldr, boolean oob, ModelCategory mcat) { _bldr = bldr; _oob = oob; _mcat = mcat; }
+  public Score(SharedTree bldr, boolean oob, ModelCategory mcat) { this(bldr,oob,mcat,false); }
+  Score(SharedTree bldr, boolean oob, ModelCategory mcat, boolean vtrees) { _bldr = bldr; _oob = oob; _mcat = mcat; _vtrees = vtrees; }
   
   @Override public void map( Chunk chks[] ) {
     Chunk ys = _bldr.chk_resp(chks);  // Response
@@ -44,7 +48,12 @@ public class Score extends MRTask<Score> {
       if( ys.isNA(row) ) continue; // Ignore missing response vars only if it was actual NA
       // Ignore out-of-bag rows
       if( _oob && chks[oobColIdx].at8(row)==0 ) continue;
-      if( _bldr._parms._valid!=null )   // Must score "the hard way"
+      if( _vtrees ) {           // Trees already summed; just finish the prediction
+        Arrays.fill(cdists,0);
+        for( int c=0; c<nclass; c++ )
+          cdists[nclass==1 ? 0 : c+1] = chks[chks.length-nclass+c].atd(row);
+        _bldr._model.unifyPreds(_bldr.data_row(chks,row,tmp),cdists);
+      } else if( _bldr._parms._valid!=null )   // Must score "the hard way"
         _bldr._model.score0(chks,row,tmp,cdists);
       else                      // Passed in the model-specific columns
         _bldr.score2(chks,cdists,row); // Use the training data directly (per-row predictions already made)
@@ -1,10 +1,16 @@
 package hex.tree;
 
+import jsr166y.RecursiveAction;
+import water.DKV;
+import water.Key;
 import water.MRTask;
+import water.H2O;
 import water.H2O.H2OCountedCompleter;
 import water.fvec.Chunk;
 import water.util.AtomicUtils;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 /**  Score and Build Histogram
  * 
  * <p>Fuse 2 conceptual passes into one:
@@ -38,8 +44,31 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
   // Histograms for every tree, split & active column
   final DHistogram _hcs[/*tree-relative node-id*/][/*column*/];
   final boolean _subset;      // True if working a subset of cols
+  // Pre-coded predictor columns, if any: the dictionaries are fetched once
+  // per node, and _codeIdx has the Chunk index of each column's codes, or -1
+  final Key<ColumnCodes> _codesKey;
+  final int   _codeIdx[/*column*/];
+  transient float _vals[/*column*/][];
+  // Per-worker histograms: when all of this pass's histograms are small
+  // enough to copy, each map call fills a private copy without atomic
+  // updates.  Copies are pooled per node (one per concurrently running map,
+  // i.e. roughly per F/J worker) and merged into _hcs once, in closeLocal.
+  // Larger histograms are updated in place, atomically.
+  //
+  // PRIVATE_BINS_BUDGET is one node-wide budget for all the copies of a
+  // pass: a pass goes private only if (bins filled, summed over every tree
+  // of the pass) * H2O.NUMCPUS fits in it.  A bin costs 20 bytes (an int
+  // count, a double sum and sum-of-squares), so the copies peak at about
+  // 40MB per node, however many classes or cores.
+  static final long PRIVATE_BINS_BUDGET = 1L<<21;
+  transient boolean _private;
+  transient long _nbinsLocal;   // Bins filled on this node by this pass
+  transient ConcurrentLinkedQueue<DHistogram[][]> _pool;
 
   public ScoreBuildHistogram(H2OCountedCompleter cc, int k, int ncols, int nbins, DTree tree, int leaf, DHistogram hcs[][], boolean subset) {
+    this(cc,k,ncols,nbins,tree,leaf,hcs,subset,null,null);
+  }
+  public ScoreBuildHistogram(H2OCountedCompleter cc, int k, int ncols, int nbins, DTree tree, int leaf, DHistogram hcs[][], boolean subset, Key<ColumnCodes> codesKey, int codeIdx[]) {
     super(cc);
     _k    = k;
     _ncols= ncols;
@@ -48,9 +77,17 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
     _leaf = leaf;
     _hcs  = hcs;
     _subset = subset;
+    _codesKey = codesKey;
+    _codeIdx = codeIdx;
     _modifiesInputs = true;
   }
 
+  private int ncoded() {
+    int n = 0;
+    for( int ci : _codeIdx ) if( ci != -1 ) n++;
+    return n;
+  }
+
   /** Marker for already decided row. */
   static public final int DECIDED_ROW = -1;
   /** Marker for sampled out rows */
@@ -65,24 +102,41 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
   @Override public void setupLocal( ) {
     // Init all the internal tree fields after shipping over the wire
     _tree.init_tree();
+    if( _codesKey != null ) _vals = DKV.<ColumnCodes>getGet(_codesKey)._vals;
     // Allocate local shared memory histograms
+    long nbins = 0;
     for( int l=_leaf; l<_tree._len; l++ ) {
       DTree.UndecidedNode udn = _tree.undecided(l);
       DHistogram hs[] = _hcs[l-_leaf];
       int sCols[] = udn._scoreCols;
       if( sCols != null ) { // Sub-selecting just some columns?
         for( int col : sCols ) // For tracked cols
-          hs[col].init();
+          nbins += init(hs[col],col);
       } else {                 // Else all columns
         for( int j=0; j<_ncols; j++) // For all columns
           if( hs[j] != null )        // Tracking this column?
-            hs[j].init();
+            nbins += init(hs[j],j);
       }
     }
+    _nbinsLocal = nbins;
+    usePrivate(privateFits(nbins));
+  }
+  // Can per-worker copies of this many bins (of all trees of a pass) be made?
+  static boolean privateFits( long nbins ) { return nbins*H2O.NUMCPUS <= PRIVATE_BINS_BUDGET; }
+  // Set after setupLocal, before any map call
+  void usePrivate( boolean b ) {
+    _private = b;
+    _pool = b ? new ConcurrentLinkedQueue<DHistogram[][]>() : null;
+  }
+  private int init( DHistogram h, int col ) {
+    if( h._derived ) return 0;  // Filled by subtraction after the pass
+    h.init();
+    if( _codeIdx != null && _codeIdx[col] != -1 ) h.initCodes(_vals[col]);
+    return h._nbin;
   }
 
   @Override public void map( Chunk[] chks ) {
-    assert chks.length==_ncols+4;
+    assert chks.length==_ncols+4+(_codesKey==null ? 0 : ncoded());
     final Chunk wrks = chks[_ncols+2];
     final Chunk nids = chks[_ncols+3];
 
@@ -99,8 +153,53 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
         if( isDecidedRow((int)nids.atd(row)) ) nnids[row] = -1;
 
     // Pass 2: accumulate all rows, cols into histograms
-    if( _subset ) accum_subset(chks,wrks,nnids);
-    else          accum_all   (chks,wrks,nnids);
+    DHistogram hcs[][] = _private ? grab() : _hcs;
+    if( _subset ) accum_subset(chks,wrks,nnids,hcs);
+    else          accum_all   (chks,wrks,nnids,hcs);
+    if( _private ) _pool.add(hcs);
+  }
+
+  // A pooled per-worker copy of the histograms, or a new one.  Derived and
+  // untracked histograms are never filled, so the copy just shares them.
+  private DHistogram[][] grab() {
+    DHistogram hcs[][] = _pool.poll();
+    if( hcs != null ) return hcs;
+    hcs = new DHistogram[_hcs.length][];
+    for( int i=0; i<hcs.length; i++ ) {
+      DHistogram hs[] = hcs[i] = _hcs[i].clone();
+      for( int j=0; j<hs.length; j++ )
+        if( hs[j] != null && hs[j]._bins != null )
+          hs[j] = hs[j].privateCopy();
+    }
+    return hcs;
+  }
+
+  // Fold the per-worker copies into the node-shared histograms: pairwise,
+  // in parallel, then the last one in.
+  @Override protected void closeLocal() {
+    if( !_private ) return;
+    DHistogram[][][] copies = _pool.toArray(new DHistogram[0][][]);
+    _pool = null;
+    if( copies.length == 0 ) return;
+    if( copies.length > 1 ) new MergeCopies(copies,0,copies.length).invoke();
+    merge(_hcs,copies[0]);
+  }
+  private static void merge( DHistogram dst[][], DHistogram src[][] ) {
+    for( int i=0; i<dst.length; i++ )
+      for( int j=0; j<dst[i].length; j++ )
+        if( dst[i][j] != src[i][j] ) // Not shared, so filled by a worker
+          dst[i][j].add(src[i][j]);
+  }
+  private static class MergeCopies extends RecursiveAction {
+    final DHistogram[][][] _copies;
+    final int _lo, _hi;
+    MergeCopies( DHistogram[][][] copies, int lo, int hi ) { _copies = copies; _lo = lo; _hi = hi; }
+    @Override protected void compute() {
+      if( _hi-_lo < 2 ) return;
+      int mid = (_lo+_hi)>>>1;
+      invokeAll(new MergeCopies(_copies,_lo,mid),new MergeCopies(_copies,mid,_hi));
+      merge(_copies[_lo],_copies[mid]);
+    }
   }
 
   @Override public void reduce( ScoreBuildHistogram sbh ) {
@@ -133,6 +232,10 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
       // Score row against current decisions & assign new split
       boolean oob = isOOBRow(nid);
       if( oob ) nid = oob2Nid(nid); // sampled away - we track the position in the tree
+      if( nid < _leaf && _tree.node(nid) instanceof DTree.UndecidedNode ) {
+        nnids[row] = nid-_leaf;     // Leaf-wise growth left this leaf unsplit for now
+        continue;
+      }
       DTree.DecidedNode dn = _tree.decided(nid);
       if( dn._split._col == -1 ) { // Might have a leftover non-split
         if( DTree.isRootNode(dn) ) { nnids[row] = nid-_leaf; continue; }
@@ -154,16 +257,26 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
   }
 
   // All rows, some cols, accumulate histograms
-  private void accum_subset(Chunk chks[], Chunk wrks, int nnids[]) {
+  private void accum_subset(Chunk chks[], Chunk wrks, int nnids[], DHistogram hcs[][]) {
     for( int row=0; row<nnids.length; row++ ) { // Over all rows
       int nid = nnids[row];                     // Get Node to decide from
       if( nid >= 0 ) {        // row already predicts perfectly or OOB
         assert !Double.isNaN(wrks.atd(row)); // Already marked as sampled-away
-        DHistogram nhs[] = _hcs[nid];
+        DHistogram nhs[] = hcs[nid];
         int sCols[] = _tree.undecided(nid+_leaf)._scoreCols; // Columns to score (null, or a list of selected cols)
-        for( int col : sCols ) // For tracked cols
-          //FIXME/TODO: sum into local variables, do atomic increment once at the end, similar to accum_all
-          nhs[col].incr((float)chks[col].atd(row),wrks.atd(row)); // Histogram row/col
+        double y = wrks.atd(row);
+        for( int col : sCols ) { // For tracked cols
+          DHistogram h = nhs[col];
+          if( h._derived ) continue;
+          int ci = _codeIdx == null ? -1 : _codeIdx[col];
+          if( _private ) {      // Worker's own copy
+            if( ci != -1 ) h.incrCodeLocal((int)chks[ci].at8(row),y); // Pre-coded column
+            else h.incrLocal((float)chks[col].atd(row),y);
+          } else {              // Shared, too big to copy
+            if( ci != -1 ) h.incrCode((int)chks[ci].at8(row),y);
+            else h.incr((float)chks[col].atd(row),y); // Histogram row/col
+          }
+        }
       }
     }
   }
@@ -175,13 +288,13 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
   // order.  The hot-part of this code updates the histograms racily (via
   // atomic updates) - once-per-row.  This optimized version updates the
   // histograms once-per-NID, but requires pre-sorting the rows by NID.
-  private void accum_all(Chunk chks[], Chunk wrks, int nnids[]) {
+  private void accum_all(Chunk chks[], Chunk wrks, int nnids[], DHistogram hcs[][]) {
     // Sort the rows by NID, so we visit all the same NIDs in a row
     // Find the count of unique NIDs in this chunk
-    int nh[] = new int[_hcs.length+1];
+    int nh[] = new int[hcs.length+1];
     for( int i : nnids ) if( i >= 0 ) nh[i+1]++;
     // Rollup the histogram of rows-per-NID in this chunk
-    for( int i=0; i<_hcs.length; i++ ) nh[i+1] += nh[i];
+    for( int i=0; i<hcs.length; i++ ) nh[i+1] += nh[i];
     // Splat the rows into NID-groups
     int rows[] = new int[nnids.length];
     for( int row=0; row<nnids.length; row++ )
@@ -189,24 +302,31 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
         rows[nh[nnids[row]]++] = row;
     // rows[] has Chunk-local ROW-numbers now, in-order, grouped by NID.
     // nh[] lists the start of each new NID, and is indexed by NID+1.
-    accum_all2(chks,wrks,nh,rows);
+    accum_all2(chks,wrks,nnids,nh,rows,hcs);
   }
 
   // For all columns, for all NIDs, for all ROWS...
-  private void accum_all2(Chunk chks[], Chunk wrks, int nh[], int[] rows) {
-    final DHistogram hcs[][] = _hcs;
+  private void accum_all2(Chunk chks[], Chunk wrks, int nnids[], int nh[], int[] rows, final DHistogram hcs[][]) {
     if( hcs.length==0 ) return; // Unlikely fast cutout
     // Local temp arrays, no atomic updates.
     int    bins[] = new int   [_nbins];
     double sums[] = new double[_nbins];
     double ssqs[] = new double[_nbins];
+    double tots[][] = null;     // Per-NID response sums, for sparse columns
     // For All Columns
     for( int c=0; c<_ncols; c++) { // for all columns
       Chunk chk = chks[c];
+      if( chk.isSparse() ) {
+        if( tots == null ) tots = respTotals(wrks,nh,rows);
+        accum_sparse(chk,c,wrks,nnids,nh,tots,hcs);
+        continue;
+      }
+      int ci = _codeIdx == null ? -1 : _codeIdx[c];
+      Chunk codes = ci == -1 ? null : chks[ci];
       // For All NIDs
       for( int n=0; n<hcs.length; n++ ) {
         final DRealHistogram rh = ((DRealHistogram)hcs[n][c]);
-        if( rh==null ) continue; // Ignore untracked columns in this split
+        if( rh==null || rh._derived ) continue; // Ignore untracked or derived columns in this split
         final int lo = n==0 ? 0 : nh[n-1];
         final int hi = nh[n];
         float min = rh._min2;
@@ -215,26 +335,54 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
         // in a few cases (top-level splits have few total bins across all
         // the (few) splits) so it's safe to bin more; also categoricals want
         // to split one bin-per-level no matter how many levels).
-        if( rh._bins.length >= bins.length ) { // Grow bins if needed
+        if( !_private && rh._bins.length >= bins.length ) { // Grow bins if needed
           bins = new int   [rh._bins.length];
           sums = new double[rh._bins.length];
           ssqs = new double[rh._bins.length];
         }
+        // A worker's private copy is filled in directly
+        final int    bs[] = _private ? rh._bins : bins;
+        final double ss[] = _private ? rh._sums : sums;
+        final double qs[] = _private ? rh._ssqs : ssqs;
 
         // Gather all the data for this set of rows, for 1 column and 1 split/NID
         // Gather min/max, sums and sum-squares.
-        for( int xrow=lo; xrow<hi; xrow++ ) {
-          int row = rows[xrow];
-          float col_data = (float)chk.atd(row);
-          if( col_data < min ) min = col_data;
-          if( col_data > max ) max = col_data;
-          int b = rh.bin(col_data); // Compute bin# via linear interpolation
-          bins[b]++;                // Bump count in bin
-          double resp = wrks.atd(row);
-          sums[b] += resp;
-          ssqs[b] += resp*resp;
+        if( codes != null ) {   // Pre-coded column: bins by table lookup
+          int cmin = Integer.MAX_VALUE, cmax = 0;
+          for( int xrow=lo; xrow<hi; xrow++ ) {
+            int row = rows[xrow];
+            int code = (int)codes.at8(row);
+            if( code != 0 ) {   // Codes sort like values; track the extremes
+              if( code < cmin ) cmin = code;
+              if( code > cmax ) cmax = code;
+            }
+            int b = rh.binCode(code);
+            bs[b]++;
+            double resp = wrks.atd(row);
+            ss[b] += resp;
+            qs[b] += resp*resp;
+          }
+          if( cmax != 0 ) {
+            float[] vals = _vals[c];
+            if( vals[cmin-1] < min ) min = vals[cmin-1];
+            if( vals[cmax-1] > max ) max = vals[cmax-1];
+          }
+        } else {
+          for( int xrow=lo; xrow<hi; xrow++ ) {
+            int row = rows[xrow];
+            float col_data = (float)chk.atd(row);
+            if( col_data < min ) min = col_data;
+            if( col_data > max ) max = col_data;
+            int b = rh.bin(col_data); // Compute bin# via linear interpolation
+            bs[b]++;                  // Bump count in bin
+            double resp = wrks.atd(row);
+            ss[b] += resp;
+            qs[b] += resp*resp;
+          }
         }
 
+        if( _private ) { rh._min2 = min; rh._maxIn = max; continue; }
+
         // Add all the data into the Histogram (atomically add)
         rh.setMin(min);       // Track actual lower/upper bound per-bin
         rh.setMax(max);
@@ -245,4 +393,47 @@ public class ScoreBuildHistogram extends MRTask<ScoreBuildHistogram> {
       }
     }
   }
+
+  // Response sum and sum-of-squares of each NID's rows in this chunk
+  private static double[][] respTotals(Chunk wrks, int nh[], int[] rows) {
+    int nnid = nh.length-1;
+    double tots[][] = new double[2][nnid];
+    for( int n=0; n<nnid; n++ )
+      for( int xrow = n==0 ? 0 : nh[n-1]; xrow<nh[n]; xrow++ ) {
+        double resp = wrks.atd(rows[xrow]);
+        tots[0][n] += resp;
+        tots[1][n] += resp*resp;
+      }
+    return tots;
+  }
+
+  // Sparse column: visit just the non-zeros, in row order, then add each
+  // NID's zeros to its zero bin in one step - the NID's row count and
+  // response totals, less those of its non-zeros.
+  private void accum_sparse(Chunk chk, int c, Chunk wrks, int nnids[], int nh[], double tots[][], DHistogram hcs[][]) {
+    final int nnid = hcs.length;
+    int       nzs[] = new int   [nnid];
+    double nzsums[] = new double[nnid];
+    double nzssqs[] = new double[nnid];
+    for( int row = chk.nextNZ(-1); row < chk._len; row = chk.nextNZ(row) ) {
+      int n = nnids[row];
+      if( n < 0 ) continue;     // Decided or sampled-away row
+      DHistogram h = hcs[n][c];
+      if( h == null || h._derived ) continue;
+      double resp = wrks.atd(row);
+      nzs[n]++;
+      nzsums[n] += resp;
+      nzssqs[n] += resp*resp;
+      float col_data = (float)chk.atd(row);
+      if( _private ) h.incrLocal(col_data,resp);
+      else           h.incr     (col_data,resp);
+    }
+    for( int n=0; n<nnid; n++ ) {
+      DRealHistogram rh = (DRealHistogram)hcs[n][c];
+      if( rh == null || rh._derived ) continue;
+      int zeros = nh[n] - (n==0 ? 0 : nh[n-1]) - nzs[n];
+      if( zeros > 0 )
+        rh.addZeros(zeros, tots[0][n]-nzsums[n], tots[1][n]-nzssqs[n], _private);
+    }
+  }
 }
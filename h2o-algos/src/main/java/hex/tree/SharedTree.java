@@ -1,7 +1,6 @@
 package hex.tree;
 
 import hex.*;
-import jsr166y.CountedCompleter;
 import water.*;
 import water.H2O.H2OCountedCompleter;
 import water.fvec.Chunk;
@@ -34,6 +33,18 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
   // Initially predicted value (for zero trees)
   protected double _initialPrediction;
 
+  // Predictor columns pre-coded for histogram building; built once per model
+  protected transient ColumnCodes _codes;
+
+  // Predictor columns without NAs, whose histograms may be derived by
+  // subtraction (see DTree.DecidedNode.deriveLargerChild)
+  protected transient boolean[] _naFree;
+
+  // The validation frame plus nclass running sums of the trees scored on it
+  // so far; each scoring adds just the trees built since the last one
+  private transient Frame _vtrees;
+  private transient int _vtreesDone;
+
   // Sum of variable empirical improvement in squared-error.  The value is not scaled.
   private transient float[/*nfeatures*/] _improvPerVar;
 
@@ -67,6 +78,8 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
       }
     }
     if (_parms._max_depth <= 0) error ("_max_depth", "_max_depth must be > 0.");
+    if (_parms._stopping_rounds < 0) error("_stopping_rounds", "_stopping_rounds must be >= 0.");
+    if (_parms._stopping_tolerance < 0) error("_stopping_tolerance", "_stopping_tolerance must be >= 0.");
     if (_parms._min_rows < 1) error ("_min_rows", "_min_rows must be >= 1.");
     if (_train != null && _train.numRows() < _parms._min_rows*2 ) // Need at least 2xmin_rows to split even once
       error("_min_rows", "The dataset size is too small to split for min_rows=" + _parms._min_rows + " , number of rows: " + _train.numRows() + " < 2*" + _parms._min_rows);
@@ -158,6 +171,19 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
         // Tag out rows missing the response column
         new ExcludeNAResponse().doAll(_train);
 
+        if( _valid != null ) {
+          _vtrees = new Frame(_valid.names(),_valid.vecs());
+          for( int i=0; i<_nclass; i++ )
+            _vtrees.add("Tree_"+domain[i], _valid.anyVec().makeZero());
+          _vtreesDone = 0;
+        }
+
+        // Code the predictors once, so building histograms for every tree
+        // level does not decompress and re-bin the raw values
+        _codes = ColumnCodes.make(_train,_ncols);
+        _naFree = new boolean[_ncols];
+        for( int c=0; c<_ncols; c++ ) _naFree[c] = _train.vec(c).naCnt()==0;
+
         // Variable importance: squared-error-improvement-per-variable-per-split
         _improvPerVar = new float[_ncols];
 
@@ -193,32 +219,49 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
   // --------------------------------------------------------------------------
   // Build an entire layer of all K trees
   protected DHistogram[][][] buildLayer(final Frame fr, final int nbins, final DTree ktrees[], final int leafs[], final DHistogram hcs[][][], boolean subset, boolean build_tree_one_node) {
+    return buildLayer(fr,nbins,ktrees,leafs,hcs,subset,build_tree_one_node,false);
+  }
+
+  // With defer set, the pass only fills the histograms of the new leaves and
+  // leaves them undecided; the caller picks which of them to split (see
+  // splitLeaf), then sets up leafs[] and hcs[] for the next pass.  Returns
+  // null if no tree had new leaves to fill.
+  protected DHistogram[][][] buildLayer(final Frame fr, final int nbins, final DTree ktrees[], final int leafs[], final DHistogram hcs[][][], boolean subset, boolean build_tree_one_node, boolean defer) {
     // Build K trees, one per class.
 
-    // Build up the next-generation tree splits from the current histograms.
-    // Nearly all leaves will split one more level.  This loop nest is
-    //           O( #active_splits * #bins * #ncols )
-    // but is NOT over all the data.
-    ScoreBuildOneTree sb1ts[] = new ScoreBuildOneTree[_nclass];
+    // One pass over the data fills the new leaves' histograms of all K trees:
+    // each chunk of the predictors (and their codes) is fetched once and
+    // handed to every tree's ScoreBuildHistogram, along with that tree's
+    // own tree, work & nid chunks.  One reduction carries all K trees.
     Vec vecs[] = fr.vecs();
+    Frame frK = new Frame(Arrays.copyOf(fr._names,_ncols+1), Arrays.copyOf(vecs,_ncols+1));
+    if( _codes != null )        // Pre-coded predictors go next
+      for( int c=0; c<_ncols; c++ )
+        if( _codes._vecs[c] != null ) frK.add("Code_"+fr._names[c],_codes._vecs[c]);
+    int codeIdx[] = _codes == null ? null : _codes.chunkIdx(_ncols+4);
+    ScoreBuildHistogram sbhs[] = new ScoreBuildHistogram[_nclass];
     for( int k=0; k<_nclass; k++ ) {
       final DTree tree = ktrees[k]; // Tree for class K
       if( tree == null ) continue;
-      // Build a frame with just a single tree (& work & nid) columns, so the
-      // nested MRTask ScoreBuildHistogram in ScoreBuildOneTree does not try
-      // to close other tree's Vecs when run in parallel.
-      Frame fr2 = new Frame(Arrays.copyOf(fr._names,_ncols+1), Arrays.copyOf(vecs,_ncols+1));
-      fr2.add(fr._names[idx_tree(k)],vecs[idx_tree(k)]);
-      fr2.add(fr._names[idx_work(k)],vecs[idx_work(k)]);
-      fr2.add(fr._names[idx_nids(k)],vecs[idx_nids(k)]);
-      // Start building one of the K trees in parallel
-      H2O.submitTask(sb1ts[k] = new ScoreBuildOneTree(this,k,nbins,tree,leafs,hcs,fr2, subset, build_tree_one_node, _improvPerVar));
+      frK.add(fr._names[idx_tree(k)],vecs[idx_tree(k)]);
+      frK.add(fr._names[idx_work(k)],vecs[idx_work(k)]);
+      frK.add(fr._names[idx_nids(k)],vecs[idx_nids(k)]);
+      sbhs[k] = new ScoreBuildHistogram(null,k,_ncols,nbins,tree,leafs[k],hcs[k],subset, codeIdx==null ? null : _codes._key, codeIdx);
     }
+    scoreHistograms(frK,sbhs,build_tree_one_node);
+
+    // Build up the next-generation tree splits from the current histograms.
+    // Nearly all leaves will split one more level.  This loop nest is
+    //           O( #active_splits * #bins * #ncols )
+    // but is NOT over all the data.
+    ScoreBuildOneTree sb1ts[] = new ScoreBuildOneTree[_nclass];
+    for( int k=0; k<_nclass; k++ )
+      if( sbhs[k] != null ) // Decide the K trees in parallel
+        H2O.submitTask(sb1ts[k] = new ScoreBuildOneTree(this,k,ktrees[k],leafs,hcs,sbhs[k],_improvPerVar,defer));
     // Block for all K trees to complete.
     boolean did_split=false;
     for( int k=0; k<_nclass; k++ ) {
-      final DTree tree = ktrees[k]; // Tree for class K
-      if( tree == null ) continue;
+      if( sb1ts[k] == null ) continue;
       sb1ts[k].join();
       if( sb1ts[k]._did_split ) did_split=true;
     }
@@ -226,48 +269,94 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
     return did_split ? hcs : null;
   }
 
+  // Fills the new leaves' histograms of all K trees in one pass over frK:
+  // the predictors, response & codes, then the tree, work & nid columns of
+  // each tree with a non-null ScoreBuildHistogram, in class order.
+  void scoreHistograms( Frame frK, ScoreBuildHistogram sbhs[], boolean build_tree_one_node ) {
+    new ScoreBuildAllTrees(sbhs,_ncols).doAll(frK,build_tree_one_node);
+  }
+
+  // Runs every tree's ScoreBuildHistogram over one frame laid out as the
+  // predictors, response & codes, then the tree, work & nid columns of each
+  // tree in turn.  Each tree sees its usual layout: predictors, response,
+  // its tree, work & nid columns, then the codes.
+  private static class ScoreBuildAllTrees extends MRTask<ScoreBuildAllTrees> {
+    final ScoreBuildHistogram _sbhs[/*nclass*/]; // null for skipped classes
+    final int _ncols;
+    ScoreBuildAllTrees( ScoreBuildHistogram sbhs[], int ncols ) { _sbhs = sbhs; _ncols = ncols; _modifiesInputs = true; }
+    @Override public void setupLocal() {
+      long nbins = 0;
+      for( ScoreBuildHistogram sbh : _sbhs )
+        if( sbh != null ) { sbh.setupLocal(); nbins += sbh._nbinsLocal; }
+      // All K trees share the one node-wide budget for per-worker copies
+      boolean priv = ScoreBuildHistogram.privateFits(nbins);
+      for( ScoreBuildHistogram sbh : _sbhs ) if( sbh != null ) sbh.usePrivate(priv);
+    }
+    @Override public void map( Chunk chks[] ) {
+      int ntrees = 0;
+      for( ScoreBuildHistogram sbh : _sbhs ) if( sbh != null ) ntrees++;
+      final int nc = _ncols+1, ncodes = chks.length-nc-3*ntrees;
+      Chunk cs[] = new Chunk[nc+3+ncodes];
+      System.arraycopy(chks,0,cs,0,nc);
+      System.arraycopy(chks,nc,cs,nc+3,ncodes);
+      int t = nc+ncodes;
+      for( ScoreBuildHistogram sbh : _sbhs ) {
+        if( sbh == null ) continue;
+        cs[nc] = chks[t];  cs[nc+1] = chks[t+1];  cs[nc+2] = chks[t+2];
+        t += 3;
+        sbh.map(cs);
+      }
+    }
+    @Override public void reduce( ScoreBuildAllTrees sbat ) {
+      if( sbat._sbhs == _sbhs ) return; // Local trees all shared
+      for( int k=0; k<_sbhs.length; k++ )
+        if( _sbhs[k] != null ) _sbhs[k].reduce(sbat._sbhs[k]);
+    }
+    @Override protected void closeLocal() {
+      for( ScoreBuildHistogram sbh : _sbhs ) if( sbh != null ) sbh.closeLocal();
+    }
+  }
+
   private static class ScoreBuildOneTree extends H2OCountedCompleter {
     final SharedTree _st;
     final int _k;               // The tree
-    final int _nbins;           // Number of histogram bins
     final DTree _tree;
     final int _leafs[/*nclass*/];
     final DHistogram _hcs[/*nclass*/][][];
-    final Frame _fr2;
-    final boolean _subset;      // True if working a subset of cols
-    final boolean _build_tree_one_node;
+    final ScoreBuildHistogram _sbh; // The filled histograms of this tree
     float[] _improvPerVar;      // Squared Error improvement per variable per split
+    final boolean _defer;       // Fill the new leaves' histograms, but do not decide them
     
     boolean _did_split;
-    ScoreBuildOneTree( SharedTree st, int k, int nbins, DTree tree, int leafs[], DHistogram hcs[][][], Frame fr2, boolean subset, boolean build_tree_one_node, float[] improvPerVar ) {
+    ScoreBuildOneTree( SharedTree st, int k, DTree tree, int leafs[], DHistogram hcs[][][], ScoreBuildHistogram sbh, float[] improvPerVar, boolean defer ) {
       _st   = st;
       _k    = k;
-      _nbins= nbins;
       _tree = tree;
       _leafs= leafs;
       _hcs  = hcs;
-      _fr2  = fr2;
-      _subset = subset;
-      _build_tree_one_node = build_tree_one_node;
+      _sbh  = sbh;
       _improvPerVar = improvPerVar;
+      _defer = defer;
     }
     @Override public void compute2() {
-      // Fuse 2 conceptual passes into one:
-      // Pass 1: Score a prior DHistogram, and make new Node assignments
-      // to every row.  This involves pulling out the current assigned Node,
-      // "scoring" the row against that Node's decision criteria, and assigning
-      // the row to a new child Node (and giving it an improved prediction).
-      // Pass 2: Build new summary DHistograms on the new child Nodes every row
-      // got assigned into.  Collect counts, mean, variance, min, max per bin,
-      // per column.
-      new ScoreBuildHistogram(this,_k, _st._ncols, _nbins,_tree, _leafs[_k],_hcs[_k],_subset).dfork(0,_fr2,_build_tree_one_node);
+      decide(_sbh);
+      tryComplete();
     }
-    @Override public void onCompletion(CountedCompleter caller) {
-      ScoreBuildHistogram sbh = (ScoreBuildHistogram)caller;
+    private void decide( ScoreBuildHistogram sbh ) {
       //System.out.println(sbh.profString());
 
       final int leafk = _leafs[_k];
       int tmax = _tree.len();   // Number of total splits in tree K
+      // Fill in the histograms skipped by the pass, from parent and sibling
+      for( int leaf=leafk; leaf<tmax; leaf++ )
+        for( DHistogram h : sbh._hcs[leaf-leafk] )
+          if( h != null && h._derived ) h.subtract();
+      if( _defer ) {
+        for( int leaf=leafk; leaf<tmax; leaf++ )
+          _tree.undecided(leaf)._hs = sbh._hcs[leaf-leafk];
+        _did_split = tmax > leafk;
+        return;
+      }
       for( int leaf=leafk; leaf<tmax; leaf++ ) { // Visit all the new splits (leaves)
         DTree.UndecidedNode udn = _tree.undecided(leaf);
 //        System.out.println((_st._nclass==1?"Regression":("Class "+_fr2.vecs()[_st._ncols].domain()[_k]))+",\n  Undecided node:"+udn);
@@ -278,6 +367,7 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
         if( dn._split._col == -1 ) udn.do_not_split();
         else {
           _did_split = true;
+          dn.deriveLargerChild(sbh._hcs[leaf-leafk],_st._naFree);
           DTree.Split s = dn._split; // Accumulate squared error improvements per variable
           AtomicUtils.FloatArray.add(_improvPerVar,s.col(),(float)(s.pre_split_se()-s.se()));
         }
@@ -291,6 +381,17 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
     }
   }
 
+  // Split a leaf whose histograms were filled by a deferred pass.  Its new
+  // children are filled by the next pass.
+  protected DTree.DecidedNode splitLeaf( DTree.UndecidedNode udn ) {
+    DTree.DecidedNode dn = makeDecided(udn,udn._hs);
+    if( dn._split._col == -1 ) { udn.do_not_split(); return dn; }
+    dn.deriveLargerChild(udn._hs,_naFree);
+    DTree.Split s = dn._split;
+    AtomicUtils.FloatArray.add(_improvPerVar,s.col(),(float)(s.pre_split_se()-s.se()));
+    return dn;
+  }
+
   // --------------------------------------------------------------------------
   // Convenience accessor for a complex chunk layout.
   // Wish I could name the array elements nicer...
@@ -384,7 +485,10 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
       }
       // Score again on validation data
       if( _parms._valid != null ) {
-        Score scv = new Score(this,oob,_model._output.getModelCategory()).doAll(valid(), build_tree_one_node);
+        if( _vtreesDone < out._ntrees )
+          new AddValidTrees(_vtreesDone,out._ntrees).doAll(_vtrees, build_tree_one_node);
+        _vtreesDone = out._ntrees;
+        Score scv = new Score(this,oob,_model._output.getModelCategory(),true).doAll(_vtrees, build_tree_one_node);
         ModelMetricsSupervised mmv = scv.makeModelMetrics(_model,_parms.valid(), _parms._response_column);
         out._mse_valid[out._ntrees] = mmv._MSE; // Store score results in the model output
         out._validation_metrics = mmv;
@@ -423,6 +527,50 @@ public abstract class SharedTree<M extends SharedTreeModel<M,P,O>, P extends Sha
     return training_r2;
   }
 
+  // Fold trees [from,to) into the running tree sums at the end of the
+  // validation frame.  Trees are added one at a time, in order, so the sums
+  // match scoring the whole forest at once.
+  private class AddValidTrees extends MRTask<AddValidTrees> {
+    final int _from, _to;
+    AddValidTrees( int from, int to ) { _from = from; _to = to; }
+    @Override public void map( Chunk chks[] ) {
+      final int vt = chks.length-_nclass;
+      CompressedTree cts[][] = new CompressedTree[_to-_from][_nclass];
+      for( int t=_from; t<_to; t++ )
+        for( int c=0; c<_nclass; c++ )
+          if( _model._output._treeKeys[t][c] != null ) cts[t-_from][c] = _model._output.ctree(t,c);
+      double data[] = new double[_ncols];
+      for( int row=0; row<chks[0]._len; row++ ) {
+        data_row(chks,row,data);
+        for( int c=0; c<_nclass; c++ ) {
+          double sum = chks[vt+c].atd(row);
+          for( CompressedTree ct[] : cts )
+            if( ct[c] != null ) sum += ct[c].score(data);
+          chks[vt+c].set(row,sum);
+        }
+      }
+    }
+  }
+
+  // True once the best scored MSE of the last stopping_rounds scorings is
+  // not a stopping_tolerance relative improvement on the best before them
+  protected boolean stopEarly() {
+    final int k = _parms._stopping_rounds;
+    if( k == 0 ) return false;
+    double mses[] = _valid != null ? _model._output._mse_valid : _model._output._mse_train;
+    if( mses == null ) return false;
+    int n = 0;
+    double scored[] = new double[mses.length];
+    for( double mse : mses ) if( !Double.isNaN(mse) ) scored[n++] = mse;
+    if( n <= k ) return false;
+    double best = Double.MAX_VALUE, recent = Double.MAX_VALUE;
+    for( int i=0; i<n-k; i++ ) best = Math.min(best,scored[i]);
+    for( int i=n-k; i<n; i++ ) recent = Math.min(recent,scored[i]);
+    if( recent < best*(1-_parms._stopping_tolerance) ) return false;
+    Log.info("Early stopping: best MSE of the last "+k+" scorings ("+recent+") is not a "+_parms._stopping_tolerance+" relative improvement on "+best);
+    return true;
+  }
+
   static int counter = 0;
   // helper for debugging
   @SuppressWarnings("unused")
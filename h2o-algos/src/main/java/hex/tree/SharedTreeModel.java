@@ -2,6 +2,7 @@ package hex.tree;
 
 import hex.*;
 import water.*;
+import water.fvec.Chunk;
 import water.util.*;
 
 import java.util.Arrays;
@@ -22,6 +23,13 @@ public abstract class SharedTreeModel<M extends SharedTreeModel<M,P,O>, P extend
 
     public long _seed;          // Seed for pseudo-random redistribution
 
+    // Stop adding trees once the best MSE (on the validation frame if given,
+    // else the training frame) of the last stopping_rounds scorings is not a
+    // stopping_tolerance relative improvement on the best before them.  0
+    // disables early stopping.
+    public int _stopping_rounds = 0;
+    public double _stopping_tolerance = 1e-3;
+
     // TRUE: Continue extending an existing checkpointed model
     // FALSE: Overwrite any prior model
     public boolean _checkpoint;
@@ -123,10 +131,52 @@ public abstract class SharedTreeModel<M extends SharedTreeModel<M,P,O>, P extend
       }
   }
 
+  /** Turn the summed per-tree predictions into the final prediction, in
+   *  place; the in-H2O twin of {@link #toJavaUnifyPreds}. */
+  protected abstract double[] unifyPreds(double data[], double preds[]);
+
+  /** Batch scoring, tree at a time: the block is decompressed once a column
+   *  at a time, then each tree is fetched once and run over every row of the
+   *  block while its bytes are hot in cache. */
+  @Override public void score0(Chunk chks[], int from, int to, double[][] preds) {
+    final int n = to-from, nf = _output.nfeatures();
+    double[][] data = new double[n][nf];
+    for( int c=0; c<nf; c++ ) {
+      Chunk chk = chks[c];
+      for( int r=0; r<n; r++ )
+        data[r][c] = chk.atd(from+r);
+    }
+    for( int r=0; r<n; r++ ) Arrays.fill(preds[r],0);
+    for( Key[] keys : _output._treeKeys )
+      for( int c=0; c<keys.length; c++ )
+        if( keys[c] != null ) {
+          CompressedTree ct = DKV.get(keys[c]).get();
+          int col = keys.length == 1 ? 0 : c + 1;
+          for( int r=0; r<n; r++ ) {
+            double pred = ct.score(data[r]);
+            assert(!Double.isInfinite(pred));
+            preds[r][col] += pred;
+          }
+        }
+    for( int r=0; r<n; r++ ) unifyPreds(data[r],preds[r]);
+  }
+
   // Numeric type used in generated code to hold predicted value between the
   // calls; i.e. the numerical precision of predictions.
   static final String PRED_TYPE = "double";
 
+  @Override protected Key[] dependentKeys() {
+    Key[] deps = super.dependentKeys();
+    int n = deps.length;
+    for( Key ks[] : _output._treeKeys )
+      for( Key k : ks ) if( k != null ) n++;
+    Key[] keys = Arrays.copyOf(deps, n);
+    n = deps.length;
+    for( Key ks[] : _output._treeKeys )
+      for( Key k : ks ) if( k != null ) keys[n++] = k;
+    return keys;
+  }
+
   @Override protected Futures remove_impl( Futures fs ) {
     for( Key ks[] : _output._treeKeys)
       for( Key k : ks )
@@ -187,6 +187,7 @@ public class DRF extends SharedTree<hex.tree.drf.DRFModel, hex.tree.drf.DRFModel
       for( tid=0; tid<_parms._ntrees; tid++) { // Building tid-tree
         if (tid!=0 || !_parms._checkpoint) { // do not make initial scoring if model already exist
           doScoringAndSaveModel(false, _valid==null, _parms._build_tree_one_node);
+          if( stopEarly() ) return;
         }
         // At each iteration build K trees (K = nclass = response column domain size)
 
@@ -42,6 +42,10 @@ public class DRFModel extends SharedTreeModel<DRFModel,DRFModel.DRFParameters,DR
 
   @Override protected double[] score0(double data[], double preds[]) {
     super.score0(data, preds);
+    return unifyPreds(data, preds);
+  }
+
+  @Override protected double[] unifyPreds(double data[], double preds[]) {
     int N = _parms._ntrees;
     if (_output.nclasses() == 1) { // regression - compute avg over all trees
       preds[0] /= N;
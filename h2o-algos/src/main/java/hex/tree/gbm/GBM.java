@@ -13,6 +13,9 @@ import water.util.Log;
 import water.util.Timer;
 import water.util.ArrayUtils;
 
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
 /** Gradient Boosted Trees
  *
  *  Based on "Elements of Statistical Learning, Second Edition, page 387"
@@ -106,6 +109,8 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
     
     if( !(0. < _parms._learn_rate && _parms._learn_rate <= 1.0) )
       error("_learn_rate", "learn_rate must be between 0 and 1");
+    if( _parms._max_leaves < 0 || _parms._max_leaves == 1 )
+      error("_max_leaves", "max_leaves must be 0 (grow level by level) or at least 2");
   }
 
   // ----------------------
@@ -133,6 +138,7 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
           double training_r2 = doScoringAndSaveModel(false, false, false);
           if( training_r2 >= 0.999999 )
             return;             // Stop when approaching round-off error
+          if( stopEarly() ) return;
         }
 
         // ESL2, page 387
@@ -263,14 +269,19 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
       // ESL2, page 387.  Step 2b ii.
       // One Big Loop till the ktrees are of proper depth.
       // Adds a layer to the trees each pass.
-      int depth=0;
-      for( ; depth<_parms._max_depth; depth++ ) {
+      if( _parms._max_leaves > 0 ) {
+        growLeafWise(nbins, ktrees, leafs, hcs);
         if( !isRunning() ) return;
+      } else {
+        int depth=0;
+        for( ; depth<_parms._max_depth; depth++ ) {
+          if( !isRunning() ) return;
 
-        hcs = buildLayer(_train, nbins, ktrees, leafs, hcs, false, false);
+          hcs = buildLayer(_train, nbins, ktrees, leafs, hcs, false, false);
 
-        // If we did not make any new splits, then the tree is split-to-death
-        if( hcs == null ) break;
+          // If we did not make any new splits, then the tree is split-to-death
+          if( hcs == null ) break;
+        }
       }
 
       // Each tree bottomed-out in a DecidedNode; go 1 more level and insert
@@ -364,6 +375,66 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
       _model._output.addKTrees(ktrees);
     }
 
+    // Best-first growth: each pass fills the histograms of the newest leaves,
+    // then splits the leaves with the largest squared-error reduction seen so
+    // far, until a tree has max_leaves leaves.  Splitting one leaf per pass
+    // would cost a pass over the data per leaf, so a pass splits up to half of
+    // the remaining leaf budget; the last few splits are strictly best-first.
+    // Leaves left unsplit keep their rows and histograms for later passes.
+    private void growLeafWise( int nbins, DTree ktrees[], int leafs[], DHistogram hcs[][][] ) {
+      @SuppressWarnings("unchecked")
+      PriorityQueue<LeafGain> queues[] = new PriorityQueue[_nclass];
+      int nleaves[] = new int[_nclass];
+      for( int k=0; k<_nclass; k++ ) { queues[k] = new PriorityQueue<>(); nleaves[k] = 1; }
+      boolean grew = true;
+      while( grew && isRunning() ) {
+        // A pass is needed only to fill leaves that may split; otherwise keep
+        // splitting the leaves already waiting in the queues
+        if( canSplitNewLeaves(ktrees,leafs) )
+          buildLayer(_train, nbins, ktrees, leafs, hcs, false, false, true);
+        grew = false;
+        for( int k=0; k<_nclass; k++ ) {
+          final DTree tree = ktrees[k];
+          if( tree == null ) continue;
+          final PriorityQueue<LeafGain> q = queues[k];
+          int tmax = tree.len();
+          for( int nid=leafs[k]; nid<tmax; nid++ ) {
+            if( depth(tree,nid) >= _parms._max_depth ) continue; // Stays a leaf
+            UndecidedNode udn = tree.undecided(nid);
+            DTree.Split s = GBMDecidedNode.bestSplit(udn._hs,_parms._min_rows);
+            if( s._col == -1 ) splitLeaf(udn); // Cannot split; becomes a leaf
+            else q.add(new LeafGain(nid,s.pre_split_se()-s.se()));
+          }
+          int n = Math.min(q.size(),(_parms._max_leaves-nleaves[k]+1)/2);
+          if( n > 0 ) grew = true;
+          for( int i=0; i<n; i++ ) {
+            int nid = q.poll()._nid;
+            int d = depth(tree,nid)+1;
+            DecidedNode dn = splitLeaf(tree.undecided(nid));
+            nleaves[k]++;
+            tree._depth = Math.max(tree._depth,d);
+            if( d >= _parms._max_depth ) // Children can never split, so do not fill them
+              for( int c : dn._nids )
+                if( c != -1 ) Arrays.fill(tree.undecided(c)._hs,null);
+          }
+          leafs[k] = tmax;      // The new children are the next working set
+          hcs[k] = new DHistogram[tree.len()-tmax][];
+          for( int nid=tmax; nid<tree.len(); nid++ )
+            hcs[k][nid-tmax] = tree.undecided(nid)._hs;
+        }
+      }
+    }
+
+    // True if some tree has a new leaf shallow enough to split later
+    private boolean canSplitNewLeaves( DTree ktrees[], int leafs[] ) {
+      for( int k=0; k<_nclass; k++ ) {
+        if( ktrees[k] == null ) continue;
+        for( int nid=leafs[k]; nid<ktrees[k].len(); nid++ )
+          if( depth(ktrees[k],nid) < _parms._max_depth ) return true;
+      }
+      return false;
+    }
+
     // ---
     // ESL2, page 387.  Step 2b iii.
     // Nids <== f(Nids)
@@ -456,11 +527,14 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
     // Find the column with the best split (lowest score).  Unlike RF, GBM
     // scores on all columns and selects splits on all columns.
     @Override public DTree.Split bestCol( UndecidedNode u, DHistogram[] hs ) {
+      return bestSplit(hs,_tree._min_rows);
+    }
+    static DTree.Split bestSplit( DHistogram[] hs, int min_rows ) {
       DTree.Split best = new DTree.Split(-1,-1,null,(byte)0,Double.MAX_VALUE,Double.MAX_VALUE,Double.MAX_VALUE,0L,0L,0,0);
       if( hs == null ) return best;
       for( int i=0; i<hs.length; i++ ) {
         if( hs[i]==null || hs[i].nbins() <= 1 ) continue;
-        DTree.Split s = hs[i].scoreMSE(i,_tree._min_rows);
+        DTree.Split s = hs[i].scoreMSE(i,min_rows);
         if( s == null ) continue;
         if( s.se() < best.se() )
           best = s;
@@ -481,6 +555,24 @@ public class GBM extends SharedTree<GBMModel,GBMModel.GBMParameters,GBMModel.GBM
     @Override public int[] scoreCols( DHistogram[] hs ) { return null; }
   }
   
+  // Number of splits from the root down to a node
+  private static int depth( DTree tree, int nid ) {
+    int d = 0;
+    for( int pid = tree.node(nid)._pid; pid != -1; pid = tree.node(pid)._pid ) d++;
+    return d;
+  }
+
+  // A leaf waiting to be split, ordered by decreasing gain (squared-error
+  // reduction); ties go to the older leaf
+  private static class LeafGain implements Comparable<LeafGain> {
+    final int _nid;
+    final double _gain;
+    LeafGain( int nid, double gain ) { _nid = nid; _gain = gain; }
+    @Override public int compareTo( LeafGain l ) {
+      return _gain != l._gain ? Double.compare(l._gain,_gain) : _nid - l._nid;
+    }
+  }
+
   // ---
   static class GBMLeafNode extends LeafNode {
     GBMLeafNode( DTree tree, int pid ) { super(tree,pid); }
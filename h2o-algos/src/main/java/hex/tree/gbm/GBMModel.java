@@ -18,6 +18,7 @@ public class GBMModel extends SharedTreeModel<GBMModel,GBMModel.GBMParameters,GB
     public enum Family {  AUTO, bernoulli, multinomial, gaussian  }
     public Family _distribution = Family.AUTO;
     public float _learn_rate=0.1f; // Learning rate from 0.0 to 1.0
+    public int _max_leaves=0;      // Grow best-first to this many leaves per tree; 0 grows level by level
   }
 
   public static class GBMOutput extends SharedTreeModel.SharedTreeOutput {
@@ -39,6 +40,10 @@ public class GBMModel extends SharedTreeModel<GBMModel,GBMModel.GBMParameters,GB
 
   @Override protected double[] score0(double data[/*ncols*/], double preds[/*nclasses+1*/]) {
     super.score0(data, preds);    // These are f_k(x) in Algorithm 10.4
+    return unifyPreds(data, preds);
+  }
+
+  @Override protected double[] unifyPreds(double data[], double preds[]) {
     if( _parms._distribution == GBMParameters.Family.bernoulli ) {
       double fx = preds[1] + _output._init_f;
       preds[2] = 1.0/(1.0+Math.exp(-fx));
@@ -0,0 +1,143 @@
+package hex;
+
+import hex.glm.GLM;
+import hex.glm.GLMModel;
+import hex.kmeans.KMeans;
+import hex.kmeans.KMeansModel;
+import hex.tree.drf.DRF;
+import hex.tree.drf.DRFModel;
+import hex.tree.gbm.GBM;
+import hex.tree.gbm.GBMModel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.DKV;
+import water.Key;
+import water.MRTask;
+import water.TestUtil;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/** The batch score0 overrides must match row-at-a-time scoring exactly. */
+public class BatchScoreTest extends TestUtil {
+  @BeforeClass public static void stall() { stall_till_cloudsize(1); }
+
+  private static Frame data(boolean enumResponse) {
+    Random rng = new Random(0xBA7C4);
+    double[][] rows = new double[500][];
+    for( int i = 0; i < rows.length; i++ ) {
+      double x1 = rng.nextDouble(), x2 = rng.nextDouble();
+      double y = enumResponse ? (x1 + x2 + 0.3 * rng.nextGaussian() > 1 ? 1 : 0) : x1 + 2 * x2 + (i % 3) + 0.1 * rng.nextGaussian();
+      rows[i] = new double[]{i % 3, x1, i % 17 == 5 ? Double.NaN : x2, y};
+    }
+    Frame fr = frame(new String[]{"c", "x1", "x2", "y"}, rows);
+    fr.replace(0, fr.vec(0).toEnum()).remove();
+    if( enumResponse ) fr.replace(3, fr.vec(3).toEnum()).remove();
+    DKV.put(fr);
+    return fr;
+  }
+
+  private static class Compare extends MRTask<Compare> {
+    final Model _m;
+    final int _npreds;
+    Compare( Model m, int npreds ) { _m = m; _npreds = npreds; }
+    @Override public void map( Chunk[] chks ) {
+      int len = chks[0]._len;
+      double[][] all = new double[len][_npreds];
+      _m.score0(chks, 0, len, all);
+      double[][] part = new double[len - 7][_npreds];
+      _m.score0(chks, 7, len, part);
+      double[] tmp = new double[_m._output.nfeatures()];
+      for( int row = 0; row < len; row++ ) {
+        double[] p = _m.score0(chks, row, tmp, new double[_npreds]);
+        assertArrayEquals(p, all[row], 0);
+        if( row >= 7 ) assertArrayEquals(p, part[row - 7], 0);
+      }
+    }
+  }
+
+  private static void check( Model m, Frame fr ) {
+    Frame test = new Frame(fr);
+    m.adaptTestForTrain(test, true);
+    int nc = m._output.nclasses();
+    new Compare(m, nc == 1 ? 1 : nc + 1).doAll(test);
+    // And through the full scoring path, which now goes through the batch API
+    Frame preds = m.score(fr);
+    preds.delete();
+  }
+
+  @Test public void testGBM() {
+    Frame fr = data(false);
+    GBMModel m = null;
+    try {
+      GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+      parms._train = fr._key;
+      parms._response_column = "y";
+      parms._ntrees = 5;
+      parms._max_depth = 3;
+      GBM job = new GBM(parms);
+      try { m = job.trainModel().get(); } finally { job.remove(); }
+      check(m, fr);
+    } finally {
+      fr.delete();
+      if( m != null ) m.delete();
+    }
+  }
+
+  @Test public void testDRF() {
+    Frame fr = data(true);
+    DRFModel m = null;
+    try {
+      DRFModel.DRFParameters parms = new DRFModel.DRFParameters();
+      parms._train = fr._key;
+      parms._response_column = "y";
+      parms._ntrees = 5;
+      parms._max_depth = 4;
+      DRF job = new DRF(parms);
+      try { m = job.trainModel().get(); } finally { job.remove(); }
+      check(m, fr);
+    } finally {
+      fr.delete();
+      if( m != null ) m.delete();
+    }
+  }
+
+  @Test public void testGLM() {
+    Frame fr = data(false);
+    Key<GLMModel> key = Key.make();
+    GLMModel m = null;
+    try {
+      GLMModel.GLMParameters parms = new GLMModel.GLMParameters(GLMModel.GLMParameters.Family.gaussian);
+      parms._train = fr._key;
+      parms._response_column = "y";
+      GLM job = new GLM(key, "batch score glm", parms);
+      try { job.trainModel().get(); } finally { job.remove(); }
+      m = DKV.getGet(key);
+      check(m, fr);
+    } finally {
+      fr.delete();
+      if( m != null ) m.delete();
+    }
+  }
+
+  @Test public void testKMeans() {
+    Frame fr = data(false);
+    KMeansModel m = null;
+    try {
+      KMeansModel.KMeansParameters parms = new KMeansModel.KMeansParameters();
+      parms._train = fr._key;
+      parms._ignored_columns = new String[]{"y"};
+      parms._k = 3;
+      parms._seed = 1234;
+      KMeans job = new KMeans(parms);
+      try { m = job.trainModel().get(); } finally { job.remove(); }
+      check(m, fr);
+    } finally {
+      fr.delete();
+      if( m != null ) m.delete();
+    }
+  }
+}
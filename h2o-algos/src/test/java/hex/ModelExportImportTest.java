@@ -0,0 +1,103 @@
+package hex;
+
+import hex.deeplearning.DeepLearning;
+import hex.deeplearning.DeepLearningModel;
+import hex.tree.gbm.GBM;
+import hex.tree.gbm.GBMModel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.DKV;
+import water.Key;
+import water.TestUtil;
+import water.fvec.Frame;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ModelExportImportTest extends TestUtil {
+  @BeforeClass public static void stall() { stall_till_cloudsize(1); }
+
+  private static Frame regressionFrame() {
+    Random rng = new Random(42);
+    double[][] rows = new double[200][];
+    for( int i = 0; i < rows.length; i++ ) {
+      double x1 = rng.nextDouble(), x2 = rng.nextDouble();
+      rows[i] = new double[]{x1, x2, x1 + 2 * x2 + 0.1 * rng.nextGaussian()};
+    }
+    return frame(new String[]{"x1", "x2", "y"}, rows);
+  }
+
+  /** Export, delete, import, and check the reloaded model scores the same. */
+  private static Model roundTrip(Model model, Frame fr) throws Exception {
+    Frame before = model.score(fr);
+    Frame after = null;
+    File f = File.createTempFile("model", ".bin");
+    try {
+      model.exportBinaryModel(f.getPath(), true);
+      Key[] deps = model.dependentKeys();
+      Key key = model._key;
+      model.delete();
+      assertNull(DKV.get(key));
+      Model loaded = Model.importBinaryModel(f.getPath());
+      assertEquals(key, loaded._key);
+      assertNotNull(DKV.get(key));
+      for( Key k : deps ) assertNotNull(DKV.get(k));
+      after = loaded.score(fr);
+      for( long r = 0; r < fr.numRows(); r++ )
+        assertEquals(before.vec(0).at(r), after.vec(0).at(r), 0);
+      return loaded;
+    } finally {
+      before.delete();
+      if( after != null ) after.delete();
+      f.delete();
+    }
+  }
+
+  @Test public void testGBM() throws Exception {
+    Frame fr = regressionFrame();
+    GBMModel gbm = null;
+    Model loaded = null;
+    try {
+      GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+      parms._train = fr._key;
+      parms._response_column = "y";
+      parms._ntrees = 10;
+      parms._max_depth = 3;
+      parms._min_rows = 1;
+      GBM job = new GBM(parms);
+      try { gbm = job.trainModel().get(); } finally { job.remove(); }
+      assertEquals(10, gbm._output._treeKeys.length);
+      loaded = roundTrip(gbm, fr);
+    } finally {
+      fr.delete();
+      if( loaded != null ) loaded.delete();
+      else if( gbm != null ) gbm.delete();
+    }
+  }
+
+  @Test public void testDeepLearning() throws Exception {
+    Frame fr = regressionFrame();
+    DeepLearningModel dl = null;
+    Model loaded = null;
+    try {
+      DeepLearningModel.DeepLearningParameters parms = new DeepLearningModel.DeepLearningParameters();
+      parms._train = fr._key;
+      parms._response_column = "y";
+      parms._hidden = new int[]{5, 5};
+      parms._epochs = 5;
+      parms._seed = 1234;
+      parms._reproducible = true;
+      DeepLearning job = new DeepLearning(parms);
+      try { dl = job.trainModel().get(); } finally { job.remove(); }
+      loaded = roundTrip(dl, fr);
+    } finally {
+      fr.delete();
+      if( loaded != null ) loaded.delete();
+      else if( dl != null ) dl.delete();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package hex.deeplearning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hex.deeplearning.DeepLearningModel.DeepLearningParameters.SyncCompression;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.AutoBuffer;
+import water.DKV;
+import water.Key;
+import water.fvec.Frame;
+import java.util.Random;
+
+public class DeepLearningModelDeltaTest extends water.TestUtil {
+
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  // A small trained model, to get a DeepLearningModelInfo with all its arrays
+  private static DeepLearningModel.DeepLearningModelInfo modelInfo() {
+    Random rng = new Random(0xDE17A);
+    double[][] rows = new double[500][];
+    for (int i = 0; i < rows.length; ++i) {
+      double x = rng.nextGaussian(), y = rng.nextGaussian();
+      rows[i] = new double[]{x, y, x - y + rng.nextGaussian() / 10};
+    }
+    Frame fr = frame(new String[]{"x", "y", "r"}, rows);
+    DeepLearningModel model = null;
+    DeepLearning job = null;
+    try {
+      DeepLearningModel.DeepLearningParameters p = new DeepLearningModel.DeepLearningParameters();
+      p._train = fr._key;
+      p._response_column = "r";
+      p._hidden = new int[]{30, 20};
+      p._epochs = 1;
+      p._seed = 1234;
+      p._reproducible = true;
+      job = new DeepLearning(p);
+      model = job.trainModel().get();
+      return model.model_info().deep_clone();
+    } finally {
+      if (job != null) job.remove();
+      if (model != null) model.delete();
+      fr.delete();
+    }
+  }
+
+  // Change every synchronized value of mi a little (keeping the ADADELTA state non-negative)
+  private static void perturb(DeepLearningModel.DeepLearningModelInfo mi, long seed) {
+    Random rng = new Random(seed);
+    float[][] arrays = mi.syncArrays();
+    final int ada = mi.syncAdaStart();
+    for (int i = 0; i < arrays.length; ++i)
+      for (int j = 0; j < arrays[i].length; ++j) {
+        arrays[i][j] += 0.01f * (float)rng.nextGaussian();
+        if (ada >= 0 && i >= ada) arrays[i][j] = Math.abs(arrays[i][j]);
+      }
+    mi.set_processed_local(100);
+  }
+
+  @Test public void testAddTo() {
+    DeepLearningModel.DeepLearningModelInfo base = modelInfo();
+    float[][] snapshot = DeepLearningModelDelta.snapshot(base);
+    DeepLearningModel.DeepLearningModelInfo[] nodes = new DeepLearningModel.DeepLearningModelInfo[3];
+    for (int i = 0; i < nodes.length; ++i) {
+      nodes[i] = base.deep_clone();
+      perturb(nodes[i], i);
+    }
+    // the same sum as adding up the full models
+    DeepLearningModel.DeepLearningModelInfo expected = nodes[0].deep_clone();
+    expected.add(nodes[1]);
+    expected.add(nodes[2]);
+    DeepLearningModelDelta remote = new DeepLearningModelDelta(nodes[1], snapshot).add(new DeepLearningModelDelta(nodes[2], snapshot));
+    DeepLearningModel.DeepLearningModelInfo actual = nodes[0].deep_clone();
+    assertEquals(3, remote.addTo(actual, snapshot));
+    assertEquals(expected.get_processed_local(), actual.get_processed_local());
+    float[][] e = expected.syncArrays(), a = actual.syncArrays();
+    for (int i = 0; i < e.length; ++i)
+      for (int j = 0; j < e[i].length; ++j)
+        assertEquals(e[i][j], a[i][j], 1e-5);
+  }
+
+  // An update that overshoots the ADADELTA state leaves it at zero, all other arrays get the plain sum
+  @Test public void testAddToClampsAdaDelta() {
+    DeepLearningModel.DeepLearningModelInfo base = modelInfo();
+    float[][] snapshot = DeepLearningModelDelta.snapshot(base);
+    final int ada = base.syncAdaStart();
+    assertTrue(ada > 0);
+    DeepLearningModel.DeepLearningModelInfo node = base.deep_clone();
+    perturb(node, 7);
+    float[][] arrays = node.syncArrays();
+    for (int i = ada; i < arrays.length; ++i)
+      for (int j = 0; j < arrays[i].length; ++j) arrays[i][j] = -1;
+    DeepLearningModel.DeepLearningModelInfo expected = base.deep_clone();
+    expected.set_processed_local(100);
+    DeepLearningModel.DeepLearningModelInfo actual = expected.deep_clone();
+    expected.add(node);
+    assertEquals(2, new DeepLearningModelDelta(node, snapshot).addTo(actual, snapshot));
+    float[][] e = expected.syncArrays(), a = actual.syncArrays();
+    boolean clamped = false;
+    for (int i = 0; i < e.length; ++i)
+      for (int j = 0; j < e[i].length; ++j) {
+        clamped |= i >= ada && e[i][j] < 0;
+        assertEquals(i >= ada ? Math.max(0, e[i][j]) : e[i][j], a[i][j], 1e-5);
+      }
+    assertTrue(clamped);
+  }
+
+  // The node that started the task had no chunks: copyOver() replaced its fields by those of a remote
+  // result (with a null model), and closeLocal() adds the remote update to the model from setupLocal()
+  @Test public void testHomeWithoutChunks() {
+    DeepLearningModel.DeepLearningModelInfo base = modelInfo();
+    float[][] snapshot = DeepLearningModelDelta.snapshot(base);
+    DeepLearningModel.DeepLearningModelInfo[] nodes = new DeepLearningModel.DeepLearningModelInfo[2];
+    for (int i = 0; i < nodes.length; ++i) {
+      nodes[i] = base.deep_clone();
+      perturb(nodes[i], i);
+    }
+    DeepLearningModel.DeepLearningModelInfo expected = nodes[0].deep_clone();
+    expected.add(nodes[1]);
+    DeepLearningModel.DeepLearningModelInfo home = base.deep_clone();
+    home.set_processed_local(0);
+    DKV.put(base.data_info()); //deleted with the model
+    DeepLearningTask task;
+    try {
+      task = new DeepLearningTask(Key.make(), base, 1f);
+    } finally {
+      DKV.remove(base.data_info()._key);
+    }
+    task._localInfo = home;
+    task._base = snapshot;
+    task._output = null;
+    task._delta = new DeepLearningModelDelta(nodes[0], snapshot).add(new DeepLearningModelDelta(nodes[1], snapshot));
+    task.closeLocal();
+    assertSame(home, task.model_info());
+    assertEquals(2, task._chunk_node_count);
+    assertEquals(expected.get_processed_local(), home.get_processed_local());
+    float[][] e = expected.syncArrays(), a = home.syncArrays();
+    for (int i = 0; i < e.length; ++i)
+      for (int j = 0; j < e[i].length; ++j)
+        assertEquals(e[i][j], a[i][j], 1e-5);
+  }
+
+  @Test public void testCompression() {
+    DeepLearningModel.DeepLearningModelInfo base = modelInfo();
+    float[][] snapshot = DeepLearningModelDelta.snapshot(base);
+    for (SyncCompression mode : new SyncCompression[]{SyncCompression.Int16, SyncCompression.Int8, SyncCompression.TopK}) {
+      DeepLearningModel.DeepLearningModelInfo mi = base.deep_clone();
+      mi.get_params()._sync_compression = mode;
+      mi.get_params()._sync_top_k_fraction = 0.2;
+      perturb(mi, 42);
+      float[][] delta = new DeepLearningModelDelta(mi, snapshot)._d;
+      // send the same update repeatedly: thanks to the error feedback, the received updates add up
+      // to the sent ones, up to the compression error of the last iteration
+      Key jobKey = Key.make();
+      final int iterations = 30;
+      float[][] received = new float[delta.length][];
+      for (int i = 0; i < delta.length; ++i) received[i] = new float[delta[i].length];
+      long bytes = 0;
+      try {
+        for (int it = 0; it < iterations; ++it) {
+          DeepLearningModelDelta d = new DeepLearningModelDelta(mi, snapshot);
+          d.compress(jobKey);
+          AutoBuffer ab = new AutoBuffer();
+          d.write(ab);
+          bytes = ab.position();
+          ab.flipForReading();
+          DeepLearningModelDelta r = new DeepLearningModelDelta().read(ab);
+          assertEquals(1, r._nodes);
+          assertEquals(100, r._processed);
+          for (int i = 0; i < delta.length; ++i)
+            for (int j = 0; j < delta[i].length; ++j) received[i][j] += r._d[i][j];
+        }
+      } finally {
+        DeepLearningModelDelta.clearFeedback(jobKey);
+      }
+      double err = 0, sum = 0;
+      for (int i = 0; i < delta.length; ++i)
+        for (int j = 0; j < delta[i].length; ++j) {
+          err += Math.abs(iterations * delta[i][j] - received[i][j]);
+          sum += Math.abs(iterations * delta[i][j]);
+        }
+      long dense = 0;
+      for (float[] d : delta) dense += 4 * d.length;
+      assertTrue(mode + ": relative error " + err / sum, err / sum < (mode == SyncCompression.TopK ? 0.2 : 0.01));
+      assertTrue(mode + ": " + bytes + " bytes vs " + dense, bytes < (mode == SyncCompression.Int8 ? 0.3 : 0.6) * dense);
+    }
+  }
+}
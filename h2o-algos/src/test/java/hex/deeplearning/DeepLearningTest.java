@@ -501,6 +501,148 @@ public class DeepLearningTest extends TestUtil {
     }
   }
 
+  // Three noisy clusters in 4 dimensions, with a class label and a numeric response
+  private static Frame clusters() {
+    java.util.Random rng = new java.util.Random(0xD1);
+    double[][] rows = new double[3000][];
+    for( int i=0; i<rows.length; i++ ) {
+      int c = i%3;
+      double x = c+rng.nextGaussian()/2, y = 2*(c%2)+rng.nextGaussian()/2, z = rng.nextGaussian(), w = rng.nextGaussian();
+      rows[i] = new double[]{ x, y, z, w, x*y + z + rng.nextGaussian()/10, c };
+    }
+    Frame fr = frame(new String[]{"x","y","z","w","num","class"}, rows);
+    Vec cls = fr.remove("class");
+    fr.add("class", cls.toEnum());
+    cls.remove();
+    DKV.put(fr);
+    return fr;
+  }
+
+  private static hex.ModelMetrics trainOnClusters(Frame fr, String response, int miniBatch, DeepLearningModel.DeepLearningParameters.Activation activation) {
+    return trainOnClusters(fr, response, miniBatch, activation, false);
+  }
+
+  private static hex.ModelMetrics trainOnClusters(Frame fr, String response, int miniBatch, DeepLearningModel.DeepLearningParameters.Activation activation, boolean async) {
+    DeepLearningModel.DeepLearningParameters dl = new DeepLearningModel.DeepLearningParameters();
+    dl._train = fr._key;
+    dl._response_column = response;
+    dl._ignored_columns = new String[]{response.equals("class") ? "num" : "class"};
+    dl._seed = 1234;
+    dl._reproducible = true;
+    dl._epochs = 20;
+    dl._hidden = new int[]{20,20};
+    dl._activation = activation;
+    dl._mini_batch_size = miniBatch;
+    dl._async_training = async;
+    DeepLearning job = null;
+    DeepLearningModel model = null;
+    try {
+      job = new DeepLearning(dl);
+      model = job.trainModel().get();
+      return model._output._training_metrics;
+    } finally {
+      if (job != null) job.remove();
+      if (model != null) model.delete();
+    }
+  }
+
+  @Test public void testMiniBatch() {
+    Frame fr = clusters();
+    try {
+      for (DeepLearningModel.DeepLearningParameters.Activation act : new DeepLearningModel.DeepLearningParameters.Activation[]{
+              DeepLearningModel.DeepLearningParameters.Activation.Tanh,
+              DeepLearningModel.DeepLearningParameters.Activation.Rectifier,
+              DeepLearningModel.DeepLearningParameters.Activation.Maxout}) {
+        double online = trainOnClusters(fr, "class", 1, act).cm().err();
+        double batch = trainOnClusters(fr, "class", 16, act).cm().err();
+        Log.info(act + " classification error: online " + online + ", mini-batch " + batch);
+        Assert.assertTrue(act + ": " + batch + " vs " + online, batch < online + 0.02);
+      }
+      double online = trainOnClusters(fr, "num", 1, DeepLearningModel.DeepLearningParameters.Activation.Rectifier).mse();
+      double batch = trainOnClusters(fr, "num", 16, DeepLearningModel.DeepLearningParameters.Activation.Rectifier).mse();
+      Log.info("Regression MSE: online " + online + ", mini-batch " + batch);
+      Assert.assertTrue(batch + " vs " + online, batch < 1.5 * online + 0.05);
+    } finally {
+      fr.delete();
+    }
+  }
+
+  // One round of asynchronous training on this node: the shards published by the task don't share
+  // the model's arrays, so the pushed update of every layer is the change of its weights by training
+  @Test public void testAsyncPushDelta() {
+    Frame fr = clusters();
+    DeepLearning job = null;
+    DeepLearningModel model = null;
+    DeepLearningAsyncTask task = null;
+    Key dinfo = null;
+    try {
+      DeepLearningModel.DeepLearningParameters dl = new DeepLearningModel.DeepLearningParameters();
+      dl._train = fr._key;
+      dl._response_column = "class";
+      dl._ignored_columns = new String[]{"num"};
+      dl._seed = 1234;
+      dl._reproducible = true;
+      dl._epochs = 1;
+      dl._hidden = new int[]{20,20};
+      job = new DeepLearning(dl);
+      model = job.trainModel().get();
+      DeepLearningModel.DeepLearningModelInfo mi = model.model_info().deep_clone();
+      Frame train = mi.data_info()._adaptedFrame;
+      DKV.put(mi.data_info()); //removed by the job
+      dinfo = mi.data_info()._key;
+      task = new DeepLearningAsyncTask(null, train, mi, 1f);
+      final int layers = dl._hidden.length + 1;
+      DeepLearningAsyncTask.Shard[] pulled = new DeepLearningAsyncTask.Shard[layers];
+      float[][][] before = new float[layers][][];
+      for (int l = 0; l < layers; ++l) {
+        pulled[l] = task.pull(mi, l);
+        float[][] arrays = mi.layerArrays(l);
+        before[l] = new float[arrays.length][];
+        for (int i = 0; i < arrays.length; ++i) before[l][i] = arrays[i].clone();
+      }
+      new DeepLearningTask(null, mi, 0.5f).doAll(train, true);
+      for (int l = 0; l < layers; ++l) {
+        float[][] delta = task.push(mi, l, pulled[l], Long.MAX_VALUE, 1)._delta;
+        float[][] after = mi.layerArrays(l);
+        double sum = 0;
+        for (int i = 0; i < after.length; ++i)
+          for (int j = 0; j < after[i].length; ++j) {
+            Assert.assertEquals(after[i][j] - before[l][i][j], delta[i][j], 0);
+            sum += Math.abs(delta[i][j]);
+          }
+        Assert.assertTrue("no update of layer " + l, sum > 0);
+      }
+    } finally {
+      if (task != null) task.removeShards();
+      if (dinfo != null) DKV.remove(dinfo);
+      if (job != null) job.remove();
+      if (model != null) model.delete();
+      fr.delete();
+    }
+  }
+
+  @Test public void testAsync() {
+    Frame fr = clusters();
+    try {
+      double sync = trainOnClusters(fr, "class", 1, DeepLearningModel.DeepLearningParameters.Activation.Rectifier, false).cm().err();
+      double async = trainOnClusters(fr, "class", 1, DeepLearningModel.DeepLearningParameters.Activation.Rectifier, true).cm().err();
+      Log.info("Classification error: synchronous " + sync + ", asynchronous " + async);
+      Assert.assertTrue(async + " vs " + sync, async < sync + 0.02);
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test(expected = H2OModelBuilderIllegalArgumentException.class)
+  public void testMiniBatchDropout() {
+    Frame fr = clusters();
+    try {
+      trainOnClusters(fr, "class", 16, DeepLearningModel.DeepLearningParameters.Activation.RectifierWithDropout);
+    } finally {
+      fr.delete();
+    }
+  }
+
   @Ignore
   @Test public void testWhatever() {
     DeepLearningModel.DeepLearningParameters dl;
@@ -7,6 +7,7 @@ import hex.deeplearning.Neurons.*;
 import water.util.ArrayUtils;
 import water.util.Log;
 import water.util.PrettyPrint;
+import java.util.Arrays;
 import java.util.Random;
 
 public class NeuronsTest extends water.TestUtil {
@@ -239,4 +240,45 @@ public class NeuronsTest extends water.TestUtil {
     assert(srm.get(1,3)==-1.2f);
     assert(srm.get(0,0)==0f);
   }
+
+  @Test
+  public void matrixMatTest() {
+    Random rng = new Random(0xBA7C);
+    for (int[] dims : new int[][]{{1,1,1},{7,5,3},{16,33,130},{5,1030,9}}) {
+      int n = dims[0], rows = dims[1], cols = dims[2];
+      float[] a = new float[rows*cols], x = new float[n*cols], y = new float[rows], g = new float[n*rows];
+      for (int i=0;i<a.length;++i) a[i] = rng.nextFloat()-0.5f;
+      for (int i=0;i<x.length;++i) x[i] = rng.nextFloat();
+      for (int i=0;i<y.length;++i) y[i] = rng.nextFloat();
+      for (int i=0;i<g.length;++i) g[i] = rng.nextBoolean() ? 0 : rng.nextFloat()-0.5f;
+
+      // every row of the mini-batch matches a gemv
+      float[] res = new float[n*rows];
+      gemm(res, a, x, y, n);
+      float[] xs = new float[cols], rs = new float[rows];
+      for (int s=0;s<n;++s) {
+        System.arraycopy(x, s*cols, xs, 0, cols);
+        gemv_naive(rs, a, xs, y, null);
+        for (int row=0;row<rows;++row)
+          Assert.assertEquals(rs[row], res[s*rows+row], 1e-4);
+      }
+
+      float[] back = new float[n*cols], grad = new float[rows*cols];
+      Arrays.fill(back, 1f);
+      gemm_add(back, a, g, n, rows, cols);
+      gemm_grad(grad, g, x, n, rows, cols);
+      for (int s=0;s<n;++s)
+        for (int col=0;col<cols;++col) {
+          double sum = 1;
+          for (int row=0;row<rows;++row) sum += g[s*rows+row]*a[row*cols+col];
+          Assert.assertEquals(sum, back[s*cols+col], 1e-4);
+        }
+      for (int row=0;row<rows;++row)
+        for (int col=0;col<cols;++col) {
+          double sum = 0;
+          for (int s=0;s<n;++s) sum += g[s*rows+row]*x[s*cols+col];
+          Assert.assertEquals(sum, grad[row*cols+col], 1e-4);
+        }
+    }
+  }
 }
@@ -6,11 +6,14 @@ import hex.DataInfo.TransformType;
 import hex.ModelMetrics;
 import hex.ModelMetricsBinomialGLM;
 import hex.ModelMetricsRegressionGLM;
+import hex.gram.Gram.GramTask;
 import hex.glm.GLMModel.GLMParameters.Link;
 import hex.glm.GLMModel.GLMParameters.Solver;
 import hex.glm.GLMTask.GLMIterationTask;
 import hex.glm.GLMTask.GLMGradientTask;
 import hex.glm.GLMTask.GLMLineSearchTask;
+import hex.glm.GLMTask.GLMMultinomialGradientTask;
+import hex.glm.GLMTask.GLMMultinomialLineSearchTask;
 import hex.glm.GLMTask.LBFGS_LogisticGradientTask;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -827,6 +830,91 @@ public class GLMTest  extends TestUtil {
     DKV.remove(k);
     f.remove();
   }
+
+  /** Test the pooled per-thread grams of GramTask and GLMIterationTask against a gram summed up row by row,
+   *  on a frame with many chunks and dense numeric columns holding plenty of zeros */
+  @Test public void testGramTasksMatchRowByRowSums() {
+    final int nrows = 20000;
+    Vec v0 = Vec.makeCon(0, nrows, 10, false); // ~20 chunks
+    Frame f = new Frame(new String[]{"c","x1","x2","x3","y"},
+      new Vec[]{v0.makeZero(new String[]{"a","b","c","d","e"}), v0.makeZero(), v0.makeZero(), v0.makeZero(), v0.makeZero()});
+    v0.remove();
+    new MRTask() {
+      @Override public void map(Chunk[] cs) {
+        for(int i = 0; i < cs[0]._len; ++i) {
+          long row = cs[0].start() + i;
+          Random rnd = new Random(row);
+          cs[0].set(i, row % 5);
+          cs[1].set(i, row % 3 == 0 ? 0 : rnd.nextGaussian());
+          cs[2].set(i, row % 2 == 0 ? 0 : 1 + rnd.nextInt(10));
+          cs[3].set(i, rnd.nextGaussian());
+          cs[4].set(i, rnd.nextGaussian());
+        }
+      }
+    }.doAll(f);
+    Key k = Key.make("GramRowsTest");
+    DKV.put(k, f);
+    DataInfo dinfo = new DataInfo(Key.make(), f, null, 1, false, DataInfo.TransformType.NONE, DataInfo.TransformType.NONE, true);
+    DKV.put(dinfo._key, dinfo);
+    try {
+      Frame adapted = dinfo._adaptedFrame;
+      assertTrue(adapted.anyVec().nChunks() > 10);
+      // reference gram over the explicit design rows, intercept last
+      final int N = dinfo.fullN();
+      final int numStart = dinfo.numStart();
+      double[][] xx = new double[N + 1][N + 1];
+      double[] xy = new double[N + 1];
+      double yy = 0;
+      long nobs = 0;
+      Row row = dinfo.newDenseRow();
+      double[] x = new double[N + 1];
+      for(int cidx = 0; cidx < adapted.anyVec().nChunks(); ++cidx) {
+        Chunk[] chks = new Chunk[adapted.numCols()];
+        for(int j = 0; j < chks.length; ++j)
+          chks[j] = adapted.vec(j).chunkForChunkIdx(cidx);
+        for(int r = 0; r < chks[0]._len; ++r) {
+          dinfo.extractDenseRow(chks, r, row);
+          if(row.bad) continue;
+          Arrays.fill(x, 0);
+          for(int i = 0; i < row.nBins; ++i)
+            x[row.binIds[i]] = 1;
+          for(int i = 0; i < dinfo._nums; ++i)
+            x[numStart + i] = row.numVals[i];
+          x[N] = 1;
+          double y = row.response(0);
+          for(int i = 0; i <= N; ++i) {
+            for(int j = 0; j <= i; ++j)
+              xx[i][j] += x[i] * x[j];
+            xy[i] += x[i] * y;
+          }
+          yy += y * y;
+          ++nobs;
+        }
+      }
+      assertEquals(nrows, nobs);
+      // GramTask has no intercept and normalizes by the number of rows
+      GramTask gt = new GramTask(null, dinfo).doAll(adapted);
+      assertEquals(nobs, gt._nobs);
+      for(int i = 0; i < N; ++i)
+        for(int j = 0; j <= i; ++j)
+          assertEquals("GramTask xx[" + i + "][" + j + "]", xx[i][j], gt._gram.get(i, j) * gt._nobs, 1e-8 * Math.max(1, Math.abs(xx[i][j])));
+      GLMParameters params = new GLMParameters(Family.gaussian);
+      for(boolean sparse : new boolean[]{false, true}) {
+        GLMIterationTask glmt = new GLMIterationTask(null, dinfo, 0, params, false, null, 0, null, null).setSparse(sparse).doAll(adapted);
+        assertEquals(nobs, glmt._nobs);
+        assertEquals(yy, glmt._yy, 1e-8 * yy);
+        for(int i = 0; i <= N; ++i) {
+          for(int j = 0; j <= i; ++j)
+            assertEquals("sparse=" + sparse + " xx[" + i + "][" + j + "]", xx[i][j], glmt._gram.get(i, j), 1e-8 * Math.max(1, Math.abs(xx[i][j])));
+          assertEquals("sparse=" + sparse + " xy[" + i + "]", xy[i], glmt._xy[i], 1e-8 * Math.max(1, Math.abs(xy[i])));
+        }
+      }
+    } finally {
+      dinfo.remove();
+      DKV.remove(k);
+      f.remove();
+    }
+  }
   // test categorical autoexpansions, run on airlines which has several categorical columns,
   // once on explicitly expanded data, once on h2o autoexpanded and compare the results
   @Test public void testAirlines() {
@@ -1245,4 +1333,115 @@ public class GLMTest  extends TestUtil {
     }
   }
 
+  // synthetic 3-class data drawn from a softmax model, with a categorical, dense and sparse numeric predictors
+  @Test public void testMultinomial() throws InterruptedException, ExecutionException {
+    final int N = 3000;
+    Random rnd = new Random(1234567);
+    String [] catDom = new String[]{"a","b","c","d","e"};
+    String [] classes = new String[]{"x","y","z"};
+    int [] c0 = MemoryManager.malloc4(N);
+    double [][] nums = new double[6][N];
+    int [] y = MemoryManager.malloc4(N);
+    double [][] bCat = new double[3][catDom.length];
+    double [][] bNum = new double[3][nums.length];
+    for(int k = 0; k < 3; ++k) {
+      for(int i = 0; i < catDom.length; ++i) bCat[k][i] = 2 - 4*rnd.nextDouble();
+      for(int i = 0; i < nums.length; ++i) bNum[k][i] = 2 - 4*rnd.nextDouble();
+    }
+    for(int r = 0; r < N; ++r) {
+      c0[r] = rnd.nextInt(catDom.length);
+      for(int i = 0; i < 3; ++i) nums[i][r] = rnd.nextGaussian();
+      for(int i = 3; i < nums.length; ++i) if(rnd.nextInt(20) == 0) nums[i][r] = 1 + rnd.nextDouble();
+      double [] p = new double[3];
+      double sum = 0;
+      for(int k = 0; k < 3; ++k) {
+        double eta = bCat[k][c0[r]];
+        for(int i = 0; i < nums.length; ++i) eta += bNum[k][i]*nums[i][r];
+        sum += (p[k] = Math.exp(eta));
+      }
+      double u = rnd.nextDouble()*sum;
+      y[r] = u < p[0] ? 0 : u < p[0] + p[1] ? 1 : 2;
+    }
+    Vec [] vecs = new Vec[nums.length + 2];
+    vecs[0] = Vec.makeVec(c0, catDom, Vec.newKey());
+    for(int i = 0; i < nums.length; ++i) vecs[i+1] = Vec.makeVec(nums[i], Vec.newKey());
+    vecs[vecs.length-1] = Vec.makeVec(y, classes, Vec.newKey());
+    Key parsed = Key.make("multinomial_test_data");
+    Frame fr = new Frame(parsed, new String[]{"c0","n1","n2","n3","s1","s2","s3","y"}, vecs);
+    DKV.put(parsed, fr);
+    DataInfo dinfo = null;
+    GLM job = null;
+    GLMModel model = null;
+    Frame res = null;
+    try {
+      GLMParameters params = new GLMParameters(Family.multinomial);
+      params._train = parsed;
+      params._response_column = "y";
+      params._lambda = new double[]{1e-5};
+      dinfo = new DataInfo(Key.make(), fr, null, 1, false, DataInfo.TransformType.STANDARDIZE, DataInfo.TransformType.NONE, true);
+      DKV.put(dinfo._key, dinfo);
+      final int P = dinfo.fullN() + 1;
+      double [] beta = MemoryManager.malloc8d(3*P);
+      for(int i = 0; i < beta.length; ++i)
+        beta[i] = .5 - rnd.nextDouble();
+      // sparse (by columns) and dense (by rows) paths agree, and match the finite differences of the likelihood
+      GLMGradientTask grtCol = new GLMMultinomialGradientTask(dinfo, params, 0, beta, 1, null).forceColAccess().doAll(dinfo._adaptedFrame);
+      GLMGradientTask grtRow = new GLMMultinomialGradientTask(dinfo, params, 0, beta, 1, null).forceRowAccess().doAll(dinfo._adaptedFrame);
+      assertEquals(N, grtCol._nobs);
+      assertEquals(grtRow._likelihood, grtCol._likelihood, 1e-8*grtRow._likelihood);
+      for(int i = 0; i < beta.length; ++i) {
+        assertEquals("gradients differ", grtRow._gradient[i], grtCol._gradient[i], 1e-8);
+        double [] b = beta.clone();
+        b[i] += 1e-5;
+        double l1 = new GLMMultinomialGradientTask(dinfo, params, 0, b, 1, null).doAll(dinfo._adaptedFrame)._likelihood;
+        b[i] -= 2e-5;
+        double l2 = new GLMMultinomialGradientTask(dinfo, params, 0, b, 1, null).doAll(dinfo._adaptedFrame)._likelihood;
+        assertEquals("gradient does not match the likelihood", (l1 - l2)/2e-5, grtRow._gradient[i], 1e-3*Math.max(1, Math.abs(grtRow._gradient[i])));
+      }
+      // line search evaluates the likelihood at beta + step^i * direction
+      double [] dir = new double[beta.length];
+      for(int i = 0; i < dir.length; ++i)
+        dir[i] = .5 - rnd.nextDouble();
+      GLMMultinomialLineSearchTask lst = new GLMMultinomialLineSearchTask(dinfo, beta, dir, .5, 3, null).doAll(dinfo._adaptedFrame);
+      double step = 1;
+      for(int i = 0; i < 3; ++i, step *= .5) {
+        double [] b = beta.clone();
+        for(int j = 0; j < b.length; ++j) b[j] += step*dir[j];
+        assertEquals(new GLMMultinomialGradientTask(dinfo, params, 0, b, 1, null).doAll(dinfo._adaptedFrame)._likelihood, lst._likelihoods[i], 1e-8*lst._likelihoods[i]);
+      }
+      // fit the model, it should do about as well as the model the data was drawn from
+      job = new GLM(Key.make("multinomial_test"), "glm test multinomial", params);
+      model = job.trainModel().get();
+      assertEquals(3*P, model.beta().length);
+      res = model.score(fr);
+      long correct = 0, correctTrue = 0;
+      for(int r = 0; r < N; ++r) {
+        double sum = 0;
+        for(int k = 1; k <= 3; ++k) sum += res.vec(k).at(r);
+        assertEquals(1, sum, 1e-8);
+        if(res.vec(0).at8(r) == y[r]) ++correct;
+        int best = 0;
+        double bestEta = Double.NEGATIVE_INFINITY;
+        for(int k = 0; k < 3; ++k) {
+          double eta = bCat[k][c0[r]];
+          for(int i = 0; i < nums.length; ++i) eta += bNum[k][i]*nums[i][r];
+          if(eta > bestEta) { bestEta = eta; best = k; }
+        }
+        if(best == y[r]) ++correctTrue;
+      }
+      System.out.println("multinomial accuracy = " + (double)correct/N + ", accuracy of the true model = " + (double)correctTrue/N);
+      assertTrue(correct >= correctTrue - N/100);
+      GLMValidation val = model.validation();
+      assertTrue(val.residualDeviance() < val.nullDeviance());
+      // Build a POJO, validate same results
+      Assert.assertTrue(model.testJavaScoring(fr, res, 1e-8));
+    } finally {
+      fr.delete();
+      if(dinfo != null) dinfo.remove();
+      if(res != null) res.delete();
+      if(model != null) model.delete();
+      if(job != null) job.remove();
+    }
+  }
+
 }
@@ -0,0 +1,60 @@
+package hex.gram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hex.gram.Gram.InPlaceCholesky;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.H2O;
+import water.H2O.H2OCountedCompleter;
+import water.TestUtil;
+
+import java.util.Random;
+
+public class GramTest extends TestUtil {
+
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  // lower triangle of a random symmetric positive definite matrix
+  private static double[][] spd(int n, long seed) {
+    Random rng = new Random(seed);
+    double[][] a = new double[n][n];
+    for (int i = 0; i < n; ++i)
+      for (int j = 0; j < n; ++j)
+        a[i][j] = rng.nextGaussian();
+    double[][] xx = new double[n][];
+    for (int i = 0; i < n; ++i) {
+      xx[i] = new double[i + 1];
+      for (int j = 0; j <= i; ++j) {
+        double s = 0;
+        for (int k = 0; k < n; ++k) s += a[i][k] * a[j][k];
+        xx[i][j] = s + (i == j ? n : 0);
+      }
+    }
+    return xx;
+  }
+
+  @Test public void testInPlaceCholesky() {
+    // sizes that are not multiples of the block step or of the 4-row kernel
+    for (final int n : new int[]{1, 7, 203}) {
+      final double[][] xx = spd(n, n);
+      final double[][] l = new double[n][];
+      for (int i = 0; i < n; ++i) l[i] = xx[i].clone();
+      final InPlaceCholesky[] chol = new InPlaceCholesky[1];
+      H2O.submitTask(new H2OCountedCompleter() {
+        @Override protected void compute2() {
+          chol[0] = InPlaceCholesky.decompose_2(l, 32, 4);
+          tryComplete();
+        }
+      }).join();
+      assertTrue(chol[0].isSPD());
+      for (int i = 0; i < n; ++i)
+        for (int j = 0; j <= i; ++j) {
+          double s = 0;
+          for (int k = 0; k <= j; ++k) s += l[i][k] * l[j][k];
+          assertEquals(xx[i][j], s, 1e-8 * n);
+        }
+    }
+  }
+}
@@ -4,10 +4,12 @@ import hex.ModelMetricsClustering;
 import hex.SplitFrame;
 import org.junit.*;
 import water.DKV;
+import water.H2O;
 import water.Key;
 import water.TestUtil;
 import water.fvec.Frame;
 import water.fvec.NFSFileVec;
+import water.fvec.RebalanceDataSet;
 import water.parser.ParseDataset;
 import water.util.FrameUtils;
 import water.util.Log;
@@ -19,6 +21,7 @@ import java.util.Comparator;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class KMeansTest extends TestUtil {
   public final double threshold = 1e-6;
@@ -467,4 +470,141 @@ public class KMeansTest extends TestUtil {
       }
     }
   }
+
+  // Five gaussian blobs in 3 dimensions, spread over 16 chunks
+  private static Frame blobs() { return blobs(0); }
+  // With a fraction of the values missing
+  private static Frame blobs( double naFrac ) {
+    java.util.Random rng = new java.util.Random(0xB10B), nas = new java.util.Random(0xA);
+    double[][] rows = new double[5000][];
+    for( int i=0; i<rows.length; i++ ) {
+      int b = i%5;
+      rows[i] = new double[]{ 4*b+rng.nextGaussian(), 4*(b%2)+rng.nextGaussian(), b*b+rng.nextGaussian() };
+      for( int c=0; c<rows[i].length; c++ )
+        if( nas.nextDouble() < naFrac ) rows[i][c] = Double.NaN;
+    }
+    Frame fr = frame(new String[]{"x","y","z"}, rows);
+    Key dest = Key.make("blobs.hex");
+    RebalanceDataSet rb = new RebalanceDataSet(fr, dest, 16);
+    H2O.submitTask(rb);
+    rb.join();
+    fr.delete();
+    return DKV.get(dest).get();
+  }
+
+  @Test public void testBoundTracking() {
+    Frame fr = blobs();
+    KMeansModel plain = null, bounded = null;
+    try {
+      KMeansModel.KMeansParameters parms = new KMeansModel.KMeansParameters();
+      parms._train = fr._key;
+      parms._k = 8;
+      parms._max_iterations = 100;
+      parms._init = KMeans.Initialization.PlusPlus;
+      plain = doSeed(parms, 1234);
+      parms._bound_tracking = true;
+      bounded = doSeed(parms, 1234);
+
+      // Same assignments every iteration, so the same model
+      assertEquals(plain._output._iterations, bounded._output._iterations);
+      assertArrayEquals(plain._output._size, bounded._output._size);
+      for( int k=0; k<parms._k; k++ )
+        assertArrayEquals(plain._output._centers_raw[k], bounded._output._centers_raw[k], 1e-12);
+      assertEquals(plain._output._avg_within_ss, bounded._output._avg_within_ss, 1e-12);
+    } finally {
+      fr.delete();
+      if( plain   != null ) plain  .delete();
+      if( bounded != null ) bounded.delete();
+    }
+  }
+
+  // Rows with NAs are always fully scanned, so bounds still change nothing
+  @Test public void testBoundTrackingNAs() {
+    Frame fr = blobs(0.05);
+    KMeansModel plain = null, bounded = null;
+    try {
+      KMeansModel.KMeansParameters parms = new KMeansModel.KMeansParameters();
+      parms._train = fr._key;
+      parms._k = 8;
+      parms._max_iterations = 100;
+      parms._standardize = false;
+      parms._init = KMeans.Initialization.PlusPlus;
+      plain = doSeed(parms, 1234);
+      parms._bound_tracking = true;
+      bounded = doSeed(parms, 1234);
+
+      assertEquals(plain._output._iterations, bounded._output._iterations);
+      assertArrayEquals(plain._output._size, bounded._output._size);
+      for( int k=0; k<parms._k; k++ )
+        assertArrayEquals(plain._output._centers_raw[k], bounded._output._centers_raw[k], 1e-12);
+      assertEquals(plain._output._avg_within_ss, bounded._output._avg_within_ss, 1e-12);
+    } finally {
+      fr.delete();
+      if( plain   != null ) plain  .delete();
+      if( bounded != null ) bounded.delete();
+    }
+  }
+
+  @Test public void testMiniBatch() {
+    Frame fr = blobs();
+    Frame init = frame(ard(ard(1, 1, 1), ard(3, 3, 2), ard(9, 1, 5), ard(11, 3, 8), ard(15, 1, 15)));
+    KMeansModel plain = null, mini = null;
+    try {
+      KMeansModel.KMeansParameters parms = new KMeansModel.KMeansParameters();
+      parms._train = fr._key;
+      parms._k = 5;
+      parms._standardize = false;
+      parms._max_iterations = 50;
+      parms._init = KMeans.Initialization.User;
+      parms._user_points = init._key;
+      plain = doSeed(parms, 0);
+      parms._mini_batch_fraction = 0.25;
+      mini = doSeed(parms, 0);
+
+      // Final statistics come from a full pass over the training frame
+      long n = 0;
+      for( long s : mini._output._size ) n += s;
+      assertEquals(fr.numRows(), n);
+      // ... which is neither counted as an iteration nor kept in the scoring history
+      assertEquals(mini._output._iterations, mini._output._history_avg_within_ss.length);
+      assertEquals(mini._output._iterations, mini._output._avg_centroids_chg.length);
+      for( int i=1; i<mini._output._avg_centroids_chg.length; i++ ) // no change known before the first iteration
+        assertFalse(Double.isNaN(mini._output._avg_centroids_chg[i]));
+      // Sampled batches land close to the full-batch solution
+      for( int k=0; k<parms._k; k++ )
+        assertArrayEquals(plain._output._centers_raw[k], mini._output._centers_raw[k], 0.1);
+      assertEquals(plain._output._avg_within_ss, mini._output._avg_within_ss, 0.01*plain._output._avg_within_ss);
+    } finally {
+      fr.delete();
+      init.delete();
+      if( plain != null ) plain.delete();
+      if( mini  != null ) mini .delete();
+    }
+  }
+
+  @Test public void testScalableInit() {
+    Frame fr = blobs();
+    try {
+      for( KMeans.Initialization init : new KMeans.Initialization[]{KMeans.Initialization.PlusPlus, KMeans.Initialization.Furthest} ) {
+        for( long seed = 0; seed < 5; seed++ ) {
+          KMeansModel.KMeansParameters parms = new KMeansModel.KMeansParameters();
+          parms._train = fr._key;
+          parms._k = 5;
+          parms._standardize = false;
+          parms._max_iterations = 20;
+          parms._init = init;
+          KMeansModel kmm = doSeed(parms, seed);
+          try {
+            // One center per blob: the within-cluster error is the unit
+            // variance of the 3 noise dimensions
+            Assert.assertTrue(init + " seed " + seed + ": " + kmm._output._avg_within_ss, kmm._output._avg_within_ss < 3.2);
+          } finally {
+            kmm.delete();
+          }
+        }
+      }
+    } finally {
+      fr.delete();
+    }
+  }
 }
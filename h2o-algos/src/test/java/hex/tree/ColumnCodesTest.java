@@ -0,0 +1,93 @@
+package hex.tree;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.DKV;
+import water.Key;
+import water.MRTask;
+import water.Scope;
+import water.TestUtil;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+import static org.junit.Assert.*;
+
+public class ColumnCodesTest extends TestUtil {
+  @BeforeClass public static void stall() { stall_till_cloudsize(1); }
+
+  private static class Fill extends MRTask<Fill> {
+    @Override public void map( Chunk[] cs ) {
+      long start = cs[0].start();
+      for( int r = 0; r < cs[0]._len; r++ ) {
+        long row = start + r;
+        if( row % 13 == 4 ) cs[0].setNA(r);   // Small int range, with NAs
+        else cs[0].set(r, row % 10);
+        cs[1].set(r, (row % 50) * 0.37 - 3);  // Few distinct reals
+        cs[2].set(r, row * 1.0001);           // Too many distinct reals
+        cs[3].set(r, row % 7 == 0 ? Double.POSITIVE_INFINITY : row % 5 * 0.5);
+      }
+    }
+  }
+
+  private static Frame testFrame( int rows ) {
+    Vec v0 = Vec.makeCon(0, rows, 10, false); // Many chunks, to merge dictionaries
+    Frame fr = new Frame(Key.make(), new String[]{"i", "f", "big", "inf"},
+        new Vec[]{v0, v0.makeZero(), v0.makeZero(), v0.makeZero()});
+    new Fill().doAll(fr);
+    return fr;
+  }
+
+  @Test public void testCodesRoundTrip() {
+    int rows = ColumnCodes.MAX_CODES + 1000;
+    Frame fr = testFrame(rows);
+    Scope.enter();
+    try {
+      ColumnCodes cc = ColumnCodes.make(fr, 4);
+      assertNotNull(DKV.get(cc._key));
+      assertEquals(10, cc._vals[0].length);
+      assertEquals(50, cc._vals[1].length);
+      assertNull(cc._vals[2]);
+      assertNull(cc._vecs[2]);
+      assertEquals(6, cc._vals[3].length);
+      assertArrayEquals(new int[]{7, 8, -1, 9}, cc.chunkIdx(7));
+      for( int c : new int[]{0, 1, 3} ) {
+        Vec raw = fr.vec(c), codes = cc._vecs[c];
+        for( long r = 0; r < rows; r++ ) {
+          int code = (int)codes.at8(r);
+          if( raw.isNA(r) ) assertEquals(0, code);
+          else assertEquals((float)raw.at(r), cc._vals[c][code - 1], 0);
+        }
+      }
+    } finally {
+      Scope.exit();
+      fr.delete();
+    }
+  }
+
+  // Table lookups must give the same bin as interpolating the value, for the
+  // whole-column histogram and for a narrower one deeper in a tree.
+  @Test public void testBinCodeMatchesBin() {
+    Frame fr = testFrame(2000);
+    Scope.enter();
+    try {
+      ColumnCodes cc = ColumnCodes.make(fr, 4);
+      DHistogram[] hs = DHistogram.initialHist(fr, 4, 20, new DHistogram[4], false);
+      DHistogram narrow = DHistogram.make("f", 20, (byte)0, -1f, 5f, 100, false);
+      for( DHistogram h : new DHistogram[]{hs[0], hs[1], hs[3], narrow} ) {
+        int c = h == narrow ? 1 : java.util.Arrays.asList(hs).indexOf(h);
+        h.init();
+        h.initCodes(cc._vals[c]);
+        assertEquals(0, h.binCode(0));
+        for( int code = 1; code <= cc._vals[c].length; code++ ) {
+          float v = cc._vals[c][code - 1];
+          if( Float.isInfinite(v) || (h._min <= v && v < h._maxEx) )
+            assertEquals(h.bin(v), h.binCode(code));
+        }
+      }
+    } finally {
+      Scope.exit();
+      fr.delete();
+    }
+  }
+}
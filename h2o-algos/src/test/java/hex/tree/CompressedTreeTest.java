@@ -0,0 +1,142 @@
+package hex.tree;
+
+import hex.tree.gbm.GBM;
+import hex.tree.gbm.GBMModel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.AutoBuffer;
+import water.DKV;
+import water.Key;
+import water.MRTask;
+import water.TestUtil;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.util.IcedBitSet;
+
+import static org.junit.Assert.*;
+
+public class CompressedTreeTest extends TestUtil {
+  @BeforeClass public static void stall() { stall_till_cloudsize(1); }
+
+  // The byte-walking scorer that the flattened form replaced, kept here as
+  // the reference: NaN goes left for < and ==, and is level 0 for groups.
+  private static double scoreBytes( CompressedTree ct, double row[] ) {
+    AutoBuffer ab = new AutoBuffer(ct._bits);
+    IcedBitSet ibs = new IcedBitSet(0);
+    while( true ) {
+      int nodeType = ab.get1U();
+      int colId = ab.get2();
+      if( colId == 65535 ) return ab.get4f();
+      int equal = (nodeType&12) >> 2;
+      float splitVal = -1;
+      if( equal == 0 || equal == 1 ) splitVal = ab.get4f();
+      else if( equal == 2 ) ibs.fill2(ct._bits,ab);
+      else                  ibs.fill3(ct._bits,ab);
+      int lmask =  nodeType & 0x33;
+      int rmask = (nodeType & 0xC0) >> 2;
+      int skip;
+      switch( lmask ) {
+      case 0:  skip = ab.get1U();  break;
+      case 1:  skip = ab.get2 ();  break;
+      case 2:  skip = ab.get3 ();  break;
+      case 3:  skip = ab.get4 ();  break;
+      case 16: skip = ct._nclass < 256 ? 1 : 2;  break;
+      case 48: skip = 4;  break;
+      default: throw new AssertionError("illegal lmask "+lmask);
+      }
+      double d = row[colId];
+      if( (equal==0 && d >= splitVal) || (equal==1 && d == splitVal) ||
+          ((equal==2 || equal==3) && ibs.contains((int)d)) ) {
+        ab.skip(skip);
+        lmask = rmask;
+      }
+      if( (lmask&16)==16 ) return ab.get4f();
+    }
+  }
+
+  // A large enum (100 levels), a small enum (10 levels) and a real, each
+  // with NAs, and a response depending on all three
+  private static class Fill extends MRTask<Fill> {
+    @Override public void map( Chunk[] cs ) {
+      long start = cs[0].start();
+      for( int r = 0; r < cs[0]._len; r++ ) {
+        long row = start + r;
+        int big = (int)(row*7 % 100), small = (int)(row % 10);
+        double x = (row % 1000) * 0.01;
+        if( row % 17 == 3 ) cs[0].setNA(r); else cs[0].set(r, big);
+        if( row % 19 == 5 ) cs[1].setNA(r); else cs[1].set(r, small);
+        if( row % 23 == 7 ) cs[2].setNA(r); else cs[2].set(r, x);
+        cs[3].set(r, (big % 3 == 0 ? 5 : 0) + (small == 2 || small == 7 ? 3 : 0) + x);
+      }
+    }
+  }
+
+  // Tally the split kinds in a tree's byte encoding
+  private static int[] splitKinds( CompressedTree ct ) {
+    final int[] kinds = new int[4];
+    new TreeVisitor<RuntimeException>(ct) {
+      @Override protected void pre( int col, float fcmp, IcedBitSet gcmp, int equal ) { kinds[equal]++; }
+    }.visit();
+    return kinds;
+  }
+
+  @Test public void testFlatMatchesBytes() {
+    Frame fr = null;
+    GBMModel gbm = null;
+    try {
+      Vec v = Vec.makeCon(0, 20000, 12, false);
+      Frame raw = new Frame(new String[]{"big", "small", "x", "y"},
+          new Vec[]{v, v.makeZero(), v.makeZero(), v.makeZero()});
+      new Fill().doAll(raw);
+      fr = new Frame(Key.make(), raw.names(),
+          new Vec[]{raw.vec(0).toEnum(), raw.vec(1).toEnum(), raw.vec(2), raw.vec(3)});
+      raw.vec(0).remove();
+      raw.vec(1).remove();
+      DKV.put(fr);
+
+      GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+      parms._train = fr._key;
+      parms._response_column = "y";
+      parms._ntrees = 5;
+      parms._max_depth = 6;
+      parms._min_rows = 5;
+      GBM job = new GBM(parms);
+      try {
+        gbm = job.trainModel().get();
+      } finally {
+        job.remove();
+      }
+
+      // Rows in the model's column order: every training row (with its NAs),
+      // plus all-NA rows and enum levels never seen in training
+      String[] names = gbm._output._names;
+      Vec[] vs = new Vec[names.length-1];
+      for( int c = 0; c < vs.length; c++ ) vs[c] = fr.vec(names[c]);
+      int nrows = (int)fr.numRows();
+      double[][] rows = new double[nrows+2][vs.length];
+      for( int r = 0; r < nrows; r++ )
+        for( int c = 0; c < vs.length; c++ )
+          rows[r][c] = vs[c].at(r);
+      java.util.Arrays.fill(rows[nrows], Double.NaN);
+      for( int c = 0; c < vs.length; c++ )
+        rows[nrows+1][c] = vs[c].isEnum() ? vs[c].domain().length + 50 : 1e9;
+
+      int[] kinds = new int[4];
+      for( Key<CompressedTree>[] keys : gbm._output._treeKeys )
+        for( Key<CompressedTree> key : keys ) {
+          if( key == null ) continue;
+          CompressedTree ct = key.get();
+          int[] ks = splitKinds(ct);
+          for( int i = 0; i < kinds.length; i++ ) kinds[i] += ks[i];
+          for( double[] row : rows )
+            assertEquals(scoreBytes(ct, row), ct.score(row), 0);
+        }
+      assertTrue("no numeric splits", kinds[0] > 0);
+      assertTrue("no bitset splits", kinds[2] + kinds[3] > 0);
+    } finally {
+      if( fr  != null ) fr.remove();
+      if( gbm != null ) gbm.delete();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package hex.tree;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.TestUtil;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DHistogramTest extends TestUtil {
+  @BeforeClass public static void stall() { stall_till_cloudsize(1); }
+
+  // Rows with x==5 all go to the smaller child, so the larger child's bins
+  // start one value later than its parent's.
+  private static void checkDerived( boolean binom ) {
+    Random rng = new Random(0xD15);
+    int n = 1000;
+    float[] xs = new float[n];
+    double[] ys = new double[n];
+    boolean[] small = new boolean[n];
+    for( int i=0; i<n; i++ ) {
+      xs[i] = 5 + rng.nextInt(20);
+      ys[i] = binom ? rng.nextInt(2) : rng.nextGaussian() + xs[i];
+      small[i] = i%3 == 0 || xs[i] == 5;
+    }
+    DHistogram p = DHistogram.make("x",32,(byte)1,0f,30f,n,binom);
+    DHistogram s = DHistogram.make("x",32,(byte)1,5f,25f,n,binom);
+    DHistogram l = DHistogram.make("x",32,(byte)1,6f,25f,n,binom);
+    DHistogram scanned = DHistogram.make("x",32,(byte)1,6f,25f,n,binom);
+    p.init(); s.init(); scanned.init();
+    for( int i=0; i<n; i++ ) {
+      p.incr(xs[i],ys[i]);
+      if( small[i] ) s.incr(xs[i],ys[i]);
+      else scanned.incr(xs[i],ys[i]);
+    }
+    assertTrue(l.canDerive(p,s));
+    l.derive(p,s);
+    l.subtract();
+    assertEquals(scanned.find_min(), l.find_min(), 0);
+    assertEquals(scanned.find_maxIn(), l.find_maxIn(), 0);
+    for( int b=0; b<l.nbins(); b++ ) {
+      assertEquals(scanned.bins(b), l.bins(b));
+      assertEquals(scanned.mean(b), l.mean(b), 1e-10);
+      assertEquals(scanned.var(b), l.var(b), 1e-10);
+    }
+  }
+
+  @Test public void testDerivedReal()  { checkDerived(false); }
+  @Test public void testDerivedBinom() { checkDerived(true ); }
+
+  // Worker copies filled without atomics, then merged, match the shared
+  // histogram filled atomically
+  @Test public void testPrivateCopies() {
+    Random rng = new Random(0xC0B1);
+    DHistogram shared = DHistogram.make("x",20,(byte)0,-3f,3f,1000,false);
+    DHistogram merged = DHistogram.make("x",20,(byte)0,-3f,3f,1000,false);
+    shared.init(); merged.init();
+    DHistogram[] copies = {merged.privateCopy(), merged.privateCopy(), merged.privateCopy()};
+    for( int i=0; i<1000; i++ ) {
+      float x = (float)Math.max(-3,Math.min(2.99,rng.nextGaussian()));
+      double y = x*x + (i%4 == 0 ? 0 : rng.nextDouble());
+      shared.incr(x,y);
+      copies[i%3].incrLocal(x,y);
+    }
+    for( DHistogram c : copies ) merged.add(c);
+    assertEquals(shared.find_min(), merged.find_min(), 0);
+    assertEquals(shared.find_maxIn(), merged.find_maxIn(), 0);
+    for( int b=0; b<shared.nbins(); b++ ) {
+      assertEquals(shared.bins(b), merged.bins(b));
+      assertEquals(shared.mean(b), merged.mean(b), 1e-10);
+      assertEquals(shared.var(b), merged.var(b), 1e-10);
+    }
+  }
+
+  // Interpolated bins do not line up between parent and child
+  @Test public void testCannotDeriveInterpolated() {
+    DHistogram p = DHistogram.make("x",20,(byte)0,0f,30f,100,false);
+    DHistogram s = DHistogram.make("x",20,(byte)0,0f,10f,100,false);
+    DHistogram l = DHistogram.make("x",20,(byte)0,10f,30f,100,false);
+    p.init();
+    assertFalse(l.canDerive(p,s));
+  }
+}
@@ -0,0 +1,138 @@
+package hex.tree;
+
+import hex.tree.gbm.GBM;
+import hex.tree.gbm.GBMModel;
+import hex.tree.gbm.GBMModel.GBMParameters.Family;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.DKV;
+import water.Key;
+import water.MRTask;
+import water.TestUtil;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+import water.util.IcedBitSet;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SharedTreeTest extends TestUtil {
+  @BeforeClass public static void stall() { stall_till_cloudsize(1); }
+
+  // Two reals (with NAs), a 12-level enum and a 4-class response
+  private static class Fill extends MRTask<Fill> {
+    @Override public void map( Chunk[] cs ) {
+      long start = cs[0].start();
+      for( int r = 0; r < cs[0]._len; r++ ) {
+        long row = start + r;
+        double a = (row*31 % 997) * 0.01, b = (row*17 % 101) * 0.1;
+        int e = (int)(row*5 % 12);
+        if( row % 29 == 3 ) cs[0].setNA(r); else cs[0].set(r, a);
+        if( row % 31 == 8 ) cs[1].setNA(r); else cs[1].set(r, b);
+        cs[2].set(r, e);
+        int y = a > 5 ? (b > 5 ? 0 : 1) : (e % 3 == 0 ? 2 : 3);
+        if( row % 11 == 0 ) y = (y+1) % 4; // Some noise
+        cs[3].set(r, y);
+      }
+    }
+  }
+
+  // Pre-order splits and leaves of a tree
+  private static String shape( CompressedTree ct ) {
+    final StringBuilder sb = new StringBuilder();
+    new TreeVisitor<RuntimeException>(ct) {
+      @Override protected void pre( int col, float fcmp, IcedBitSet gcmp, int equal ) {
+        sb.append(col).append(equal < 2 ? (equal == 0 ? " < " : " == ") + fcmp : " in " + gcmp).append(';');
+      }
+      @Override protected void leaf( float pred ) { sb.append("leaf;"); }
+    }.visit();
+    return sb.toString();
+  }
+
+  // Fills each class tree's histograms in a pass of its own, over the tree's
+  // usual layout: predictors, response, its tree, work & nid columns, codes
+  private static class PerClassGBM extends GBM {
+    PerClassGBM( GBMModel.GBMParameters parms ) { super(parms); }
+    @Override void scoreHistograms( Frame frK, ScoreBuildHistogram sbhs[], boolean build_tree_one_node ) {
+      int ntrees = 0;
+      for( ScoreBuildHistogram sbh : sbhs ) if( sbh != null ) ntrees++;
+      int base = frK.numCols() - 3*ntrees; // Predictors, response & codes
+      Vec vecs[] = frK.vecs();
+      for( int k = 0, t = 0; k < sbhs.length; k++ ) {
+        if( sbhs[k] == null ) continue;
+        Frame fr2 = new Frame(Arrays.copyOf(frK._names, _ncols+1), Arrays.copyOf(vecs, _ncols+1));
+        for( int i = 0; i < 3; i++ ) fr2.add(frK._names[base+3*t+i], vecs[base+3*t+i]);
+        for( int c = _ncols+1; c < base; c++ ) fr2.add(frK._names[c], vecs[c]);
+        sbhs[k].doAll(fr2, build_tree_one_node);
+        t++;
+      }
+    }
+  }
+
+  private static GBMModel train( Frame fr, boolean fused ) {
+    GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+    parms._train = fr._key;
+    parms._response_column = "y";
+    parms._distribution = Family.multinomial;
+    parms._ntrees = 4;
+    parms._max_depth = 4;
+    parms._min_rows = 5;
+    parms._seed = 1234;
+    GBM job = fused ? new GBM(parms) : new PerClassGBM(parms);
+    try {
+      return job.trainModel().get();
+    } finally {
+      job.remove();
+    }
+  }
+
+  // The fused pass over all K class trees builds the same trees, and so
+  // makes the same predictions, as one pass per class tree
+  @Test public void testFusedPassMultinomial() {
+    Frame fr = null, p1 = null, p2 = null;
+    GBMModel m1 = null, m2 = null;
+    try {
+      Vec v = Vec.makeCon(0, 10000, 11, false);
+      Frame raw = new Frame(new String[]{"a", "b", "e", "y"},
+          new Vec[]{v, v.makeZero(), v.makeZero(), v.makeZero()});
+      new Fill().doAll(raw);
+      fr = new Frame(Key.make(), raw.names(),
+          new Vec[]{raw.vec(0), raw.vec(1), raw.vec(2).toEnum(), raw.vec(3).toEnum()});
+      raw.vec(2).remove();
+      raw.vec(3).remove();
+      DKV.put(fr);
+
+      m1 = train(fr, true);
+      m2 = train(fr, false);
+      assertEquals(4, m1._output.nclasses());
+      assertEquals(m1._output._ntrees, m2._output._ntrees);
+      for( int t = 0; t < m1._output._ntrees; t++ )
+        for( int k = 0; k < 4; k++ ) {
+          Key<CompressedTree> k1 = m1._output._treeKeys[t][k], k2 = m2._output._treeKeys[t][k];
+          assertEquals(k1 == null, k2 == null);
+          if( k1 == null ) continue;
+          CompressedTree c1 = k1.get(), c2 = k2.get();
+          assertEquals(shape(c1), shape(c2));
+          double[] row = new double[3];
+          for( long r = 0; r < fr.numRows(); r += 7 ) {
+            for( int c = 0; c < 3; c++ ) row[c] = fr.vec(c).at(r);
+            assertEquals(c1.score(row), c2.score(row), 1e-6);
+          }
+        }
+
+      p1 = m1.score(fr);
+      p2 = m2.score(fr);
+      for( int c = 0; c < p1.numCols(); c++ )
+        for( long r = 0; r < p1.numRows(); r++ )
+          assertEquals(p1.vec(c).at(r), p2.vec(c).at(r), 1e-6);
+    } finally {
+      if( fr != null ) fr.remove();
+      if( p1 != null ) p1.remove();
+      if( p2 != null ) p2.remove();
+      if( m1 != null ) m1.delete();
+      if( m2 != null ) m2.delete();
+    }
+  }
+}
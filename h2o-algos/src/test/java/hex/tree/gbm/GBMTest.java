@@ -690,4 +690,139 @@ public class GBMTest extends TestUtil {
       Scope.exit();
     }
   }
+  // Same (integer) columns held densely, so histograms are built row-by-row
+  private static class Densify extends MRTask<Densify> {
+    @Override public void map( Chunk[] cs, NewChunk[] ncs ) {
+      for( int c=0; c<cs.length; c++ ) {
+        ncs[c].setSparseRatio(1<<20);
+        for( int r=0; r<cs[c]._len; r++ ) ncs[c].addNum(cs[c].at8(r),0);
+      }
+    }
+  }
+
+  // Sparse columns only visit their non-zeros when building histograms, and
+  // must grow the same trees as their dense copies
+  @Test public void testSparse() {
+    java.util.Random rng = new java.util.Random(0x5EA5);
+    double[][] rows = new double[20000][];
+    for( int i=0; i<rows.length; i++ ) {
+      double[] row = rows[i] = new double[6];
+      for( int c=0; c<5; c++ )
+        if( rng.nextInt(100) < 2 ) row[c] = c%2==0 ? 1+rng.nextInt(5) : -1-rng.nextInt(50);
+      row[5] = 3*row[0] - row[1] + (row[2] > 2 ? 5 : 0) + 0.1*rng.nextGaussian();
+    }
+    Frame sparse = frame(new String[]{"a","b","c","d","e","y"}, rows);
+    Frame dense = null;
+    GBMModel gs = null, gd = null;
+    Frame ps = null, pd = null;
+    try {
+      Frame xs = new Frame(sparse.names(),sparse.vecs()).subframe(0,5);
+      dense = new Densify().doAll(xs.numCols(),xs).outputFrame(Key.make(),xs.names(),null);
+      dense.add("y",sparse.vec("y").makeCopy(null));
+      DKV.put(dense);
+      assertTrue(sparse.vec(0).chunkForChunkIdx(0).isSparse());
+      assertTrue(!dense.vec(0).chunkForChunkIdx(0).isSparse());
+      gs = train(sparse);
+      gd = train(dense);
+      ps = gs.score(sparse);
+      pd = gd.score(dense);
+      for( long r=0; r<sparse.numRows(); r++ )
+        assertEquals(pd.vec(0).at(r), ps.vec(0).at(r), 1e-6);
+    } finally {
+      sparse.delete();
+      if( dense != null ) dense.delete();
+      if( gs != null ) gs.delete();
+      if( gd != null ) gd.delete();
+      if( ps != null ) ps.delete();
+      if( pd != null ) pd.delete();
+    }
+  }
+
+  // Best-first growth with room for every split grows the level-wise trees;
+  // with less room it stops at max_leaves leaves per tree
+  @Test public void testLeafWise() {
+    java.util.Random rng = new java.util.Random(0x1EAF);
+    double[][] rows = new double[5000][];
+    for( int i=0; i<rows.length; i++ ) {
+      double[] row = rows[i] = new double[4];
+      for( int c=0; c<3; c++ ) row[c] = rng.nextInt(100);
+      row[3] = (row[0] > 70 ? 10 : 0) + (row[1] > 20 ? 3 : 0) + 0.01*row[2]*row[0] + rng.nextGaussian();
+    }
+    Frame fr = frame(new String[]{"a","b","c","y"}, rows);
+    GBMModel gl = null, gb = null, gs = null;
+    Frame pl = null, pb = null;
+    try {
+      gl = train(fr,0);
+      gb = train(fr,16);
+      pl = gl.score(fr);
+      pb = gb.score(fr);
+      for( long r=0; r<fr.numRows(); r++ )
+        assertEquals(pl.vec(0).at(r), pb.vec(0).at(r), 1e-6);
+      gs = train(fr,5);
+      assertEquals(5, gs._output._treeStats._max_leaves);
+      assertTrue(gs._output._treeStats._max_depth <= 4);
+    } finally {
+      fr.delete();
+      if( gl != null ) gl.delete();
+      if( gb != null ) gb.delete();
+      if( gs != null ) gs.delete();
+      if( pl != null ) pl.delete();
+      if( pb != null ) pb.delete();
+    }
+  }
+
+  // Validation is scored from running tree sums, and agrees with scoring the
+  // final model; training stops once the validation MSE plateaus
+  @Test public void testEarlyStopping() {
+    java.util.Random rng = new java.util.Random(0x570B);
+    double[][] rows = new double[4000][];
+    for( int i=0; i<rows.length; i++ ) {
+      double a = rng.nextDouble(), b = rng.nextDouble();
+      rows[i] = new double[]{a, b, (a > 0.5 ? 2 : 0) + b + rng.nextGaussian()};
+    }
+    Frame tr = frame(new String[]{"a","b","y"}, java.util.Arrays.copyOfRange(rows,0,3000));
+    Frame va = frame(new String[]{"a","b","y"}, java.util.Arrays.copyOfRange(rows,3000,4000));
+    GBMModel gbm = null;
+    Frame preds = null;
+    try {
+      GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+      parms._train = tr._key;
+      parms._valid = va._key;
+      parms._response_column = "y";
+      parms._ntrees = 300;
+      parms._max_depth = 5;
+      parms._learn_rate = 0.3f;
+      parms._score_each_iteration = true;
+      parms._stopping_rounds = 3;
+      parms._stopping_tolerance = 0.01;
+      GBM job = new GBM(parms);
+      try { gbm = job.trainModel().get(); } finally { job.remove(); }
+      assertTrue(gbm._output._ntrees < 300);
+
+      preds = gbm.score(va);
+      double se = 0;
+      for( long r=0; r<va.numRows(); r++ ) {
+        double d = preds.vec(0).at(r) - (float)va.vec("y").at(r);
+        se += d*d;
+      }
+      assertEquals(se/va.numRows(), gbm._output._mse_valid[gbm._output._ntrees], 1e-10);
+    } finally {
+      tr.delete();
+      va.delete();
+      if( gbm != null ) gbm.delete();
+      if( preds != null ) preds.delete();
+    }
+  }
+
+  private static GBMModel train( Frame fr ) { return train(fr,0); }
+  private static GBMModel train( Frame fr, int max_leaves ) {
+    GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+    parms._train = fr._key;
+    parms._response_column = "y";
+    parms._ntrees = 5;
+    parms._max_depth = 4;
+    parms._max_leaves = max_leaves;
+    GBM job = new GBM(parms);
+    try { return job.trainModel().get(); } finally { job.remove(); }
+  }
 }
@@ -0,0 +1,89 @@
+package hex.tree;
+
+import hex.tree.gbm.GBM;
+import hex.tree.gbm.GBMModel;
+import org.openjdk.jmh.annotations.*;
+import water.DKV;
+import water.H2O;
+import water.Key;
+import water.MRTask;
+import water.fvec.Chunk;
+import water.fvec.Frame;
+import water.fvec.Vec;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** CompressedTree.score: walking the serialized tree bytes for one row, the
+ *  per-row, per-tree cost of every GBM/DRF prediction.  The trees are real
+ *  ones, trained by GBM on random data in a single-node cloud. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressedTreeBench {
+  static final int ROWS = 1<<12, NCOLS = 10, NTREES = 10;
+
+  @Param({"5","10"})
+  public int depth;
+
+  CompressedTree[] _trees;
+  double[][] _rows;
+
+  @Setup public void setup() {
+    H2O.main(new String[0]);
+    H2O.waitForCloudSize(1,30000);
+    // Random predictors; the response is a noisy function of a few of them
+    Vec[] vs = new Vec[NCOLS+1];
+    vs[0] = Vec.makeCon(0,ROWS*16);
+    for( int i=1; i<vs.length; i++ ) vs[i] = vs[0].makeZero();
+    new Fill().doAll(vs);
+    String[] names = new String[vs.length];
+    for( int i=0; i<NCOLS; i++ ) names[i] = "x"+i;
+    names[NCOLS] = "y";
+    Frame fr = new Frame(Key.make(),names,vs);
+    DKV.put(fr);
+
+    GBMModel.GBMParameters parms = new GBMModel.GBMParameters();
+    parms._train = fr._key;
+    parms._response_column = "y";
+    parms._ntrees = NTREES;
+    parms._max_depth = depth;
+    GBM job = new GBM(parms);
+    GBMModel gbm = job.trainModel().get();
+    job.remove();
+    _trees = new CompressedTree[NTREES];
+    for( int t=0; t<NTREES; t++ ) _trees[t] = gbm._output.ctree(t,0);
+
+    Random rng = new Random(0xDECAFL);
+    _rows = new double[ROWS][NCOLS];
+    for( double[] row : _rows )
+      for( int c=0; c<NCOLS; c++ ) row[c] = rng.nextDouble();
+  }
+
+  private static class Fill extends MRTask<Fill> {
+    @Override public void map( Chunk[] cs ) {
+      Random rng = new Random(cs[0].start());
+      for( int r=0; r<cs[0]._len; r++ ) {
+        double y = 0;
+        for( int c=0; c<NCOLS; c++ ) {
+          double x = rng.nextDouble();
+          cs[c].set(r,x);
+          y += (c+1)*x*x;
+        }
+        cs[NCOLS].set(r,y+rng.nextGaussian());
+      }
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS*NTREES)
+  public double score() {
+    double sum = 0;
+    for( double[] row : _rows )
+      for( CompressedTree ct : _trees )
+        sum += ct.score(row);
+    return sum;
+  }
+}
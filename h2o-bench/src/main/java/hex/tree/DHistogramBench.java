@@ -0,0 +1,44 @@
+package hex.tree;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** DHistogram.incr, the inner loop of GBM/DRF histogram building.  Run with
+ *  -t N to see the cost of the shared atomic bin updates under contention. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DHistogramBench {
+  static final int ROWS = 1<<16;
+
+  @State(Scope.Benchmark)
+  public static class Hist {
+    @Param({"20","1024"})
+    public int nbins;
+    @Param({"false","true"})
+    public boolean binomial;
+    DHistogram _h;
+    float[] _xs;  double[] _ys;
+    @Setup public void setup() {
+      _h = DHistogram.make("x",nbins,(byte)0,0f,1f,ROWS,binomial);
+      _h.init();
+      Random rng = new Random(0xDECAFL);
+      _xs = new float[ROWS];  _ys = new double[ROWS];
+      for( int i=0; i<ROWS; i++ ) {
+        _xs[i] = rng.nextFloat();
+        _ys[i] = binomial ? rng.nextInt(2) : rng.nextGaussian();
+      }
+    }
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS)
+  public void incr( Hist s ) {
+    DHistogram h = s._h;
+    float[] xs = s._xs;  double[] ys = s._ys;
+    for( int i=0; i<ROWS; i++ ) h.incr(xs[i],ys[i]);
+  }
+}
@@ -0,0 +1,45 @@
+package water;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope; // Not water.Scope
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Serialization of primitive arrays; these dominate the bytes moved by
+ *  MRTask results, Chunk transfers and model fetches. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AutoBufferBench {
+  @Param({"1000","1000000"})
+  public int len;
+
+  byte[] _a1;  int[] _a4;  long[] _a8;  double[] _a8d;
+  byte[] _a1Bits, _a4Bits, _a8Bits, _a8dBits; // Serialized forms, for the get benchmarks
+
+  @Setup public void setup() {
+    Random rng = new Random(0xDECAFL);
+    _a1 = new byte[len];  rng.nextBytes(_a1);
+    _a4 = new int[len];   for( int i=0; i<len; i++ ) _a4[i] = rng.nextInt();
+    _a8 = new long[len];  for( int i=0; i<len; i++ ) _a8[i] = rng.nextLong();
+    _a8d= new double[len];for( int i=0; i<len; i++ ) _a8d[i]= rng.nextDouble();
+    _a1Bits = putA1 ();
+    _a4Bits = putA4 ();
+    _a8Bits = putA8 ();
+    _a8dBits= putA8d();
+  }
+
+  @Benchmark public byte[] putA1 () { return new AutoBuffer().putA1 (_a1 ).bufClose(); }
+  @Benchmark public byte[] putA4 () { return new AutoBuffer().putA4 (_a4 ).bufClose(); }
+  @Benchmark public byte[] putA8 () { return new AutoBuffer().putA8 (_a8 ).bufClose(); }
+  @Benchmark public byte[] putA8d() { return new AutoBuffer().putA8d(_a8d).bufClose(); }
+
+  @Benchmark public byte  [] getA1 () { return new AutoBuffer(_a1Bits ).getA1 (); }
+  @Benchmark public int   [] getA4 () { return new AutoBuffer(_a4Bits ).getA4 (); }
+  @Benchmark public long  [] getA8 () { return new AutoBuffer(_a8Bits ).getA8 (); }
+  @Benchmark public double[] getA8d() { return new AutoBuffer(_a8dBits).getA8d(); }
+}
@@ -0,0 +1,83 @@
+package water.fvec;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Raw element access on every Chunk compression flavor.  Scores are reported
+ *  per element; a drop here shows up in every MRTask in the system. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkBench {
+  static final int ROWS = 1<<16;
+
+  /** Fill a NewChunk with data that compresses to the named Chunk class. */
+  static NewChunk fill( String flavor, int rows, long seed ) {
+    Random rng = new Random(seed);
+    NewChunk nc = new NewChunk(null,0);
+    for( int i=0; i<rows; i++ ) {
+      switch( flavor ) {
+      case "C0L":  nc.addNum(7,0);  break;
+      case "C0D":  nc.addNum(3.14159);  break;
+      case "CX0":  nc.addNum(rng.nextInt(100)==0 ? 1 : 0,0);  break;
+      case "CXI":  nc.addNum(rng.nextInt(100)==0 ? rng.nextInt(1000000) : 0,0);  break;
+      case "CXD":  nc.addNum(rng.nextInt(100)==0 ? rng.nextDouble() : 0);  break;
+      case "CBS":  nc.addNum(rng.nextInt(2),0);  break;
+      case "C1":   if( i==0 ) nc.addNA(); else nc.addNum(rng.nextInt(255),0);  break;
+      case "C1N":  nc.addNum(rng.nextInt(256),0);  break;
+      case "C1S":  nc.addNum(rng.nextInt(255),-1);  break;
+      case "C2":   nc.addNum(rng.nextInt(65535)-32767,0);  break;
+      case "C2S":  nc.addNum(rng.nextInt(65535)-32767,-2);  break;
+      case "C4":   nc.addNum(rng.nextInt(),0);  break;
+      case "C4S":  nc.addNum(rng.nextInt()/2,-4);  break;
+      case "C8":   nc.addNum(rng.nextLong()>>4,0);  break;
+      case "C8D":  nc.addNum(rng.nextDouble());  break;
+      default: throw new IllegalArgumentException("Unknown chunk flavor "+flavor);
+      }
+    }
+    return nc;
+  }
+
+  /** Chunks holding integers, so both at8 and atd are legal */
+  @State(Scope.Thread)
+  public static class IntChunk {
+    @Param({"C0L","CX0","CXI","CBS","C1","C1N","C2","C4","C8"})
+    public String flavor;
+    Chunk _chk;
+    @Setup public void setup() { _chk = fill(flavor,ROWS,0xDECAFL).compress(); }
+  }
+
+  /** Chunks holding non-integers, atd only */
+  @State(Scope.Thread)
+  public static class RealChunk {
+    @Param({"C0D","CXD","C1S","C2S","C4S","C8D"})
+    public String flavor;
+    Chunk _chk;
+    @Setup public void setup() { _chk = fill(flavor,ROWS,0xDECAFL).compress(); }
+  }
+
+  // at8 throws on NAs, so guard as integer-reading map() code must
+  @Benchmark @OperationsPerInvocation(ROWS)
+  public long at8( IntChunk s ) {
+    Chunk c = s._chk;
+    long sum = 0;
+    for( int i=0; i<c._len; i++ ) if( !c.isNA(i) ) sum += c.at8(i);
+    return sum;
+  }
+
+  @Benchmark @OperationsPerInvocation(ROWS)
+  public double atdInt( IntChunk s ) { return atd(s._chk); }
+
+  @Benchmark @OperationsPerInvocation(ROWS)
+  public double atdReal( RealChunk s ) { return atd(s._chk); }
+
+  private static double atd( Chunk c ) {
+    double sum = 0;
+    for( int i=0; i<c._len; i++ ) sum += c.atd(i);
+    return sum;
+  }
+}
@@ -0,0 +1,24 @@
+package water.fvec;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** NewChunk.compress: picking and building the compressed form, as done once
+ *  per Chunk by every parse and every MRTask that writes output. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NewChunkBench {
+  @Param({"C0L","C0D","CX0","CXI","CXD","CBS","C1","C1N","C1S","C2","C2S","C4","C4S","C8","C8D"})
+  public String flavor;
+
+  NewChunk _nc;
+  // compress() consumes the NewChunk, so refill before each call
+  @Setup(Level.Invocation) public void fill() { _nc = ChunkBench.fill(flavor,ChunkBench.ROWS,0xDECAFL); }
+
+  @Benchmark public Chunk compress() { return _nc.compress(); }
+}
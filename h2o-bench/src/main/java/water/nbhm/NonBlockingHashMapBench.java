@@ -0,0 +1,59 @@
+package water.nbhm;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** NonBlockingHashMap get/put, the structure behind the local K/V store.
+ *  Run with -t N to measure scaling under contention. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonBlockingHashMapBench {
+  static final int OPS = 1024;
+
+  @State(Scope.Benchmark)
+  public static class Shared {
+    @Param({"1000","1000000"})
+    public int size;
+    NonBlockingHashMap<Long,Long> _map;
+    Long[] _keys;
+    @Setup public void setup() {
+      _map = new NonBlockingHashMap<>();
+      _keys = new Long[size];
+      Random rng = new Random(0xDECAFL);
+      for( int i=0; i<size; i++ ) _map.put(_keys[i] = rng.nextLong(), (long)i);
+    }
+  }
+
+  // Per-thread cursor so concurrent threads touch different keys
+  @State(Scope.Thread)
+  public static class Cursor {
+    int _x;
+    @Setup public void setup() { _x = (int)Thread.currentThread().getId()*7919; }
+  }
+
+  @Benchmark @OperationsPerInvocation(OPS)
+  public long get( Shared s, Cursor c ) {
+    long sum = 0;
+    Long[] keys = s._keys;
+    for( int i=0; i<OPS; i++ ) {
+      Long v = s._map.get(keys[(c._x++ & Integer.MAX_VALUE) % keys.length]);
+      sum += v;
+    }
+    return sum;
+  }
+
+  // Overwrites existing keys, so the table size stays fixed
+  @Benchmark @OperationsPerInvocation(OPS)
+  public Object put( Shared s, Cursor c ) {
+    Object o = null;
+    Long[] keys = s._keys;
+    for( int i=0; i<OPS; i++ )
+      o = s._map.put(keys[(c._x++ & Integer.MAX_VALUE) % keys.length], (long)i);
+    return o;
+  }
+}
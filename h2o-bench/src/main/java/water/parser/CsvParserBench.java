@@ -0,0 +1,74 @@
+package water.parser;
+
+import org.openjdk.jmh.annotations.*;
+import water.Iced;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** CsvParser tokenizing and number parsing of one 4MB chunk, writing into a
+ *  sink that discards values so only the parser is measured. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CsvParserBench {
+  static final int NCOLS = 10;
+
+  /** Column content: integers, decimals, or enum-like strings */
+  @Param({"int","real","enum"})
+  public String data;
+
+  byte[] _bits;
+  CsvParser _parser;
+
+  @Setup public void setup() {
+    Random rng = new Random(0xDECAFL);
+    StringBuilder sb = new StringBuilder();
+    while( sb.length() < (4<<20) ) {
+      for( int c=0; c<NCOLS; c++ ) {
+        if( c > 0 ) sb.append(',');
+        switch( data ) {
+        case "int":  sb.append(rng.nextInt(1000000));  break;
+        case "real": sb.append(rng.nextDouble()*1000);  break;
+        case "enum": sb.append("level").append(rng.nextInt(100));  break;
+        }
+      }
+      sb.append('\n');
+    }
+    _bits = sb.toString().getBytes();
+    _parser = new CsvParser(new ParseSetup(true,0,null,ParserType.CSV,(byte)',',false,ParseSetup.NO_HEADER,NCOLS,null));
+  }
+
+  @Benchmark public long parseChunk() {
+    CountingWriter w = new CountingWriter();
+    _parser.parseChunk(0,new OneChunk(_bits),w);
+    return w._cells;
+  }
+
+  // A single in-memory chunk
+  private static class OneChunk implements ParseReader {
+    final byte[] _bits;
+    int _start;
+    OneChunk( byte[] bits ) { _bits = bits; }
+    @Override public byte[] getChunkData( int cidx ) { return cidx==0 ? _bits : null; }
+    @Override public int  getChunkDataStart( int cidx ) { return cidx==0 ? _start : 0; }
+    @Override public void setChunkDataStart( int cidx, int offset ) { if( cidx==0 ) _start = offset; }
+  }
+
+  // Counts cells, keeps nothing
+  private static class CountingWriter extends Iced implements ParseWriter {
+    long _cells, _lines;
+    @Override public void setColumnNames( String[] names ) { }
+    @Override public void newLine() { _lines++; }
+    @Override public boolean isString( int colIdx ) { return false; }
+    @Override public void addNumCol( int colIdx, long number, int exp ) { _cells++; }
+    @Override public void addNumCol( int colIdx, double d ) { _cells++; }
+    @Override public void addInvalidCol( int colIdx ) { _cells++; }
+    @Override public void addStrCol( int colIdx, ValueString str ) { _cells++; }
+    @Override public void rollbackLine() { }
+    @Override public void invalidLine( String err ) { }
+  }
+}
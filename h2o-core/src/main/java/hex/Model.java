@@ -6,6 +6,10 @@ import water.*;
 import water.fvec.*;
 import water.util.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -527,20 +531,25 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
     BigScore( String[] domain, int ncols, double[] mean ) { _domain = domain; _npredcols = ncols; _mean = mean; }
 
     @Override public void map( Chunk chks[], NewChunk cpreds[] ) {
-      double[] tmp = new double[_output.nfeatures()];
       _mb = Model.this.makeMetricBuilder(_domain);
       int startcol = (_mb instanceof ModelMetricsSupervised.MetricBuilderSupervised ? chks.length-1 : 0); //columns of actual start here
-      double[] preds = _mb._work;  // Sized for the union of test and train classes
       int len = chks[0]._len;
-      for (int row = 0; row < len; row++) {
-        double[] p = score0(chks, row, tmp, preds);
-        float[] actual = new float[chks.length-startcol];
-        for (int c = startcol; c < chks.length; c++) {
-          actual[c-startcol] = (float)chks[c].atd(row);
+      // Score a block of rows at a time; each row's preds are sized for the
+      // union of test and train classes
+      double[][] preds = new double[Math.min(len,batchRows(chks.length))][_mb._work.length];
+      float[] actual = new float[chks.length-startcol];
+      for (int from = 0; from < len; from += preds.length) {
+        int to = Math.min(len, from+preds.length);
+        score0(chks, from, to, preds);
+        for (int row = from; row < to; row++) {
+          double[] p = preds[row-from];
+          for (int c = startcol; c < chks.length; c++) {
+            actual[c-startcol] = (float)chks[c].atd(row);
+          }
+          _mb.perRow(p, actual, Model.this);
+          for (int c = 0; c < _npredcols; c++)  // Output predictions; sized for train only (excludes extra test classes)
+            cpreds[c].addNum(p[c]);
         }
-        _mb.perRow(preds, actual, Model.this);
-        for (int c = 0; c < _npredcols; c++)  // Output predictions; sized for train only (excludes extra test classes)
-          cpreds[c].addNum(p[c]);
       }
     }
     @Override public void reduce( BigScore bs ) { _mb.reduce(bs._mb); }
@@ -559,6 +568,27 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
     return score0(tmp,preds);
   }
 
+  /** Bulk scoring API for a block of rows {@code [from,to)} of the same
+   *  Chunks; the predictions for row {@code from+i} go into {@code preds[i]}.
+   *  Default method scores the rows one at a time.  Models override this to
+   *  walk the block a column at a time, decompressing each Chunk in one
+   *  sequential pass and keeping the per-row model state out of the inner
+   *  loop. */
+  public void score0( Chunk chks[], int from, int to, double[][] preds ) {
+    double[] tmp = new double[_output.nfeatures()];
+    for( int row=from; row<to; row++ ) {
+      double[] p = score0(chks,row,tmp,preds[row-from]);
+      if( p != preds[row-from] ) System.arraycopy(p,0,preds[row-from],0,p.length);
+    }
+  }
+
+  /** Rows per block for the batch {@link #score0(Chunk[],int,int,double[][])},
+   *  so that one block of {@code ncols} decompressed columns stays small
+   *  enough to remain in cache. */
+  protected static int batchRows( int ncols ) {
+    return Math.max(16, Math.min(1024, (1<<15)/Math.max(1,ncols)));
+  }
+
   /** Subclasses implement the scoring logic.  The data is pre-loaded into a
    *  re-used temp array, in the order the model expects.  The predictions are
    *  loaded into the re-used temp array, which is also returned.  */
@@ -576,6 +606,64 @@ public abstract class Model<M extends Model<M,P,O>, P extends Model.Parameters,
 
   @Override protected long checksum_impl() { return _parms.checksum_impl() * _output.checksum_impl(); }
 
+  // ==========================================================================
+  /** Keys of other K/V entries this model needs, e.g. the trees of a tree
+   *  ensemble.  Saved and loaded together with the model by
+   *  {@link #exportBinaryModel} and {@link #importBinaryModel}. */
+  protected Key[] dependentKeys() {
+    return _output._model_metrics == null ? new Key[0] : _output._model_metrics.clone();
+  }
+
+  /** Write this model and its {@link #dependentKeys} as one binary file to
+   *  {@code path}, on any backend the {@link water.persist.PersistManager}
+   *  supports.  The file starts with the class name table for the type ids
+   *  used, so it can be imported by a different cloud. */
+  public void exportBinaryModel(String path, boolean force) {
+    Key[] keys = dependentKeys();
+    for( Key k : keys ) DKV.prefetch(k); // Pull remote parts in parallel
+    AutoBuffer body = new AutoBuffer().put(this);
+    body.put4(keys.length);
+    for( Key k : keys ) {
+      Value v = DKV.get(k);
+      body.put(k).put(v == null ? null : v.<Iced>get());
+    }
+    byte[] bits = body.buf();
+    byte[] types = new AutoBuffer().putTypeMap().buf(); // After the body: it may install new ids
+    try( OutputStream os = H2O.getPM().create(path, force) ) {
+      os.write(types);
+      os.write(bits);
+    } catch( IOException e ) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Read a model written by {@link #exportBinaryModel} and install it, and
+   *  all its dependent keys, in the DKV under their saved keys.  The file is
+   *  read and deserialized one value after the other on this node; only the
+   *  DKV puts are asynchronous, so the transfers to the home nodes overlap.
+   *  All puts have completed when this returns, so the model is fully
+   *  scoreable. */
+  public static <M extends Model> M importBinaryModel(String path) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try( InputStream is = H2O.getPM().open(path) ) {
+      FileUtils.copyStream(is, bos, 1 << 20);
+    } catch( IOException e ) {
+      throw new RuntimeException(e);
+    }
+    AutoBuffer ab = new AutoBuffer(bos.toByteArray()).getTypeMap();
+    M m = ab.get();
+    Futures fs = new Futures();
+    int n = ab.get4();
+    for( int i = 0; i < n; i++ ) {
+      Key k = ab.get();
+      Iced v = ab.get();
+      if( v != null ) DKV.put(k, v, fs); // Not waited on until all are sent
+    }
+    DKV.put(m._key, m, fs);
+    fs.blockForPending();
+    return m;
+  }
+
   // ==========================================================================
   /** Return a String which is a valid Java program representing a class that
    *  implements the Model.  The Java is of the form:
@@ -69,6 +69,8 @@ public final class AutoBuffer {
   long _time_start_ms, _time_close_ms, _time_io_ns;
   // I/O persistence flavor: Value.ICE, NFS, HDFS, S3, TCP.  Used to record I/O time.
   final byte _persist;
+  // Writer's type id -> local type id, when reading bytes from another cloud
+  private short[] _typeMap;
 
   // The assumed max UDP packetsize
   static final int MTU = 1500-8/*UDP packet header size*/;
@@ -749,13 +751,32 @@ public final class AutoBuffer {
   }
 
   public <T extends Freezable> T get() {
-    short id = (short)get2();
+    short id = typeId((short)get2());
     return id == TypeMap.NULL ? null : (T)TypeMap.newFreezable(id).read(this);
   }
   public <T extends Freezable> T get(Class<T> tc) {
-    short id = (short)get2();
+    short id = typeId((short)get2());
     return id == TypeMap.NULL ? null : (T)TypeMap.newFreezable(id).read(this);
   }
+
+  /** Write this node's type id to class name table.  Type ids are only
+   *  stable within one cloud; bytes meant to outlive it (e.g. a saved model)
+   *  start with this table so another cloud can read them back after
+   *  {@link #getTypeMap}. */
+  public AutoBuffer putTypeMap() { return putAStr(TypeMap.classNames()); }
+  /** Read a table written by {@link #putTypeMap}; all later {@link #get}
+   *  calls on this buffer translate the writer's type ids to ours. */
+  public AutoBuffer getTypeMap() {
+    String[] names = getAStr();
+    short[] map = new short[names.length];
+    for( int i = 0; i < names.length; i++ )
+      map[i] = names[i] == null ? TypeMap.NULL : (short)TypeMap.onIce(names[i]);
+    _typeMap = map;
+    return this;
+  }
+  private short typeId( short id ) {
+    return _typeMap == null || id == TypeMap.NULL ? id : _typeMap[id];
+  }
   public <T extends Freezable> T[] getA(Class<T> tc) {
     //_arys++;
     long xy = getZA();
@@ -1126,7 +1147,7 @@ public final class AutoBuffer {
     }
     return this;
   }
-  AutoBuffer putA2( short[] ary ) {
+  public AutoBuffer putA2( short[] ary ) {
     //_arys++;
     if( ary == null ) return putInt(-1);
     putInt(ary.length);
@@ -1,6 +1,5 @@
 package water;
 
-import java.io.IOException;
 import java.util.Arrays;
 import water.fvec.Chunk;
 import water.util.Log;
@@ -56,144 +55,151 @@ class Cleaner extends Thread {
     return H2O.SELF._heartbeat.get_free_disk() > MemoryManager.MEM_MAX;
   }
 
-//  static boolean isDiskFull(){ // free disk space < 5K?
-//    long space = H2O.getPM().getIce().getUsableSpace();
-//    return space >= 0 && space < (5 << 10);
-//  }
-  static boolean isDiskFull() {
-    // TODO: Re-enable correct isDiskFull above.
-    return true;
+  static boolean isDiskFull(){ // free disk space < 5K?
+    long space = H2O.getPM().getIce().getUsableSpace();
+    return space >= 0 && space < (5 << 10);
   }
 
-
   @Override synchronized public void run() {
-    return;
+    boolean diskFull = false;
+    while( true ) {
+      // Sweep the K/V store, writing out Values (cleaning) and free'ing
+      // - Clean all "old" values (lazily, optimistically)
+      // - Clean and free old values if above the desired cache level
+      // Do not let optimistic cleaning get in the way of emergency cleaning.
+
+      // Get a recent histogram, computing one as needed
+      Histo h = _myHisto.histo(false);
+      long now = System.currentTimeMillis();
+      long dirty = _dirty; // When things first got dirtied
+
+      // Start cleaning if: "dirty" was set a "long" time ago, or we beyond
+      // the desired cache levels. Inverse: go back to sleep if the cache
+      // is below desired levels & nothing has been dirty awhile.
+      if( h._cached < DESIRED && // Cache is low and
+          (now-dirty < 5000) ) { // not dirty a long time
+        // Block asleep, waking every 5 secs to check for stuff, or when poked
+        block_store_cleaner();
+        continue; // Awoke; loop back and re-check histogram.
+      }
+
+      now = System.currentTimeMillis();
+      _dirty = Long.MAX_VALUE; // Reset, since we are going write stuff out
+      MemoryManager.set_goals("preclean",false);
+
+      // The age beyond which we need to toss out things to hit the desired
+      // caching levels. If forced, be exact (toss out the minimal amount).
+      // If lazy, store-to-disk things down to 1/2 the desired cache level
+      // and anything older than 5 secs.
+      final boolean force = (h._cached >= DESIRED); // Forced to clean
+      if( force && diskFull )
+        diskFull = isDiskFull();
+      long clean_to_age = h.clean_to(force ? DESIRED : (DESIRED>>1));
+      // If not forced cleaning, expand the cleaning age to allows Values
+      // more than 5sec old
+      if( !force ) clean_to_age = Math.max(clean_to_age,now-5000);
+      if( DESIRED == -1 ) clean_to_age = now;  // Test mode: clean all
+      final boolean lazy = lazyPersist();
+
+      // No logging if under memory pressure: can deadlock the cleaner thread
+      String s = h+" DESIRED="+(DESIRED>>20)+"M dirtysince="+(now-dirty)+" force="+force+" clean2age="+(now-clean_to_age);
+      if( MemoryManager.canAlloc() ) Log.debug(s);
+      else                           System.err.println(s);
+      long cleaned = 0;
+      long freed = 0;
+
+      // For faster K/V store walking get the NBHM raw backing array,
+      // and walk it directly.
+      Object[] kvs = H2O.STORE.raw_array();
+
+      // Start the walk at slot 2, because slots 0,1 hold meta-data
+      for( int i=2; i<kvs.length; i += 2 ) {
+        // In the raw backing array, Keys and Values alternate in slots
+        Object ok = kvs[i], ov = kvs[i+1];
+        if( !(ok instanceof Key  ) ) continue; // Ignore tombstones and Primes and null's
+        Key key = (Key )ok;
+        if( !(ov instanceof Value) ) continue; // Ignore tombstones and Primes and null's
+        Value val = (Value)ov;
+        byte[] m = val.rawMem();
+        Object p = val.rawPOJO();
+        if( m == null && p == null ) continue; // Nothing to throw out
+
+        if( val.isLockable() ) continue; // we do not want to throw out Lockables.
+        boolean isChunk = p instanceof Chunk;
+
+        // Ignore things younger than the required age.  In particular, do
+        // not spill-to-disk all dirty things we find.
+        long touched = val._lastAccessedTime;
+        if( touched > clean_to_age ) { // Too recently touched?
+          // But can toss out a byte-array if already deserialized & on disk
+          // (no need for both forms).  Note no savings for Chunks, for which m==p._mem
+          if( val.isPersisted() && m != null && p != null && !isChunk ) {
+            val.freeMem();      // Toss serialized form, since can rebuild from POJO
+            freed += val._max;
+          }
+          dirty_store(touched); // But may write it out later
+          continue;             // Too young
+        }
+
+        // Memory cleaning is limited to Chunks.  Too many POJOs are written
+        // to dynamically; cannot spill & reload them without losing changes.
+        if( !key.isChunkKey() ) {
+          // If we have both forms, toss the byte[] form - can be had by
+          // serializing again.
+          if( m != null && p != null ) {
+            val.freeMem();
+            freed += val._max;
+          }
+          continue;
+        }
+
+        // A cached copy of a Chunk homed elsewhere is never written locally;
+        // under pressure just drop it, and the next read re-fetches it from
+        // the home node.  It cannot be freed in place like a persisted Value
+        // (a racing get() would find neither bytes nor a disk copy), so it is
+        // unmapped instead; see Value.dropCached.
+        if( !key.home() && !val.isPersisted() ) {
+          if( force && val.dropCached() )
+            freed += val._max;
+          continue;
+        }
+
+        // Should I write this value out to disk?
+        // Should I further force it from memory?
+        if( !val.isPersisted() && !diskFull && (force || (lazy && lazy_clean(key))) ) {
+          try {
+            val.storePersist(); // Write to disk
+            cleaned += val._max;  // Off-heap Chunks have no _mem to measure
+          } catch(Exception e) {
+            if( isDiskFull() )
+              Log.warn("Disk full! Disabling swapping to disk." + (force?" Memory low! Please free some space in " + H2O.ICE_ROOT + "!":""));
+            else
+              Log.warn("Disk swapping failed! " + e.getMessage());
+            // Something is wrong so mark disk as full anyways so we do not
+            // attempt to write again.  (will retry next run when memory is low)
+            diskFull = true;
+          }
+        }
+        // And, under pressure, free all.  Chunks share the same byte[]
+        // between the POJO and the serialized form, so count it once.
+        if( force && val.isPersisted() ) {
+          val.freePOJO();
+          val.freeMem ();
+          freed += val._max;
+        }
+      }
+      // For testing thread
+      _did_sweep = true;
+      if( DESIRED == -1 ) DESIRED = 0; // Turn off test-mode after 1 sweep
+      notifyAll();                     // Wake up testing thread
 
-//    boolean diskFull = false;
-//    while( true ) {
-//      // Sweep the K/V store, writing out Values (cleaning) and free'ing
-//      // - Clean all "old" values (lazily, optimistically)
-//      // - Clean and free old values if above the desired cache level
-//      // Do not let optimistic cleaning get in the way of emergency cleaning.
-//
-//      // Get a recent histogram, computing one as needed
-//      Histo h = _myHisto.histo(false);
-//      long now = System.currentTimeMillis();
-//      long dirty = _dirty; // When things first got dirtied
-//
-//      // Start cleaning if: "dirty" was set a "long" time ago, or we beyond
-//      // the desired cache levels. Inverse: go back to sleep if the cache
-//      // is below desired levels & nothing has been dirty awhile.
-//      if( h._cached < DESIRED && // Cache is low and
-//          (now-dirty < 5000) ) { // not dirty a long time
-//        // Block asleep, waking every 5 secs to check for stuff, or when poked
-//        block_store_cleaner();
-//        continue; // Awoke; loop back and re-check histogram.
-//      }
-//
-//      now = System.currentTimeMillis();
-//      _dirty = Long.MAX_VALUE; // Reset, since we are going write stuff out
-//      MemoryManager.set_goals("preclean",false);
-//
-//      // The age beyond which we need to toss out things to hit the desired
-//      // caching levels. If forced, be exact (toss out the minimal amount).
-//      // If lazy, store-to-disk things down to 1/2 the desired cache level
-//      // and anything older than 5 secs.
-//      final boolean force = (h._cached >= DESIRED); // Forced to clean
-//      if( force && diskFull )
-//        diskFull = isDiskFull();
-//      long clean_to_age = h.clean_to(force ? DESIRED : (DESIRED>>1));
-//      // If not forced cleaning, expand the cleaning age to allows Values
-//      // more than 5sec old
-//      if( !force ) clean_to_age = Math.max(clean_to_age,now-5000);
-//      if( DESIRED == -1 ) clean_to_age = now;  // Test mode: clean all
-//
-//      // No logging if under memory pressure: can deadlock the cleaner thread
-//      String s = h+" DESIRED="+(DESIRED>>20)+"M dirtysince="+(now-dirty)+" force="+force+" clean2age="+(now-clean_to_age);
-//      if( MemoryManager.canAlloc() ) Log.debug(s);
-//      else                           System.err.println(s);
-//      long cleaned = 0;
-//      long freed = 0;
-//
-//      // For faster K/V store walking get the NBHM raw backing array,
-//      // and walk it directly.
-//      Object[] kvs = H2O.STORE.raw_array();
-//
-//      // Start the walk at slot 2, because slots 0,1 hold meta-data
-//      for( int i=2; i<kvs.length; i += 2 ) {
-//        // In the raw backing array, Keys and Values alternate in slots
-//        Object ok = kvs[i], ov = kvs[i+1];
-//        if( !(ok instanceof Key  ) ) continue; // Ignore tombstones and Primes and null's
-//        Key key = (Key )ok;
-//        if( !(ov instanceof Value) ) continue; // Ignore tombstones and Primes and null's
-//        Value val = (Value)ov;
-//        byte[] m = val.rawMem();
-//        Object p = val.rawPOJO();
-//        if( m == null && p == null ) continue; // Nothing to throw out
-//
-//        if( val.isLockable() ) continue; // we do not want to throw out Lockables.
-//        boolean isChunk = p instanceof Chunk;
-//
-//        // Ignore things younger than the required age.  In particular, do
-//        // not spill-to-disk all dirty things we find.
-//        long touched = val._lastAccessedTime;
-//        if( touched > clean_to_age ) { // Too recently touched?
-//          // But can toss out a byte-array if already deserialized & on disk
-//          // (no need for both forms).  Note no savings for Chunks, for which m==p._mem
-//          if( val.isPersisted() && m != null && p != null && !isChunk ) {
-//            val.freeMem();      // Toss serialized form, since can rebuild from POJO
-//            freed += val._max;
-//          }
-//          dirty_store(touched); // But may write it out later
-//          continue;             // Too young
-//        }
-//
-//        // CNC - Memory cleaning turned off, except for Chunks
-//        // Too many POJOs are written to dynamically; cannot spill & reload
-//        // them without losing changes.
-//
-//        // Should I write this value out to disk?
-//        // Should I further force it from memory?
-//        if( isChunk && !val.isPersisted() && !diskFull ) { // && (force || (lazyPersist() && lazy_clean(key)))) {
-//          try {
-//            val.storePersist(); // Write to disk
-//            if( m == null ) m = val.rawMem();
-//            if( m != null ) cleaned += m.length;
-//          } catch(IOException e) {
-//            if( isDiskFull() )
-//              Log.warn("Disk full! Disabling swapping to disk." + (force?" Memory low! Please free some space in " + H2O.ICE_ROOT + "!":""));
-//            else
-//              Log.warn("Disk swapping failed! " + e.getMessage());
-//            // Something is wrong so mark disk as full anyways so we do not
-//            // attempt to write again.  (will retry next run when memory is low)
-//            diskFull = true;
-//          }
-//        }
-//        // And, under pressure, free all
-//        if( isChunk && force && val.isPersisted() ) {
-//          val.freeMem ();  if( m != null ) freed += val._max;  m = null;
-//          val.freePOJO();  if( p != null ) freed += val._max;  p = null;
-//          if( isChunk ) freed -= val._max; // Double-counted freed mem for Chunks since val._pojo._mem & val._mem are the same.
-//        }
-//        // If we have both forms, toss the byte[] form - can be had by
-//        // serializing again.
-//        if( m != null && p != null && !isChunk ) {
-//          val.freeMem();
-//          freed += val._max;
-//        }
-//      }
-//      // For testing thread
-//      _did_sweep = true;
-//      if( DESIRED == -1 ) DESIRED = 0; // Turn off test-mode after 1 sweep
-//      notifyAll();                     // Wake up testing thread
-//
-//      h = _myHisto.histo(true); // Force a new histogram
-//      MemoryManager.set_goals("postclean",false);
-//      // No logging if under memory pressure: can deadlock the cleaner thread
-//      String s2 = h+" cleaned="+(cleaned>>20)+"M, freed="+(freed>>20)+"M, DESIRED="+(DESIRED>>20)+"M";
-//      if( MemoryManager.canAlloc() ) Log.debug(s2);
-//      else                           System.err.println(s2);
-//    }
+      h = _myHisto.histo(true); // Force a new histogram
+      MemoryManager.set_goals("postclean",false);
+      // No logging if under memory pressure: can deadlock the cleaner thread
+      String s2 = h+" cleaned="+(cleaned>>20)+"M, freed="+(freed>>20)+"M, DESIRED="+(DESIRED>>20)+"M";
+      if( MemoryManager.canAlloc() ) Log.debug(s2);
+      else                           System.err.println(s2);
+    }
   }
 
   // Rules on when to write & free a Key, when not under memory pressure.
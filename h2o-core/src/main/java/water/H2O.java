@@ -96,6 +96,14 @@ final public class H2O {
             "          Maximum number of threads in the low priority batch-work queue.\n" +
             "          (The default is 99.)\n" +
             "\n" +
+            "    -http_threads <#threads>\n" +
+            "          Maximum number of threads serving REST API connections.\n" +
+            "          (The default is 64.)\n" +
+            "\n" +
+            "    -off_heap\n" +
+            "          Store the bytes of local data chunks outside the Java heap;\n" +
+            "          direct memory is limited by -XX:MaxDirectMemorySize.\n" +
+            "\n" +
             "    -client\n" +
             "          Launch H2O node in client mode.\n" +
             "\n" +
@@ -173,9 +181,15 @@ final public class H2O {
     /** -nthreads=nthreads; Max number of F/J threads in the low-priority batch queue */
     public int nthreads=Runtime.getRuntime().availableProcessors();
 
+    /** -http_threads=http_threads; Max number of threads serving REST API connections; 0 picks the default */
+    public int http_threads = 0;
+
     /** -flow_dir=/path/to/dir; directory to save flows in */
     public String flow_dir;
 
+    /** -off_heap, -off_heap=true; keep the bytes of home Chunks outside the Java heap */
+    public boolean off_heap = false;
+
     //-----------------------------------------------------------------------------------
     // HDFS & AWS
     //-----------------------------------------------------------------------------------
@@ -320,10 +334,17 @@ final public class H2O {
         i = s.incrementAndCheck(i, args);
         ARGS.flow_dir = args[i];
       }
+      else if (s.matches("off_heap")) {
+        ARGS.off_heap = true;
+      }
       else if (s.matches("nthreads")) {
         i = s.incrementAndCheck(i, args);
         ARGS.nthreads = s.parseInt(args[i]);
       }
+      else if (s.matches("http_threads")) {
+        i = s.incrementAndCheck(i, args);
+        ARGS.http_threads = s.parseInt(args[i]);
+      }
       else if (s.matches("hdfs")) {
         i = s.incrementAndCheck(i, args);
         ARGS.hdfs = args[i];
@@ -50,6 +50,9 @@ public class HeartBeat extends Iced<HeartBeat> {
   int _max_disk;         // Disk size (internally stored in megabyte precision)
   void set_max_disk (long n) {  _max_disk = (int)(n>>20); }
   public long get_max_disk ()  { return  ((long)_max_disk)<<20 ; }
+  public long _swap_out_bytes;  // Total bytes spilled to ice_root by the Cleaner
+  public long _swap_in_bytes;   // Total bytes reloaded from ice_root
+  public long _off_heap_mem;    // Direct (off-heap) memory in use, e.g. by -off_heap Chunks
 
   boolean check_jar_md5() {
     if( H2O.ARGS.md5skip || Arrays.equals(JarHash.JARHASH, _jar_md5) ) return true;
@@ -2,6 +2,7 @@ package water;
 
 import java.lang.management.ManagementFactory;
 import javax.management.*;
+import water.persist.PersistManager;
 import water.util.LinuxProcFileReader;
 import water.util.Log;
 import water.init.*;
@@ -68,6 +69,7 @@ public class HeartBeatThread extends Thread {
       hb.set_free_mem  (run. freeMemory());
       hb.set_max_mem   (run.  maxMemory());
       hb.set_tot_mem   (run.totalMemory());
+      hb._off_heap_mem = MemoryManager.offHeapUsed();
       hb._keys       = (H2O.STORE.size ());
       hb.set_mvalsz    (myHisto.histo(false)._cached);
       hb.set_tvalsz    (myHisto             ._total );
@@ -107,6 +109,10 @@ public class HeartBeatThread extends Thread {
       // persistent KV pairs are stored
       hb.set_free_disk(H2O.getPM().getIce().getUsableSpace());
       hb.set_max_disk(H2O.getPM().getIce().getTotalSpace());
+      // and the user-mode swap traffic to/from that partition
+      PersistManager.PersistStatsEntry ice = H2O.getPM().getStats()[Value.ICE];
+      hb._swap_out_bytes = ice.store_bytes.get();
+      hb._swap_in_bytes  = ice. load_bytes.get();
 
       // get cpu utilization for the system and for this process.  (linux only.)
       LinuxProcFileReader lpfr = new LinuxProcFileReader();
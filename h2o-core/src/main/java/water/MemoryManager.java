@@ -1,6 +1,7 @@
 package water;
 
 import java.lang.management.*;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.management.Notification;
@@ -191,26 +192,22 @@ abstract public class MemoryManager {
      * 1) sets the amount of memory to be cleaned from the cache by the Cleaner
      * 2) sets the CAN_ALLOC flag to false if memory level is critical
      *
-     * The callback happens in a system thread, and hence not through the usual
-     * water.Boot loader - and so any touched classes are in the wrong class
-     * loader and you end up with new classes with uninitialized global vars.
-     * Limit to touching global vars in the Boot class.
+     * The callback happens in a system thread; it must not block or allocate
+     * much, so it only records the heap level and kicks the Cleaner.
      */
     @Override public void handleNotification(Notification notification, Object handback) {
-      // TODO:  re-enable when this works.
-
-//      String notifType = notification.getType();
-//      if( notifType.equals(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED)) {
-//        // Memory used after this FullGC
-//        Cleaner.TIME_AT_LAST_GC = System.currentTimeMillis();
-//        Cleaner.HEAP_USED_AT_LAST_GC = _allMemBean.getHeapMemoryUsage().getUsed();
-//        MEM_LOW_CRITICAL = Cleaner.HEAP_USED_AT_LAST_GC > (MEM_MAX - (MEM_MAX >> 2));
-//        if( Cleaner.HEAP_USED_AT_LAST_GC > (MEM_MAX - (MEM_MAX >> 1))) { // emergency measure - really low on memory, stop allocations right now!
-//          setMemLow();
-//        } else // enable new allocations (even if cleaner is still running, we have enough RAM)
-//          setMemGood();
-//        Cleaner.kick_store_cleaner();
-//      }
+      String notifType = notification.getType();
+      if( notifType.equals(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED)) {
+        // Memory used after this FullGC
+        Cleaner.TIME_AT_LAST_GC = System.currentTimeMillis();
+        Cleaner.HEAP_USED_AT_LAST_GC = _allMemBean.getHeapMemoryUsage().getUsed();
+        MEM_LOW_CRITICAL = Cleaner.HEAP_USED_AT_LAST_GC > (MEM_MAX - (MEM_MAX >> 2));
+        if( Cleaner.HEAP_USED_AT_LAST_GC > (MEM_MAX - (MEM_MAX >> 1))) { // emergency measure - really low on memory, stop allocations right now!
+          setMemLow();
+        } else // enable new allocations (even if cleaner is still running, we have enough RAM)
+          setMemGood();
+        Cleaner.kick_store_cleaner();
+      }
     }
   }
 
@@ -284,6 +281,25 @@ abstract public class MemoryManager {
   public static long   [] arrayCopyOf( long  [] orig, int sz) { return arrayCopyOfRange(orig,0,sz); }
   public static double [] arrayCopyOf( double[] orig, int sz) { return arrayCopyOfRange(orig,0,sz); }
 
+  // Allocates off-heap memory for -off_heap Chunk storage.  The buffer is
+  // reclaimed when the owning Chunk is GC'd.  Returns null when the direct
+  // memory limit (-XX:MaxDirectMemorySize) is exhausted, in which case the
+  // caller just keeps its bytes on the heap.
+  public static ByteBuffer mallocDirect( int size ) {
+    try {
+      return ByteBuffer.allocateDirect(size);
+    } catch( OutOfMemoryError e ) {
+      // Do NOT log OutOfMemory; the Chunk stays on-heap
+      return null;
+    }
+  }
+  // Direct memory currently in use by this JVM, or -1 if unknown
+  public static long offHeapUsed() {
+    for( BufferPoolMXBean b : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class) )
+      if( "direct".equals(b.getName()) ) return b.getMemoryUsed();
+    return -1;
+  }
+
   // Memory available for tasks (we assume 3/4 of the heap is available for tasks)
   static final AtomicLong _taskMem = new AtomicLong(MEM_MAX-(MEM_MAX>>2));
 
@@ -7,9 +7,12 @@ import water.util.Log;
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,7 +35,9 @@ import java.util.regex.Pattern;
  *    <li> Supports partial content (streaming)</li>
  *    <li> Supports ETags</li>
  *    <li> Never caches anything </li>
- *    <li> Doesn't limit bandwidth, request time or simultaneous connections </li>
+ *    <li> Doesn't limit bandwidth or request time </li>
+ *    <li> Sessions run on a bounded thread pool; excess connections get a 503 </li>
+ *    <li> HTTP/1.1 keep-alive, pipelining and chunked responses </li>
  *    <li> Default code serves files and shows all HTTP parameters and headers</li>
  *    <li> File server supports directory listing, index.html and index.htm</li>
  *    <li> File server supports partial content (streaming)</li>
@@ -179,7 +184,8 @@ public class NanoHTTPD
   HTTP_BADREQUEST = "400 Bad Request",
   HTTP_TOOLONGREQUEST = "414 Request-URI Too Long",
   HTTP_INTERNALERROR = "500 Internal Server Error",
-  HTTP_NOTIMPLEMENTED = "501 Not Implemented";
+  HTTP_NOTIMPLEMENTED = "501 Not Implemented",
+  HTTP_UNAVAILABLE = "503 Service Unavailable";
 
   /**
    * Common mime types for dynamic content
@@ -195,19 +201,53 @@ public class NanoHTTPD
   // Socket & server code
   // ==================================================
 
+  /** Default number of session threads; override with -http_threads. */
+  static final int DEFAULT_HTTP_THREADS = 64;
+  /** Accepted connections allowed to wait for a session thread before we answer 503. */
+  static final int MAX_QUEUED_SESSIONS = 1024;
+  /** How long an idle keep-alive connection may hold a session thread. */
+  static final int KEEPALIVE_MILLIS = 10*1000;
+  /** Read timeout inside a request, so a stalled client cannot pin a thread forever. */
+  static final int READ_TIMEOUT_MILLIS = 5*60*1000;
+
   /**
    * Starts a HTTP server to given port.<p>
    * Throws an IOException if the socket is already in use
    */
   public NanoHTTPD( ServerSocket socket, File wwwroot ) throws IOException {
+    this(socket, wwwroot, H2O.ARGS.http_threads > 0 ? H2O.ARGS.http_threads : DEFAULT_HTTP_THREADS, MAX_QUEUED_SESSIONS);
+  }
+
+  /**
+   * Starts a HTTP server with the given number of session threads, and of
+   * accepted connections that may wait for one.
+   */
+  NanoHTTPD( ServerSocket socket, File wwwroot, int nthreads, int maxQueued ) throws IOException {
     myRootDir = wwwroot;
     myServerSocket = socket;
     myServerSocket.setReuseAddress(true);
+    // A fixed, bounded pool of session threads instead of one thread per
+    // connection: hundreds of polling clients no longer turn into hundreds of
+    // high-priority threads competing with the F/J work queues.
+    myPool = new ThreadPoolExecutor(nthreads, nthreads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(maxQueued), new ThreadFactory() {
+          private final AtomicInteger _cnt = new AtomicInteger();
+          @Override public Thread newThread( Runnable r ) {
+            Thread t = new Thread( r, "NanoHTTPD Session " + _cnt.incrementAndGet());
+            t.setDaemon( true );
+            t.setPriority(Thread.MAX_PRIORITY-1);
+            return t;
+          }
+        });
+    myPool.allowCoreThreadTimeOut(true);
     myThread = new Thread(new Runnable() {
       public void run() {
         try {
-          while( true )
-            new HTTPSession( myServerSocket.accept());
+          while( true ) {
+            Socket s = myServerSocket.accept();
+            try { myPool.execute(new HTTPSession(s)); }
+            catch( RejectedExecutionException ree ) { sendBusy(s); }
+          }
         } catch ( IOException e ) { }
       }
     }, "NanoHTTPD Thread");
@@ -215,6 +255,24 @@ public class NanoHTTPD
     myThread.start();
   }
 
+  /** Pool and queue are full: tell the client to come back later and hang up. */
+  private static void sendBusy( Socket s ) {
+    try {
+      s.setSoTimeout(1000);
+      OutputStream out = s.getOutputStream();
+      out.write(("HTTP/1.0 " + HTTP_UNAVAILABLE + " \r\nRetry-After: 1\r\nConnection: close\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+    } catch( IOException ignore ) {
+    } finally {
+      try { s.close(); } catch( IOException ignore ) { }
+    }
+  }
+
+  /** True if there are enough idle session threads to let a connection linger in keep-alive. */
+  private boolean idleCapacity() {
+    return myPool.getQueue().isEmpty() && myPool.getActiveCount() < myPool.getMaximumPoolSize()/2;
+  }
+
   /**
    * Stops the server.
    */
@@ -224,6 +282,7 @@ public class NanoHTTPD
       myThread.join();
     } catch ( IOException | InterruptedException e ) {
     }
+    myPool.shutdownNow();
   }
 
 
@@ -264,24 +323,51 @@ public class NanoHTTPD
   }
 
   /**
-   * Handles one session, i.e. parses the HTTP request
-   * and returns the response.
+   * Handles one session, i.e. parses HTTP requests off one connection
+   * and returns the responses.  Keep-alive and pipelined requests are served
+   * back-to-back on the same pooled thread.
    */
   private class HTTPSession implements Runnable {
     public HTTPSession( Socket s ) {
       mySocket = s;
-      Thread t = new Thread( this, "NanoHTTPD Session" );
-      t.setDaemon( true );
-      t.setPriority(Thread.MAX_PRIORITY-1);
-      t.start();
     }
 
     /** Maximal supported header. */
     static final int MAX_HEADER_BUFFER_SIZE = 1 << 16; // 64k
     public void run() {
-      try (Socket mySocket=this.mySocket ) { // Try-with-resources; auto-close on exit
-        long startMillis = System.currentTimeMillis();
+      try {
+        mySocket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        mySocket.setTcpNoDelay(true);
         InputStream is = new BufferedInputStream(mySocket.getInputStream());
+        myOutput = new BufferedOutputStream(mySocket.getOutputStream(), theBufferSize);
+        while( serveRequest(is) ) {
+          if( is.available() > 0 ) continue; // Pipelined request already here
+          // Linger for the next request only while the pool has threads to
+          // spare; under load, free the thread and let the client reconnect.
+          if( !idleCapacity() ) break;
+          mySocket.setSoTimeout(KEEPALIVE_MILLIS);
+          is.mark(1);
+          try { if( is.read() == -1 ) break; }
+          catch( SocketTimeoutException ste ) { break; }
+          is.reset();
+          mySocket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        }
+      } catch( IOException ignore ) {
+        // Client went away
+      } finally {
+        try { mySocket.close(); } catch( IOException ignore ) { }
+      }
+    }
+
+    /**
+     * Reads, serves and answers one request.
+     * @return true if the connection can carry another request
+     */
+    private boolean serveRequest( InputStream is ) {
+      myHttp11 = false;
+      myKeepAlive = false;
+      try {
+        long startMillis = System.currentTimeMillis();
         is.mark(MAX_HEADER_BUFFER_SIZE);
 
         // Read the first 8192 bytes.
@@ -293,7 +379,7 @@ public class NanoHTTPD
         int rlen=0;
         while( rlen < MAX_HEADER_BUFFER_SIZE ) {
           int b = is.read();
-          if( b == -1 ) return;
+          if( b == -1 ) return false;
           buf[rlen++] = (byte)b;
           if( b == '\n' ) {
             if(nl) break; // 2nd nl in a row ==> done with header
@@ -316,13 +402,25 @@ public class NanoHTTPD
         decodeHeader(hin, pre, parms, header);
         String method = pre.getProperty("method");
         String uri = pre.getProperty("uri");
+        if( method == null ) return false; // Empty request line
+
+        // HTTP/1.1 connections persist unless the client says otherwise;
+        // HTTP/1.0 ones only when the client asks for it.
+        String connection = header.getProperty("connection", "");
+        myHttp11 = "HTTP/1.1".equalsIgnoreCase(pre.getProperty("version"));
+        myKeepAlive = myHttp11 ? !connection.equalsIgnoreCase("close") : connection.equalsIgnoreCase("keep-alive");
 
         long size = 0x7FFFFFFFFFFFFFFFl;
         String contentLength = header.getProperty("content-length");
         if (contentLength != null) {
-          try { size = Integer.parseInt(contentLength); }
+          try { size = Long.parseLong(contentLength); }
           catch (NumberFormatException ex) {}
         }
+        // A chunked body carries its own framing
+        boolean chunkedBody = header.getProperty("transfer-encoding", "").trim().equalsIgnoreCase("chunked");
+        // Without a length we cannot tell where the next request starts
+        if (size == 0x7FFFFFFFFFFFFFFFl && method.equalsIgnoreCase("POST") && !chunkedBody)
+          myKeepAlive = false;
 
         // We are looking for the byte separating header from body.
         // It must be the last byte of the first two sequential new lines.
@@ -349,10 +447,11 @@ public class NanoHTTPD
           size -= rlen - splitbyte +1;
         else if (!sbfound || size == 0x7FFFFFFFFFFFFFFFl)
           size = 0;
+        if (!sbfound)
+          myKeepAlive = false;
 
         // If the method is POST, there may be parameters
         // in data section, too, read it:
-        BufferedReader in = new BufferedReader( new InputStreamReader(is));
         if ( method.equalsIgnoreCase( "POST" ))
         {
           String contentType = "";
@@ -377,43 +476,45 @@ public class NanoHTTPD
             String boundary = st.nextToken();
             String paddedMethod = String.format("%-6s", method);
             Log.info("Method: " + paddedMethod, ", URI: " + uri + ", route: " + "(special case)" + ", parms: " + parms);
+            // The upload stops at the closing boundary, leaving the epilogue
+            // unread; do not try to parse another request after it.
+            myKeepAlive = false;
             boolean handled = fileUpload(boundary, is, parms, uri);
             if (handled) {
-              return;
+              return false;
             }
           } else {
             // Handle application/x-www-form-urlencoded
 
             String postLine = "";
-            if (size >= 0) {
+            if (chunkedBody) {
+              postLine = new String(readChunkedBody(is), StandardCharsets.UTF_8);
+            }
+            else if (size >= 0 && size != 0x7FFFFFFFFFFFFFFFl) {
               //
-              // content-length is specified.  Use it.
+              // content-length is specified.  Read exactly that many bytes,
+              // so a pipelined request behind this one is left untouched.
               //
-              char pbuf[] = new char[4096];
-              long bytesRead = 0;
-              long bytesToRead = size;
-              StringBuilder sb = new StringBuilder();
-              while (bytesRead < bytesToRead) {
-                int n = in.read(pbuf);
+              if (size > Integer.MAX_VALUE)
+                sendError( HTTP_BADREQUEST, "BAD REQUEST: POST body too large." );
+              byte[] body = new byte[(int)size];
+              int bytesRead = 0;
+              while (bytesRead < body.length) {
+                int n = is.read(body, bytesRead, body.length - bytesRead);
                 if (n < 0) {
-                  break;
-                }
-                else if (n == 0) {
-                  // this is supposed to be blocking, so i don't know what this means.
-                  // but it isn't good.
-                  assert(false);
+                  myKeepAlive = false;
                   break;
                 }
                 bytesRead += n;
-                sb.append(pbuf, 0, n);
               }
-              postLine = sb.toString();
+              postLine = new String(body, 0, bytesRead, StandardCharsets.UTF_8);
             }
             else {
               //
               // The original path for x-www-form-urlencoded.
               // Don't have content-length.  Look for \r\n to stop the input.
               //
+              BufferedReader in = new BufferedReader( new InputStreamReader(is));
               char pbuf[] = new char[512];
               int read = in.read(pbuf);
               while ( read >= 0 && !postLine.endsWith("\r\n") )
@@ -430,6 +531,15 @@ public class NanoHTTPD
               decodeParms(postLine, parms);
             }
           }
+        } else if (chunkedBody) {
+          readChunkedBody(is); // Body we have no use for
+        } else if (size > 0 && size != 0x7FFFFFFFFFFFFFFFl) {
+          // Body we have no use for; skip it to reach the next request
+          while (size > 0) {
+            long n = is.skip(size);
+            if (n <= 0) { myKeepAlive = false; break; }
+            size -= n;
+          }
         }
 
         // Ok, now do the serve()
@@ -438,16 +548,59 @@ public class NanoHTTPD
           sendError( HTTP_INTERNALERROR, "SERVER INTERNAL ERROR: Serve() returned a null response." );
         else
           sendResponse( startMillis, r.status, r.mimeType, r.header, r.data );
-
-        in.close();
-        is.close();
+        return myKeepAlive;
       } catch ( IOException ioe ) {
         try {
           sendError( HTTP_INTERNALERROR, "SERVER INTERNAL ERROR: IOException: " + ioe.getMessage());
+        } catch ( InterruptedException ignore ) {
         } catch ( Throwable t ) { Log.err(t); }
       } catch ( InterruptedException e ) {
-        // Thrown by sendError, ignore and exit the thread.
+        // Thrown by sendError, ignore and close the connection.
+      }
+      return false;
+    }
+
+    /**
+     * Reads a request body sent with Transfer-Encoding: chunked, up to and
+     * including its trailer, so the next request on the connection is next.
+     * Chunk extensions and trailer fields are ignored.
+     */
+    private byte[] readChunkedBody( InputStream is ) throws IOException, InterruptedException {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      while( true ) {
+        String line = readCRLFLine(is);
+        int semi = line.indexOf(';');
+        int n = -1;
+        try { n = Integer.parseInt((semi < 0 ? line : line.substring(0, semi)).trim(), 16); }
+        catch( NumberFormatException ignore ) { }
+        if( n < 0 )
+          sendError( HTTP_BADREQUEST, "BAD REQUEST: Bad chunk size." );
+        if( n == 0 ) break;
+        if( (long)body.size() + n > Integer.MAX_VALUE )
+          sendError( HTTP_BADREQUEST, "BAD REQUEST: POST body too large." );
+        byte[] chunk = new byte[n];
+        for( int off = 0; off < n; ) {
+          int r = is.read(chunk, off, n - off);
+          if( r < 0 ) throw new EOFException("Chunked body ended early");
+          off += r;
+        }
+        body.write(chunk);
+        if( readCRLFLine(is).length() > 0 )
+          sendError( HTTP_BADREQUEST, "BAD REQUEST: Chunk longer than its size." );
+      }
+      while( readCRLFLine(is).length() > 0 ) ; // Trailer
+      return body.toByteArray();
+    }
+
+    /** Reads one line ending in LF (with or without CR), without the line end. */
+    private String readCRLFLine( InputStream is ) throws IOException {
+      StringBuilder sb = new StringBuilder();
+      int b;
+      while( (b = is.read()) != '\n' ) {
+        if( b == -1 ) throw new EOFException("Connection closed inside a chunked body");
+        if( b != '\r' ) sb.append((char)b);
       }
+      return sb.toString();
     }
 
     /**
@@ -483,11 +636,12 @@ public class NanoHTTPD
         else uri = decodePercent(uri);
 
         // If there's another token, it's protocol version,
-        // followed by HTTP headers. Ignore version but parse headers.
+        // followed by HTTP headers.
         // NOTE: this now forces header names lowercase since they are
         // case insensitive and vary by client.
         if ( st.hasMoreTokens())
         {
+          pre.put("version", st.nextToken());
           String line = in.readLine();
           while ( line != null && line.trim().length() > 0 )
           {
@@ -726,6 +880,7 @@ public class NanoHTTPD
     {
       String s = "         HTTP_status: " + status;
       Log.httpd(s);
+      myKeepAlive = false;
       sendResponse( status, MIME_PLAINTEXT, null, new ByteArrayInputStream( msg.getBytes()));
       throw new InterruptedException();
     }
@@ -738,7 +893,9 @@ public class NanoHTTPD
     }
 
     /**
-     * Sends given response to the socket.
+     * Sends given response to the socket.  The body is framed by
+     * Content-Length when it is known up front, by chunked encoding when the
+     * client speaks HTTP/1.1, and otherwise by closing the connection.
      */
     private void sendResponse( String status, String mime, Properties header, InputStream data )
     {
@@ -747,9 +904,26 @@ public class NanoHTTPD
         if ( status == null )
           throw new RuntimeException( "sendResponse(): Status can't be null." );
 
-        OutputStream out = mySocket.getOutputStream();
-        PrintWriter pw = new PrintWriter( out );
-        pw.print("HTTP/1.0 " + status + " \r\n");
+        long len = -1;
+        if ( header != null )
+        {
+          for ( String key : header.stringPropertyNames())
+            if ( key.equalsIgnoreCase( "Content-Length" ))
+              len = Long.parseLong( header.getProperty( key ).trim());
+        }
+        boolean lengthHeader = len >= 0;
+        if ( len < 0 )
+        {
+          if ( data == null ) len = 0;
+          else if ( data instanceof ByteArrayInputStream ) len = data.available();
+        }
+        boolean chunked = len < 0 && myHttp11 && myKeepAlive;
+        if ( len < 0 && !chunked )
+          myKeepAlive = false;   // Body ends when the connection does
+
+        OutputStream out = myOutput;
+        PrintWriter pw = new PrintWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ));
+        pw.print((myHttp11 ? "HTTP/1.1 " : "HTTP/1.0 ") + status + " \r\n");
 
         if ( mime != null )
           pw.print("Content-Type: " + mime + "\r\n");
@@ -767,6 +941,11 @@ public class NanoHTTPD
             pw.print( key + ": " + value + "\r\n");
           }
         }
+        if ( len >= 0 && !lengthHeader )
+          pw.print("Content-Length: " + len + "\r\n");
+        if ( chunked )
+          pw.print("Transfer-Encoding: chunked\r\n");
+        pw.print("Connection: " + (myKeepAlive ? "keep-alive" : "close") + "\r\n");
 
         // Add these three HTTP headers to every response no matter what.
         pw.print("X-h2o-build-project-version" + ": " + H2O.ABV.projectVersion() + "\r\n");
@@ -778,25 +957,35 @@ public class NanoHTTPD
 
         if ( data != null )
         {
-          int pending = data.available();	// This is to support partial sends, see serveFile()
           byte[] buff = new byte[theBufferSize];
-          while (pending>0)
+          long pending = len;
+          while ( len < 0 || pending > 0 )
           {
-            int read = data.read( buff, 0, ( (pending>theBufferSize) ?  theBufferSize : pending ));
-            if (read <= 0)	break;
-            out.write( buff, 0, read );
-            //pending -= read;
-            pending = data.available();
+            int read = data.read( buff, 0, ( len < 0 || pending > theBufferSize ) ? theBufferSize : (int)pending );
+            if ( read <= 0 ) break;
+            if ( chunked )
+            {
+              out.write(( Integer.toHexString( read ) + "\r\n" ).getBytes( StandardCharsets.US_ASCII ));
+              out.write( buff, 0, read );
+              out.write( CRLF );
+            }
+            else
+              out.write( buff, 0, read );
+            pending -= read;
           }
+          if ( chunked )
+            out.write( LAST_CHUNK );
+          data.close();
+          // Declared length not met; the stream is out of sync, so hang up
+          if ( len > 0 && pending > 0 )
+            myKeepAlive = false;
         }
         out.flush();
-        out.close();
-        if ( data != null )
-          data.close();
       }
       catch( IOException e ) {
         Log.err(e);
         // Couldn't write? No can do.
+        myKeepAlive = false;
         try { mySocket.close(); } catch( IOException ignore ) { }
       }
 
@@ -805,7 +994,10 @@ public class NanoHTTPD
       }
     }
 
-    private Socket mySocket;
+    private final Socket mySocket;
+    private OutputStream myOutput;
+    private boolean myHttp11;
+    private boolean myKeepAlive;
   }
 
   private static final class InputStreamWrapper extends InputStream {
@@ -927,6 +1119,7 @@ public class NanoHTTPD
   }
 
   private final ServerSocket myServerSocket;
+  private final ThreadPoolExecutor myPool;
   private Thread myThread;
   private File myRootDir;
 
@@ -1171,6 +1364,8 @@ public class NanoHTTPD
   }
 
   private static int theBufferSize = 16 * 1024;
+  private static final byte[] CRLF = { '\r', '\n' };
+  private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
 
   // Change this if you want to log to somewhere else than stdout
   protected static final PrintStream myOut = System.out;
@@ -127,6 +127,15 @@ public class TypeMap {
     return id < gold.length ? gold[id] : null;
   }
 
+  // Snapshot of the ID -> className table as known on this node; ids never
+  // seen here are null.  Used to make serialized bytes readable by other clouds.
+  static String[] classNames() {
+    String[] cs = CLAZZES;      // Read once, in case resizing
+    int len = cs.length;
+    while( len > 0 && cs[len-1] == null ) len--;
+    return Arrays.copyOf(cs, len);
+  }
+
   // Reverse: convert an ID to a className possibly fetching it from leader.
   static String className(int id) {
     if( id == PRIM_B ) return "[B";
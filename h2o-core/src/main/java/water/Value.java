@@ -108,6 +108,17 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
     _pojo = null;
   }
 
+  /** Unmap this cached copy of a remotely-homed Value from the local STORE,
+   *  so the next DKV.get re-fetches it from the home node.  Nothing is
+   *  cleared: a racing reader already holding this Value still finds its
+   *  bytes, and the memory is reclaimed once the last such reader is done.
+   *  Refused while a PUT of this Value from this node is still in flight.
+   *  @return true if unmapped */
+  final boolean dropCached() {
+    assert !_key.home() && !isPersisted();
+    return _rwlock.get() == -1 && H2O.putIfMatch(_key,null,this) == this;
+  }
+
   /** The FAST path get-byte-array - final method for speed.  Will (re)build
    *  the mem array from either the POJO or disk.  Never returns NULL.
    *  @return byte[] holding the serialized POJO  */
@@ -117,8 +128,11 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
     Freezable pojo = _pojo;     // Read once!
     if( pojo != null )          // Has the POJO, make raw bytes
       // Chunks have custom serializer here that skips all steps; just the chunk itself
-      if( pojo instanceof Chunk ) return (_mem = ((Chunk)pojo).getBytes());
-      else return (_mem = pojo.write(new AutoBuffer()).buf());
+      if( pojo instanceof Chunk ) {
+        Chunk c = (Chunk)pojo;
+        // Off-heap Chunks hand out a temp copy; caching it defeats the point
+        return c.isOffHeap() ? c.getBytes() : (_mem = c.getBytes());
+      } else return (_mem = pojo.write(new AutoBuffer()).buf());
     if( _max == 0 ) return (_mem = new byte[0]);
     return (_mem = loadPersist());
   }
@@ -135,6 +149,8 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
     if( pojo != null ) return (T)pojo;
     pojo = TypeMap.newInstance(_type);
     pojo.read(new AutoBuffer(memOrLoad()));
+    Chunk off = offHeap(pojo);
+    if( off != null ) { _mem = null; return (T)(_pojo = off); }
     return (T)(_pojo = pojo);
   }
   /** The FAST path get-POJO as a {@link Freezable} - final method for speed.
@@ -155,9 +171,18 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
     if( pojo != null ) return (T)pojo;
     pojo = TypeMap.newFreezable(_type);
     pojo.read(new AutoBuffer(memOrLoad()));
+    Chunk off = offHeap(pojo);
+    if( off != null ) { _mem = null; return (T)(_pojo = off); }
     return (T)(_pojo = pojo);
   }
 
+  // With -off_heap the home copy of a Chunk keeps its bytes outside the Java
+  // heap, and the serialized _mem form is rebuilt on demand, not cached.
+  // Returns the off-heap copy of a home Chunk to publish as the POJO, or null.
+  private Chunk offHeap( Freezable pojo ) {
+    return H2O.ARGS.off_heap && pojo instanceof Chunk && _key != null && _key.home() ? ((Chunk)pojo).toOffHeap() : null;
+  }
+
   // ---
   // Time of last access to this value.
   transient long _lastAccessedTime = System.currentTimeMillis();
@@ -313,6 +338,8 @@ public final class Value extends Iced implements ForkJoinPool.ManagedBlocker {
     _type = (short)pojo.frozenType();
     _mem = (pojo instanceof Chunk)?((Chunk)pojo).getBytes():pojo.write(new AutoBuffer()).buf();
     _max = _mem.length;
+    Chunk off = offHeap(pojo);
+    if( off != null ) { _pojo = off; _mem = null; }
     assert _max < MAX : "Value size = " + _max + " (0x"+Integer.toHexString(_max) + ") >= (MAX=" + MAX + ").";
     // For the ICE backend, assume new values are not-yet-written.
     // For HDFS & NFS backends, assume we from global data and preserve the
@@ -117,6 +117,12 @@ public class CloudV3 extends Schema<Iced, CloudV3> {
     public long free_disk;
     @API(help="Max disk", direction=API.Direction.OUTPUT)
     public long max_disk;
+    @API(help="Off-heap (direct) memory", direction=API.Direction.OUTPUT)
+    public long off_heap_mem;
+    @API(help="Bytes swapped out to disk", direction=API.Direction.OUTPUT)
+    public long swap_out_bytes;
+    @API(help="Bytes swapped in from disk", direction=API.Direction.OUTPUT)
+    public long swap_in_bytes;
 
     @API(help="Active Remote Procedure Calls", direction=API.Direction.OUTPUT)
     public int rpcs_active;
@@ -171,9 +177,12 @@ public class CloudV3 extends Schema<Iced, CloudV3> {
       free_mem = hb.get_free_mem();
       tot_mem = hb.get_tot_mem();
       max_mem = hb.get_max_mem();
+      off_heap_mem = hb._off_heap_mem;
       // Disk health
       free_disk = hb.get_free_disk();
       max_disk  = hb.get_max_disk();
+      swap_out_bytes = hb._swap_out_bytes;
+      swap_in_bytes  = hb._swap_in_bytes;
 
       // Fork/Join Activity
       rpcs_active = hb._rpcs;
@@ -14,9 +14,8 @@ public class DownloadDataHandler extends Handler { // TODO: recursive generics s
     if (DKV.get(server.frame_id.key()) == null) throw new H2OKeyNotFoundArgumentException("key", server.frame_id.key());
     Frame value = server.frame_id.key().get();
 
-    InputStream is = value.toCSV(true, server.hex_string);
-    java.util.Scanner scanner = new java.util.Scanner(is).useDelimiter("\\A");
-    server.csv = (scanner.hasNext() ? scanner.next() : "");
+    // Handed to the web server as-is and streamed out while it is produced
+    server.csv = value.toCSV(true, server.hex_string);
 
     // Clean up Key name back to something resembling a file system name.  Hope
     // the user's browser actually asks for what to do with the suggested
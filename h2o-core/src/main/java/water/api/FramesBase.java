@@ -27,6 +27,9 @@ class FramesBase<I extends Frames, S extends FramesBase<I, S>> extends Schema<I,
   @API(help="Overwrite existing fil",json=false)
   public boolean force;
 
+  @API(help="Export as a directory of part-files, written in parallel by the nodes holding the data",json=false)
+  public boolean parallel;
+
   // Output fields
   @API(help="Frames", direction=API.Direction.OUTPUT)
   FrameV3[] frames;
@@ -5,6 +5,7 @@ import water.*;
 import water.api.ModelsHandler.Models;
 import water.exceptions.*;
 import water.fvec.Frame;
+import water.fvec.FrameSnapshot;
 import water.fvec.Vec;
 import water.persist.PersistManager;
 import water.util.FileUtils;
@@ -220,11 +221,34 @@ class FramesHandler<I extends FramesHandler.Frames, S extends FramesBase<I, S>>
     Frame fr = getFromDKV("key", s.frame_id.key());
 
     Log.info("ExportFiles processing (" + s.path + ")");
+    if (s.parallel) {
+      fr.exportCSVParts(s.path, true, false, s.force);
+      Log.info("Key '" + s.frame_id.key() + "' was written to part-files in " + s.path + ".");
+      return s;
+    }
     InputStream csv = (fr).toCSV(true,false);
     export(csv,s.path, s.frame_id.key().toString(),s.force);
     return s;
   }
 
+  /** Save a single frame as a binary snapshot under the specified path. */
+  @SuppressWarnings("unused") // called through reflection by RequestServer
+  public FramesV3 save(int version, FramesV3 s) {
+    Frame fr = getFromDKV("key", s.frame_id.key());
+    Log.info("Saving frame snapshot (" + s.path + ")");
+    FrameSnapshot.save(fr, s.path, s.force);
+    Log.info("Key '" + s.frame_id.key() + "' was saved to " + s.path + ".");
+    return s;
+  }
+
+  /** Load a binary frame snapshot from the specified path. */
+  @SuppressWarnings("unused") // called through reflection by RequestServer
+  public FramesV3 load(int version, FramesV3 s) {
+    Log.info("Loading frame snapshot (" + s.path + ")");
+    FrameSnapshot.load(s.frame_id.key(), s.path);
+    return s;
+  }
+
   // companion method to the export method
   private void export(InputStream csv, String path, String frameName, boolean force) {
     PersistManager pm = H2O.getPM();
@@ -15,6 +15,12 @@ class ModelsBase<I extends Models, S extends ModelsBase<I, S>> extends Schema<I,
   @API(help="Find and return compatible frames?", json=false, direction=API.Direction.INPUT)
   public boolean find_compatible_frames = false;
 
+  @API(help="Binary model file path", json=false, direction=API.Direction.INPUT)
+  public String path;
+
+  @API(help="Overwrite an existing file", json=false, direction=API.Direction.INPUT)
+  public boolean force;
+
   // Output fields
   @API(help="Models", direction=API.Direction.OUTPUT)
   public ModelSchema[] models;
@@ -5,6 +5,7 @@ import water.*;
 import water.api.FramesHandler.Frames;
 import water.exceptions.*;
 import water.fvec.Frame;
+import water.util.Log;
 
 import java.util.*;
 
@@ -145,6 +146,23 @@ class ModelsHandler<I extends ModelsHandler.Models, S extends ModelsBase<I, S>>
     return s;
   }
 
+  /** Save a single model, with everything it needs to score, as a binary file. */
+  @SuppressWarnings("unused") // called through reflection by RequestServer
+  public ModelsV3 exportModel(int version, ModelsV3 s) {
+    Model model = getFromDKV("key", s.model_id.key());
+    model.exportBinaryModel(s.path, s.force);
+    Log.info("Model '" + model._key + "' was saved to " + s.path + ".");
+    return s;
+  }
+
+  /** Load a model saved by exportModel, under its original key. */
+  @SuppressWarnings("unused") // called through reflection by RequestServer
+  public ModelsV3 importModel(int version, ModelsV3 s) {
+    Model model = Model.importBinaryModel(s.path);
+    s.model_id = new KeyV3.ModelKeyV3(model._key);
+    return fetch(version, s);
+  }
+
   /** Remove an unlocked model.  Fails if model is in-use. */
   @SuppressWarnings("unused") // called through reflection by RequestServer
   public ModelsV3 delete(int version, ModelsV3 s) {
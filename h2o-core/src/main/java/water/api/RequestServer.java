@@ -149,6 +149,10 @@ public class RequestServer extends NanoHTTPD {
       "Find a value within a Frame.");
     register("/3/Frames/(?<frameid>.*)/export/(?<path>.*)/overwrite/(?<force>.*)" ,"GET", FramesHandler.class, "export",                  new String[] {"frame_id", "path", "force"},
             "Export a Frame to the given path with optional overwrite.");
+    register("/3/Frames/(?<frameid>.*)/save/(?<path>.*)/overwrite/(?<force>.*)" ,"GET", FramesHandler.class, "save",                      new String[] {"frame_id", "path", "force"},
+            "Save a Frame as a binary snapshot directory at the given path with optional overwrite.");
+    register("/3/Frames/(?<frameid>.*)/load/(?<path>.*)"             ,"POST"  ,FramesHandler.class, "load",                               new String[] {"frame_id", "path"},
+            "Load a binary Frame snapshot from the given path into a Frame with the given name.");
     register("/3/Frames/(?<frameid>.*)/columns/(?<column>.*)/summary","GET"   ,FramesHandler.class, "columnSummary", "columnSummaryDocs", new String[] {"frame_id", "column"},
       "Return the summary metrics for a column, e.g. mins, maxes, mean, sigma, percentiles, etc.");
     register("/3/Frames/(?<frameid>.*)/columns/(?<column>.*)/domain" ,"GET"   ,FramesHandler.class, "columnDomain",                       new String[] {"frame_id", "column"},
@@ -167,6 +171,10 @@ public class RequestServer extends NanoHTTPD {
       "Delete the specified Frame from the H2O distributed K/V store.");
     register("/3/Frames"                                         ,"DELETE",FramesHandler.class, "deleteAll",
       "Delete all Frames from the H2O distributed K/V store.");
+    register("/3/Models/(?<modelid>.*)/export/(?<path>.*)/overwrite/(?<force>.*)" ,"GET", ModelsHandler.class, "exportModel",             new String[] {"model_id", "path", "force"},
+      "Save a Model and the data it needs for scoring as a binary file at the given path with optional overwrite.");
+    register("/3/Models/import/(?<path>.*)"                          ,"POST"  ,ModelsHandler.class, "importModel",                        new String[] {"path"},
+      "Load a binary Model file saved by the export call, under the Model's original key.");
     register("/3/Models/(?<modelid>.*)/preview"                      ,"GET"   ,ModelsHandler.class, "fetchPreview",                       new String[] {"model_id"},
       "Return potentially abridged model suitable for viewing in a browser (currently only used for java model code).");
     register("/3/Models/(?<modelid>.*)"                              ,"GET"   ,ModelsHandler.class, "fetch",                              new String[] {"model_id"},
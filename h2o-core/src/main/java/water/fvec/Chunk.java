@@ -2,6 +2,9 @@ package water.fvec;
 
 import water.*;
 import water.parser.ValueString;
+import water.util.UnsafeUtils;
+
+import java.nio.ByteBuffer;
 
 /** A compression scheme, over a chunk of data - a single array of bytes.
  *  Chunks are mapped many-to-1 to a {@link Vec}.  The <em>actual</em> vector
@@ -155,14 +158,55 @@ public abstract class Chunk extends Iced implements Cloneable {
   byte[] _mem;
   /** Short-cut to the embedded big-data memory.  Generally not useful for
    *  public consumption, since the data remains compressed and holding on to a
-   *  pointer to this array defeats the user-mode spill-to-disk. */
-  public byte[] getBytes() { return _mem; }
+   *  pointer to this array defeats the user-mode spill-to-disk.  For an
+   *  off-heap Chunk this is a fresh on-heap copy. */
+  public byte[] getBytes() {
+    if( _direct == null ) return _mem;
+    byte[] mem = MemoryManager.malloc1(_direct.capacity());
+    UnsafeUtils.copy(null,_memOff,mem,UnsafeUtils.BYTE_BASE,mem.length);
+    return mem;
+  }
 
-  public void setBytes(byte[] mem) { _mem = mem; }
+  public void setBytes(byte[] mem) { _mem = mem; _direct = null; _memOff = UnsafeUtils.BYTE_BASE; }
 
   /** Used by a ParseExceptionTest to break the Chunk invariants and trigger an
    *  NPE.  Not intended for public use. */
-  public final void crushBytes() { _mem=null; }
+  public final void crushBytes() { setBytes(null); }
+
+  /** Off-heap copy of the Big Data, or null if the bytes are in {@link #_mem}.
+   *  Only held to keep the memory alive; it is freed when this Chunk is GC'd. */
+  private transient ByteBuffer _direct;
+  /** Offset of the Big Data for the base+offset {@link UnsafeUtils} readers:
+   *  relative to {@link #_mem} when on-heap, or an absolute address (with a
+   *  null {@link #_mem}) when off-heap.  Subclasses supporting off-heap
+   *  storage read as {@code UnsafeUtils.get2(_mem,_memOff+off)}.  Instances
+   *  made by deserialization skip this initializer, so their read_impl must
+   *  install the bytes with {@link #setBytes}. */
+  transient long _memOff = UnsafeUtils.BYTE_BASE;
+  /** True if the Big Data lives outside the Java heap. */
+  public final boolean isOffHeap() { return _direct != null; }
+  /** Chunk flavors which read their bytes only through {@link #_memOff}. */
+  boolean canMoveOffHeap() { return false; }
+  /** A copy of this Chunk with the Big Data in a direct buffer, leaving the
+   *  on-heap byte[] to be GC'd once this Chunk is dropped.  Called by the
+   *  home-node {@link Value} when H2O runs with {@code -off_heap}.  This Chunk
+   *  is never switched in place: the copy's base and offset are set before it
+   *  is published (through the volatile {@link Value} POJO), so no reader can
+   *  see an on-heap base with an off-heap address.  Any clones of the copy
+   *  share the direct buffer, same as a byte[] is shared.
+   *  @return the off-heap copy, or null if the bytes must stay on-heap */
+  public final Chunk toOffHeap() {
+    if( !canMoveOffHeap() || _direct != null || _mem == null || _mem.length == 0 || _chk2 != null ) return null;
+    ByteBuffer bb = MemoryManager.mallocDirect(_mem.length);
+    if( bb == null ) return null;
+    long addr = UnsafeUtils.address(bb);
+    UnsafeUtils.copy(_mem,UnsafeUtils.BYTE_BASE,null,addr,_mem.length);
+    Chunk c = (Chunk)clone();
+    c._mem = null;
+    c._direct = bb;
+    c._memOff = addr;
+    return c;
+  }
 
   final long at8_abs(long i) {
     long x = i - (_start>0 ? _start : 0);
@@ -547,7 +591,7 @@ public abstract class Chunk extends Iced implements Cloneable {
 
   /** In memory size in bytes of the compressed Chunk plus embedded array. */
   public long byteSize() {
-    long s= _mem == null ? 0 : _mem.length;
+    long s= _mem == null ? (_direct == null ? 0 : _direct.capacity()) : _mem.length;
     s += (2+5)*8 + 12; // 2 hdr words, 5 other words, @8bytes each, plus mem array hdr
     if( _chk2 != null ) s += _chk2.byteSize();
     return s;
@@ -8,8 +8,12 @@ import water.util.Log;
 import water.util.PrettyPrint;
 import water.util.TwoDimTable;
 
+import water.persist.PersistManager;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -1127,63 +1131,151 @@ public class Frame extends Lockable<Frame> {
 
   /** Convert this Frame to a CSV (in an {@link InputStream}), that optionally
    *  is compatible with R 3.1's recent change to read.csv()'s behavior.
+   *
+   *  <p>Chunks are formatted on their home nodes, several at a time, while the
+   *  stream is being drained; the caller only ever copies finished bytes.
    *  @return An InputStream containing this Frame as a CSV */
   public InputStream toCSV(boolean headers, boolean hex_string) {
     return new CSVStream(headers, hex_string);
   }
 
+  /** Write this Frame as CSV part-files into directory {@code path}, one file
+   *  per chunk named {@code part-NNNNN}, with the header row (if any) in the
+   *  first part.  Every node writes the chunks it homes, in parallel; for a
+   *  node-local path each node's parts land on its own disk.  Concatenating the
+   *  parts in name order yields the same bytes as {@link #toCSV}. */
+  public void exportCSVParts(String path, boolean headers, boolean hex_string, boolean force) {
+    new ExportParts(path, headers ? csvHeader() : null, hex_string, force).doAll(this);
+  }
+
+  private byte[] csvHeader() {
+    StringBuilder sb = new StringBuilder();
+    sb.append('"').append(_names[0]).append('"');
+    for(int i = 1; i < _names.length; i++)
+      sb.append(',').append('"').append(_names[i]).append('"');
+    sb.append('\n');
+    return sb.toString().getBytes();
+  }
+
+  /** Format all rows of one set of aligned chunks as CSV lines. */
+  static byte[] chunksToCSV(Vec[] vs, Chunk[] cs, boolean hex_string) {
+    StringBuilder sb = new StringBuilder();
+    ValueString vstr = new ValueString();
+    int len = cs.length == 0 ? 0 : cs[0]._len;
+    for( int row = 0; row < len; row++ ) {
+      for( int i = 0; i < cs.length; i++ ) {
+        if(i > 0) sb.append(',');
+        Chunk c = cs[i];
+        if(!c.isNA(row)) {
+          if( vs[i].isEnum() ) sb.append('"').append(vs[i].factor(c.at8(row))).append('"');
+          else if( vs[i].isUUID() ) sb.append(PrettyPrint.UUID(c.at16l(row), c.at16h(row)));
+          else if( vs[i].isInt() ) sb.append(c.at8(row));
+          else if (vs[i].isString()) sb.append(c.atStr(vstr, row));
+          else {
+            double d = c.atd(row);
+            // R 3.1 unfortunately changed the behavior of read.csv().
+            // (Really type.convert()).
+            //
+            // Numeric values with too much precision now trigger a type conversion in R 3.1 into a factor.
+            //
+            // See these discussions:
+            //   https://bugs.r-project.org/bugzilla/show_bug.cgi?id=15751
+            //   https://stat.ethz.ch/pipermail/r-devel/2014-April/068778.html
+            //   http://stackoverflow.com/questions/23072988/preserve-old-pre-3-1-0-type-convert-behavior
+            sb.append(hex_string ? Double.toHexString(d) : Double.toString(d));
+          }
+        }
+      }
+      sb.append('\n');
+    }
+    return sb.toString().getBytes();
+  }
+
+  /** Formats one chunk index of a Frame as CSV on the node homing it. */
+  private static class CSVChunk extends DTask<CSVChunk> {
+    final Frame _fr;
+    final int _cidx;
+    final boolean _hex_string;
+    byte[] _csv;                // Output
+    CSVChunk(Frame fr, int cidx, boolean hex_string) { _fr = fr; _cidx = cidx; _hex_string = hex_string; }
+    @Override protected void compute2() {
+      Vec[] vs = _fr.vecs();
+      Chunk[] cs = new Chunk[vs.length];
+      for( int i = 0; i < vs.length; i++ )
+        cs[i] = vs[i].chunkForChunkIdx(_cidx);
+      _csv = chunksToCSV(vs, cs, _hex_string);
+      tryComplete();
+    }
+  }
+
+  /** Writes each chunk as its own part-file, from the node holding it. */
+  private static class ExportParts extends MRTask<ExportParts> {
+    final String _path;
+    final byte[] _header;
+    final boolean _hex_string, _force;
+    ExportParts(String path, byte[] header, boolean hex_string, boolean force) {
+      _path = path; _header = header; _hex_string = hex_string; _force = force;
+    }
+    @Override protected void setupLocal() {
+      PersistManager pm = H2O.getPM();
+      if( !pm.exists(_path) ) pm.mkdirs(_path);
+    }
+    @Override public void map(Chunk[] cs) {
+      int cidx = cs[0].cidx();
+      String part = _path + "/" + String.format("part-%05d", cidx);
+      try( OutputStream os = H2O.getPM().create(part, _force) ) {
+        if( cidx == 0 && _header != null ) os.write(_header);
+        os.write(chunksToCSV(_fr.vecs(), cs, _hex_string));
+      } catch( IOException e ) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /** Streams the CSV chunk by chunk, keeping a window of chunk formatting
+   *  tasks in flight ahead of the reader so remote fetch and formatting
+   *  overlap with the copy to the client. */
   private class CSVStream extends InputStream {
     private final boolean _hex_string;
+    private final ArrayDeque<RPC<CSVChunk>> _pending = new ArrayDeque<>();
+    private final int _nchunks;
+    private int _next;          // Next chunk index to request
+    private long _bytes;        // Bytes of formatted chunks received so far
     byte[] _line;
     int _position;
-    long _row;
+
+    // Formatted chunks requested ahead of the reader.  A formatted chunk can
+    // be many times its compressed size, so the window is capped by a byte
+    // budget (estimated from the average chunk received so far) as well as
+    // by count; at least one chunk is always in flight.
+    private static final int  MAX_AHEAD = 4;
+    private static final long MAX_BUFFERED = 64L<<20;
 
     CSVStream(boolean headers, boolean hex_string) {
       _hex_string = hex_string;
-      StringBuilder sb = new StringBuilder();
-      Vec vs[] = vecs();
-      if( headers ) {
-        sb.append('"').append(_names[0]).append('"');
-        for(int i = 1; i < vs.length; i++)
-          sb.append(',').append('"').append(_names[i]).append('"');
-        sb.append('\n');
+      _line = headers && numCols() > 0 ? csvHeader() : new byte[0];
+      _nchunks = numCols() == 0 ? 0 : anyVec().nChunks();
+      prefetch();
+    }
+
+    private void prefetch() {
+      int done = _next - _pending.size();
+      long avg = done == 0 ? 0 : _bytes/done;
+      while( _next < _nchunks && _pending.size() < MAX_AHEAD &&
+             (_pending.isEmpty() || (_pending.size()+1)*avg <= MAX_BUFFERED) ) {
+        H2ONode home = anyVec().chunkKey(_next).home_node();
+        _pending.add(new RPC<>(home, new CSVChunk(Frame.this, _next++, _hex_string)).call());
       }
-      _line = sb.toString().getBytes();
     }
 
     @Override public int available() throws IOException {
-      if(_position == _line.length) {
-        if(_row == numRows())
-          return 0;
-        StringBuilder sb = new StringBuilder();
-        Vec vs[] = vecs();
-        for( int i = 0; i < vs.length; i++ ) {
-          if(i > 0) sb.append(',');
-          if(!vs[i].isNA(_row)) {
-            if( vs[i].isEnum() ) sb.append('"').append(vs[i].factor(vs[i].at8(_row))).append('"');
-            else if( vs[i].isUUID() ) sb.append(PrettyPrint.UUID(vs[i].at16l(_row), vs[i].at16h(_row)));
-            else if( vs[i].isInt() ) sb.append(vs[i].at8(_row));
-            else if (vs[i].isString()) sb.append(vs[i].atStr(new ValueString(), _row));
-            else {
-              double d = vs[i].at(_row);
-              // R 3.1 unfortunately changed the behavior of read.csv().
-              // (Really type.convert()).
-              //
-              // Numeric values with too much precision now trigger a type conversion in R 3.1 into a factor.
-              //
-              // See these discussions:
-              //   https://bugs.r-project.org/bugzilla/show_bug.cgi?id=15751
-              //   https://stat.ethz.ch/pipermail/r-devel/2014-April/068778.html
-              //   http://stackoverflow.com/questions/23072988/preserve-old-pre-3-1-0-type-convert-behavior
-              String s = _hex_string ? Double.toHexString(d) : Double.toString(d);
-              sb.append(s);
-            }
-          }
-        }
-        sb.append('\n');
-        _line = sb.toString().getBytes();
+      while( _position == _line.length ) {
+        RPC<CSVChunk> rpc = _pending.poll();
+        if( rpc == null ) return 0;
+        _line = rpc.get()._csv;
         _position = 0;
-        _row++;
+        _bytes += _line.length;
+        prefetch();
       }
       return _line.length - _position;
     }
@@ -1191,19 +1283,19 @@ public class Frame extends Lockable<Frame> {
     @Override public void close() throws IOException {
       super.close();
       _line = null;
+      _pending.clear();
     }
 
     @Override public int read() throws IOException {
-      return available() == 0 ? -1 : _line[_position++];
+      return available() == 0 ? -1 : (_line[_position++] & 0xFF);
     }
 
     @Override public int read(byte[] b, int off, int len) throws IOException {
       int n = available();
-      if(n > 0) {
-        n = Math.min(n, len);
-        System.arraycopy(_line, _position, b, off, n);
-        _position += n;
-      }
+      if( n == 0 ) return -1;
+      n = Math.min(n, len);
+      System.arraycopy(_line, _position, b, off, n);
+      _position += n;
       return n;
     }
   }
@@ -0,0 +1,163 @@
+package water.fvec;
+
+import water.*;
+import water.persist.PersistManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** Native binary snapshot of a {@link Frame}.
+ *
+ *  <p>A snapshot is a directory holding one {@code frame.bin} metadata file
+ *  (column names, chunk layout, Vec types and domains, and the
+ *  {@link RollupStats}) plus one {@code chunk-NNNNN} file per chunk index
+ *  holding the already compressed bytes of that chunk for every column.
+ *  Chunk files are written and read in parallel by the nodes homing the
+ *  chunks, so saving and loading cost about as much as the I/O itself: there
+ *  is no type guessing, domain building or re-compression as with a CSV
+ *  round trip through the parser.
+ *
+ *  <p>Chunk classes are recorded by name, not by {@link TypeMap} id, so a
+ *  snapshot can be loaded by a different cloud.  On a multi-node cloud the
+ *  path should be on a filesystem every node can see (HDFS, S3, NFS).
+ */
+public class FrameSnapshot {
+  static final int VERSION = 1;
+  static final String META = "frame.bin";
+
+  private static String chunkFile(String path, int cidx) {
+    return path + "/" + String.format("chunk-%05d", cidx);
+  }
+
+  /** Save {@code fr} under directory {@code path}.  The metadata file is
+   *  written last, so a partially written snapshot does not load. */
+  public static void save(Frame fr, String path, boolean force) {
+    PersistManager pm = H2O.getPM();
+    if( !pm.exists(path) ) pm.mkdirs(path);
+    Vec[] vecs = fr.vecs();
+    if( fr.numCols() > 0 && fr.anyVec().nChunks() > 0 )
+      new SaveChunks(path, force).doAll(fr);
+
+    AutoBuffer ab = new AutoBuffer();
+    ab.put4(VERSION);
+    ab.putAStr(fr.names());
+    ab.putA8(vecs.length == 0 ? new long[]{0} : fr.anyVec()._espc);
+    ab.put4(vecs.length);
+    for( Vec v : vecs ) {
+      ab.put1(v._type);
+      ab.putAStr(v.domain());
+      RollupStats.get(v).write(ab);
+    }
+    try( OutputStream os = pm.create(path + "/" + META, force) ) {
+      os.write(ab.buf());
+    } catch( IOException e ) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Load the snapshot under directory {@code path} into a new Frame stored
+   *  in the DKV under {@code key}. */
+  public static Frame load(Key<Frame> key, String path) {
+    AutoBuffer ab = new AutoBuffer(readAll(path + "/" + META));
+    int version = ab.get4();
+    if( version != VERSION )
+      throw new IllegalArgumentException("Unsupported frame snapshot version " + version + " in " + path);
+    String[] names = ab.getAStr();
+    long[] espc = ab.getA8();
+    int ncols = ab.get4();
+
+    Futures fs = new Futures();
+    Vec[] vecs = new Vec[ncols];
+    if( ncols > 0 ) {
+      // A throwaway Vec in the new group to drive the load: its chunks live on
+      // the same nodes as the chunks of every Vec we are about to create.
+      Vec shape = new Vec(Vec.newKey(), espc).makeZero();
+      Key<Vec>[] keys = shape.group().addVecs(ncols);
+      for( int i = 0; i < ncols; i++ ) {
+        byte type = ab.get1();
+        String[] domain = ab.getAStr();
+        RollupStats rs = RollupStats.makeMutating();
+        rs.read(ab);
+        vecs[i] = new Vec(keys[i], espc, domain, type);
+        DKV.put(vecs[i].rollupStatsKey(), rs, fs);
+      }
+      if( espc.length > 1 )
+        new LoadChunks(path, keys).doAll(shape);
+      for( Vec v : vecs ) DKV.put(v._key, v, fs);
+      shape.remove(fs);
+    }
+    Frame fr = new Frame(key, names, vecs);
+    DKV.put(key, fr, fs);
+    fs.blockForPending();
+    return fr;
+  }
+
+  private static byte[] readAll(String path) {
+    try( InputStream is = H2O.getPM().open(path) ) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      byte[] buf = new byte[1 << 16];
+      int n;
+      while( (n = is.read(buf)) != -1 )
+        bos.write(buf, 0, n);
+      return bos.toByteArray();
+    } catch( IOException e ) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Writes the chunks of each chunk index as one file, on their home node. */
+  private static class SaveChunks extends MRTask<SaveChunks> {
+    final String _path;
+    final boolean _force;
+    SaveChunks(String path, boolean force) { _path = path; _force = force; }
+    @Override protected void setupLocal() {
+      PersistManager pm = H2O.getPM();
+      if( !pm.exists(_path) ) pm.mkdirs(_path);
+    }
+    @Override public void map(Chunk[] cs) {
+      int cidx = cs[0].cidx();
+      AutoBuffer ab = new AutoBuffer();
+      ab.put4(cs.length);
+      for( Chunk c : cs ) {
+        // Stored chunks go out exactly as they sit in the K/V store; chunks of
+        // computed Vecs (e.g. enum-wrapped) are materialized first.
+        Value val = DKV.get(c.vec().chunkKey(cidx));
+        if( val != null ) {
+          ab.putStr(val.className());
+          ab.putA1(val.memOrLoad());
+        } else {
+          Chunk cc = c.inflate().compress();
+          ab.putStr(cc.getClass().getName());
+          ab.putA1(cc.getBytes());
+        }
+      }
+      try( OutputStream os = H2O.getPM().create(chunkFile(_path, cidx), _force) ) {
+        os.write(ab.buf());
+      } catch( IOException e ) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  /** Reads one chunk file per chunk index and puts its chunks straight into
+   *  the local K/V store. */
+  private static class LoadChunks extends MRTask<LoadChunks> {
+    final String _path;
+    final Key[] _keys;
+    LoadChunks(String path, Key[] keys) { _path = path; _keys = keys; }
+    @Override public void map(Chunk shape) {
+      int cidx = shape.cidx();
+      AutoBuffer ab = new AutoBuffer(readAll(chunkFile(_path, cidx)));
+      int ncols = ab.get4();
+      assert ncols == _keys.length;
+      for( int i = 0; i < ncols; i++ ) {
+        short type = (short)TypeMap.onIce(ab.getStr());
+        byte[] mem = ab.getA1();
+        Key ckey = Vec.chunkKey(_keys[i], cidx);
+        DKV.put(ckey, new Value(ckey, mem.length, mem, type, Value.ICE), _fs);
+      }
+    }
+  }
+}
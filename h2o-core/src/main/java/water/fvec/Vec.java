@@ -364,7 +364,7 @@ public class Vec extends Keyed<Vec> {
         c2._vec=null;
         c2._start=-1;
         c2._cidx=-1;
-        c2._mem = c2._mem.clone();
+        c2.setBytes(c.isOffHeap() ? c.getBytes() : c2._mem.clone());
         DKV.put(v.chunkKey(c.cidx()), c2, _fs);
       }
     }.doAll(this);
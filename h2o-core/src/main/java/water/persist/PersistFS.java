@@ -64,7 +64,7 @@ final class PersistFS extends Persist {
     catch( FileNotFoundException e ) { throw Log.throwErr(e); }
     try {
       byte[] m = v.memOrLoad(); // we are not single threaded anymore
-      if( m != null && m.length == v._max ) {
+      if( m != null && m.length != v._max ) {
         Log.warn("Value size mismatch? " + v._key + " byte[].len=" + m.length+" v._max="+v._max);
         v._max = m.length; // Implies update of underlying POJO, then re-serializing it without K/V storing it
       }
@@ -127,6 +127,7 @@ public class PersistManager {
   public void store(int backend, Value v) {
     stats[backend].store_count.incrementAndGet();
     I[backend].store(v);
+    stats[backend].store_bytes.addAndGet(v._max);
   }
 
   public void delete(int backend, Value v) {
@@ -137,7 +138,7 @@ public class PersistManager {
   public byte[] load(int backend, Value v) throws IOException {
     stats[backend].load_count.incrementAndGet();
     byte[] arr = I[backend].load(v);
-    stats[backend].load_bytes.addAndGet(arr.length);
+    if( arr != null ) stats[backend].load_bytes.addAndGet(arr.length);
     return arr;
   }
 
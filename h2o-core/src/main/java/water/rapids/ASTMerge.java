@@ -3,11 +3,14 @@ package water.rapids;
 import water.*;
 import water.fvec.*;
 import water.nbhm.*;
+import water.util.ArrayUtils;
+import water.util.Log;
 import java.util.Arrays;
+import java.util.HashMap;
 
 
 /** plyr's merge: Join by any other name.
- *  Sample AST: (merge $leftFrame $rightFrame allLeftFlag allRightFlag)
+ *  Sample AST: (merge $leftFrame $rightFrame allLeftFlag allRightFlag [method])
  *
  *  Joins two frames; all columns with the same names will be the join key.  If
  *  you want to join on a subset of identical names, rename the columns first
@@ -16,11 +19,32 @@ import java.util.Arrays;
  *  If allLeftFlag is true, all rows in the leftFrame will be included, even if
  *  there is no matching row in the rightFrame, and vice-versa for
  *  allRightFlag.  Missing data will appear as NAs.  Both flags can be true.
+ *
+ *  Two join strategies are available, picked by the optional method string:
+ *  <ul>
+ *  <li>"broadcast": the smaller frame is hashed and replicated to every node,
+ *  and the larger frame is streamed past it in place.  Fast, but the whole
+ *  smaller frame must fit in every node's heap.</li>
+ *  <li>"partitioned": both frames are hash-partitioned by key across the
+ *  cloud, and each partition is joined locally.  Each node only ever holds
+ *  its share of both frames.</li>
+ *  <li>"auto" (the default): broadcast if the smaller frame is below
+ *  1/{@link #BROADCAST_FRACTION} of the smallest node heap, else
+ *  partitioned.</li>
+ *  </ul>
+ *  The result has the key columns, then the remaining larger-frame columns,
+ *  then the remaining smaller-frame columns.
  */
 public class ASTMerge extends ASTOp {
   static final String VARS[] = new String[]{ "ary", "leftary", "rightary", "allleft", "allright"};
 
+  // Broadcast joins are used when the smaller frame is below this fraction
+  // of the smallest node heap; hashing and replication inflate it several
+  // times over its compressed size.
+  static final int BROADCAST_FRACTION = 16;
+
   boolean _allLeft, _allRite;
+  String _method = "auto";
   public ASTMerge( ) { super(VARS); }
   @Override String opStr(){ return "merge";}
   @Override ASTOp make() {return new ASTMerge();}
@@ -40,6 +64,10 @@ public class ASTMerge extends ASTOp {
     if( a instanceof ASTNum ) _allRite = ((ASTNum)a)._d==1;
     else throw new IllegalArgumentException("Argument `allRite` expected to be a boolean.");
 
+    _method = E.isEnd() ? "auto" : E.nextStr();
+    if( !Arrays.asList("auto","broadcast","partitioned").contains(_method) )
+      throw new IllegalArgumentException("Argument `method` expected to be one of auto, broadcast, partitioned; got "+_method);
+
     E.eatEnd();
     // Finish the rest
     ASTMerge res = (ASTMerge) clone();
@@ -71,8 +99,8 @@ public class ASTMerge extends ASTOp {
                                              " found types "+lv.get_type_str()+" and "+rv.get_type_str());
         if( lv.isString() )  
           throw new IllegalArgumentException("Cannot merge Strings; flip toEnum first");
-        if( lv.isNumeric() && !lv.isInt())  
-          throw new IllegalArgumentException("Equality tests on doubles rarely work, please round to integers only before merging");
+        if( lv.isUUID() )
+          throw new IllegalArgumentException("Cannot merge on UUID columns");
         ncols++;
       }
     }
@@ -86,16 +114,20 @@ public class ASTMerge extends ASTOp {
     for( int i=ncols; i<r.numCols(); i++ ) rsize += r.vecs()[i].byteSize();
     Frame small = lsize < rsize ? l : r;
     Frame large = lsize < rsize ? r : l;
+    boolean allLarge = large==l ? _allLeft : _allRite;
+    boolean allSmall = large==l ? _allRite : _allLeft;
 
     // Build enum mappings, to rapidly convert enums from the larger
     // distributed set to the smaller hashed & replicated set.
     int[][] enum_maps = new int[ncols][];
     int[][]   id_maps = new int[ncols][];
+    String[][] key_domains = new String[ncols][]; // Union of both key domains
     for( int i=0; i<ncols; i++ ) {
       Vec lv = large.vecs()[i];
       if( lv.isEnum() ) {
         EnumWrappedVec ewv = new EnumWrappedVec(lv.domain(),small.vecs()[i].domain());
         int[] ids = enum_maps[i] = ewv.enum_map();
+        key_domains[i] = ewv.domain();
         DKV.remove(ewv._key);
         // Build an Identity map for the smaller hash
         id_maps[i] = new int[ids.length];
@@ -103,6 +135,14 @@ public class ASTMerge extends ASTOp {
       }
     }
 
+    // The broadcast join only keeps unmatched rows of the larger frame
+    if( _method.equals("broadcast") && allSmall )
+      throw new IllegalArgumentException("Broadcast merge cannot keep all rows of the smaller frame; use method partitioned");
+    if( _method.equals("partitioned") || (_method.equals("auto") && (allSmall || small.byteSize() > minHeap()/BROADCAST_FRACTION)) ) {
+      env.pushAry(partitionedJoin(ncols,large,small,enum_maps,key_domains,allLarge,allSmall));
+      return;
+    }
+
     // MergeSet is from local (non-replicated) chunks/row to other-chunks/row.
     // Row object in table has e.g. chunks and a row number; passed-in Row
     // object can also have chunks & a row number.  Hash based on contents of
@@ -111,15 +151,147 @@ public class ASTMerge extends ASTOp {
 
     // run a global parallel work: lookup non-hashed rows in hashSet; find
     // matching row; append matching column data
-    String[]   names  = Arrays.copyOfRange(small._names   ,ncols,small._names.length-ncols+1);
-    String[][] domains= Arrays.copyOfRange(small.domains(),ncols,small._names.length-ncols+1);
-    Frame res = new DoJoin(ncols,uniq,enum_maps,_allLeft).doAll(small.numCols()-ncols,large).outputFrame(names,domains);
+    String[]   names  = Arrays.copyOfRange(small._names   ,ncols,small._names.length);
+    String[][] domains= Arrays.copyOfRange(small.domains(),ncols,small._names.length);
+    Frame res = new DoJoin(ncols,uniq,enum_maps,allLarge).doAll(small.numCols()-ncols,large).outputFrame(names,domains);
     Frame res2 = large.add(res);
     env.addVec(res.anyVec());     // !!HACK!!
     System.out.println(res2);
     env.push(new ValFrame(res2));
   }
 
+  // Smallest max heap across the cloud
+  private static long minHeap() {
+    long min = Long.MAX_VALUE;
+    for( H2ONode h2o : H2O.CLOUD.members() )
+      min = Math.min(min, h2o==H2O.SELF ? Runtime.getRuntime().maxMemory() : h2o._heartbeat.get_max_mem());
+    return min;
+  }
+
+  // Hash bits for a key value; folds -0.0 into 0.0 and all NaNs (NAs) together
+  static long bits( double d ) { return Double.doubleToLongBits(d==0 ? 0 : d); }
+
+  // Hash-partition both frames by key into node-local buckets, then join each
+  // partition locally.  Only one partition of each frame is ever gathered in
+  // one place, so neither frame needs to fit in a single node.
+  private static Frame partitionedJoin( int ncols, Frame large, Frame small, int[][] enum_maps, String[][] key_domains, boolean allLarge, boolean allSmall ) {
+    for( Vec v : large.vecs() ) if( v.isString() || v.isUUID() ) throw new IllegalArgumentException("Partitioned merge does not support String or UUID columns");
+    for( Vec v : small.vecs() ) if( v.isString() || v.isUUID() ) throw new IllegalArgumentException("Partitioned merge does not support String or UUID columns");
+    long s = System.currentTimeMillis();
+    int nparts = Math.max(1,large.anyVec().nChunks());
+    // Enum keys of the larger frame are remapped into the smaller frame's
+    // domain, so equal levels have equal values on both sides
+    Key luniq = new HashBin(nparts,ncols,enum_maps).doAll(large)._uniq;
+    Key suniq = new HashBin(nparts,ncols,new int[ncols][]).doAll(small)._uniq;
+    Vec shape = Vec.makeCon(0,nparts,0);
+    try {
+      String[] names = ArrayUtils.append(large.names(),Arrays.copyOfRange(small._names,ncols,small._names.length));
+      String[][] domains = ArrayUtils.append(large.domains(),Arrays.copyOfRange(small.domains(),ncols,small._names.length));
+      for( int i=0; i<ncols; i++ ) if( key_domains[i] != null ) domains[i] = key_domains[i];
+      Frame res = new PartJoin(ncols,luniq,suniq,large.numCols(),small.numCols(),allLarge,allSmall)
+        .doAll(names.length,shape).outputFrame(names,domains);
+      Log.info("Merge: partitioned join of "+large.numRows()+" x "+small.numRows()+" rows into "+res.numRows()+" rows in "+(System.currentTimeMillis()-s)/1000.+" (s)");
+      return res;
+    } finally {
+      new ASTSort.Cleanup(luniq).doAllNodes();
+      new ASTSort.Cleanup(suniq).doAllNodes();
+      shape.remove();
+    }
+  }
+
+  // Bin rows by a hash of the (enum-remapped) key columns
+  private static class HashBin extends ASTSort.Binner<HashBin> {
+    final int _ncols;           // Number of leading key columns
+    final int[][] _enum_maps;   // Per key column enum remapping, or null
+    HashBin( int nparts, int ncols, int[][] enum_maps ) { super(nparts); _ncols = ncols; _enum_maps = enum_maps; }
+    @Override double value( Chunk[] chks, int c, int row ) {
+      if( c >= _ncols || _enum_maps[c] == null || chks[c].isNA(row) ) return chks[c].atd(row);
+      return _enum_maps[c][(int)chks[c].at8(row)];
+    }
+    @Override void partition( Chunk[] chks, int[] part ) {
+      for( int r=0; r<part.length; r++ ) {
+        long h = 0;
+        for( int c=0; c<_ncols; c++ ) h = h*31 + bits(value(chks,c,r));
+        h ^= h>>>33;  h *= 0xff51afd7ed558ccdL;  h ^= h>>>33; // Spread the low bits
+        part[r] = (int)((h&Long.MAX_VALUE)%_nparts);
+      }
+    }
+  }
+
+  // Key columns of one gathered row, hashable
+  private static class JoinKey {
+    final double[][] _ds;  final int _ncols, _row, _hash;
+    JoinKey( double[][] ds, int ncols, int row ) {
+      _ds = ds;  _ncols = ncols;  _row = row;
+      long h = 0;
+      for( int c=0; c<ncols; c++ ) h = h*31 + bits(ds[c][row]);
+      _hash = (int)(h^(h>>32));
+    }
+    @Override public int hashCode() { return _hash; }
+    @Override public boolean equals( Object o ) {
+      JoinKey k = (JoinKey)o;
+      if( _hash != k._hash ) return false;
+      for( int c=0; c<_ncols; c++ )
+        if( bits(_ds[c][_row]) != bits(k._ds[c][k._row]) ) return false;
+      return true;
+    }
+  }
+
+  // One output Chunk per partition: gather the partition from both frames,
+  // hash the smaller side, and stream the larger side past it.  Output rows
+  // follow the larger frame's row order within a partition; unmatched
+  // smaller rows (for an outer join) come last.
+  private static class PartJoin extends MRTask<PartJoin> {
+    final int _ncols;           // Number of key columns
+    final Key _luniq, _suniq;   // Buckets of the larger and smaller frames
+    final int _lcols, _scols;   // Total columns in each frame
+    final boolean _allLarge, _allSmall;
+    PartJoin( int ncols, Key luniq, Key suniq, int lcols, int scols, boolean allLarge, boolean allSmall ) {
+      _ncols = ncols; _luniq = luniq; _suniq = suniq; _lcols = lcols; _scols = scols; _allLarge = allLarge; _allSmall = allSmall;
+    }
+    @Override public void map( Chunk[] cs, NewChunk[] ncs ) {
+      int part = cs[0].cidx();
+      ASTSort.FetchBucket L = ASTSort.gather(_luniq,part,_lcols);
+      ASTSort.FetchBucket S = ASTSort.gather(_suniq,part,_scols);
+      int nl = L._rows.length, ns = S._rows.length;
+      int[] lperm = ASTSort.radixSort(new long[][]{L._rows},nl);
+      int[] sperm = ASTSort.radixSort(new long[][]{S._rows},ns);
+
+      // Hash the smaller side; duplicate keys chain through next[] in row order
+      HashMap<JoinKey,Integer> heads = new HashMap<>();
+      int[] next = new int[ns];
+      for( int i=ns-1; i>=0; i-- ) {
+        int j = sperm[i];
+        Integer h = heads.put(new JoinKey(S._ds,_ncols,j),j);
+        next[j] = h==null ? -1 : h;
+      }
+
+      boolean[] matched = new boolean[ns];
+      for( int i=0; i<nl; i++ ) {
+        int li = lperm[i];
+        Integer h = heads.get(new JoinKey(L._ds,_ncols,li));
+        if( h == null ) {
+          if( _allLarge ) emit(ncs,L._ds,li,null,-1);
+          continue;
+        }
+        for( int j=h; j!=-1; j=next[j] ) {
+          emit(ncs,L._ds,li,S._ds,j);
+          matched[j] = true;
+        }
+      }
+      if( _allSmall )
+        for( int i=0; i<ns; i++ )
+          if( !matched[sperm[i]] ) emit(ncs,null,-1,S._ds,sperm[i]);
+    }
+    // Append one joined row; a null side contributes NAs
+    private void emit( NewChunk[] ncs, double[][] lds, int li, double[][] sds, int si ) {
+      int x=0;
+      for( int c=0; c<_ncols; c++ ) ncs[x++].addNum(lds==null ? sds[c][si] : lds[c][li]);
+      for( int c=_ncols; c<_lcols; c++ ) ncs[x++].addNum(lds==null ? Double.NaN : lds[c][li]);
+      for( int c=_ncols; c<_scols; c++ ) ncs[x++].addNum(sds==null ? Double.NaN : sds[c][si]);
+    }
+  }
+
   // One Row object per row of the smaller dataset, so kept as small as
   // possible.  The _chks[] array is shared across many Rows.
   private static class Row {
@@ -131,13 +303,12 @@ public class ASTMerge extends ASTOp {
     Row fill( int row, int ncols, int[][] enum_maps ) {
       _row = row; 
       _enum_maps = enum_maps;
-      // Precompute hash: columns are integer only (checked before we started
-      // here).  NAs count as a zero for hashing.
+      // Precompute hash: enums hash by (mapped) level, everything else by
+      // the bits of the double value.  NAs count as a zero for hashing.
       long hash = 0;
       for( int i=0; i<ncols; i++ ) {
         if( _chks[i].isNA(_row) ) continue;
-        long l = _chks[i].at8(_row);
-        hash += enum_maps[i]==null ? l : enum_maps[i][(int)l];
+        hash = hash*31 + (enum_maps[i]==null ? bits(_chks[i].atd(_row)) : enum_maps[i][(int)_chks[i].at8(_row)]);
       }
       _hash = (int)(hash^(hash>>32));
       return this;
@@ -154,11 +325,11 @@ public class ASTMerge extends ASTOp {
         boolean lb = _chks[c].isNA(_row), rb = r._chks[c].isNA(r._row);
         if( lb && rb ) continue;     // Both NA, count as equal
         if( lb || rb ) return false; // One NA, one not - count as unequal
-        // Check longs for equality (thru the enum maps, if needed)
-        long ll = _chks[c].at8(_row), rl = r._chks[c].at8(r._row);
+        // Check values for equality (thru the enum maps, if needed)
         if( _enum_maps[c] == null ) {
-          if( ll != rl ) return false;
+          if( _chks[c].atd(_row) != r._chks[c].atd(r._row) ) return false;
         } else {
+          long ll = _chks[c].at8(_row), rl = r._chks[c].at8(r._row);
           if( _enum_maps[c][(int) ll] != r._enum_maps[c][(int) rl] ) return false;
         }
       }
@@ -193,6 +193,7 @@ public abstract class ASTOp extends AST {
     putPrefix(new ASTddply());
     putPrefix(new ASTMerge ());
     putPrefix(new ASTGroupBy());
+    putPrefix(new ASTSort  ());
 //    putPrefix(new ASTUnique());
     putPrefix(new ASTXorSum());
     putPrefix(new ASTRunif ());
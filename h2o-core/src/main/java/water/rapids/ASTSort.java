@@ -0,0 +1,375 @@
+package water.rapids;
+
+import water.*;
+import water.fvec.*;
+import water.nbhm.NonBlockingHashMap;
+import water.util.ArrayUtils;
+import water.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** Sort a Frame by one or more columns.
+ *  Sample AST: (sort %fr (llist #0 #3) (llist #0 #1))
+ *
+ *  The second argument lists the sort columns, most significant first.  The
+ *  optional third argument is either a single boolean (%TRUE for decreasing)
+ *  or a list of 0/1 flags, one per sort column.  NAs always sort last, and
+ *  ties keep their original row order (the sort is stable).
+ *
+ *  The sort is distributed: a sample of the sort keys picks range splitters
+ *  so every output Chunk gets about the same number of rows; each row is then
+ *  binned by splitter into a node-local bucket; finally each output Chunk
+ *  gathers its bucket from every node and radix sorts it locally.  The
+ *  result has about as many Chunks as the input, with balanced espc.
+ *
+ *  All columns are carried as doubles, so String and UUID columns are not
+ *  supported.
+ */
+public class ASTSort extends ASTUniPrefixOp {
+  private long[] _cols;         // Sort columns, most significant first
+  private boolean[] _desc;      // Decreasing flag per sort column (or single flag)
+  ASTSort() { super(null); }
+  @Override String opStr() { return "sort"; }
+  @Override ASTOp make() { return new ASTSort(); }
+  ASTSort parse_impl(Exec E) {
+    AST ary = E.parse();
+    AST s = E.parse();
+    if( s instanceof ASTLongList ) _cols = ((ASTLongList)s)._l;
+    else if( s instanceof ASTNum ) _cols = new long[]{(long)((ASTNum)s)._d};
+    else throw new IllegalArgumentException("Badly formed AST. Columns argument must be a llist or number. Got: " +s.getClass());
+
+    _desc = new boolean[]{false};
+    if( !E.isEnd() ) {
+      AST a = E.parse();
+      if( a instanceof ASTId ) a = E._env.lookup((ASTId)a);
+      if( a instanceof ASTNum ) _desc[0] = ((ASTNum)a)._d==1;
+      else if( a instanceof ASTLongList ) {
+        long[] l = ((ASTLongList)a)._l;
+        _desc = new boolean[l.length];
+        for( int i=0; i<l.length; i++ ) _desc[i] = l[i]==1;
+      } else throw new IllegalArgumentException("Argument `decreasing` expected to be a boolean or a llist of booleans.");
+    }
+    E.eatEnd();
+    ASTSort res = (ASTSort)clone();
+    res._asts = new AST[]{ary};
+    return res;
+  }
+
+  @Override void apply(Env e) {
+    Frame fr = e.popAry();
+    e.pushAry(sort(fr,_cols,_desc));
+  }
+
+  /** Sort a Frame by the given columns; returns a new Frame with fresh Vecs.
+   *  @param cols sort columns, most significant first
+   *  @param desc either a single decreasing flag, or one flag per column */
+  public static Frame sort( Frame fr, long[] cols, boolean[] desc ) {
+    int ncols = cols.length;
+    if( ncols == 0 ) throw new IllegalArgumentException("Sort requires at least one column");
+    if( desc.length != 1 && desc.length != ncols )
+      throw new IllegalArgumentException("Expected 1 or "+ncols+" decreasing flags, found "+desc.length);
+    int[] ics = new int[ncols];
+    boolean[] ds = new boolean[ncols];
+    for( int i=0; i<ncols; i++ ) {
+      if( cols[i] < 0 || cols[i] >= fr.numCols() )
+        throw new IllegalArgumentException("Column index out of bounds: "+cols[i]);
+      ics[i] = (int)cols[i];
+      ds[i] = desc.length==1 ? desc[0] : desc[i];
+    }
+    for( Vec v : fr.vecs() )
+      if( v.isString() || v.isUUID() )
+        throw new IllegalArgumentException("Cannot sort a Frame with String or UUID columns, column type "+v.get_type_str());
+
+    long nrows = fr.numRows();
+    if( nrows == 0 ) return fr.deepCopy(null);
+
+    // Pass 1: sample keys and pick splitters for P range partitions
+    long s = System.currentTimeMillis();
+    int nparts = Math.max(1,fr.anyVec().nChunks());
+    long[][] samples = new Sample(ics,ds,Math.min(nrows,(long)nparts*SAMPLES_PER_PART)).doAll(fr)._samples;
+    Arrays.sort(samples, new Comparator<long[]>() {
+        @Override public int compare(long[] a, long[] b) { return cmp(a,b); }
+      });
+    nparts = (int)Math.min(nparts,samples.length);
+    long[][] splits = new long[nparts-1][];
+    for( int i=1; i<nparts; i++ )
+      splits[i-1] = samples[(int)((long)i*samples.length/nparts)];
+
+    // Pass 2: bin all rows into node-local buckets, one per partition
+    Bin bin = new Bin(ics,ds,splits).doAll(fr);
+    long[] cnts = bin._cnts;
+    Log.info("Sort: binned "+nrows+" rows into "+nparts+" partitions in "+(System.currentTimeMillis()-s)/1000.+" (s)");
+
+    // Pass 3: one output Chunk per non-empty partition; each gathers and
+    // sorts its bucket from all nodes.
+    int nchks=0;
+    for( long c : cnts ) if( c > 0 ) nchks++;
+    int[] pids = new int[nchks];
+    long[] espc = new long[nchks+1];
+    for( int p=0, j=0; p<nparts; p++ )
+      if( cnts[p] > 0 ) { pids[j] = p; espc[j+1] = espc[j]+cnts[p]; j++; }
+    Vec shape = new Vec(Vec.newKey(),espc).makeZero();
+    Frame res;
+    try {
+      res = new Gather(bin._uniq,ics,ds,pids,fr.numCols()).doAll(fr.numCols(),shape).outputFrame(fr.names(),fr.domains());
+    } finally {
+      new Cleanup(bin._uniq).doAllNodes();
+      shape.remove();
+    }
+    // Restore time column types; everything else round-trips through doubles
+    Futures fs = new Futures();
+    Vec[] vecs = res.vecs().clone();
+    for( int i=0; i<vecs.length; i++ )
+      if( fr.vecs()[i].isTime() )
+        DKV.put(vecs[i]._key, vecs[i] = new Vec(vecs[i]._key, vecs[i]._espc, null, fr.vecs()[i].get_type()), fs);
+    fs.blockForPending();
+    res = new Frame(res.names(),vecs);
+    Log.info("Sort: "+nrows+" rows in "+(System.currentTimeMillis()-s)/1000.+" (s)");
+    return res;
+  }
+
+  // Target sample size per output partition; more samples give better
+  // balanced partitions at the cost of a bigger driver-side sort.
+  static final int SAMPLES_PER_PART = 32;
+
+  // Sortable unsigned-long key for a double: flip the sign bit of positives
+  // and all bits of negatives so unsigned order matches numeric order.
+  // Decreasing keys are complemented.  NA maps to all-ones and sorts last
+  // either way.
+  static long key( double d, boolean desc ) {
+    if( Double.isNaN(d) ) return -1L;
+    if( d == 0 ) d = 0;         // Fold -0.0 into 0.0
+    long bits = Double.doubleToRawLongBits(d);
+    long k = bits ^ ((bits>>63)|Long.MIN_VALUE);
+    return desc ? ~k : k;
+  }
+  // Fill the sort key tuple for a row; the trailing element is the global
+  // row number which breaks ties and keeps the sort stable.
+  static void keys( Chunk[] chks, int[] cols, boolean[] desc, int row, long[] ks ) {
+    for( int i=0; i<cols.length; i++ ) ks[i] = key(chks[cols[i]].atd(row),desc[i]);
+    ks[cols.length] = chks[0].start()+row;
+  }
+  static int cmp( long[] a, long[] b ) {
+    for( int i=0; i<a.length; i++ ) {
+      int c = Long.compare(a[i]+Long.MIN_VALUE, b[i]+Long.MIN_VALUE); // Unsigned compare
+      if( c != 0 ) return c;
+    }
+    return 0;
+  }
+
+  // Evenly spaced key samples from each Chunk
+  private static class Sample extends MRTask<Sample> {
+    final int[] _cols;  final boolean[] _desc;
+    final long _nsamples;
+    long[][] _samples;
+    Sample( int[] cols, boolean[] desc, long nsamples ) { _cols = cols; _desc = desc; _nsamples = nsamples; }
+    @Override public void map( Chunk[] chks ) {
+      int len = chks[0]._len;
+      long nrows = chks[0].vec().length();
+      int n = (int)Math.max(1,Math.min(len,(_nsamples*len+nrows-1)/nrows));
+      _samples = new long[n][];
+      for( int i=0; i<n; i++ ) {
+        long[] ks = _samples[i] = new long[_cols.length+1];
+        keys(chks,_cols,_desc,(int)((long)i*len/n),ks);
+      }
+    }
+    @Override public void reduce( Sample s ) { if( s._samples != null ) _samples = ArrayUtils.append(_samples,s._samples); }
+  }
+
+  // Bin every row by splitter into node-local Buckets
+  private static class Bin extends Binner<Bin> {
+    final int[] _cols;  final boolean[] _desc;
+    final long[][] _splits;
+    Bin( int[] cols, boolean[] desc, long[][] splits ) { super(splits.length+1); _cols = cols; _desc = desc; _splits = splits; }
+    @Override void partition( Chunk[] chks, int[] part ) {
+      long[] ks = new long[_cols.length+1];
+      for( int r=0; r<part.length; r++ ) {
+        keys(chks,_cols,_desc,r,ks);
+        int lo=0, hi=_splits.length; // Find first splitter > key
+        while( lo < hi ) {
+          int mid = (lo+hi)>>>1;
+          if( cmp(_splits[mid],ks) <= 0 ) lo = mid+1; else hi = mid;
+        }
+        part[r] = lo;
+      }
+    }
+  }
+
+  // Each output Chunk gathers its partition from all nodes and sorts it
+  private static class Gather extends MRTask<Gather> {
+    final Key _uniq;
+    final int[] _cols;  final boolean[] _desc;
+    final int[] _pids;  // Partition for each output Chunk
+    final int _ncols;
+    Gather( Key uniq, int[] cols, boolean[] desc, int[] pids, int ncols ) {
+      _uniq = uniq; _cols = cols; _desc = desc; _pids = pids; _ncols = ncols;
+    }
+    @Override public void map( Chunk[] cs, NewChunk[] ncs ) {
+      int part = _pids[cs[0].cidx()];
+      FetchBucket fb = gather(_uniq,part,_ncols);
+      int n = fb._rows.length;
+      assert n == cs[0]._len : "Partition "+part+" expected "+cs[0]._len+" rows, gathered "+n;
+
+      // Sort keys: one row per sort column, plus the original row number
+      long[][] ks = new long[_cols.length+1][];
+      for( int i=0; i<_cols.length; i++ ) {
+        double[] d = fb._ds[_cols[i]];
+        long[] k = ks[i] = new long[n];
+        for( int r=0; r<n; r++ ) k[r] = key(d[r],_desc[i]);
+      }
+      ks[_cols.length] = fb._rows;
+      int[] perm = radixSort(ks,n);
+      for( int c=0; c<_ncols; c++ ) {
+        double[] d = fb._ds[c];
+        NewChunk nc = ncs[c];
+        for( int r=0; r<n; r++ ) nc.addNum(d[perm[r]]);
+      }
+    }
+  }
+
+  // LSD radix sort on tuples of unsigned longs, 8 bits at a time starting
+  // with the least significant key.  Byte positions where all keys agree are
+  // skipped, which makes the (mostly constant) high bytes free.  Returns the
+  // sorted permutation.
+  static int[] radixSort( long[][] ks, int n ) {
+    int[] perm = new int[n], tmp = new int[n];
+    for( int i=0; i<n; i++ ) perm[i] = i;
+    int[] cnt = new int[257];
+    for( int j=ks.length-1; j>=0; j-- ) {
+      long[] k = ks[j];
+      for( int shift=0; shift<64; shift+=8 ) {
+        Arrays.fill(cnt,0);
+        for( int i=0; i<n; i++ ) cnt[(int)((k[i]>>>shift)&0xFF)+1]++;
+        boolean skip = false;
+        for( int b=1; b<=256; b++ ) if( cnt[b]==n ) { skip = true; break; }
+        if( skip ) continue;
+        for( int b=0; b<256; b++ ) cnt[b+1] += cnt[b];
+        for( int i=0; i<n; i++ ) {
+          int p = perm[i];
+          tmp[cnt[(int)((k[p]>>>shift)&0xFF)]++] = p;
+        }
+        int[] t = perm; perm = tmp; tmp = t;
+      }
+    }
+    return perm;
+  }
+
+  // ---
+  // Node-local row buckets for partitioned operations (also used by the
+  // partitioned join in ASTMerge).  A Binner pass routes every row of a
+  // Frame to one of N partitions, appending it to a Bucket on the node
+  // holding the row; a later pass pulls each partition together with
+  // gather().  All columns are carried as doubles.
+
+  // All active partitioned ops have a per-Node set of Buckets, one per partition
+  static final NonBlockingHashMap<Key,Bucket[]> BUCKETS = new NonBlockingHashMap<>();
+
+  // A node-local bucket of rows headed for one partition.  Each map call
+  // appends one block of rows.
+  static class Bucket {
+    final ArrayList<double[][]> _blocks = new ArrayList<>();
+    final ArrayList<long[]> _rows = new ArrayList<>();
+    synchronized void add( double[][] ds, long[] rows ) { _blocks.add(ds); _rows.add(rows); }
+  }
+
+  // Route every row into a node-local Bucket.  Subclasses pick the
+  // partition for each row, and may override value() to remap columns.
+  // Returns the global row count per partition.
+  abstract static class Binner<T extends Binner<T>> extends MRTask<T> {
+    final Key _uniq;      // Key to allow sharing of the Buckets on each Node
+    final int _nparts;
+    long[] _cnts;
+    Binner( int nparts ) { _uniq = Key.make(); _nparts = nparts; }
+    abstract void partition( Chunk[] chks, int[] part );
+    double value( Chunk[] chks, int c, int row ) { return chks[c].atd(row); }
+    @Override public void setupLocal() {
+      Bucket[] bs = new Bucket[_nparts];
+      for( int i=0; i<bs.length; i++ ) bs[i] = new Bucket();
+      BUCKETS.putIfAbsent(_uniq,bs);
+    }
+    @Override public void map( Chunk[] chks ) {
+      int len = chks[0]._len;
+      int[] part = new int[len];
+      partition(chks,part);
+      _cnts = new long[_nparts];
+      for( int p : part ) _cnts[p]++;
+      int[] idx = new int[_nparts];
+      double[][][] ds = new double[_nparts][][];
+      long[][] rows = new long[_nparts][];
+      for( int p=0; p<_nparts; p++ )
+        if( _cnts[p] > 0 ) { ds[p] = new double[chks.length][(int)_cnts[p]]; rows[p] = new long[(int)_cnts[p]]; }
+      long start = chks[0].start();
+      for( int r=0; r<len; r++ ) {
+        int p = part[r], i = idx[p]++;
+        for( int c=0; c<chks.length; c++ ) ds[p][c][i] = value(chks,c,r);
+        rows[p][i] = start+r;
+      }
+      Bucket[] bs = BUCKETS.get(_uniq);
+      for( int p=0; p<_nparts; p++ )
+        if( _cnts[p] > 0 ) bs[p].add(ds[p],rows[p]);
+    }
+    @Override public void reduce( T b ) { _cnts = _cnts==null ? b._cnts : ArrayUtils.add(_cnts,b._cnts); }
+  }
+
+  // Fetch (and remove) one partition's Bucket from a node
+  static class FetchBucket extends DTask<FetchBucket> {
+    final Key _uniq;  final int _part;
+    double[][] _ds;  long[] _rows;  // OUT
+    FetchBucket( Key uniq, int part ) { _uniq = uniq; _part = part; }
+    @Override public void compute2() {
+      Bucket[] bs = BUCKETS.get(_uniq);
+      if( bs != null && bs[_part] != null ) {
+        Bucket b = bs[_part];
+        bs[_part] = null;
+        int n=0, ncols=0;
+        for( long[] rows : b._rows ) n += rows.length;
+        for( double[][] ds : b._blocks ) ncols = ds.length;
+        _ds = new double[ncols][n];
+        _rows = new long[n];
+        for( int i=0, off=0; i<b._rows.size(); i++ ) {
+          double[][] ds = b._blocks.get(i);
+          long[] rows = b._rows.get(i);
+          for( int c=0; c<ncols; c++ ) System.arraycopy(ds[c],0,_ds[c],off,rows.length);
+          System.arraycopy(rows,0,_rows,off,rows.length);
+          off += rows.length;
+        }
+      }
+      tryComplete();
+    }
+    @Override public byte priority() { return H2O.MIN_HI_PRIORITY; }
+  }
+
+  // Pull one partition from every node, in parallel, into a single block
+  static FetchBucket gather( Key uniq, int part, int ncols ) {
+    ArrayList<RPC<FetchBucket>> rpcs = new ArrayList<>();
+    for( H2ONode node : H2O.CLOUD.members() ) rpcs.add(new RPC<>(node,new FetchBucket(uniq,part)).call());
+    ArrayList<FetchBucket> fbs = new ArrayList<>();
+    int n=0;
+    for( RPC<FetchBucket> rpc : rpcs ) {
+      FetchBucket fb = rpc.get();
+      if( fb._rows == null || fb._rows.length == 0 ) continue; // Empty bucket: _ds has no columns
+      fbs.add(fb);
+      n += fb._rows.length;
+    }
+    FetchBucket res = new FetchBucket(uniq,part);
+    res._ds = new double[ncols][n];
+    res._rows = new long[n];
+    int off=0;
+    for( FetchBucket fb : fbs ) {
+      int len = fb._rows.length;
+      for( int c=0; c<ncols; c++ ) System.arraycopy(fb._ds[c],0,res._ds[c],off,len);
+      System.arraycopy(fb._rows,0,res._rows,off,len);
+      off += len;
+    }
+    return res;
+  }
+
+  // Drop any leftover Buckets on every node
+  static class Cleanup extends MRTask<Cleanup> {
+    final Key _uniq;
+    Cleanup( Key uniq ) { _uniq = uniq; }
+    @Override public void setupLocal() { BUCKETS.remove(_uniq); }
+  }
+}
@@ -3,6 +3,9 @@ package water.util;
 import sun.misc.Unsafe;
 import water.nbhm.UtilUnsafe;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
 public class UnsafeUtils {
   private static final Unsafe _unsafe = UtilUnsafe.getUnsafe();
   private static final long _Bbase  = _unsafe.arrayBaseOffset(byte[].class);
@@ -17,4 +20,24 @@ public class UnsafeUtils {
   public static int set4f(byte[] buf, int off, float f ) {_unsafe.putFloat (buf, _Bbase+off, f); return 4;}
   public static int set8 (byte[] buf, int off, long x  ) {_unsafe.putLong  (buf, _Bbase+off, x); return 8;}
   public static int set8d(byte[] buf, int off, double x) {_unsafe.putDouble(buf, _Bbase+off, x); return 8;}
+
+  // Base+offset flavors.  With a byte[] base the offset starts at BYTE_BASE;
+  // with a null base the offset is an absolute (off-heap) address.  Lets the
+  // same code read a Chunk's bytes from either the heap or a direct buffer.
+  public static final long BYTE_BASE = _Bbase;
+  public static int    get1 ( Object base, long off ) { return _unsafe.getByte  (base, off); }
+  public static int    get2 ( Object base, long off ) { return _unsafe.getShort (base, off); }
+  public static double get8d( Object base, long off ) { return _unsafe.getDouble(base, off); }
+  public static int set1 (Object base, long off, byte x  ) {_unsafe.putByte  (base, off, x); return 1;}
+  public static int set2 (Object base, long off, short x ) {_unsafe.putShort (base, off, x); return 2;}
+  public static int set8d(Object base, long off, double x) {_unsafe.putDouble(base, off, x); return 8;}
+  public static void copy( Object src, long srcOff, Object dst, long dstOff, long len ) { _unsafe.copyMemory(src, srcOff, dst, dstOff, len); }
+
+  // Raw address of a direct ByteBuffer
+  private static final long _Aoff;
+  static {
+    try { _Aoff = _unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address")); }
+    catch( NoSuchFieldException e ) { throw new RuntimeException(e); }
+  }
+  public static long address( ByteBuffer bb ) { assert bb.isDirect(); return _unsafe.getLong(bb, _Aoff); }
 }
@@ -0,0 +1,145 @@
+package water;
+
+import org.junit.*;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class NanoHTTPDTest extends TestUtil {
+  @BeforeClass() public static void setup() { stall_till_cloudsize(1); }
+
+  // Echoes method, URI and POST body; requests to /block wait for the latch
+  private static class Echo extends NanoHTTPD {
+    final CountDownLatch _entered = new CountDownLatch(1);
+    final CountDownLatch _release = new CountDownLatch(1);
+    final int _port;
+    Echo( int nthreads, int maxQueued ) throws IOException { this(new ServerSocket(0), nthreads, maxQueued); }
+    private Echo( ServerSocket ss, int nthreads, int maxQueued ) throws IOException {
+      super(ss, new File("."), nthreads, maxQueued);
+      _port = ss.getLocalPort();
+    }
+    @Override public Response serve( String uri, String method, Properties header, Properties parms ) {
+      if( uri.equals("/block") ) {
+        _entered.countDown();
+        try { _release.await(30, TimeUnit.SECONDS); } catch( InterruptedException ignore ) { }
+      }
+      String body = parms.getProperty("_post_body");
+      return new Response(HTTP_OK, MIME_PLAINTEXT, method + " " + uri + (body == null ? "" : " " + body));
+    }
+  }
+
+  private static void write( Socket s, String str ) throws IOException {
+    OutputStream os = s.getOutputStream();
+    os.write(str.getBytes(StandardCharsets.UTF_8));
+    os.flush();
+  }
+
+  private static String line( InputStream is ) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int b;
+    while( (b = is.read()) != '\n' ) {
+      if( b == -1 ) throw new EOFException();
+      if( b != '\r' ) sb.append((char)b);
+    }
+    return sb.toString();
+  }
+
+  // Reads one response framed by Content-Length; returns "status|body"
+  private static String response( InputStream is ) throws IOException {
+    String status = line(is);
+    int len = -1;
+    for( String h = line(is); !h.isEmpty(); h = line(is) )
+      if( h.toLowerCase().startsWith("content-length:") ) len = Integer.parseInt(h.substring(15).trim());
+    Assert.assertTrue("no Content-Length", len >= 0);
+    byte[] body = new byte[len];
+    for( int off = 0; off < len; ) {
+      int n = is.read(body, off, len - off);
+      if( n < 0 ) throw new EOFException();
+      off += n;
+    }
+    return status.substring(status.indexOf(' ') + 1).trim() + "|" + new String(body, StandardCharsets.UTF_8);
+  }
+
+  private static Socket connect( Echo server ) throws IOException {
+    Socket s = new Socket("127.0.0.1", server._port);
+    s.setSoTimeout(30000);
+    return s;
+  }
+
+  @Test public void testPipelined() throws IOException {
+    Echo server = new Echo(4, 4);
+    try( Socket s = connect(server) ) {
+      write(s, "GET /a HTTP/1.1\r\nHost: x\r\n\r\nGET /b HTTP/1.1\r\nHost: x\r\n\r\n");
+      InputStream is = new BufferedInputStream(s.getInputStream());
+      Assert.assertEquals("200 OK|GET /a", response(is));
+      Assert.assertEquals("200 OK|GET /b", response(is));
+      // Still open for a third request
+      write(s, "GET /c HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n");
+      Assert.assertEquals("200 OK|GET /c", response(is));
+      Assert.assertEquals(-1, is.read());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test public void testChunkedBody() throws IOException {
+    Echo server = new Echo(4, 4);
+    try( Socket s = connect(server) ) {
+      write(s, "POST /p HTTP/1.1\r\nHost: x\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n" +
+               "5\r\n{\"a\":\r\n4;ext=1\r\n 12}\r\n0\r\nX-Trailer: t\r\n\r\n" +
+               "GET /next HTTP/1.1\r\nHost: x\r\n\r\n");
+      InputStream is = new BufferedInputStream(s.getInputStream());
+      Assert.assertEquals("200 OK|POST /p {\"a\": 12}", response(is));
+      Assert.assertEquals("200 OK|GET /next", response(is));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test public void testSplitContentLengthBody() throws Exception {
+    Echo server = new Echo(4, 4);
+    try( Socket s = connect(server) ) {
+      String body = "{\"key\":\"split body\"}";
+      write(s, "POST /p HTTP/1.1\r\nHost: x\r\nContent-Type: application/json\r\nContent-Length: " + body.length() + "\r\n\r\n");
+      Thread.sleep(100);
+      write(s, body.substring(0, 5));
+      Thread.sleep(100);
+      write(s, body.substring(5, 12));
+      Thread.sleep(100);
+      // Rest of the body and the next request in the same write
+      write(s, body.substring(12) + "GET /next HTTP/1.1\r\nHost: x\r\n\r\n");
+      InputStream is = new BufferedInputStream(s.getInputStream());
+      Assert.assertEquals("200 OK|POST /p " + body, response(is));
+      Assert.assertEquals("200 OK|GET /next", response(is));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test public void testBusy() throws Exception {
+    Echo server = new Echo(1, 1);
+    try( Socket busy = connect(server); Socket queued = connect(server) ) {
+      // The only session thread blocks in serve(), the next connection waits in the queue
+      write(busy, "GET /block HTTP/1.1\r\nHost: x\r\n\r\n");
+      Assert.assertTrue(server._entered.await(30, TimeUnit.SECONDS));
+      write(queued, "GET /q HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n");
+      Thread.sleep(200);
+      try( Socket rejected = connect(server) ) {
+        InputStream is = new BufferedInputStream(rejected.getInputStream());
+        Assert.assertEquals("503 Service Unavailable|", response(is));
+        Assert.assertEquals(-1, is.read());
+      }
+      server._release.countDown();
+      Assert.assertEquals("200 OK|GET /block", response(new BufferedInputStream(busy.getInputStream())));
+      Assert.assertEquals("200 OK|GET /q", response(new BufferedInputStream(queued.getInputStream())));
+    } finally {
+      server._release.countDown();
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package water.fvec;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.MRTask;
+import water.TestUtil;
+
+import java.io.*;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameCSVTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  private static class Fill extends MRTask<Fill> {
+    @Override public void map(Chunk[] cs) {
+      long start = cs[0].start();
+      for( int r = 0; r < cs[0]._len; r++ ) {
+        long row = start + r;
+        cs[0].set(r, row);
+        if( row % 7 == 3 ) cs[1].setNA(r);
+        else cs[1].set(r, row / 4.0);
+      }
+    }
+  }
+
+  private static Frame multiChunkFrame(int rows) {
+    Vec v0 = Vec.makeCon(0, rows, 6, false); // 64 rows per chunk
+    Vec v1 = v0.makeZero();
+    Frame fr = new Frame(new String[]{"i", "d"}, new Vec[]{v0, v1});
+    new Fill().doAll(fr);
+    return fr;
+  }
+
+  private static String expected(int rows) {
+    StringBuilder sb = new StringBuilder("\"i\",\"d\"\n");
+    for( int r = 0; r < rows; r++ ) {
+      sb.append(r).append(',');
+      if( r % 7 != 3 ) sb.append(Double.toString(r / 4.0));
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static String slurp(InputStream is) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] buf = new byte[1000];
+    int n;
+    while( (n = is.read(buf, 0, buf.length)) != -1 )
+      bos.write(buf, 0, n);
+    is.close();
+    return bos.toString();
+  }
+
+  @Test public void testStreamMatchesRows() throws IOException {
+    Frame fr = multiChunkFrame(2000);
+    try {
+      assertTrue(fr.anyVec().nChunks() > 8);   // More chunks than the window on a small cloud
+      assertEquals(expected(2000), slurp(fr.toCSV(true, false)));
+    } finally {
+      fr.delete();
+    }
+  }
+
+  @Test public void testExportParts() throws IOException {
+    Frame fr = multiChunkFrame(1000);
+    File dir = Files.createTempDirectory("csvparts").toFile();
+    try {
+      fr.exportCSVParts(dir.getPath(), true, false, false);
+      int nchunks = fr.anyVec().nChunks();
+      StringBuilder sb = new StringBuilder();
+      for( int i = 0; i < nchunks; i++ )
+        sb.append(slurp(new FileInputStream(new File(dir, String.format("part-%05d", i)))));
+      assertEquals(expected(1000), sb.toString());
+    } finally {
+      fr.delete();
+      File[] parts = dir.listFiles();
+      if( parts != null ) for( File f : parts ) f.delete();
+      dir.delete();
+    }
+  }
+}
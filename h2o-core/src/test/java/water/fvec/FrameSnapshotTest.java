@@ -0,0 +1,63 @@
+package water.fvec;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import water.Key;
+import water.MRTask;
+import water.TestUtil;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class FrameSnapshotTest extends TestUtil {
+  @BeforeClass public static void setup() { stall_till_cloudsize(1); }
+
+  private static class Fill extends MRTask<Fill> {
+    @Override public void map(Chunk[] cs) {
+      long start = cs[0].start();
+      for( int r = 0; r < cs[0]._len; r++ ) {
+        long row = start + r;
+        cs[0].set(r, row);
+        if( row % 5 == 2 ) cs[1].setNA(r);
+        else cs[1].set(r, row * 0.25);
+        cs[2].set(r, row % 3);
+      }
+    }
+  }
+
+  @Test public void testRoundTrip() throws Exception {
+    Vec v0 = Vec.makeCon(0, 1000, 6, false); // 64 rows per chunk
+    Frame fr = new Frame(Key.make(), new String[]{"i", "d", "e"},
+        new Vec[]{v0, v0.makeZero(), v0.makeZero(new String[]{"a", "b", "c"})});
+    new Fill().doAll(fr);
+    File dir = Files.createTempDirectory("snapshot").toFile();
+    Frame fr2 = null;
+    try {
+      double mean = fr.vec(1).mean();
+      FrameSnapshot.save(fr, dir.getPath(), false);
+      assertTrue(new File(dir, FrameSnapshot.META).exists());
+      fr2 = FrameSnapshot.load(Key.<Frame>make(), dir.getPath());
+
+      assertArrayEquals(fr.names(), fr2.names());
+      assertEquals(fr.numRows(), fr2.numRows());
+      assertEquals(fr.anyVec().nChunks(), fr2.anyVec().nChunks());
+      assertArrayEquals(fr.vec(2).domain(), fr2.vec(2).domain());
+      assertTrue(fr2.vec(2).isEnum());
+      assertEquals(mean, fr2.vec(1).mean(), 0);
+      assertEquals(fr.vec(1).naCnt(), fr2.vec(1).naCnt());
+      for( int c = 0; c < fr.numCols(); c++ )
+        for( long r = 0; r < fr.numRows(); r++ ) {
+          assertEquals(fr.vec(c).isNA(r), fr2.vec(c).isNA(r));
+          if( !fr.vec(c).isNA(r) ) assertEquals(fr.vec(c).at(r), fr2.vec(c).at(r), 0);
+        }
+    } finally {
+      fr.delete();
+      if( fr2 != null ) fr2.delete();
+      File[] files = dir.listFiles();
+      if( files != null ) for( File f : files ) f.delete();
+      dir.delete();
+    }
+  }
+}
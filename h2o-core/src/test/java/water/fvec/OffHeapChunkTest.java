@@ -0,0 +1,68 @@
+package water.fvec;
+
+import org.junit.*;
+
+import water.H2O;
+import water.Key;
+import water.TestUtil;
+import water.Value;
+
+public class OffHeapChunkTest extends TestUtil {
+  @BeforeClass() public static void setup() { stall_till_cloudsize(1); }
+
+  // Compress, move off-heap, then check reads, in-place writes and
+  // serialization all match an on-heap copy of the same Chunk.
+  private static void check( double[] vals, Class<? extends Chunk> clz ) {
+    NewChunk nc = new NewChunk(null, 0);
+    for( double d : vals ) if( Double.isNaN(d) ) nc.addNA(); else nc.addNum(d);
+    Chunk heap = nc.compress();
+    Assert.assertTrue(clz.isInstance(heap));
+    Chunk off = heap.toOffHeap();
+    Assert.assertNotNull(off);
+    Assert.assertTrue(off.isOffHeap());
+    Assert.assertFalse(heap.isOffHeap());
+    Assert.assertNull(off.toOffHeap());
+    Assert.assertNull(off._mem);
+    Assert.assertArrayEquals(heap.getBytes(), off.getBytes());
+    for( int i=0; i<vals.length; i++ ) {
+      Assert.assertEquals(heap.isNA(i), off.isNA(i));
+      Assert.assertEquals(heap.atd(i), off.atd(i), 0);
+    }
+    // Round-trip through the wire format lands back on-heap, in a fresh
+    // instance made the same way a remote fetch or a disk read makes one
+    Chunk rt = new Value(Key.make(),off.getBytes().length,off.getBytes(),(short)off.frozenType(),Value.ICE).get();
+    Assert.assertTrue(clz.isInstance(rt));
+    Assert.assertFalse(rt.isOffHeap());
+    for( int i=0; i<vals.length; i++ )
+      Assert.assertEquals(heap.atd(i), rt.atd(i), 0);
+    // In-place writes go to the direct buffer (C8D only takes doubles)
+    Assert.assertTrue(off.set_impl(0,1L) || off.set_impl(0,1.0));
+    Assert.assertTrue(off.setNA_impl(1));
+    Assert.assertEquals(1, off.at8_impl(0));
+    Assert.assertTrue(off.isNA_impl(1));
+  }
+
+  @Test public void testC1()  { check(new double[]{0,1,Double.NaN,254,7}, C1Chunk.class); }
+  @Test public void testC2()  { check(new double[]{-32767,0,32767,Double.NaN,5}, C2Chunk.class); }
+  @Test public void testC8D() { check(new double[]{Math.PI,-1e300,Double.NaN,2.5,1e-300}, C8DChunk.class); }
+
+  @Test public void testVec() {
+    boolean old = H2O.ARGS.off_heap;
+    H2O.ARGS.off_heap = true;
+    Vec z = Vec.makeZero(10000), v = null;
+    try {
+      v = z.makeRand(0xDECAFL);
+      for( int i=0; i<v.nChunks(); i++ ) {
+        Chunk c = v.chunkForChunkIdx(i);
+        Assert.assertTrue(c instanceof C8DChunk);
+        Assert.assertTrue(c.isOffHeap());
+        for( int r=0; r<c._len; r++ )
+          Assert.assertTrue(0 <= c.atd(r) && c.atd(r) < 1);
+      }
+    } finally {
+      H2O.ARGS.off_heap = old;
+      z.remove();
+      if( v != null ) v.remove();
+    }
+  }
+}
@@ -5,7 +5,18 @@ import org.junit.Test;
 import water.DKV;
 import water.Key;
 import water.TestUtil;
+import water.MRTask;
+import water.fvec.Chunk;
 import water.fvec.Frame;
+import water.fvec.Vec;
+import water.util.ArrayUtils;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RapidsTest extends TestUtil {
   @BeforeClass public static void setup() { stall_till_cloudsize(1); }
@@ -127,6 +138,168 @@ public class RapidsTest extends TestUtil {
   }
 
 
+  @Test public void testMergePartitioned() {
+    Frame l=null,r=null,f=null;
+    try {
+      // Two key columns, non-integer keys, duplicate keys on one side
+      l = frame(ar("k1","k2","a"),ard(1.5,1,10),ard(2.5,1,20),ard(1.5,2,30),ard(3.5,1,40));
+      r = frame(ar("k1","k2","b"),ard(1.5,1,100),ard(1.5,1,101),ard(2.5,1,200),ard(9.5,9,900));
+      String[] inner = ar("1.5 1.0 10.0 100.0","1.5 1.0 10.0 101.0","2.5 1.0 20.0 200.0");
+      String[] left = ArrayUtils.append(inner,ar("1.5 2.0 30.0 NaN","3.5 1.0 40.0 NaN"));
+      String[] full = ArrayUtils.append(left,ar("9.5 9.0 NaN 900.0"));
+      String[][] exps = new String[][]{inner,left,full};
+      String[] flags = ar("#0 #0","#1 #0","#1 #1");
+      for( int i=0; i<flags.length; i++ ) {
+        f = Exec.exec(String.format("(merge %%%s %%%s %s \"partitioned\")",l._key,r._key,flags[i])).popAry();
+        assertEquals(4,f.numCols());
+        Vec[] vs = new Vec[]{f.vec("k1"),f.vec("k2"),f.vec("a"),f.vec("b")};
+        String[] rows = new String[(int)f.numRows()];
+        for( int j=0; j<rows.length; j++ )
+          rows[j] = vs[0].at(j)+" "+vs[1].at(j)+" "+vs[2].at(j)+" "+vs[3].at(j);
+        Arrays.sort(rows);
+        String[] exp = exps[i].clone();
+        Arrays.sort(exp);
+        assertArrayEquals(exp,rows);
+        f.delete();
+        f = null;
+      }
+    } finally {
+      if( f != null ) f.delete();
+      if( r != null ) r.delete();
+      if( l != null ) l.delete();
+    }
+  }
+
+  @Test public void testMergePartitionedSkewed() {
+    Frame l=null,r=null,f=null;
+    try {
+      // Many Chunks but only 3 distinct keys, so most partitions are empty
+      Vec v = Vec.makeCon(0,20000,10);
+      Vec[] vs = new MRTask() {
+        @Override public void map( Chunk[] cs ) {
+          for( int i=0; i<cs[0]._len; i++ ) {
+            long row = cs[0].start()+i;
+            cs[0].set(i,row%3);
+            cs[1].set(i,row);
+          }
+        }
+      }.doAll(new Frame(v,v.makeZero()))._fr.vecs();
+      l = new Frame(Key.make(),new String[]{"k","a"},vs);
+      DKV.put(l);
+      assertTrue(l.anyVec().nChunks() > 3);
+      r = frame(ar("k","b"),ard(0,100),ard(1,101),ard(5,105));
+      String[] flags = ar("#0 #0","#1 #0");
+      long[] nrows = new long[]{13334,20000};
+      for( int i=0; i<flags.length; i++ ) {
+        f = Exec.exec(String.format("(merge %%%s %%%s %s \"partitioned\")",l._key,r._key,flags[i])).popAry();
+        assertEquals(nrows[i],f.numRows());
+        Vec k = f.vec("k"), a = f.vec("a"), b = f.vec("b");
+        for( long j=0; j<f.numRows(); j++ ) {
+          assertEquals((long)a.at(j)%3,k.at(j),0);
+          assertEquals(k.at(j)==2 ? Double.NaN : 100+k.at(j),b.at(j),0);
+        }
+        f.delete();
+        f = null;
+      }
+    } finally {
+      if( f != null ) f.delete();
+      if( r != null ) r.delete();
+      if( l != null ) l.delete();
+    }
+  }
+
+  @Test public void testMergeAllSmall() {
+    Frame l=null,r=null,f=null;
+    try {
+      // Keep all rows of the smaller (right) frame: unmatched key 5 must survive
+      Vec v = Vec.makeCon(0,20000,10);
+      Vec[] vs = new MRTask() {
+        @Override public void map( Chunk[] cs ) {
+          for( int i=0; i<cs[0]._len; i++ ) {
+            long row = cs[0].start()+i;
+            cs[0].set(i,row%3);
+            cs[1].set(i,row);
+          }
+        }
+      }.doAll(new Frame(v,v.makeZero()))._fr.vecs();
+      l = new Frame(Key.make(),new String[]{"k","a"},vs);
+      DKV.put(l);
+      r = frame(ar("k","b"),ard(0,100),ard(1,101),ard(5,105));
+      f = Exec.exec(String.format("(merge %%%s %%%s #0 #1 \"auto\")",l._key,r._key)).popAry();
+      assertEquals(13335,f.numRows());
+      Vec k = f.vec("k"), a = f.vec("a"), b = f.vec("b");
+      int unmatched = 0;
+      for( long j=0; j<f.numRows(); j++ ) {
+        assertEquals(100+k.at(j),b.at(j),0);
+        if( k.at(j)==5 ) { assertTrue(a.isNA(j)); unmatched++; }
+        else assertEquals((long)a.at(j)%3,k.at(j),0);
+      }
+      assertEquals(1,unmatched);
+      f.delete();
+      f = null;
+      try {
+        f = Exec.exec(String.format("(merge %%%s %%%s #0 #1 \"broadcast\")",l._key,r._key)).popAry();
+        fail("broadcast merge dropping rows of the smaller frame");
+      } catch( IllegalArgumentException expected ) { }
+    } finally {
+      if( f != null ) f.delete();
+      if( r != null ) r.delete();
+      if( l != null ) l.delete();
+    }
+  }
+
+  @Test public void testSort() {
+    Frame fr=null,f=null;
+    try {
+      fr = frame(ard(ard(3,1),ard(1,Double.NaN),ard(2,0),ard(1,5),ard(Double.NaN,2)));
+      f = Exec.exec(String.format("(sort %%%s (llist #0 #1))",fr._key)).popAry();
+      double[][] exp = ard(ard(1,5),ard(1,Double.NaN),ard(2,0),ard(3,1),ard(Double.NaN,2));
+      for( int r=0; r<exp.length; r++ )
+        for( int c=0; c<2; c++ )
+          assertEquals(exp[r][c],f.vecs()[c].at(r),0);
+      f.delete();
+      f = Exec.exec(String.format("(sort %%%s (llist #0 #1) (llist #1 #0))",fr._key)).popAry();
+      exp = ard(ard(3,1),ard(2,0),ard(1,5),ard(1,Double.NaN),ard(Double.NaN,2));
+      for( int r=0; r<exp.length; r++ )
+        for( int c=0; c<2; c++ )
+          assertEquals(exp[r][c],f.vecs()[c].at(r),0);
+    } finally {
+      if( f  != null ) f .delete();
+      if( fr != null ) fr.delete();
+    }
+  }
+
+  @Test public void testSortChunked() {
+    Frame fr=null,f=null;
+    try {
+      // Many Chunks, heavily duplicated keys, and the original row number
+      Vec v = Vec.makeCon(0,100000,12);
+      Vec[] vs = new MRTask() {
+        @Override public void map( Chunk[] cs ) {
+          for( int i=0; i<cs[0]._len; i++ ) {
+            long row = cs[0].start()+i;
+            cs[0].set(i,(row*7919)%1000);
+            cs[1].set(i,row);
+          }
+        }
+      }.doAll(new Frame(v,v.makeZero()))._fr.vecs();
+      fr = new Frame(Key.make(),new String[]{"k","row"},vs);
+      DKV.put(fr);
+      f = Exec.exec(String.format("(sort %%%s #0)",fr._key)).popAry();
+      assertEquals(fr.numRows(),f.numRows());
+      assertTrue(f.anyVec().nChunks() > 1);
+      Vec k = f.vecs()[0], row = f.vecs()[1];
+      for( long r=1; r<f.numRows(); r++ ) {
+        assertTrue(k.at(r-1) <= k.at(r));
+        if( k.at(r-1) == k.at(r) ) assertTrue(row.at(r-1) < row.at(r)); // Stable
+      }
+      assertEquals(fr.vecs()[1].mean(),row.mean(),1e-6);
+    } finally {
+      if( f  != null ) f .delete();
+      if( fr != null ) fr.delete();
+    }
+  }
+
   @Test public void testQuantile() {
     Frame fr = frame(ard(ard(1.223292e-02), 
                          ard(1.635312e-25), 
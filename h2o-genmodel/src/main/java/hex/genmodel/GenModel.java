@@ -55,6 +55,17 @@ public abstract class GenModel {
    *  GenModel class. */
   abstract public double[] score0( double[] data, double[] preds );
 
+  /** Batch version of {@link #score0(double[],double[])}: scores every row
+   *  of {@code data} into the matching row of {@code preds}, which is also
+   *  returned.  Rows are scored one after another so the model's constants
+   *  stay hot across the batch; subclasses may override with a column-wise
+   *  implementation. */
+  public double[][] score0( double[][] data, double[][] preds ) {
+    for( int i=0; i<data.length; i++ )
+      preds[i] = score0(data[i],preds[i]);
+    return preds;
+  }
+
   // Does the mapping lookup for every row, no allocation.
   // data and preds arrays are pre-allocated and can be re-used for every row.
   public double[] score0( Map<String, Double> row, double data[], double preds[] ) {